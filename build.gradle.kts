@@ -8,6 +8,7 @@ plugins {
     id("io.spring.dependency-management")
     id("com.github.ben-manes.versions")
     id("com.diffplug.spotless")
+    id("me.champeau.jmh")
 }
 
 java {
@@ -28,11 +29,19 @@ sourceSets {
             srcDir("src/functional-test/java")
         }
     }
+    create("loadTest") {
+        java {
+            compileClasspath += sourceSets.main.get().output
+            runtimeClasspath += sourceSets.main.get().output
+            srcDir("src/load-test/java")
+        }
+    }
 }
 
 idea {
     module {
         testSources.from(sourceSets["functionalTest"].java.srcDirs)
+        testSources.from(sourceSets["loadTest"].java.srcDirs)
     }
 }
 
@@ -40,10 +49,17 @@ val functionalTestImplementation: Configuration by configurations.getting {
     extendsFrom(configurations.implementation.get())
 }
 val functionalTestRuntimeOnly: Configuration by configurations.getting
+val loadTestImplementation: Configuration by configurations.getting {
+    extendsFrom(configurations.implementation.get())
+}
+val loadTestRuntimeOnly: Configuration by configurations.getting {
+    extendsFrom(configurations.runtimeOnly.get())
+}
 
 configurations {
     configurations["functionalTestImplementation"].extendsFrom(configurations.testImplementation.get())
     configurations["functionalTestRuntimeOnly"].extendsFrom(configurations.testRuntimeOnly.get())
+    configurations["functionalTestRuntimeOnly"].extendsFrom(configurations.runtimeOnly.get())
 }
 
 
@@ -66,9 +82,14 @@ val functionalTest = task<Test>("functionalTest") {
 dependencies {
     /* Spring Boot */
     implementation ("org.springframework.boot:spring-boot-starter-web")
+    implementation ("org.springframework.boot:spring-boot-starter-actuator")
+    runtimeOnly ("io.micrometer:micrometer-registry-prometheus")
     testImplementation("org.springframework.boot:spring-boot-starter-test") {
         exclude (group = "org.junit.vintage", module = "junit-vintage-engine")
     }
+
+    /* Caching */
+    implementation ("com.github.ben-manes.caffeine:caffeine")
 }
 
 tasks.named<Test>("test") {
@@ -81,6 +102,22 @@ tasks.named<Test>("test") {
 
 tasks.check { dependsOn(functionalTest) }
 
+tasks.register<JavaExec>("loadTest") {
+    description = "Drives a running application with synthetic readings, see uk.tw.energy.loadtest.LoadTest."
+    group = "application"
+
+    classpath = sourceSets["loadTest"].runtimeClasspath
+    mainClass.set("uk.tw.energy.loadtest.LoadTest")
+    args = providers.gradleProperty("loadTestArgs").orNull?.split(" ")?.filter { it.isNotEmpty() } ?: emptyList()
+}
+
+jmh {
+    jmhVersion.set("1.37")
+    resultFormat.set("JSON")
+    resultsFile.set(layout.buildDirectory.file("results/jmh/results.json"))
+    providers.gradleProperty("jmhIncludes").orNull?.let { includes.set(listOf(it)) }
+}
+
 fun isNonStable(version: String): Boolean {
     val stableKeyword = listOf("RELEASE", "FINAL", "GA").any { version.uppercase().contains(it) }
     val regex = "^[0-9,.v-]+(-r)?$".toRegex()
@@ -3,23 +3,33 @@ package uk.tw.energy;
 import static org.assertj.core.api.Assertions.assertThat;
 
 import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.time.Instant;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.web.client.TestRestTemplate;
 import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import uk.tw.energy.builders.MeterReadingsBuilder;
+import uk.tw.energy.controller.MeterReadingController;
+import uk.tw.energy.domain.BulkStoreResult;
 import uk.tw.energy.domain.ElectricityReading;
 import uk.tw.energy.domain.MeterReadings;
+import uk.tw.energy.domain.ReadingBucket;
+import uk.tw.energy.domain.StoredReadingsCount;
+import uk.tw.energy.ingestion.BinaryMeterReadingsConverter;
 
+@AutoConfigureObservability(tracing = false)
 @SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, classes = App.class)
 public class EndpointTest {
 
@@ -43,6 +53,25 @@ public class EndpointTest {
         assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
     }
 
+    @Test
+    public void shouldStoreBinaryReadings() {
+        byte[] id = "binary-meter".getBytes(StandardCharsets.UTF_8);
+        ByteBuffer frame = ByteBuffer.allocate(Short.BYTES + id.length + 1 + Integer.BYTES + 2 * Long.BYTES);
+        frame.putShort((short) id.length).put(id).put((byte) 2).putInt(1);
+        frame.putLong(Instant.parse("2024-04-26T00:00:10Z").getEpochSecond()).putLong(125);
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(BinaryMeterReadingsConverter.MEDIA_TYPE);
+
+        ResponseEntity<String> response =
+                restTemplate.postForEntity("/readings/store", new HttpEntity<>(frame.array(), headers), String.class);
+        ResponseEntity<ElectricityReading[]> readings =
+                restTemplate.getForEntity("/readings/read/binary-meter", ElectricityReading[].class);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(readings.getBody())
+                .containsExactly(new ElectricityReading(Instant.parse("2024-04-26T00:00:10Z"), new BigDecimal("1.25")));
+    }
+
     @SuppressWarnings("DataFlowIssue")
     @Test
     public void givenMeterIdShouldReturnAMeterReadingAssociatedWithMeterId() {
@@ -60,6 +89,85 @@ public class EndpointTest {
         assertThat(Arrays.asList(response.getBody())).isEqualTo(data);
     }
 
+    @SuppressWarnings("DataFlowIssue")
+    @Test
+    public void givenATimeRangeAndResolutionShouldReturnBucketsWithinTheRange() {
+        String smartMeterId = "carol";
+        List<ElectricityReading> data = List.of(
+                new ElectricityReading(Instant.parse("2024-04-26T00:00:10.00Z"), new BigDecimal(10)),
+                new ElectricityReading(Instant.parse("2024-04-26T00:00:50.00Z"), new BigDecimal(20)),
+                new ElectricityReading(Instant.parse("2024-04-26T00:01:30.00Z"), new BigDecimal(30)),
+                new ElectricityReading(Instant.parse("2024-04-26T00:02:10.00Z"), new BigDecimal(40)));
+        populateReadingsForMeter(smartMeterId, data);
+
+        ResponseEntity<ReadingBucket[]> response = restTemplate.getForEntity(
+                "/readings/read/" + smartMeterId + "?from=2024-04-26T00:00:00Z&to=2024-04-26T00:02:00Z&resolution=1m",
+                ReadingBucket[].class);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(Arrays.asList(response.getBody()))
+                .containsExactly(
+                        new ReadingBucket(
+                                Instant.parse("2024-04-26T00:00:00Z"),
+                                2,
+                                new BigDecimal(10),
+                                new BigDecimal(15),
+                                new BigDecimal(20)),
+                        new ReadingBucket(
+                                Instant.parse("2024-04-26T00:01:00Z"),
+                                1,
+                                new BigDecimal(30),
+                                new BigDecimal(30),
+                                new BigDecimal(30)));
+    }
+
+    @Test
+    public void givenNdjsonIsAcceptedShouldStreamReadingsInPages() {
+        String smartMeterId = "dave";
+        List<ElectricityReading> data = List.of(
+                new ElectricityReading(Instant.parse("2024-04-26T00:00:10.00Z"), new BigDecimal(10)),
+                new ElectricityReading(Instant.parse("2024-04-26T00:00:20.00Z"), new BigDecimal(20)),
+                new ElectricityReading(Instant.parse("2024-04-26T00:00:30.00Z"), new BigDecimal(30)));
+        populateReadingsForMeter(smartMeterId, data);
+        HttpHeaders headers = new HttpHeaders();
+        headers.setAccept(List.of(MediaType.APPLICATION_NDJSON));
+
+        ResponseEntity<String> firstPage = restTemplate.exchange(
+                "/readings/read/" + smartMeterId + "?limit=2", HttpMethod.GET, new HttpEntity<>(headers), String.class);
+        String cursor = firstPage.getHeaders().getFirst(MeterReadingController.NEXT_CURSOR_HEADER);
+        ResponseEntity<String> lastPage = restTemplate.exchange(
+                "/readings/read/" + smartMeterId + "?limit=2&after=" + cursor,
+                HttpMethod.GET,
+                new HttpEntity<>(headers),
+                String.class);
+
+        assertThat(firstPage.getHeaders().getContentType()).isEqualTo(MediaType.APPLICATION_NDJSON);
+        assertThat(firstPage.getBody())
+                .isEqualTo(
+                        """
+                        {"time":"2024-04-26T00:00:10Z","reading":10}
+                        {"time":"2024-04-26T00:00:20Z","reading":20}
+                        """);
+        assertThat(lastPage.getBody()).isEqualTo("{\"time\":\"2024-04-26T00:00:30Z\",\"reading\":30}\n");
+        assertThat(lastPage.getHeaders().containsKey(MeterReadingController.NEXT_CURSOR_HEADER))
+                .isFalse();
+    }
+
+    @Test
+    public void givenAnyMediaTypeIsAcceptedShouldReturnReadingsAsJson() {
+        String smartMeterId = "erin";
+        populateReadingsForMeter(
+                smartMeterId,
+                List.of(new ElectricityReading(Instant.parse("2024-04-26T00:00:10.00Z"), new BigDecimal(10))));
+        HttpHeaders headers = new HttpHeaders();
+        headers.setAccept(List.of(MediaType.ALL));
+
+        ResponseEntity<String> response = restTemplate.exchange(
+                "/readings/read/" + smartMeterId, HttpMethod.GET, new HttpEntity<>(headers), String.class);
+
+        assertThat(response.getHeaders().getContentType()).isEqualTo(MediaType.APPLICATION_JSON);
+    }
+
     @Test
     public void shouldCalculateAllPrices() {
         String smartMeterId = "bob";
@@ -94,6 +202,72 @@ public class EndpointTest {
         assertThat(response.getBody()).containsExactly(Map.of("price-plan-2", 3600), Map.of("price-plan-1", 7200));
     }
 
+    @SuppressWarnings("DataFlowIssue")
+    @Test
+    public void shouldStreamRecommendationsForEveryAccount() {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setAccept(List.of(MediaType.APPLICATION_NDJSON));
+
+        ResponseEntity<String> response = restTemplate.exchange(
+                "/price-plans/recommend-all", HttpMethod.GET, new HttpEntity<>(headers), String.class);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getBody().lines()).hasSize(5).allSatisfy(line -> assertThat(line)
+                .contains("\"recommendations\":[{\"price-plan-2\":"));
+    }
+
+    @Test
+    public void shouldExposePricePlanCostCacheStatistics() {
+        populateReadingsForMeter(
+                "frank",
+                List.of(
+                        new ElectricityReading(Instant.parse("2024-04-26T00:00:10.00Z"), new BigDecimal(10)),
+                        new ElectricityReading(Instant.parse("2024-04-26T00:00:20.00Z"), new BigDecimal(20))));
+        restTemplate.getForEntity("/price-plans/compare-all/frank", String.class);
+        restTemplate.getForEntity("/price-plans/recommend/frank", String.class);
+
+        ResponseEntity<String> response = restTemplate.getForEntity(
+                "/actuator/metrics/cache.gets?tag=cache:price-plan-costs&tag=result:hit", String.class);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+    }
+
+    @Test
+    public void shouldPublishMetricsInPrometheusFormat() {
+        populateReadingsForMeter(
+                "prometheus", List.of(new ElectricityReading(Instant.parse("2024-04-26T00:00:10Z"), BigDecimal.ONE)));
+        restTemplate.getForEntity("/price-plans/compare-all/prometheus", String.class);
+
+        ResponseEntity<String> response = restTemplate.getForEntity("/actuator/prometheus", String.class);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getBody())
+                .contains("readings_stored_readings_total")
+                .contains("readings_store_size_bytes")
+                .contains("readings_per_meter_readings{quantile=\"0.99\",}")
+                .contains("price_plans_costs_calculation_seconds_count")
+                .contains("http_server_requests_seconds_bucket{");
+    }
+
+    @Test
+    public void shouldStoreBulkReadingsForManyMeters() {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_NDJSON);
+        String body =
+                """
+                {"smartMeterId": "bulk-0", "electricityReadings": [{"time": "2024-04-26T00:00:10Z", "reading": 1}]}
+                {"smartMeterId": "bulk-1", "electricityReadings": [{"time": "2024-04-26T00:00:10Z", "reading": 2}]}
+                """;
+
+        ResponseEntity<BulkStoreResult> response = restTemplate.postForEntity(
+                "/readings/store/bulk", new HttpEntity<>(body, headers), BulkStoreResult.class);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getBody())
+                .isEqualTo(new BulkStoreResult(
+                        Map.of("bulk-0", new StoredReadingsCount(1, 0), "bulk-1", new StoredReadingsCount(1, 0)), 0));
+    }
+
     private void populateReadingsForMeter(String smartMeterId, List<ElectricityReading> data) {
         MeterReadings readings = new MeterReadings(smartMeterId, data);
 
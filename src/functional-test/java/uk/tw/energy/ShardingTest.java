@@ -0,0 +1,146 @@
+package uk.tw.energy;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.List;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import uk.tw.energy.sharding.ShardRouter;
+
+/**
+ * Runs two nodes of a sharded deployment on different local ports.
+ */
+public class ShardingTest {
+
+    private static URI first;
+    private static URI second;
+    private static ShardRouter router;
+    private static List<ConfigurableApplicationContext> nodes;
+
+    private final HttpClient following =
+            HttpClient.newBuilder().followRedirects(HttpClient.Redirect.NORMAL).build();
+    private final HttpClient notFollowing = HttpClient.newHttpClient();
+
+    @BeforeAll
+    public static void startNodes() throws IOException {
+        int firstPort = freePort();
+        int secondPort = freePort();
+        first = URI.create("http://localhost:" + firstPort);
+        second = URI.create("http://localhost:" + secondPort);
+        router = new ShardRouter(List.of(first, second), first, 128);
+        nodes = List.of(startNode(firstPort), startNode(secondPort));
+    }
+
+    @AfterAll
+    public static void stopNodes() {
+        nodes.forEach(ConfigurableApplicationContext::close);
+    }
+
+    @Test
+    public void givenAMeterOwnedByAnotherNodeShouldRedirectItsReadingsToThatNode() throws Exception {
+        String smartMeterId = meterOwnedBy(second);
+
+        HttpResponse<String> stored =
+                following.send(storeRequest(first, smartMeterId), HttpResponse.BodyHandlers.ofString());
+        HttpResponse<String> redirected = notFollowing.send(
+                HttpRequest.newBuilder(first.resolve("/readings/read/" + smartMeterId))
+                        .build(),
+                HttpResponse.BodyHandlers.ofString());
+        HttpResponse<String> read = following.send(
+                HttpRequest.newBuilder(first.resolve("/readings/read/" + smartMeterId))
+                        .build(),
+                HttpResponse.BodyHandlers.ofString());
+
+        assertThat(stored.statusCode()).isEqualTo(200);
+        assertThat(redirected.statusCode()).isEqualTo(307);
+        assertThat(redirected.headers().firstValue("Location")).contains(second + "/readings/read/" + smartMeterId);
+        assertThat(read.statusCode()).isEqualTo(200);
+        assertThat(read.body()).contains("2024-04-26T00:00:10Z");
+    }
+
+    @Test
+    public void givenBulkReadingsForMetersOnEveryNodeShouldStoreEachOnItsOwner() throws Exception {
+        String local = meterOwnedBy(first);
+        String remote = meterOwnedBy(second);
+        String body = Stream.of(local, remote)
+                .map(smartMeterId -> "{\"smartMeterId\":\"" + smartMeterId
+                        + "\",\"electricityReadings\":[{\"time\":\"2024-04-26T00:00:20Z\",\"reading\":0.5}]}\n")
+                .reduce("", String::concat);
+
+        HttpResponse<String> response = notFollowing.send(
+                HttpRequest.newBuilder(first.resolve("/readings/store/bulk"))
+                        .header("Content-Type", "application/x-ndjson")
+                        .POST(HttpRequest.BodyPublishers.ofString(body))
+                        .build(),
+                HttpResponse.BodyHandlers.ofString());
+
+        assertThat(response.statusCode()).isEqualTo(200);
+        assertThat(response.body()).contains("\"" + remote + "\":{\"accepted\":1,\"rejected\":0}");
+        for (String smartMeterId : List.of(local, remote)) {
+            HttpResponse<String> read = notFollowing.send(
+                    HttpRequest.newBuilder(router.ownerOf(smartMeterId).resolve("/readings/read/" + smartMeterId))
+                            .build(),
+                    HttpResponse.BodyHandlers.ofString());
+            assertThat(read.statusCode()).isEqualTo(200);
+            assertThat(read.body()).contains("2024-04-26T00:00:20Z");
+        }
+    }
+
+    @Test
+    public void shouldRecommendPricePlansForTheAccountsOfEveryNode() throws Exception {
+        HttpResponse<Stream<String>> response = notFollowing.send(
+                HttpRequest.newBuilder(second.resolve("/price-plans/recommend-all"))
+                        .header("Accept", "application/x-ndjson")
+                        .build(),
+                HttpResponse.BodyHandlers.ofLines());
+
+        assertThat(response.statusCode()).isEqualTo(200);
+        assertThat(response.body().map(line -> line.replaceAll(".*\"smartMeterId\":\"([^\"]+)\".*", "$1")))
+                .containsExactlyInAnyOrder(
+                        "smart-meter-0", "smart-meter-1", "smart-meter-2", "smart-meter-3", "smart-meter-4");
+    }
+
+    private static HttpRequest storeRequest(URI node, String smartMeterId) {
+        return HttpRequest.newBuilder(node.resolve("/readings/store"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString("{\"smartMeterId\":\"" + smartMeterId
+                        + "\",\"electricityReadings\":[{\"time\":\"2024-04-26T00:00:10Z\",\"reading\":1.25}]}"))
+                .build();
+    }
+
+    private static String meterOwnedBy(URI node) {
+        for (int meter = 0; ; meter++) {
+            String smartMeterId = "sharded-meter-" + meter + "-" + node.getPort();
+            if (router.ownerOf(smartMeterId).equals(node)) {
+                return smartMeterId;
+            }
+        }
+    }
+
+    private static ConfigurableApplicationContext startNode(int port) {
+        URI self = URI.create("http://localhost:" + port);
+        return new SpringApplicationBuilder(App.class)
+                .properties(
+                        "server.port=" + port,
+                        "readings.sharding.enabled=true",
+                        "readings.sharding.nodes=" + first + "," + second,
+                        "readings.sharding.self=" + self)
+                .run();
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
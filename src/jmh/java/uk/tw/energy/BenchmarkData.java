@@ -0,0 +1,39 @@
+package uk.tw.energy;
+
+import static java.util.Collections.emptyList;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import uk.tw.energy.domain.ElectricityReading;
+import uk.tw.energy.domain.PricePlan;
+import uk.tw.energy.generator.ElectricityReadingsGenerator;
+
+public final class BenchmarkData {
+
+    private BenchmarkData() {}
+
+    public static String smartMeterId(int meter) {
+        return "smart-meter-" + meter;
+    }
+
+    public static Map<String, List<ElectricityReading>> readingsPerMeter(int meterCount, int readingsPerMeter) {
+        ElectricityReadingsGenerator electricityReadingsGenerator = new ElectricityReadingsGenerator();
+        Map<String, List<ElectricityReading>> readings = new HashMap<>();
+        for (int meter = 0; meter < meterCount; meter++) {
+            readings.put(smartMeterId(meter), electricityReadingsGenerator.generate(readingsPerMeter));
+        }
+        return readings;
+    }
+
+    public static List<PricePlan> pricePlans(int planCount) {
+        List<PricePlan> pricePlans = new ArrayList<>();
+        for (int plan = 0; plan < planCount; plan++) {
+            pricePlans.add(new PricePlan(
+                    "price-plan-" + plan, "supplier-" + plan, BigDecimal.valueOf(planCount - plan), emptyList()));
+        }
+        return pricePlans;
+    }
+}
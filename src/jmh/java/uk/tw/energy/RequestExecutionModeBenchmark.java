@@ -0,0 +1,118 @@
+package uk.tw.energy;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+/**
+ * Load test of the running application over HTTP, comparing request throughput and latency percentiles (the
+ * {@code p0.99} of the sample time results) with requests served on platform or virtual threads. Many client threads
+ * keep requests in flight at once, as a fleet of meters does. With {@code readingLog} set to {@code always} every stored
+ * reading waits for an fsync, so request threads spend most of their time blocked.
+ *
+ * <p>Virtual threads need Java 21; on older JVMs both modes run on platform threads.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Threads(256)
+public class RequestExecutionModeBenchmark {
+
+    @Param({"false", "true"})
+    public boolean virtualThreads;
+
+    @Param({"disabled", "always"})
+    public String readingLog;
+
+    private ConfigurableApplicationContext application;
+    private Path readingLogDirectory;
+    private HttpClient httpClient;
+    private URI baseUri;
+
+    @Setup
+    public void startApplication() throws IOException {
+        readingLogDirectory = Files.createTempDirectory("readings");
+        application = new SpringApplicationBuilder(App.class)
+                .properties(
+                        "server.port=0",
+                        "logging.level.root=warn",
+                        "spring.threads.virtual.enabled=" + virtualThreads,
+                        "readings.log.enabled=" + !readingLog.equals("disabled"),
+                        "readings.log.fsync=" + (readingLog.equals("disabled") ? "never" : readingLog),
+                        "readings.log.directory=" + readingLogDirectory)
+                .run();
+        baseUri = URI.create("http://localhost:" + application.getEnvironment().getProperty("local.server.port"));
+        httpClient =
+                HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+    }
+
+    @TearDown
+    public void stopApplication() throws IOException {
+        application.close();
+        try (Stream<Path> files = Files.walk(readingLogDirectory)) {
+            files.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Meter {
+
+        private static final AtomicInteger METERS = new AtomicInteger();
+
+        String smartMeterId;
+        long epochSecond;
+
+        @Setup
+        public void assignMeter() {
+            smartMeterId = "load-test-meter-" + METERS.getAndIncrement();
+            epochSecond = 1_714_089_600L;
+        }
+    }
+
+    @Benchmark
+    public int storeReadings(Meter meter) throws Exception {
+        meter.epochSecond += 10;
+        String body = "{\"smartMeterId\":\"" + meter.smartMeterId + "\",\"electricityReadings\":[{\"time\":"
+                + meter.epochSecond + ",\"reading\":0.5}]}";
+        return send(HttpRequest.newBuilder(baseUri.resolve("/readings/store"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build());
+    }
+
+    @Benchmark
+    public int compareAllPricePlans() throws Exception {
+        return send(HttpRequest.newBuilder(baseUri.resolve("/price-plans/compare-all/smart-meter-0"))
+                .GET()
+                .build());
+    }
+
+    private int send(HttpRequest request) throws Exception {
+        HttpResponse<Void> response = httpClient.send(request, HttpResponse.BodyHandlers.discarding());
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException(request.uri() + " returned " + response.statusCode());
+        }
+        return response.statusCode();
+    }
+}
@@ -0,0 +1,51 @@
+package uk.tw.energy.controller;
+
+import java.util.HashMap;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+import uk.tw.energy.BenchmarkData;
+import uk.tw.energy.service.AccountService;
+import uk.tw.energy.service.MeterReadingService;
+import uk.tw.energy.service.PricePlanService;
+
+@State(Scope.Benchmark)
+public class PricePlanComparatorControllerBenchmark {
+
+    @Param({"100", "1000"})
+    public int meterCount;
+
+    @Param({"20", "1000"})
+    public int readingsPerMeter;
+
+    @Param({"3", "30"})
+    public int planCount;
+
+    private PricePlanComparatorController controller;
+
+    @Setup
+    public void seedReadings() {
+        MeterReadingService meterReadingService =
+                new MeterReadingService(BenchmarkData.readingsPerMeter(meterCount, readingsPerMeter));
+        PricePlanService pricePlanService =
+                new PricePlanService(BenchmarkData.pricePlans(planCount), meterReadingService);
+        controller = new PricePlanComparatorController(pricePlanService, new AccountService(new HashMap<>()));
+    }
+
+    @Benchmark
+    public void recommendCheapestPricePlans(Blackhole blackhole) {
+        for (int meter = 0; meter < meterCount; meter++) {
+            blackhole.consume(controller.recommendCheapestPricePlans(BenchmarkData.smartMeterId(meter), null));
+        }
+    }
+
+    @Benchmark
+    public void recommendCheapestPricePlan(Blackhole blackhole) {
+        for (int meter = 0; meter < meterCount; meter++) {
+            blackhole.consume(controller.recommendCheapestPricePlans(BenchmarkData.smartMeterId(meter), 1));
+        }
+    }
+}
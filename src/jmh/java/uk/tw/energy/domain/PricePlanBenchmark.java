@@ -0,0 +1,50 @@
+package uk.tw.energy.domain;
+
+import java.math.BigDecimal;
+import java.time.DayOfWeek;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+import uk.tw.energy.generator.ElectricityReadingsGenerator;
+
+@State(Scope.Benchmark)
+public class PricePlanBenchmark {
+
+    @Param({"0", "3", "7"})
+    public int peakTimeMultiplierCount;
+
+    @Param({"1000"})
+    public int readingsPerMeter;
+
+    private PricePlan pricePlan;
+    private LocalDateTime[] readingTimes;
+
+    @Setup
+    public void createPricePlan() {
+        List<PricePlan.PeakTimeMultiplier> peakTimeMultipliers = new ArrayList<>();
+        for (int day = 0; day < peakTimeMultiplierCount; day++) {
+            peakTimeMultipliers.add(new PricePlan.PeakTimeMultiplier(DayOfWeek.of(day + 1), BigDecimal.valueOf(2)));
+        }
+        pricePlan = new PricePlan("price-plan", "supplier", BigDecimal.TEN, peakTimeMultipliers);
+
+        readingTimes = new ElectricityReadingsGenerator()
+                .generate(readingsPerMeter).stream()
+                        .map(reading ->
+                                LocalDateTime.ofEpochSecond(reading.time().getEpochSecond(), 0, ZoneOffset.UTC))
+                        .toArray(LocalDateTime[]::new);
+    }
+
+    @Benchmark
+    public void getPrice(Blackhole blackhole) {
+        for (LocalDateTime readingTime : readingTimes) {
+            blackhole.consume(pricePlan.getPrice(readingTime));
+        }
+    }
+}
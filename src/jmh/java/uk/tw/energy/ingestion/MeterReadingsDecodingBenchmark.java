@@ -0,0 +1,101 @@
+package uk.tw.energy.ingestion;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.time.Instant;
+import java.util.List;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import uk.tw.energy.BenchmarkData;
+import uk.tw.energy.SeedingApplicationDataConfiguration;
+import uk.tw.energy.domain.ElectricityReading;
+import uk.tw.energy.domain.MeterReadings;
+import uk.tw.energy.generator.ElectricityReadingsGenerator;
+import uk.tw.energy.store.ReadingBatch;
+
+/**
+ * Decodes the body of a request to store readings into the {@link ReadingBatch} the store appends, from JSON with the
+ * application's object mapper or from {@link BinaryMeterReadingsConverter#MEDIA_TYPE_VALUE}.
+ */
+@State(Scope.Benchmark)
+public class MeterReadingsDecodingBenchmark {
+
+    @Param({"10", "1000"})
+    public int readingsPerRequest;
+
+    private ObjectMapper objectMapper;
+    private BinaryMeterReadingsConverter converter;
+    private byte[] json;
+    private byte[] binary;
+
+    @Setup
+    public void encodeReadings() throws IOException {
+        objectMapper = new SeedingApplicationDataConfiguration().objectMapper(new Jackson2ObjectMapperBuilder());
+        converter = new BinaryMeterReadingsConverter();
+
+        List<ElectricityReading> readings = new ElectricityReadingsGenerator()
+                .generate(readingsPerRequest).stream()
+                        .map(reading -> new ElectricityReading(
+                                Instant.ofEpochSecond(reading.time().getEpochSecond()), reading.reading()))
+                        .toList();
+        json = objectMapper.writeValueAsBytes(new MeterReadings(BenchmarkData.smartMeterId(0), readings));
+
+        ReadingBatch batch = new ReadingBatch(readings.size());
+        readings.forEach(batch::add);
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        converter.write(
+                new BinaryMeterReadings(BenchmarkData.smartMeterId(0), batch),
+                BinaryMeterReadingsConverter.MEDIA_TYPE,
+                new HttpOutputMessage() {
+                    @Override
+                    public OutputStream getBody() {
+                        return body;
+                    }
+
+                    @Override
+                    public HttpHeaders getHeaders() {
+                        return new HttpHeaders();
+                    }
+                });
+        binary = body.toByteArray();
+    }
+
+    @Benchmark
+    public ReadingBatch json() throws IOException {
+        MeterReadings meterReadings = objectMapper.readValue(json, MeterReadings.class);
+        ReadingBatch batch =
+                new ReadingBatch(meterReadings.electricityReadings().size());
+        meterReadings.electricityReadings().forEach(batch::add);
+        return batch;
+    }
+
+    @Benchmark
+    public ReadingBatch binary() throws IOException {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(BinaryMeterReadingsConverter.MEDIA_TYPE);
+        return converter
+                .read(BinaryMeterReadings.class, new HttpInputMessage() {
+                    @Override
+                    public InputStream getBody() {
+                        return new ByteArrayInputStream(binary);
+                    }
+
+                    @Override
+                    public HttpHeaders getHeaders() {
+                        return headers;
+                    }
+                })
+                .electricityReadings();
+    }
+}
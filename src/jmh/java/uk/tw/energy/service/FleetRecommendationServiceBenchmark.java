@@ -0,0 +1,50 @@
+package uk.tw.energy.service;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+import uk.tw.energy.BenchmarkData;
+import uk.tw.energy.domain.FleetRecommendationSummary;
+
+/**
+ * Scores are meters costed per second, to compare across {@code parallelism}.
+ */
+@State(Scope.Benchmark)
+public class FleetRecommendationServiceBenchmark {
+
+    private static final int METER_COUNT = 10_000;
+
+    @Param({"20", "1000"})
+    public int readingsPerMeter;
+
+    @Param({"1", "2", "4", "8"})
+    public int parallelism;
+
+    private FleetRecommendationService fleetRecommendationService;
+
+    @Setup
+    public void seedReadings() {
+        MeterReadingService meterReadingService =
+                new MeterReadingService(BenchmarkData.readingsPerMeter(METER_COUNT, readingsPerMeter));
+        PricePlanService pricePlanService = new PricePlanService(BenchmarkData.pricePlans(3), meterReadingService);
+        Map<String, String> accounts = new HashMap<>();
+        for (int meter = 0; meter < METER_COUNT; meter++) {
+            accounts.put(BenchmarkData.smartMeterId(meter), "price-plan-0");
+        }
+        fleetRecommendationService =
+                new FleetRecommendationService(new AccountService(accounts), pricePlanService, parallelism);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(METER_COUNT)
+    public FleetRecommendationSummary recommendAll(Blackhole blackhole) throws IOException {
+        return fleetRecommendationService.recommendAll(blackhole::consume);
+    }
+}
@@ -0,0 +1,42 @@
+package uk.tw.energy.service;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import uk.tw.energy.BenchmarkData;
+import uk.tw.energy.domain.ElectricityReading;
+
+@State(Scope.Benchmark)
+public class MeterReadingServiceBenchmark {
+
+    @Param({"100", "1000"})
+    public int meterCount;
+
+    @Param({"20", "1000"})
+    public int readingsPerMeter;
+
+    private Map<String, List<ElectricityReading>> readings;
+    private MeterReadingService meterReadingService;
+
+    @Setup(Level.Trial)
+    public void generateReadings() {
+        readings = BenchmarkData.readingsPerMeter(meterCount, readingsPerMeter);
+    }
+
+    @Setup(Level.Invocation)
+    public void createEmptyService() {
+        meterReadingService = new MeterReadingService(new HashMap<>());
+    }
+
+    @Benchmark
+    public MeterReadingService storeReadings() {
+        readings.forEach(meterReadingService::storeReadings);
+        return meterReadingService;
+    }
+}
@@ -0,0 +1,44 @@
+package uk.tw.energy.service;
+
+import java.math.BigDecimal;
+import java.util.Map;
+import java.util.Optional;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+import uk.tw.energy.BenchmarkData;
+
+@State(Scope.Benchmark)
+public class PricePlanServiceBenchmark {
+
+    @Param({"100", "1000"})
+    public int meterCount;
+
+    @Param({"20", "1000"})
+    public int readingsPerMeter;
+
+    @Param({"3", "30"})
+    public int planCount;
+
+    private PricePlanService pricePlanService;
+
+    @Setup
+    public void seedReadings() {
+        MeterReadingService meterReadingService =
+                new MeterReadingService(BenchmarkData.readingsPerMeter(meterCount, readingsPerMeter));
+        pricePlanService = new PricePlanService(BenchmarkData.pricePlans(planCount), meterReadingService);
+    }
+
+    @Benchmark
+    public void getConsumptionCostOfElectricityReadingsForEachPricePlan(Blackhole blackhole) {
+        for (int meter = 0; meter < meterCount; meter++) {
+            Optional<Map<String, BigDecimal>> costs =
+                    pricePlanService.getConsumptionCostOfElectricityReadingsForEachPricePlan(
+                            BenchmarkData.smartMeterId(meter));
+            blackhole.consume(costs);
+        }
+    }
+}
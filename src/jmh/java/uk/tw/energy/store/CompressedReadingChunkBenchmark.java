@@ -0,0 +1,51 @@
+package uk.tw.energy.store;
+
+import java.util.Random;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Seals a full chunk of readings taken every ten seconds and decodes it again, with readings drawn independently at
+ * random, as {@link uk.tw.energy.generator.ElectricityReadingsGenerator} does, or changing slowly.
+ */
+@State(Scope.Benchmark)
+public class CompressedReadingChunkBenchmark {
+
+    @Param({"random", "smooth"})
+    public String readings;
+
+    private RawReadingChunk raw;
+    private CompressedReadingChunk compressed;
+    private RawReadingChunk scratch;
+
+    @Setup
+    public void fillChunk() {
+        Random random = new Random(42);
+        raw = new RawReadingChunk(MeterReadingSeries.CHUNK_SIZE);
+        long reading = 1_500_000;
+        for (int i = 0; i < MeterReadingSeries.CHUNK_SIZE; i++) {
+            reading = readings.equals("random")
+                    ? Math.abs(Math.round(random.nextGaussian() * 10_000)) * 100
+                    : Math.max(0, reading + (random.nextInt(21) - 10) * 100);
+            raw.add(1_714_089_600L + i * 10L, 0, reading, 4);
+        }
+        compressed = CompressedReadingChunk.of(raw);
+        scratch = new RawReadingChunk(MeterReadingSeries.CHUNK_SIZE);
+        System.out.printf(
+                "%n%s readings: %d bytes raw, %d bytes compressed%n",
+                readings, raw.estimatedBytes(), compressed.estimatedBytes());
+    }
+
+    @Benchmark
+    public CompressedReadingChunk seal() {
+        return CompressedReadingChunk.of(raw);
+    }
+
+    @Benchmark
+    public RawReadingChunk decode() {
+        return compressed.columns(scratch);
+    }
+}
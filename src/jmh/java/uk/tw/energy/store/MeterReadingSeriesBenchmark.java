@@ -0,0 +1,74 @@
+package uk.tw.energy.store;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import uk.tw.energy.domain.ElectricityReading;
+import uk.tw.energy.generator.ElectricityReadingsGenerator;
+
+/**
+ * Builds a series from batches of readings arriving in time order, with every tenth batch arriving one batch late, or
+ * with the readings of every batch shuffled.
+ */
+@State(Scope.Benchmark)
+public class MeterReadingSeriesBenchmark {
+
+    @Param({"10000"})
+    public int readingsPerMeter;
+
+    @Param({"10"})
+    public int batchSize;
+
+    @Param({"inOrder", "late", "shuffled"})
+    public String arrival;
+
+    private List<ReadingBatch> batches;
+    private MeterReadingSeries series;
+
+    @Setup(Level.Trial)
+    public void generateBatches() {
+        List<ElectricityReading> readings = new ElectricityReadingsGenerator().generate(readingsPerMeter);
+        Random random = new Random(42);
+        List<List<ElectricityReading>> arriving = new ArrayList<>();
+        for (int start = 0; start < readings.size(); start += batchSize) {
+            List<ElectricityReading> batch =
+                    new ArrayList<>(readings.subList(start, Math.min(start + batchSize, readings.size())));
+            if (arrival.equals("shuffled")) {
+                Collections.shuffle(batch, random);
+            }
+            arriving.add(batch);
+        }
+        if (arrival.equals("late")) {
+            for (int batch = 9; batch < arriving.size(); batch += 10) {
+                Collections.swap(arriving, batch - 1, batch);
+            }
+        }
+
+        batches = new ArrayList<>();
+        for (List<ElectricityReading> batchReadings : arriving) {
+            ReadingBatch batch = new ReadingBatch(batchReadings.size());
+            batchReadings.forEach(batch::add);
+            batches.add(batch);
+        }
+    }
+
+    @Setup(Level.Invocation)
+    public void createEmptySeries() {
+        series = new MeterReadingSeries();
+    }
+
+    @Benchmark
+    public MeterReadingSeries append() {
+        for (ReadingBatch batch : batches) {
+            series.append(batch);
+        }
+        return series;
+    }
+}
@@ -0,0 +1,85 @@
+package uk.tw.energy.store;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import uk.tw.energy.generator.ElectricityReadingsGenerator;
+
+/**
+ * Starts a store of {@code meters} meters from a snapshot, opening it alone or also reading every meter, against
+ * building the same store from readings as seeding and replay do.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class StoreSnapshotBenchmark {
+
+    @Param({"10000"})
+    public int meters;
+
+    @Param({"672"})
+    public int readingsPerMeter;
+
+    private Path file;
+    private ReadingBatch readings;
+
+    @Setup(Level.Trial)
+    public void writeSnapshot() throws IOException {
+        readings = new ReadingBatch(readingsPerMeter);
+        new ElectricityReadingsGenerator().generate(readingsPerMeter).forEach(readings::add);
+        MeterReadingSeries series = new MeterReadingSeries();
+        series.append(readings);
+
+        file = Files.createTempDirectory("store-snapshot").resolve("store.snapshot");
+        try (StoreSnapshotWriter writer = new StoreSnapshotWriter(file, Instant.now(), List.of(), Map.of())) {
+            for (int meter = 0; meter < meters; meter++) {
+                writer.writeSeries("smart-meter-" + meter, series.snapshot());
+            }
+            writer.commit();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteSnapshot() throws IOException {
+        Files.deleteIfExists(file);
+        Files.deleteIfExists(file.getParent());
+    }
+
+    @Benchmark
+    public StoreSnapshot open() {
+        return StoreSnapshot.open(file);
+    }
+
+    @Benchmark
+    public int openAndReadEveryMeter() {
+        StoreSnapshot snapshot = StoreSnapshot.open(file);
+        int readings = 0;
+        for (String smartMeterId : snapshot.smartMeterIds()) {
+            readings += snapshot.read(smartMeterId, false).orElseThrow().size();
+        }
+        return readings;
+    }
+
+    @Benchmark
+    public int appendEveryMeter() {
+        int stored = 0;
+        for (int meter = 0; meter < meters; meter++) {
+            stored += new MeterReadingSeries().append(readings);
+        }
+        return stored;
+    }
+}
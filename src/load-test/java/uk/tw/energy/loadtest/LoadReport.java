@@ -0,0 +1,49 @@
+package uk.tw.energy.loadtest;
+
+import java.time.Duration;
+import java.util.Locale;
+
+/**
+ * Outcome of a run of the {@link OpenLoopDriver}. Latencies are measured from when each request was scheduled to be
+ * sent, not from when it was, so that a server falling behind shows up in the latencies rather than being hidden by
+ * requests sent late.
+ *
+ * @param scheduled requests due to be sent during the run
+ * @param succeeded requests answered with a 2xx status
+ * @param failed requests answered with any other status, or not answered
+ * @param dropped requests not sent because too many were already in flight
+ */
+record LoadReport(
+        Duration elapsed,
+        double targetRate,
+        long scheduled,
+        long succeeded,
+        long failed,
+        long dropped,
+        LatencyHistogram latencies) {
+
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999, 1.0};
+
+    double throughput() {
+        return succeeded / (elapsed.toNanos() / 1e9);
+    }
+
+    String format() {
+        StringBuilder report = new StringBuilder();
+        report.append(String.format(
+                Locale.ROOT,
+                "%d requests scheduled in %.1fs at %.0f/s: %d succeeded, %d failed, %d dropped%n",
+                scheduled,
+                elapsed.toNanos() / 1e9,
+                targetRate,
+                succeeded,
+                failed,
+                dropped));
+        report.append(String.format(Locale.ROOT, "throughput %.0f requests/s%n", throughput()));
+        for (double quantile : QUANTILES) {
+            report.append(String.format(
+                    Locale.ROOT, "p%-6s %10.3f ms%n", quantile * 100, latencies.percentile(quantile) / 1e6));
+        }
+        return report.toString();
+    }
+}
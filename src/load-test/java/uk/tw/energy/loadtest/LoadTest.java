@@ -0,0 +1,128 @@
+package uk.tw.energy.loadtest;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+import uk.tw.energy.generator.DailyLoadProfile;
+import uk.tw.energy.generator.FleetReadingsGenerator;
+import uk.tw.energy.ingestion.BinaryMeterReadingsConverter;
+import uk.tw.energy.store.FixedPoint;
+import uk.tw.energy.store.ReadingBatch;
+
+/**
+ * Load test of a running application: a fleet of meters sends readings from a {@link FleetReadingsGenerator} in the
+ * binary format at a fixed rate, with some requests reading the readings back, and the throughput and latency
+ * percentiles achieved are printed at the end.
+ *
+ * <p>Request {@code i} is for meter {@code i % meters}, and sends the next {@code readingsPerRequest} readings of that
+ * meter. Every {@code readEvery}th round over the fleet reads each meter's readings instead. Options are given as
+ * {@code name=value} arguments:
+ *
+ * <pre>
+ * $ ./gradlew loadTest -PloadTestArgs="baseUri=http://localhost:8080 rate=2000 duration=60s meters=100000"
+ * </pre>
+ */
+public final class LoadTest {
+
+    private static final long START_EPOCH_SECOND =
+            Instant.parse("2024-01-01T00:00:00Z").getEpochSecond();
+
+    private LoadTest() {}
+
+    public static void main(String[] args) throws InterruptedException {
+        Map<String, String> options = new HashMap<>(Map.of(
+                "baseUri", "http://localhost:8080",
+                "rate", "1000",
+                "duration", "30s",
+                "meters", "10000",
+                "readingsPerRequest", "4",
+                "readingInterval", "15m",
+                "readEvery", "10",
+                "seed", "42",
+                "maxInFlight", "1024"));
+        for (String arg : args) {
+            String[] option = arg.split("=", 2);
+            if (option.length != 2 || !options.containsKey(option[0])) {
+                throw new IllegalArgumentException("Unknown option " + arg + ", expected one of " + options.keySet());
+            }
+            options.put(option[0], option[1]);
+        }
+
+        URI baseUri = URI.create(options.get("baseUri"));
+        int meters = Integer.parseInt(options.get("meters"));
+        int readingsPerRequest = Integer.parseInt(options.get("readingsPerRequest"));
+        Duration readingInterval = duration(options.get("readingInterval"));
+        int readEvery = Integer.parseInt(options.get("readEvery"));
+        FleetReadingsGenerator generator = new FleetReadingsGenerator(
+                Long.parseLong(options.get("seed")), DailyLoadProfile.RESIDENTIAL, readingInterval);
+        ReadingBatch readings = new ReadingBatch(readingsPerRequest);
+
+        OpenLoopDriver driver = new OpenLoopDriver(
+                HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build(),
+                Double.parseDouble(options.get("rate")),
+                duration(options.get("duration")),
+                Integer.parseInt(options.get("maxInFlight")));
+        LoadReport report = driver.run(request -> {
+            int meter = (int) (request % meters);
+            long round = request / meters;
+            String smartMeterId = "load-test-meter-" + meter;
+            if (readEvery > 0 && round % readEvery == readEvery - 1) {
+                return HttpRequest.newBuilder(baseUri.resolve("/readings/read/" + smartMeterId))
+                        .GET()
+                        .build();
+            }
+            readings.clear();
+            generator.generate(
+                    meter,
+                    START_EPOCH_SECOND + round * readingsPerRequest * readingInterval.getSeconds(),
+                    readingsPerRequest,
+                    readings);
+            return HttpRequest.newBuilder(baseUri.resolve("/readings/store"))
+                    .header("Content-Type", BinaryMeterReadingsConverter.MEDIA_TYPE_VALUE)
+                    .POST(HttpRequest.BodyPublishers.ofByteArray(encode(smartMeterId, readings)))
+                    .build();
+        });
+        System.out.print(report.format());
+    }
+
+    /**
+     * @return the readings as a {@link BinaryMeterReadingsConverter binary} body
+     */
+    private static byte[] encode(String smartMeterId, ReadingBatch readings) {
+        byte[] id = smartMeterId.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer body = ByteBuffer.allocate(
+                Short.BYTES + id.length + Byte.BYTES + Integer.BYTES + readings.size() * 2 * Long.BYTES);
+        body.putShort((short) id.length)
+                .put(id)
+                .put((byte) FleetReadingsGenerator.SCALE)
+                .putInt(readings.size());
+        for (int i = 0; i < readings.size(); i++) {
+            body.putLong(readings.epochSecond(i))
+                    .putLong(FixedPoint.toUnscaled(readings.reading(i), FleetReadingsGenerator.SCALE));
+        }
+        return body.array();
+    }
+
+    /**
+     * @param value a whole number of milliseconds, seconds, minutes or hours, as in {@code 250ms}, {@code 30s},
+     *     {@code 15m} or {@code 1h}
+     */
+    private static Duration duration(String value) {
+        if (value.endsWith("ms")) {
+            return Duration.ofMillis(Long.parseLong(value.substring(0, value.length() - 2)));
+        }
+        long amount = Long.parseLong(value.substring(0, value.length() - 1));
+        return switch (value.charAt(value.length() - 1)) {
+            case 's' -> Duration.ofSeconds(amount);
+            case 'm' -> Duration.ofMinutes(amount);
+            case 'h' -> Duration.ofHours(amount);
+            default -> throw new IllegalArgumentException("Unknown unit in duration " + value);
+        };
+    }
+}
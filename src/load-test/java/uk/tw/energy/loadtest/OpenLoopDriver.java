@@ -0,0 +1,86 @@
+package uk.tw.energy.loadtest;
+
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.LongFunction;
+
+/**
+ * Sends requests at a fixed rate whatever the server's response times, as a fleet of meters does: request {@code i} is
+ * scheduled {@code i / rate} seconds after the start, and is sent then even if earlier requests have not been answered.
+ * A closed loop, where each client waits for a response before sending again, would slow down with the server and
+ * under-report its latency.
+ *
+ * <p>At most {@code maxInFlight} requests are outstanding at once. A request due while that many are in flight is
+ * dropped and counted, rather than sent late.
+ */
+final class OpenLoopDriver {
+
+    private final HttpClient httpClient;
+    private final double requestsPerSecond;
+    private final Duration duration;
+    private final int maxInFlight;
+
+    OpenLoopDriver(HttpClient httpClient, double requestsPerSecond, Duration duration, int maxInFlight) {
+        if (!(requestsPerSecond > 0) || maxInFlight < 1) {
+            throw new IllegalArgumentException("Rate and requests in flight must be positive");
+        }
+        this.httpClient = httpClient;
+        this.requestsPerSecond = requestsPerSecond;
+        this.duration = duration;
+        this.maxInFlight = maxInFlight;
+    }
+
+    /**
+     * @param requests the request to send as the {@code i}th, called on the scheduling thread
+     */
+    LoadReport run(LongFunction<HttpRequest> requests) throws InterruptedException {
+        LatencyHistogram latencies = new LatencyHistogram();
+        LongAdder succeeded = new LongAdder();
+        LongAdder failed = new LongAdder();
+        long dropped = 0;
+        Semaphore inFlight = new Semaphore(maxInFlight);
+        double intervalNanos = 1e9 / requestsPerSecond;
+        long durationNanos = duration.toNanos();
+
+        long start = System.nanoTime();
+        long scheduled = 0;
+        for (long offset = 0; offset < durationNanos; offset = (long) (++scheduled * intervalNanos)) {
+            long due = start + offset;
+            for (long wait = due - System.nanoTime(); wait > 0; wait = due - System.nanoTime()) {
+                LockSupport.parkNanos(wait);
+            }
+            if (!inFlight.tryAcquire()) {
+                dropped++;
+                continue;
+            }
+            httpClient
+                    .sendAsync(requests.apply(scheduled), HttpResponse.BodyHandlers.discarding())
+                    .whenComplete((response, failure) -> {
+                        latencies.record(System.nanoTime() - due);
+                        if (failure == null && response.statusCode() / 100 == 2) {
+                            succeeded.increment();
+                        } else {
+                            failed.increment();
+                        }
+                        inFlight.release();
+                    });
+        }
+        if (!inFlight.tryAcquire(maxInFlight, 30, TimeUnit.SECONDS)) {
+            failed.add(maxInFlight - inFlight.availablePermits());
+        }
+        return new LoadReport(
+                Duration.ofNanos(System.nanoTime() - start),
+                requestsPerSecond,
+                scheduled,
+                succeeded.sum(),
+                failed.sum(),
+                dropped,
+                latencies);
+    }
+}
@@ -0,0 +1,34 @@
+package uk.tw.energy;
+
+import java.util.List;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import uk.tw.energy.domain.PricePlan;
+import uk.tw.energy.service.AccountService;
+import uk.tw.energy.service.CostThresholdListener;
+import uk.tw.energy.service.CostToDateAccumulator;
+import uk.tw.energy.service.CostToDateProperties;
+
+@Configuration
+@EnableConfigurationProperties(CostToDateProperties.class)
+public class CostToDateConfiguration {
+
+    @Bean
+    public CostToDateAccumulator costToDateAccumulator(
+            CostToDateProperties properties,
+            AccountService accountService,
+            List<PricePlan> pricePlans,
+            ObjectProvider<CostThresholdListener> costThresholdListeners) {
+        if (!properties.enabled()) {
+            return CostToDateAccumulator.disabled();
+        }
+        return new CostToDateAccumulator(
+                accountService,
+                pricePlans,
+                properties.billingDayOfMonth(),
+                properties.alertThresholds(),
+                costThresholdListeners.orderedStream().toList());
+    }
+}
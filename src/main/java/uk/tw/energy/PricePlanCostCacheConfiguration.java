@@ -0,0 +1,20 @@
+package uk.tw.energy;
+
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import uk.tw.energy.service.PricePlanCostCache;
+import uk.tw.energy.service.PricePlanCostCacheProperties;
+
+@Configuration
+@EnableConfigurationProperties(PricePlanCostCacheProperties.class)
+public class PricePlanCostCacheConfiguration {
+
+    @Bean
+    public PricePlanCostCache pricePlanCostCache(PricePlanCostCacheProperties properties) {
+        if (!properties.enabled()) {
+            return PricePlanCostCache.disabled();
+        }
+        return new PricePlanCostCache(properties.maximumSize(), properties.expireAfterWrite());
+    }
+}
@@ -0,0 +1,23 @@
+package uk.tw.energy;
+
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import uk.tw.energy.ingestion.ReadingIngestionProperties;
+import uk.tw.energy.ingestion.ReadingIngestionQueue;
+import uk.tw.energy.service.MeterReadingService;
+
+@Configuration
+@EnableConfigurationProperties(ReadingIngestionProperties.class)
+public class ReadingIngestionConfiguration {
+
+    @Bean
+    public ReadingIngestionQueue readingIngestionQueue(
+            MeterReadingService meterReadingService, ReadingIngestionProperties properties) {
+        if (!properties.async()) {
+            return ReadingIngestionQueue.disabled();
+        }
+        return new ReadingIngestionQueue(
+                meterReadingService, properties.queueCapacity(), properties.consumers(), properties.batchSize());
+    }
+}
@@ -0,0 +1,26 @@
+package uk.tw.energy;
+
+import java.nio.file.Path;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import uk.tw.energy.store.MappedReadingLog;
+import uk.tw.energy.store.ReadingLog;
+import uk.tw.energy.store.ReadingLogProperties;
+
+@Configuration
+@EnableConfigurationProperties(ReadingLogProperties.class)
+public class ReadingLogConfiguration {
+
+    @Bean
+    public ReadingLog readingLog(ReadingLogProperties properties) {
+        if (!properties.enabled()) {
+            return ReadingLog.disabled();
+        }
+        return new MappedReadingLog(
+                Path.of(properties.directory()),
+                Math.toIntExact(properties.segmentSize().toBytes()),
+                properties.fsync(),
+                properties.fsyncInterval());
+    }
+}
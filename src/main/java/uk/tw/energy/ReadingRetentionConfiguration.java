@@ -0,0 +1,27 @@
+package uk.tw.energy;
+
+import java.time.Clock;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import uk.tw.energy.service.MeterReadingService;
+import uk.tw.energy.service.ReadingCompactionScheduler;
+import uk.tw.energy.service.ReadingRetentionProperties;
+
+@Configuration
+@EnableConfigurationProperties(ReadingRetentionProperties.class)
+public class ReadingRetentionConfiguration {
+
+    @Bean
+    @ConditionalOnProperty(name = "readings.retention.enabled", havingValue = "true")
+    public ReadingCompactionScheduler readingCompactionScheduler(
+            MeterReadingService meterReadingService, ReadingRetentionProperties properties) {
+        return new ReadingCompactionScheduler(
+                meterReadingService,
+                Clock.systemUTC(),
+                properties.rawAge(),
+                properties.hourlyAge(),
+                properties.interval());
+    }
+}
@@ -0,0 +1,9 @@
+package uk.tw.energy;
+
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+import uk.tw.energy.store.ReadingStoreProperties;
+
+@Configuration
+@EnableConfigurationProperties(ReadingStoreProperties.class)
+public class ReadingStoreConfiguration {}
@@ -16,7 +16,12 @@ import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
 import uk.tw.energy.domain.ElectricityReading;
 import uk.tw.energy.domain.PricePlan;
 import uk.tw.energy.generator.ElectricityReadingsGenerator;
+import uk.tw.energy.sharding.ShardRouter;
+import uk.tw.energy.store.StoreSnapshot;
 
+/**
+ * Sample price plans, accounts and readings, used unless the application starts from a {@link StoreSnapshot}.
+ */
 @Configuration
 public class SeedingApplicationDataConfiguration {
 
@@ -25,7 +30,10 @@ public class SeedingApplicationDataConfiguration {
     private static final String STANDARD_PRICE_PLAN_ID = "price-plan-2";
 
     @Bean
-    public List<PricePlan> pricePlans() {
+    public List<PricePlan> pricePlans(StoreSnapshot storeSnapshot) {
+        if (!storeSnapshot.pricePlans().isEmpty()) {
+            return new ArrayList<>(storeSnapshot.pricePlans());
+        }
         final List<PricePlan> pricePlans = new ArrayList<>();
         pricePlans.add(new PricePlan(MOST_EVIL_PRICE_PLAN_ID, "Dr Evil's Dark Energy", BigDecimal.TEN, emptyList()));
         pricePlans.add(new PricePlan(RENEWABLES_PRICE_PLAN_ID, "The Green Eco", BigDecimal.valueOf(2), emptyList()));
@@ -34,23 +42,34 @@ public class SeedingApplicationDataConfiguration {
     }
 
     @Bean
-    public Map<String, List<ElectricityReading>> perMeterElectricityReadings() {
+    public Map<String, List<ElectricityReading>> perMeterElectricityReadings(
+            ShardRouter shardRouter, StoreSnapshot storeSnapshot) {
         final Map<String, List<ElectricityReading>> readings = new HashMap<>();
+        if (!storeSnapshot.isEmpty()) {
+            return readings;
+        }
         final ElectricityReadingsGenerator electricityReadingsGenerator = new ElectricityReadingsGenerator();
-        smartMeterToPricePlanAccounts()
+        smartMeterToPricePlanAccounts(shardRouter, storeSnapshot)
                 .keySet()
                 .forEach(smartMeterId -> readings.put(smartMeterId, electricityReadingsGenerator.generate(20)));
         return readings;
     }
 
+    /**
+     * In a sharded deployment each node only holds the accounts of the meters it owns.
+     */
     @Bean
-    public Map<String, String> smartMeterToPricePlanAccounts() {
+    public Map<String, String> smartMeterToPricePlanAccounts(ShardRouter shardRouter, StoreSnapshot storeSnapshot) {
+        if (!storeSnapshot.isEmpty()) {
+            return new HashMap<>(storeSnapshot.smartMeterToPricePlanAccounts());
+        }
         final Map<String, String> smartMeterToPricePlanAccounts = new HashMap<>();
         smartMeterToPricePlanAccounts.put("smart-meter-0", MOST_EVIL_PRICE_PLAN_ID);
         smartMeterToPricePlanAccounts.put("smart-meter-1", RENEWABLES_PRICE_PLAN_ID);
         smartMeterToPricePlanAccounts.put("smart-meter-2", MOST_EVIL_PRICE_PLAN_ID);
         smartMeterToPricePlanAccounts.put("smart-meter-3", STANDARD_PRICE_PLAN_ID);
         smartMeterToPricePlanAccounts.put("smart-meter-4", RENEWABLES_PRICE_PLAN_ID);
+        smartMeterToPricePlanAccounts.keySet().removeIf(smartMeterId -> !shardRouter.isLocal(smartMeterId));
         return smartMeterToPricePlanAccounts;
     }
 
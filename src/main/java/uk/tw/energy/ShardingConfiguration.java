@@ -0,0 +1,46 @@
+package uk.tw.energy;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import uk.tw.energy.sharding.ShardClient;
+import uk.tw.energy.sharding.ShardRouter;
+import uk.tw.energy.sharding.ShardRoutingInterceptor;
+import uk.tw.energy.sharding.ShardingProperties;
+
+@Configuration
+@EnableConfigurationProperties(ShardingProperties.class)
+public class ShardingConfiguration implements WebMvcConfigurer {
+
+    private final ShardingProperties properties;
+
+    public ShardingConfiguration(ShardingProperties properties) {
+        this.properties = properties;
+    }
+
+    @Bean
+    public ShardRouter shardRouter() {
+        if (!properties.enabled()) {
+            return ShardRouter.disabled();
+        }
+        return new ShardRouter(properties.nodes(), properties.self(), properties.virtualNodes());
+    }
+
+    @Bean
+    public ShardClient shardClient(ObjectMapper objectMapper) {
+        if (!properties.enabled()) {
+            return ShardClient.disabled();
+        }
+        return new ShardClient(objectMapper, properties.timeout());
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        if (properties.enabled()) {
+            registry.addInterceptor(new ShardRoutingInterceptor(shardRouter()));
+        }
+    }
+}
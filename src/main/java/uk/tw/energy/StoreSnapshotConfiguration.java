@@ -0,0 +1,44 @@
+package uk.tw.energy;
+
+import java.nio.file.Path;
+import java.time.Clock;
+import java.util.List;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import uk.tw.energy.domain.PricePlan;
+import uk.tw.energy.service.AccountService;
+import uk.tw.energy.service.MeterReadingService;
+import uk.tw.energy.service.StoreSnapshotProperties;
+import uk.tw.energy.service.StoreSnapshotScheduler;
+import uk.tw.energy.store.StoreSnapshot;
+
+@Configuration
+@EnableConfigurationProperties(StoreSnapshotProperties.class)
+public class StoreSnapshotConfiguration {
+
+    @Bean
+    public StoreSnapshot storeSnapshot(StoreSnapshotProperties properties) {
+        if (!properties.enabled()) {
+            return StoreSnapshot.empty();
+        }
+        return StoreSnapshot.open(Path.of(properties.file()));
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "readings.snapshot.enabled", havingValue = "true")
+    public StoreSnapshotScheduler storeSnapshotScheduler(
+            MeterReadingService meterReadingService,
+            AccountService accountService,
+            List<PricePlan> pricePlans,
+            StoreSnapshotProperties properties) {
+        return new StoreSnapshotScheduler(
+                meterReadingService,
+                accountService,
+                pricePlans,
+                Path.of(properties.file()),
+                Clock.systemUTC(),
+                properties.interval());
+    }
+}
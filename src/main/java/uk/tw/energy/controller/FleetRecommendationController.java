@@ -0,0 +1,107 @@
+package uk.tw.energy.controller;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import uk.tw.energy.service.FleetRecommendationService;
+import uk.tw.energy.sharding.ShardClient;
+import uk.tw.energy.sharding.ShardRouter;
+
+@RestController
+@RequestMapping("/price-plans")
+public class FleetRecommendationController {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(FleetRecommendationController.class);
+
+    private final FleetRecommendationService fleetRecommendationService;
+    private final ObjectWriter objectWriter;
+    private final ShardRouter shardRouter;
+    private final ShardClient shardClient;
+
+    @Autowired
+    public FleetRecommendationController(
+            FleetRecommendationService fleetRecommendationService,
+            ObjectMapper objectMapper,
+            ShardRouter shardRouter,
+            ShardClient shardClient) {
+        this.fleetRecommendationService = fleetRecommendationService;
+        this.objectWriter = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        this.shardRouter = shardRouter;
+        this.shardClient = shardClient;
+    }
+
+    /**
+     * Streams the recommendations for every account, one JSON object per line, as the meters are costed. In a sharded
+     * deployment every other node is asked for the recommendations of its own accounts up front, and their lines follow
+     * this node's; a node that cannot be reached is logged and left out.
+     *
+     * @param local whether to recommend price plans for this node's accounts only
+     */
+    @GetMapping(value = "/recommend-all", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> recommendAllPricePlans(
+            @RequestParam(value = ShardClient.LOCAL_PARAMETER, defaultValue = "false") boolean local) {
+        Map<URI, CompletableFuture<InputStream>> peers = new LinkedHashMap<>();
+        if (!local) {
+            shardRouter.peers().forEach(peer -> peers.put(peer, shardClient.recommendAll(peer)));
+        }
+        StreamingResponseBody body = outputStream -> {
+            try {
+                try (JsonGenerator generator = objectWriter.createGenerator(outputStream)) {
+                    generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET).setRootValueSeparator(null);
+                    fleetRecommendationService.recommendAll(recommendation -> {
+                        objectWriter.writeValue(generator, recommendation);
+                        generator.writeRaw('\n');
+                    });
+                }
+                for (Map.Entry<URI, CompletableFuture<InputStream>> peer : peers.entrySet()) {
+                    copyRecommendations(peer.getKey(), peer.getValue(), outputStream);
+                }
+            } finally {
+                peers.values()
+                        .forEach(recommendations -> recommendations.thenAccept(FleetRecommendationController::close));
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
+    }
+
+    private static void copyRecommendations(
+            URI peer, CompletableFuture<InputStream> recommendations, OutputStream outputStream) throws IOException {
+        InputStream lines;
+        try {
+            lines = recommendations.join();
+        } catch (CompletionException e) {
+            LOGGER.warn("Leaving out the recommendations of {}", peer, e.getCause());
+            return;
+        }
+        try (lines) {
+            lines.transferTo(outputStream);
+        }
+    }
+
+    private static void close(InputStream recommendations) {
+        try {
+            recommendations.close();
+        } catch (IOException e) {
+            // already copied or abandoned
+        }
+    }
+}
@@ -1,27 +1,72 @@
 package uk.tw.energy.controller;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.List;
 import java.util.Optional;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import uk.tw.energy.domain.BulkStoreResult;
+import uk.tw.energy.domain.CostToDate;
 import uk.tw.energy.domain.ElectricityReading;
 import uk.tw.energy.domain.MeterReadings;
+import uk.tw.energy.domain.ReadingBucket;
+import uk.tw.energy.ingestion.BinaryMeterReadings;
+import uk.tw.energy.ingestion.BinaryMeterReadingsConverter;
+import uk.tw.energy.ingestion.ReadingIngestionQueue;
+import uk.tw.energy.ingestion.StreamingMeterReadingsImporter;
 import uk.tw.energy.service.MeterReadingService;
+import uk.tw.energy.sharding.ShardRouter;
+import uk.tw.energy.store.ReadingBatch;
+import uk.tw.energy.store.ReadingTimeIndex;
 
 @RestController
 @RequestMapping("/readings")
 public class MeterReadingController {
 
+    public static final String NEXT_CURSOR_HEADER = "Next-Cursor";
+    static final String RETRY_AFTER_SECONDS = "1";
+    static final String STORE_PATH = "/readings/store";
+
     private final MeterReadingService meterReadingService;
+    private final StreamingMeterReadingsImporter streamingMeterReadingsImporter;
+    private final ReadingIngestionQueue readingIngestionQueue;
+    private final ShardRouter shardRouter;
+
+    public MeterReadingController(
+            MeterReadingService meterReadingService, StreamingMeterReadingsImporter streamingMeterReadingsImporter) {
+        this(
+                meterReadingService,
+                streamingMeterReadingsImporter,
+                ReadingIngestionQueue.disabled(),
+                ShardRouter.disabled());
+    }
 
-    public MeterReadingController(MeterReadingService meterReadingService) {
+    @Autowired
+    public MeterReadingController(
+            MeterReadingService meterReadingService,
+            StreamingMeterReadingsImporter streamingMeterReadingsImporter,
+            ReadingIngestionQueue readingIngestionQueue,
+            ShardRouter shardRouter) {
         this.meterReadingService = meterReadingService;
+        this.streamingMeterReadingsImporter = streamingMeterReadingsImporter;
+        this.readingIngestionQueue = readingIngestionQueue;
+        this.shardRouter = shardRouter;
     }
 
     @PostMapping("/store")
@@ -29,10 +74,71 @@ public class MeterReadingController {
         if (!isMeterReadingsValid(meterReadings)) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
         }
+        if (!shardRouter.isLocal(meterReadings.smartMeterId())) {
+            return redirectToOwner(meterReadings.smartMeterId());
+        }
+        if (readingIngestionQueue.isEnabled()) {
+            List<ElectricityReading> electricityReadings = meterReadings.electricityReadings();
+            ReadingBatch batch = new ReadingBatch(electricityReadings.size());
+            electricityReadings.forEach(batch::add);
+            return enqueue(meterReadings.smartMeterId(), batch);
+        }
         meterReadingService.storeReadings(meterReadings.smartMeterId(), meterReadings.electricityReadings());
         return ResponseEntity.ok().build();
     }
 
+    /**
+     * Stores readings sent in the binary format of {@link BinaryMeterReadingsConverter}.
+     */
+    @PostMapping(value = "/store", consumes = BinaryMeterReadingsConverter.MEDIA_TYPE_VALUE)
+    public ResponseEntity storeBinaryReadings(@RequestBody BinaryMeterReadings meterReadings) {
+        String smartMeterId = meterReadings.smartMeterId();
+        if (smartMeterId.isEmpty() || meterReadings.electricityReadings().isEmpty()) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+        if (!shardRouter.isLocal(smartMeterId)) {
+            return redirectToOwner(smartMeterId);
+        }
+        if (readingIngestionQueue.isEnabled()) {
+            return enqueue(smartMeterId, meterReadings.electricityReadings());
+        }
+        meterReadingService.storeReadings(smartMeterId, meterReadings.electricityReadings());
+        return ResponseEntity.ok().build();
+    }
+
+    /**
+     * Sends the client to the node owning the meter, with {@code 307 Temporary Redirect} so that it sends the same
+     * readings there.
+     */
+    private ResponseEntity redirectToOwner(String smartMeterId) {
+        return ResponseEntity.status(HttpStatus.TEMPORARY_REDIRECT)
+                .location(shardRouter.locationOf(smartMeterId, STORE_PATH, null))
+                .build();
+    }
+
+    /**
+     * @return 202 once the readings are queued to be stored, or 503 when the queue is full or closed
+     */
+    private ResponseEntity enqueue(String smartMeterId, ReadingBatch readings) {
+        if (readingIngestionQueue.offer(smartMeterId, readings)) {
+            return ResponseEntity.accepted().build();
+        }
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, RETRY_AFTER_SECONDS)
+                .build();
+    }
+
+    @PostMapping(
+            value = "/store/bulk",
+            consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public ResponseEntity<BulkStoreResult> storeBulkReadings(InputStream meterReadings) throws IOException {
+        try {
+            return ResponseEntity.ok(streamingMeterReadingsImporter.importReadings(meterReadings));
+        } catch (JsonProcessingException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
     private boolean isMeterReadingsValid(MeterReadings meterReadings) {
         String smartMeterId = meterReadings.smartMeterId();
         List<ElectricityReading> electricityReadings = meterReadings.electricityReadings();
@@ -42,11 +148,97 @@ public class MeterReadingController {
                 && !electricityReadings.isEmpty();
     }
 
+    /**
+     * @return the account's cost so far in its billing period, not found unless cost-to-date is enabled and the meter has
+     *     an account and readings
+     */
+    @GetMapping("/cost-to-date/{smartMeterId}")
+    public ResponseEntity<CostToDate> readCostToDate(@PathVariable String smartMeterId) {
+        return ResponseEntity.of(meterReadingService.getCostToDate(smartMeterId));
+    }
+
     @GetMapping("/read/{smartMeterId}")
-    public ResponseEntity readReadings(@PathVariable String smartMeterId) {
-        Optional<List<ElectricityReading>> readings = meterReadingService.getReadings(smartMeterId);
-        return readings.isPresent()
-                ? ResponseEntity.ok(readings.get())
+    public ResponseEntity readReadings(
+            @PathVariable String smartMeterId,
+            @RequestParam(required = false) Instant from,
+            @RequestParam(required = false) Instant to,
+            @RequestParam(required = false) String resolution,
+            @RequestParam(required = false) String after,
+            @RequestParam(required = false) Integer limit) {
+        if (from == null && to == null && resolution == null && after == null && limit == null) {
+            Optional<List<ElectricityReading>> readings = meterReadingService.getReadings(smartMeterId);
+            return readings.isPresent()
+                    ? ResponseEntity.ok(readings.get())
+                    : ResponseEntity.notFound().build();
+        }
+
+        if (resolution == null) {
+            ResponseEntity<ReadingsPage> page = readingsPage(smartMeterId, from, to, after, limit);
+            return page.hasBody()
+                    ? withNextCursor(page.getBody()).body(page.getBody().readings())
+                    : page;
+        }
+
+        Duration bucketSize = parseResolution(resolution);
+        if (bucketSize == null || after != null || limit != null || from != null && to != null && from.isAfter(to)) {
+            return ResponseEntity.badRequest().build();
+        }
+        Optional<List<ReadingBucket>> buckets = meterReadingService.getReadingBuckets(
+                smartMeterId, from == null ? Instant.MIN : from, to == null ? Instant.MAX : to, bucketSize);
+        return buckets.isPresent()
+                ? ResponseEntity.ok(buckets.get())
                 : ResponseEntity.notFound().build();
     }
+
+    /**
+     * Streams the readings in time order, one JSON object per line.
+     */
+    @GetMapping(value = "/read/{smartMeterId}", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamReadings(
+            @PathVariable String smartMeterId,
+            @RequestParam(required = false) Instant from,
+            @RequestParam(required = false) Instant to,
+            @RequestParam(required = false) String after,
+            @RequestParam(required = false) Integer limit) {
+        ResponseEntity<ReadingsPage> page = readingsPage(smartMeterId, from, to, after, limit);
+        return page.hasBody()
+                ? withNextCursor(page.getBody())
+                        .contentType(MediaType.APPLICATION_NDJSON)
+                        .body(new NdjsonReadingsBody(page.getBody()))
+                : ResponseEntity.status(page.getStatusCode()).build();
+    }
+
+    private ResponseEntity<ReadingsPage> readingsPage(
+            String smartMeterId, Instant from, Instant to, String after, Integer limit) {
+        if (limit != null && limit < 1 || from != null && to != null && from.isAfter(to)) {
+            return ResponseEntity.badRequest().build();
+        }
+        Optional<ReadingTimeIndex> index = meterReadingService.getTimeIndex(smartMeterId);
+        if (index.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        try {
+            return ResponseEntity.ok(ReadingsPage.of(
+                    index.get(), from == null ? Instant.MIN : from, to == null ? Instant.MAX : to, after, limit));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    private static ResponseEntity.BodyBuilder withNextCursor(ReadingsPage page) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.nextCursor() != null) {
+            response.header(NEXT_CURSOR_HEADER, page.nextCursor());
+        }
+        return response;
+    }
+
+    private static Duration parseResolution(String resolution) {
+        try {
+            Duration duration = DurationStyle.detectAndParse(resolution);
+            return duration.isNegative() || duration.isZero() || duration.getNano() != 0 ? null : duration;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
 }
@@ -0,0 +1,51 @@
+package uk.tw.energy.controller;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.Instant;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import uk.tw.energy.store.FixedPoint;
+import uk.tw.energy.store.ReadingCursor;
+
+/**
+ * Writes a {@link ReadingsPage} as one JSON reading per line, straight from the columns of the store and flushed every
+ * {@link #FLUSH_EVERY} readings, so the response is never held in memory as a whole.
+ */
+final class NdjsonReadingsBody implements StreamingResponseBody {
+
+    static final int FLUSH_EVERY = 1024;
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory().disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+
+    private final ReadingsPage page;
+
+    NdjsonReadingsBody(ReadingsPage page) {
+        this.page = page;
+    }
+
+    @Override
+    public void writeTo(OutputStream outputStream) throws IOException {
+        ReadingCursor cursor = page.index().cursor(page.start(), page.end());
+        char[] reading = new char[FixedPoint.MAX_FORMATTED_LENGTH];
+        try (JsonGenerator generator = JSON_FACTORY.createGenerator(outputStream)) {
+            generator.setRootValueSeparator(null);
+            while (cursor.next()) {
+                generator.writeStartObject();
+                generator.writeStringField(
+                        "time",
+                        Instant.ofEpochSecond(cursor.epochSecond(), cursor.nano())
+                                .toString());
+                generator.writeFieldName("reading");
+                int offset = FixedPoint.format(cursor.reading(), cursor.scale(), reading);
+                generator.writeNumber(reading, offset, reading.length - offset);
+                generator.writeEndObject();
+                generator.writeRaw('\n');
+                if ((cursor.index() - page.start() + 1) % FLUSH_EVERY == 0) {
+                    generator.flush();
+                }
+            }
+        }
+    }
+}
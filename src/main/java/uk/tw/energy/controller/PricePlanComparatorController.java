@@ -1,8 +1,6 @@
 package uk.tw.energy.controller;
 
 import java.math.BigDecimal;
-import java.util.ArrayList;
-import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -52,21 +50,11 @@ public class PricePlanComparatorController {
     @GetMapping("/recommend/{smartMeterId}")
     public ResponseEntity<List<Map.Entry<String, BigDecimal>>> recommendCheapestPricePlans(
             @PathVariable String smartMeterId, @RequestParam(value = "limit", required = false) Integer limit) {
-        Optional<Map<String, BigDecimal>> consumptionsForPricePlans =
-                pricePlanService.getConsumptionCostOfElectricityReadingsForEachPricePlan(smartMeterId);
-
-        if (!consumptionsForPricePlans.isPresent()) {
-            return ResponseEntity.notFound().build();
-        }
-
-        List<Map.Entry<String, BigDecimal>> recommendations =
-                new ArrayList<>(consumptionsForPricePlans.get().entrySet());
-        recommendations.sort(Comparator.comparing(Map.Entry::getValue));
+        Optional<List<Map.Entry<String, BigDecimal>>> recommendations =
+                pricePlanService.getCheapestPricePlans(smartMeterId, limit == null ? Integer.MAX_VALUE : limit);
 
-        if (limit != null && limit < recommendations.size()) {
-            recommendations = recommendations.subList(0, limit);
-        }
-
-        return ResponseEntity.ok(recommendations);
+        return recommendations.isPresent()
+                ? ResponseEntity.ok(recommendations.get())
+                : ResponseEntity.notFound().build();
     }
 }
@@ -0,0 +1,57 @@
+package uk.tw.energy.controller;
+
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.List;
+import uk.tw.energy.domain.ElectricityReading;
+import uk.tw.energy.store.ReadingTimeIndex;
+
+/**
+ * Readings between two positions of a {@link ReadingTimeIndex}, and the cursor that the next page starts after. A
+ * cursor names the last reading of a page by its time, which is unique within a series, so pages stay consistent while
+ * readings are being stored, including readings older than the cursor.
+ */
+record ReadingsPage(ReadingTimeIndex index, int start, int end, String nextCursor) {
+
+    private static final int CURSOR_LENGTH = Long.BYTES + Integer.BYTES;
+
+    /**
+     * @param after a cursor returned with a previous page, or null to start with the first reading taken at or after
+     *     {@code from}
+     * @param limit the maximum number of readings in the page, or null for all of them
+     * @throws IllegalArgumentException if {@code after} is not a valid cursor
+     */
+    static ReadingsPage of(ReadingTimeIndex index, Instant from, Instant to, String after, Integer limit) {
+        int start = index.firstAtOrAfter(from);
+        if (after != null) {
+            ByteBuffer cursor = decode(after);
+            start = Math.max(start, index.firstAfter(cursor.getLong(), cursor.getInt()));
+        }
+        int end = Math.max(start, index.firstAtOrAfter(to));
+        if (limit != null && end - start > limit) {
+            end = start + limit;
+            return new ReadingsPage(index, start, end, cursorAfter(index, end - 1));
+        }
+        return new ReadingsPage(index, start, end, null);
+    }
+
+    List<ElectricityReading> readings() {
+        return index.asList(start, end);
+    }
+
+    private static String cursorAfter(ReadingTimeIndex index, int position) {
+        ByteBuffer cursor = ByteBuffer.allocate(CURSOR_LENGTH)
+                .putLong(index.epochSecond(position))
+                .putInt(index.nano(position));
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(cursor.array());
+    }
+
+    private static ByteBuffer decode(String cursor) {
+        byte[] bytes = Base64.getUrlDecoder().decode(cursor);
+        if (bytes.length != CURSOR_LENGTH) {
+            throw new IllegalArgumentException("Invalid cursor: " + cursor);
+        }
+        return ByteBuffer.wrap(bytes);
+    }
+}
@@ -0,0 +1,9 @@
+package uk.tw.energy.domain;
+
+import java.util.Map;
+
+/**
+ * @param meters readings accepted and rejected for each smart meter
+ * @param rejectedWithoutSmartMeterId readings rejected because they were not sent with a smart meter id
+ */
+public record BulkStoreResult(Map<String, StoredReadingsCount> meters, long rejectedWithoutSmartMeterId) {}
@@ -0,0 +1,18 @@
+package uk.tw.energy.domain;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDate;
+
+/**
+ * @param threshold the configured cost the account has reached
+ * @param cost the cost so far in the billing period, as of the reading that crossed the threshold
+ * @param crossedAt the time of the reading that crossed the threshold
+ */
+public record CostThresholdAlert(
+        String smartMeterId,
+        String pricePlanId,
+        LocalDate billingPeriodStart,
+        BigDecimal threshold,
+        BigDecimal cost,
+        Instant crossedAt) {}
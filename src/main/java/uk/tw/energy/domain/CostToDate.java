@@ -0,0 +1,13 @@
+package uk.tw.energy.domain;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDate;
+
+/**
+ * @param billingPeriodStart the first day of the billing period being costed
+ * @param cost the cost of the electricity used so far in the billing period on the account's price plan
+ * @param costedUntil the time of the last reading costed, null if the meter has none in the billing period
+ */
+public record CostToDate(
+        String smartMeterId, String pricePlanId, LocalDate billingPeriodStart, BigDecimal cost, Instant costedUntil) {}
@@ -0,0 +1,16 @@
+package uk.tw.energy.domain;
+
+import java.time.Duration;
+
+/**
+ * @param meters accounts whose meter was costed
+ * @param metersSkipped accounts whose meter could not be costed, because it has no readings or they span no time
+ * @param parallelism number of threads the meters were costed on
+ */
+public record FleetRecommendationSummary(long meters, long metersSkipped, int parallelism, Duration elapsed) {
+
+    public double metersPerSecond() {
+        long nanos = elapsed.toNanos();
+        return nanos == 0 ? 0 : (meters + metersSkipped) * 1e9 / nanos;
+    }
+}
@@ -0,0 +1,12 @@
+package uk.tw.energy.domain;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * @param pricePlanId the price plan the meter's account is currently on
+ * @param recommendations every price plan with the cost of the meter's readings on it, cheapest first
+ */
+public record MeterRecommendation(
+        String smartMeterId, String pricePlanId, List<Map.Entry<String, BigDecimal>> recommendations) {}
@@ -3,6 +3,7 @@ package uk.tw.energy.domain;
 import java.math.BigDecimal;
 import java.time.DayOfWeek;
 import java.time.LocalDateTime;
+import java.util.Arrays;
 import java.util.List;
 
 public class PricePlan {
@@ -11,13 +12,37 @@ public class PricePlan {
     private final String planName;
     private final BigDecimal unitRate; // unit price per kWh
     private final List<PeakTimeMultiplier> peakTimeMultipliers;
+    private final BigDecimal[] pricesByDayOfWeek; // unit price per kWh, indexed by DayOfWeek.ordinal()
+    private final boolean timeOfUse;
 
     public PricePlan(
             String planName, String energySupplier, BigDecimal unitRate, List<PeakTimeMultiplier> peakTimeMultipliers) {
         this.planName = planName;
         this.energySupplier = energySupplier;
         this.unitRate = unitRate;
-        this.peakTimeMultipliers = peakTimeMultipliers;
+        this.peakTimeMultipliers = peakTimeMultipliers == null ? List.of() : List.copyOf(peakTimeMultipliers);
+        this.pricesByDayOfWeek = compilePricesByDayOfWeek(unitRate, peakTimeMultipliers);
+        this.timeOfUse =
+                unitRate != null && Arrays.stream(pricesByDayOfWeek).anyMatch(price -> price.compareTo(unitRate) != 0);
+    }
+
+    private static BigDecimal[] compilePricesByDayOfWeek(
+            BigDecimal unitRate, List<PeakTimeMultiplier> peakTimeMultipliers) {
+        BigDecimal[] prices = new BigDecimal[DayOfWeek.values().length];
+        if (peakTimeMultipliers != null) {
+            for (PeakTimeMultiplier multiplier : peakTimeMultipliers) {
+                int day = multiplier.dayOfWeek.ordinal();
+                if (prices[day] == null) {
+                    prices[day] = unitRate.multiply(multiplier.multiplier);
+                }
+            }
+        }
+        for (int day = 0; day < prices.length; day++) {
+            if (prices[day] == null) {
+                prices[day] = unitRate;
+            }
+        }
+        return prices;
     }
 
     public String getEnergySupplier() {
@@ -32,15 +57,26 @@ public class PricePlan {
         return unitRate;
     }
 
+    public List<PeakTimeMultiplier> getPeakTimeMultipliers() {
+        return peakTimeMultipliers;
+    }
+
+    /**
+     * @return whether the price depends on when the electricity is used, i.e. any peak time multiplier applies
+     */
+    public boolean isTimeOfUse() {
+        return timeOfUse;
+    }
+
     public BigDecimal getPrice(LocalDateTime dateTime) {
-        return peakTimeMultipliers.stream()
-                .filter(multiplier -> multiplier.dayOfWeek.equals(dateTime.getDayOfWeek()))
-                .findFirst()
-                .map(multiplier -> unitRate.multiply(multiplier.multiplier))
-                .orElse(unitRate);
+        return getPrice(dateTime.getDayOfWeek());
+    }
+
+    public BigDecimal getPrice(DayOfWeek dayOfWeek) {
+        return pricesByDayOfWeek[dayOfWeek.ordinal()];
     }
 
-    static class PeakTimeMultiplier {
+    public static class PeakTimeMultiplier {
 
         DayOfWeek dayOfWeek;
         BigDecimal multiplier;
@@ -49,5 +85,13 @@ public class PricePlan {
             this.dayOfWeek = dayOfWeek;
             this.multiplier = multiplier;
         }
+
+        public DayOfWeek getDayOfWeek() {
+            return dayOfWeek;
+        }
+
+        public BigDecimal getMultiplier() {
+            return multiplier;
+        }
     }
 }
@@ -0,0 +1,15 @@
+package uk.tw.energy.domain;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+/**
+ * Summary of the readings taken within one interval of a downsampled series.
+ *
+ * @param start start of the interval, a whole number of intervals since the epoch
+ * @param count number of readings in the interval
+ * @param min kW
+ * @param average kW
+ * @param max kW
+ */
+public record ReadingBucket(Instant start, int count, BigDecimal min, BigDecimal average, BigDecimal max) {}
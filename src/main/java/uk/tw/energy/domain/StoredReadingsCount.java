@@ -0,0 +1,3 @@
+package uk.tw.energy.domain;
+
+public record StoredReadingsCount(long accepted, long rejected) {}
@@ -0,0 +1,84 @@
+package uk.tw.energy.generator;
+
+import java.util.Arrays;
+
+/**
+ * How demand varies over the day, as a multiple of the average demand, hour by hour and separately for weekends. Demand
+ * between the hours is interpolated linearly. Times are taken in UTC.
+ */
+public final class DailyLoadProfile {
+
+    /**
+     * A household: low overnight, a morning peak and a larger evening peak, with weekend mornings starting later.
+     */
+    public static final DailyLoadProfile RESIDENTIAL = new DailyLoadProfile(
+            new double[] {
+                0.55, 0.45, 0.40, 0.38, 0.38, 0.45, 0.75, 1.15, 1.20, 0.95, 0.85, 0.85, 0.90, 0.85, 0.80, 0.85, 1.05,
+                1.45, 1.85, 1.90, 1.70, 1.40, 1.05, 0.75
+            },
+            new double[] {
+                0.60, 0.50, 0.42, 0.40, 0.38, 0.40, 0.50, 0.70, 0.95, 1.15, 1.20, 1.15, 1.15, 1.05, 1.00, 1.00, 1.10,
+                1.40, 1.70, 1.75, 1.60, 1.35, 1.05, 0.80
+            });
+
+    /**
+     * Demand that does not vary over time.
+     */
+    public static final DailyLoadProfile FLAT = new DailyLoadProfile(filled(1), filled(1));
+
+    private static final int HOURS_PER_DAY = 24;
+    private static final long SECONDS_PER_HOUR = 3_600;
+    private static final long SECONDS_PER_DAY = 86_400;
+    private static final long EPOCH_DAY_OF_FIRST_SATURDAY = 2; // 1970-01-03
+
+    private final double[] weekdayHours;
+    private final double[] weekendHours;
+
+    /**
+     * @param weekdayHours the relative demand at the start of each hour of a weekday, scaled so that the average over
+     *     the week is 1
+     * @param weekendHours the same for Saturdays and Sundays
+     */
+    public DailyLoadProfile(double[] weekdayHours, double[] weekendHours) {
+        if (weekdayHours.length != HOURS_PER_DAY || weekendHours.length != HOURS_PER_DAY) {
+            throw new IllegalArgumentException("A profile needs the demand of each of the " + HOURS_PER_DAY + " hours");
+        }
+        double weeklyAverage = (5 * Arrays.stream(weekdayHours).sum()
+                        + 2 * Arrays.stream(weekendHours).sum())
+                / (7 * HOURS_PER_DAY);
+        if (!(weeklyAverage > 0)
+                || Arrays.stream(weekdayHours).anyMatch(demand -> demand < 0)
+                || Arrays.stream(weekendHours).anyMatch(demand -> demand < 0)) {
+            throw new IllegalArgumentException("Demand must not be negative, and must not be 0 throughout");
+        }
+        this.weekdayHours = Arrays.stream(weekdayHours)
+                .map(demand -> demand / weeklyAverage)
+                .toArray();
+        this.weekendHours = Arrays.stream(weekendHours)
+                .map(demand -> demand / weeklyAverage)
+                .toArray();
+    }
+
+    /**
+     * @return the demand at the given time, as a multiple of the average demand
+     */
+    public double demand(long epochSecond) {
+        long epochDay = Math.floorDiv(epochSecond, SECONDS_PER_DAY);
+        long secondOfDay = epochSecond - epochDay * SECONDS_PER_DAY;
+        int hour = (int) (secondOfDay / SECONDS_PER_HOUR);
+        double fraction = (double) (secondOfDay % SECONDS_PER_HOUR) / SECONDS_PER_HOUR;
+        double from = hours(epochDay)[hour];
+        double to = hour + 1 < HOURS_PER_DAY ? hours(epochDay)[hour + 1] : hours(epochDay + 1)[0];
+        return from + (to - from) * fraction;
+    }
+
+    private double[] hours(long epochDay) {
+        return Math.floorMod(epochDay - EPOCH_DAY_OF_FIRST_SATURDAY, 7) < 2 ? weekendHours : weekdayHours;
+    }
+
+    private static double[] filled(double demand) {
+        double[] hours = new double[HOURS_PER_DAY];
+        Arrays.fill(hours, demand);
+        return hours;
+    }
+}
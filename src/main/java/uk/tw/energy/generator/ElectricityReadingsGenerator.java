@@ -1,29 +1,30 @@
 package uk.tw.energy.generator;
 
 import java.math.BigDecimal;
-import java.math.RoundingMode;
 import java.time.Instant;
 import java.util.ArrayList;
-import java.util.Comparator;
 import java.util.List;
-import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
 import uk.tw.energy.domain.ElectricityReading;
 
+/**
+ * Random sample readings. See {@link FleetReadingsGenerator} for realistic readings in bulk.
+ */
 public class ElectricityReadingsGenerator {
 
+    /**
+     * @return readings 10 seconds apart up to now, in time order
+     */
     public List<ElectricityReading> generate(int number) {
-        List<ElectricityReading> readings = new ArrayList<>();
+        List<ElectricityReading> readings = new ArrayList<>(number);
         Instant now = Instant.now();
 
-        Random readingRandomiser = new Random();
-        for (int i = 0; i < number; i++) {
+        ThreadLocalRandom readingRandomiser = ThreadLocalRandom.current();
+        for (int i = number - 1; i >= 0; i--) {
             double positiveRandomValue = Math.abs(readingRandomiser.nextGaussian());
-            BigDecimal randomReading = BigDecimal.valueOf(positiveRandomValue).setScale(4, RoundingMode.CEILING);
-            ElectricityReading electricityReading = new ElectricityReading(now.minusSeconds(i * 10L), randomReading);
-            readings.add(electricityReading);
+            BigDecimal randomReading = BigDecimal.valueOf((long) Math.ceil(positiveRandomValue * 10_000), 4);
+            readings.add(new ElectricityReading(now.minusSeconds(i * 10L), randomReading));
         }
-
-        readings.sort(Comparator.comparing(ElectricityReading::time));
         return readings;
     }
 }
@@ -0,0 +1,94 @@
+package uk.tw.energy.generator;
+
+import java.time.Duration;
+import java.util.SplittableRandom;
+import uk.tw.energy.store.FixedPoint;
+import uk.tw.energy.store.ReadingBatch;
+
+/**
+ * Generates realistic readings for a fleet of smart meters, fast and deterministically enough to load test with millions
+ * of meters. Each meter has an average demand of its own, drawn from a log-normal distribution, which follows a
+ * {@link DailyLoadProfile} with some noise from reading to reading.
+ *
+ * <p>Each meter has its own {@link SplittableRandom}, derived from the seed and the meter's index, so the readings of
+ * any meter can be generated on their own, on any thread and in any order, and are the same for the same seed. Readings
+ * are generated in time order straight into a {@link ReadingBatch}, in micro-kW to {@link #SCALE} decimal places.
+ */
+public final class FleetReadingsGenerator {
+
+    public static final int SCALE = 4;
+
+    private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+    private static final double MEDIAN_DEMAND_KW = 0.4;
+    private static final double DEMAND_SIGMA = 0.5;
+    private static final double NOISE_SIGMA = 0.2;
+    private static final long UNIT = FixedPoint.fromUnscaled(1, SCALE);
+
+    private final long seed;
+    private final DailyLoadProfile profile;
+    private final long intervalSeconds;
+
+    /**
+     * @param interval the time between consecutive readings of a meter, a positive whole number of seconds
+     */
+    public FleetReadingsGenerator(long seed, DailyLoadProfile profile, Duration interval) {
+        if (interval.isNegative() || interval.isZero() || interval.getNano() != 0) {
+            throw new IllegalArgumentException("Interval must be a positive whole number of seconds: " + interval);
+        }
+        this.seed = seed;
+        this.profile = profile;
+        this.intervalSeconds = interval.getSeconds();
+    }
+
+    /**
+     * @return the average demand of the meter in kW
+     */
+    public double averageDemand(int meter) {
+        return averageDemand(random(meter));
+    }
+
+    /**
+     * Generates {@code count} readings of one meter, {@link #FleetReadingsGenerator interval} apart from
+     * {@code startEpochSecond}.
+     */
+    public ReadingBatch generate(int meter, long startEpochSecond, int count) {
+        ReadingBatch readings = new ReadingBatch(count);
+        generate(meter, startEpochSecond, count, readings);
+        return readings;
+    }
+
+    /**
+     * Adds {@code count} readings of one meter, {@link #FleetReadingsGenerator interval} apart from
+     * {@code startEpochSecond}, to {@code readings}. The noise on the readings depends on the meter and the start, so a
+     * meter's readings differ from one period to the next.
+     */
+    public void generate(int meter, long startEpochSecond, int count, ReadingBatch readings) {
+        SplittableRandom meterRandom = random(meter);
+        double averageDemand = averageDemand(meterRandom);
+        SplittableRandom random = new SplittableRandom(mix64(meterRandom.nextLong() + startEpochSecond * GOLDEN_GAMMA));
+        long epochSecond = startEpochSecond;
+        for (int i = 0; i < count; i++) {
+            double noise = Math.exp(NOISE_SIGMA * random.nextGaussian() - NOISE_SIGMA * NOISE_SIGMA / 2);
+            double demand = averageDemand * profile.demand(epochSecond) * noise;
+            readings.add(epochSecond, 0, Math.round(demand * 10_000) * UNIT, SCALE);
+            epochSecond += intervalSeconds;
+        }
+    }
+
+    private SplittableRandom random(int meter) {
+        return new SplittableRandom(mix64(seed + (meter + 1L) * GOLDEN_GAMMA));
+    }
+
+    private static double averageDemand(SplittableRandom meterRandom) {
+        return MEDIAN_DEMAND_KW * Math.exp(DEMAND_SIGMA * meterRandom.nextGaussian());
+    }
+
+    /**
+     * The finaliser of SplittableRandom, which spreads consecutive seeds over unrelated streams.
+     */
+    private static long mix64(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,8 @@
+package uk.tw.energy.ingestion;
+
+import uk.tw.energy.store.ReadingBatch;
+
+/**
+ * The readings of one smart meter as sent in {@link BinaryMeterReadingsConverter#MEDIA_TYPE_VALUE}.
+ */
+public record BinaryMeterReadings(String smartMeterId, ReadingBatch electricityReadings) {}
@@ -0,0 +1,139 @@
+package uk.tw.energy.ingestion;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.http.converter.HttpMessageNotWritableException;
+import org.springframework.stereotype.Component;
+import uk.tw.energy.store.FixedPoint;
+import uk.tw.energy.store.ReadingBatch;
+
+/**
+ * Reads and writes the readings of a smart meter as {@value #MEDIA_TYPE_VALUE}, a compact alternative to JSON that is
+ * decoded straight into a {@link ReadingBatch}, without parsing times or decimals or creating an object per reading.
+ *
+ * <p>A body is a single frame, in network byte order:
+ *
+ * <pre>
+ *   u16  length of the smart meter id in bytes
+ *   ...  smart meter id, in UTF-8
+ *   u8   scale of every reading, between 0 and 6 decimal places
+ *   i32  number of readings
+ *   then for each reading:
+ *   i64  time in seconds since the epoch
+ *   i64  reading in units of 10^-scale kW
+ * </pre>
+ */
+@Component
+public class BinaryMeterReadingsConverter extends AbstractHttpMessageConverter<BinaryMeterReadings> {
+
+    public static final String MEDIA_TYPE_VALUE = "application/vnd.joyofenergy.readings";
+    public static final MediaType MEDIA_TYPE = MediaType.parseMediaType(MEDIA_TYPE_VALUE);
+
+    static final int READING_BYTES = 2 * Long.BYTES;
+    private static final int BUFFERED_READINGS = 512;
+
+    public BinaryMeterReadingsConverter() {
+        super(MEDIA_TYPE);
+    }
+
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return BinaryMeterReadings.class == clazz;
+    }
+
+    @Override
+    protected BinaryMeterReadings readInternal(
+            Class<? extends BinaryMeterReadings> clazz, HttpInputMessage inputMessage) throws IOException {
+        InputStream body = inputMessage.getBody();
+        byte[] header = new byte[Byte.BYTES + Integer.BYTES];
+        ByteBuffer headerFields = ByteBuffer.wrap(header);
+
+        readFully(body, header, Short.BYTES, inputMessage);
+        byte[] smartMeterId = new byte[Short.toUnsignedInt(headerFields.getShort(0))];
+        readFully(body, smartMeterId, smartMeterId.length, inputMessage);
+        readFully(body, header, Byte.BYTES + Integer.BYTES, inputMessage);
+        int scale = header[0];
+        int count = headerFields.getInt(Byte.BYTES);
+        if (scale < 0 || scale > FixedPoint.READING_SCALE) {
+            throw new HttpMessageNotReadableException(
+                    "Scale must be between 0 and " + FixedPoint.READING_SCALE + " but was " + scale, inputMessage);
+        }
+        if (count < 0) {
+            throw new HttpMessageNotReadableException("Negative number of readings " + count, inputMessage);
+        }
+
+        byte[] buffer = new byte[Math.min(count, BUFFERED_READINGS) * READING_BYTES];
+        ByteBuffer frame = ByteBuffer.wrap(buffer);
+        ReadingBatch batch = new ReadingBatch(Math.min(count, BUFFERED_READINGS));
+        for (int remaining = count; remaining > 0; ) {
+            int readings = Math.min(remaining, BUFFERED_READINGS);
+            readFully(body, buffer, readings * READING_BYTES, inputMessage);
+            for (int i = 0; i < readings; i++) {
+                long epochSecond = frame.getLong(i * READING_BYTES);
+                long reading = frame.getLong(i * READING_BYTES + Long.BYTES);
+                if (epochSecond < Instant.MIN.getEpochSecond() || epochSecond > Instant.MAX.getEpochSecond()) {
+                    throw new HttpMessageNotReadableException("Time out of range " + epochSecond, inputMessage);
+                }
+                try {
+                    batch.add(epochSecond, 0, FixedPoint.fromUnscaled(reading, scale), scale);
+                } catch (ArithmeticException e) {
+                    throw new HttpMessageNotReadableException("Reading out of range " + reading, e, inputMessage);
+                }
+            }
+            remaining -= readings;
+        }
+        if (body.read() != -1) {
+            throw new HttpMessageNotReadableException("Unexpected data after " + count + " readings", inputMessage);
+        }
+        return new BinaryMeterReadings(new String(smartMeterId, StandardCharsets.UTF_8), batch);
+    }
+
+    /**
+     * Writes the readings at the largest scale among them.
+     */
+    @Override
+    protected void writeInternal(BinaryMeterReadings meterReadings, HttpOutputMessage outputMessage)
+            throws IOException {
+        byte[] smartMeterId = meterReadings.smartMeterId().getBytes(StandardCharsets.UTF_8);
+        if (smartMeterId.length > 0xFFFF) {
+            throw new HttpMessageNotWritableException("Smart meter id longer than 65535 bytes");
+        }
+        ReadingBatch readings = meterReadings.electricityReadings();
+        int scale = 0;
+        for (int i = 0; i < readings.size(); i++) {
+            if (readings.nano(i) != 0) {
+                throw new HttpMessageNotWritableException("Readings must be taken at whole seconds");
+            }
+            scale = Math.max(scale, readings.scale(i));
+        }
+
+        DataOutputStream body = new DataOutputStream(
+                new BufferedOutputStream(outputMessage.getBody(), BUFFERED_READINGS * READING_BYTES));
+        body.writeShort(smartMeterId.length);
+        body.write(smartMeterId);
+        body.writeByte(scale);
+        body.writeInt(readings.size());
+        for (int i = 0; i < readings.size(); i++) {
+            body.writeLong(readings.epochSecond(i));
+            body.writeLong(FixedPoint.toUnscaled(readings.reading(i), scale));
+        }
+        body.flush();
+    }
+
+    private static void readFully(InputStream body, byte[] buffer, int length, HttpInputMessage inputMessage)
+            throws IOException {
+        if (body.readNBytes(buffer, 0, length) < length) {
+            throw new HttpMessageNotReadableException("Truncated readings", inputMessage);
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package uk.tw.energy.ingestion;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * @param async whether stored readings are queued and stored in the background, see {@link ReadingIngestionQueue}
+ * @param queueCapacity number of requests that can be queued before more are rejected
+ * @param consumers number of threads storing queued readings
+ * @param batchSize number of queued requests stored together, at most
+ */
+@ConfigurationProperties("readings.ingestion")
+public record ReadingIngestionProperties(
+        @DefaultValue("false") boolean async,
+        @DefaultValue("10000") int queueCapacity,
+        @DefaultValue("1") int consumers,
+        @DefaultValue("256") int batchSize) {}
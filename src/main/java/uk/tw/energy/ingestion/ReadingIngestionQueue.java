@@ -0,0 +1,205 @@
+package uk.tw.energy.ingestion;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import uk.tw.energy.service.MeterReadingService;
+import uk.tw.energy.store.ReadingBatch;
+
+/**
+ * Bounded queue of readings waiting to be stored, so that requests return once their readings are queued rather than
+ * stored. Consumer threads drain up to {@code batchSize} requests at a time and store them grouped by smart meter, one
+ * {@link MeterReadingService#storeReadings(String, ReadingBatch)} call per meter, which amortises the locking and
+ * durability of the store over every request drained together.
+ *
+ * <p>When the queue is full {@link #offer} rejects the readings instead of blocking, and the caller is expected to tell
+ * the client to retry.
+ */
+public class ReadingIngestionQueue implements MeterBinder, AutoCloseable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ReadingIngestionQueue.class);
+    private static final long POLL_MILLIS = 100;
+    private static final long CLOSE_TIMEOUT_SECONDS = 10;
+
+    private static final ReadingIngestionQueue DISABLED = new ReadingIngestionQueue();
+
+    private final MeterReadingService meterReadingService;
+    private final BlockingQueue<QueuedReadings> queue;
+    private final int capacity;
+    private final int batchSize;
+    private final ExecutorService consumers;
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private volatile DistributionSummary batchSizes;
+    private volatile boolean closed;
+
+    public ReadingIngestionQueue(
+            MeterReadingService meterReadingService, int capacity, int consumerCount, int batchSize) {
+        if (capacity < 1 || consumerCount < 1 || batchSize < 1) {
+            throw new IllegalArgumentException("capacity, consumers and batch size must be positive");
+        }
+        this.meterReadingService = meterReadingService;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.capacity = capacity;
+        this.batchSize = batchSize;
+        AtomicInteger threads = new AtomicInteger();
+        consumers = Executors.newFixedThreadPool(consumerCount, runnable -> {
+            Thread thread = new Thread(runnable, "reading-ingester-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        for (int i = 0; i < consumerCount; i++) {
+            consumers.execute(this::consume);
+        }
+    }
+
+    private ReadingIngestionQueue() {
+        this.meterReadingService = null;
+        this.queue = null;
+        this.capacity = 0;
+        this.batchSize = 0;
+        this.consumers = null;
+    }
+
+    public static ReadingIngestionQueue disabled() {
+        return DISABLED;
+    }
+
+    public boolean isEnabled() {
+        return queue != null;
+    }
+
+    /**
+     * @param readings the readings to store, which must not be changed afterwards
+     * @return whether the readings were queued, false when the queue is full or closed
+     */
+    public boolean offer(String smartMeterId, ReadingBatch readings) {
+        if (queue == null) {
+            throw new IllegalStateException("Asynchronous ingestion is disabled");
+        }
+        QueuedReadings queued = new QueuedReadings(smartMeterId, readings);
+        if (!closed && queue.offer(queued)) {
+            // the consumers may have drained the queue and stopped since closed was checked, leaving it unstored
+            if (!closed || !queue.remove(queued)) {
+                return true;
+            }
+        }
+        rejected.increment();
+        return false;
+    }
+
+    /**
+     * @return the number of requests waiting to be stored
+     */
+    public int depth() {
+        return queue == null ? 0 : queue.size();
+    }
+
+    private void consume() {
+        List<QueuedReadings> drained = new ArrayList<>(batchSize);
+        Map<String, List<ReadingBatch>> byMeter = new LinkedHashMap<>();
+        while (!closed || !queue.isEmpty()) {
+            try {
+                QueuedReadings first = queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                drained.add(first);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            queue.drainTo(drained, batchSize - 1);
+            DistributionSummary summary = batchSizes;
+            if (summary != null) {
+                summary.record(drained.size());
+            }
+
+            for (QueuedReadings queued : drained) {
+                byMeter.computeIfAbsent(queued.smartMeterId(), id -> new ArrayList<>(1))
+                        .add(queued.readings());
+            }
+            byMeter.forEach(this::store);
+            drained.clear();
+            byMeter.clear();
+        }
+    }
+
+    private void store(String smartMeterId, List<ReadingBatch> batches) {
+        ReadingBatch readings = batches.get(0);
+        if (batches.size() > 1) {
+            readings = new ReadingBatch(
+                    batches.stream().mapToInt(ReadingBatch::size).sum());
+            for (ReadingBatch batch : batches) {
+                readings.addAll(batch);
+            }
+        }
+        try {
+            meterReadingService.storeReadings(smartMeterId, readings);
+        } catch (RuntimeException e) {
+            failed.add(readings.size());
+            LOGGER.warn("Storing {} queued readings for {} failed", readings.size(), smartMeterId, e);
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        if (queue == null) {
+            return;
+        }
+        Gauge.builder("readings.ingestion.queue.depth", queue, BlockingQueue::size)
+                .description("Requests queued and waiting to be stored")
+                .register(registry);
+        Gauge.builder("readings.ingestion.queue.capacity", () -> capacity)
+                .description("Requests that can be queued before more are rejected")
+                .register(registry);
+        batchSizes = DistributionSummary.builder("readings.ingestion.batch.size")
+                .description("Queued requests drained and stored together")
+                .register(registry);
+        FunctionCounter.builder("readings.ingestion.rejected", rejected, LongAdder::sum)
+                .description("Requests rejected because the queue was full or closed")
+                .register(registry);
+        FunctionCounter.builder("readings.ingestion.failed", failed, LongAdder::sum)
+                .description("Queued readings that could not be stored")
+                .baseUnit("readings")
+                .register(registry);
+    }
+
+    /**
+     * Stops accepting readings and waits for the consumers to store the ones already queued.
+     */
+    @Override
+    public void close() {
+        if (consumers == null) {
+            return;
+        }
+        closed = true;
+        consumers.shutdown();
+        try {
+            if (!consumers.awaitTermination(CLOSE_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                LOGGER.warn("Discarding {} queued requests that were not stored in time", queue.size());
+                consumers.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            consumers.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private record QueuedReadings(String smartMeterId, ReadingBatch readings) {}
+}
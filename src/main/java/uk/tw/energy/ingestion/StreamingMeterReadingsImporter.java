@@ -0,0 +1,232 @@
+package uk.tw.energy.ingestion;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import uk.tw.energy.domain.BulkStoreResult;
+import uk.tw.energy.domain.StoredReadingsCount;
+import uk.tw.energy.service.MeterReadingService;
+import uk.tw.energy.sharding.ShardClient;
+import uk.tw.energy.sharding.ShardRouter;
+import uk.tw.energy.store.FixedPoint;
+import uk.tw.energy.store.ReadingBatch;
+
+/**
+ * Stores readings for many meters from either a JSON array or a newline delimited stream of {@code MeterReadings}
+ * objects. The body is parsed token by token and written to {@link MeterReadingService} in batches, so neither the
+ * document nor the readings are ever bound to objects as a whole.
+ *
+ * <p>In a sharded deployment, batches for meters owned by another node are sent on to their owner.
+ */
+@Component
+public class StreamingMeterReadingsImporter {
+
+    static final int BATCH_SIZE = 1024;
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(StreamingMeterReadingsImporter.class);
+
+    private final JsonFactory jsonFactory = new JsonFactory();
+    private final MeterReadingService meterReadingService;
+    private final ShardRouter shardRouter;
+    private final ShardClient shardClient;
+
+    public StreamingMeterReadingsImporter(MeterReadingService meterReadingService) {
+        this(meterReadingService, ShardRouter.disabled(), ShardClient.disabled());
+    }
+
+    @Autowired
+    public StreamingMeterReadingsImporter(
+            MeterReadingService meterReadingService, ShardRouter shardRouter, ShardClient shardClient) {
+        this.meterReadingService = meterReadingService;
+        this.shardRouter = shardRouter;
+        this.shardClient = shardClient;
+    }
+
+    public BulkStoreResult importReadings(InputStream meterReadings) throws IOException {
+        Import result = new Import();
+        try (JsonParser parser = jsonFactory.createParser(meterReadings)) {
+            JsonToken token = parser.nextToken();
+            if (token == JsonToken.START_ARRAY) {
+                while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+                    importMeterReadings(parser, token, result);
+                }
+            } else {
+                while (token != null) {
+                    importMeterReadings(parser, token, result);
+                    token = parser.nextToken();
+                }
+            }
+        }
+        return result.toBulkStoreResult();
+    }
+
+    private void importMeterReadings(JsonParser parser, JsonToken token, Import result) throws IOException {
+        if (token != JsonToken.START_OBJECT) {
+            throw new JsonParseException(parser, "Expected meter readings object but found " + token);
+        }
+
+        ReadingBatch batch = result.batch;
+        String smartMeterId = null;
+        MeterCount count = new MeterCount();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            token = parser.nextToken();
+            if ("smartMeterId".equals(field) && token == JsonToken.VALUE_STRING) {
+                smartMeterId = parser.getText().isEmpty() ? null : parser.getText();
+            } else if ("electricityReadings".equals(field) && token == JsonToken.START_ARRAY) {
+                while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+                    if (!readReading(parser, token, batch)) {
+                        count.rejected++;
+                    }
+                    if (smartMeterId != null && batch.size() >= BATCH_SIZE) {
+                        store(smartMeterId, batch, count);
+                    }
+                }
+            } else {
+                parser.skipChildren();
+            }
+        }
+
+        if (smartMeterId == null) {
+            result.rejectedWithoutSmartMeterId += batch.size() + count.rejected;
+            batch.clear();
+            return;
+        }
+        store(smartMeterId, batch, count);
+        result.count(smartMeterId, count.accepted, count.rejected);
+    }
+
+    /**
+     * Stores the batch and clears it, counting the readings stored as accepted, leaving out duplicates of readings
+     * already stored. Readings stored on another node are all counted, since it does not report duplicates. A batch
+     * that fails is counted as rejected rather than kept, so that it is not sent again with every reading that follows.
+     */
+    private void store(String smartMeterId, ReadingBatch batch, MeterCount count) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            if (shardRouter.isLocal(smartMeterId)) {
+                count.accepted += meterReadingService.storeReadings(smartMeterId, batch);
+            } else {
+                shardClient.storeReadings(shardRouter.ownerOf(smartMeterId), smartMeterId, batch);
+                count.accepted += batch.size();
+            }
+        } catch (ArithmeticException e) {
+            count.rejected += batch.size();
+        } catch (UncheckedIOException e) {
+            LOGGER.warn("Could not store {} readings for {} on its node", batch.size(), smartMeterId, e);
+            count.rejected += batch.size();
+        }
+        batch.clear();
+    }
+
+    private boolean readReading(JsonParser parser, JsonToken token, ReadingBatch batch) throws IOException {
+        if (token != JsonToken.START_OBJECT) {
+            parser.skipChildren();
+            return false;
+        }
+
+        Instant time = null;
+        BigDecimal reading = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            token = parser.nextToken();
+            if ("time".equals(field)) {
+                time = readTime(parser, token);
+            } else if ("reading".equals(field)) {
+                reading = readDecimal(parser, token);
+            } else {
+                parser.skipChildren();
+            }
+        }
+
+        if (time == null || reading == null) {
+            return false;
+        }
+        try {
+            batch.add(
+                    time.getEpochSecond(),
+                    time.getNano(),
+                    FixedPoint.toFixedPoint(reading),
+                    FixedPoint.scaleOf(reading));
+            return true;
+        } catch (ArithmeticException e) {
+            return false;
+        }
+    }
+
+    private static Instant readTime(JsonParser parser, JsonToken token) throws IOException {
+        try {
+            if (token == JsonToken.VALUE_STRING) {
+                return Instant.parse(parser.getText());
+            }
+            if (token == JsonToken.VALUE_NUMBER_INT) {
+                return Instant.ofEpochSecond(parser.getLongValue());
+            }
+            if (token == JsonToken.VALUE_NUMBER_FLOAT) {
+                BigDecimal epochSeconds = parser.getDecimalValue();
+                return Instant.ofEpochSecond(
+                        epochSeconds.longValue(),
+                        epochSeconds.remainder(BigDecimal.ONE).movePointRight(9).intValue());
+            }
+        } catch (DateTimeParseException | ArithmeticException e) {
+            return null;
+        }
+        parser.skipChildren();
+        return null;
+    }
+
+    private static BigDecimal readDecimal(JsonParser parser, JsonToken token) throws IOException {
+        if (token == JsonToken.VALUE_NUMBER_INT || token == JsonToken.VALUE_NUMBER_FLOAT) {
+            return parser.getDecimalValue();
+        }
+        if (token == JsonToken.VALUE_STRING) {
+            try {
+                return new BigDecimal(parser.getText());
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+        parser.skipChildren();
+        return null;
+    }
+
+    private static final class MeterCount {
+
+        private long accepted;
+        private long rejected;
+    }
+
+    private static final class Import {
+
+        private final ReadingBatch batch = new ReadingBatch(BATCH_SIZE);
+        private final Map<String, StoredReadingsCount> meters = new LinkedHashMap<>();
+        private long rejectedWithoutSmartMeterId;
+
+        private void count(String smartMeterId, long accepted, long rejected) {
+            meters.merge(
+                    smartMeterId,
+                    new StoredReadingsCount(accepted, rejected),
+                    (left, right) -> new StoredReadingsCount(
+                            left.accepted() + right.accepted(), left.rejected() + right.rejected()));
+        }
+
+        private BulkStoreResult toBulkStoreResult() {
+            return new BulkStoreResult(meters, rejectedWithoutSmartMeterId);
+        }
+    }
+}
@@ -1,18 +1,70 @@
 package uk.tw.energy.service;
 
+import java.util.HashMap;
 import java.util.Map;
+import java.util.stream.IntStream;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+/**
+ * The price plan of each account, held by the {@link SmartMeterRegistry} handle of its smart meter. Price plan ids are
+ * interned, so each is held once however many accounts are on it.
+ */
 @Service
 public class AccountService {
 
-    private final Map<String, String> smartMeterToPricePlanAccounts;
+    private final SmartMeterRegistry smartMeterRegistry;
+    private final SmartMeterArray<String> pricePlanIds = new SmartMeterArray<>();
+    private final int[] accountHandles;
 
     public AccountService(Map<String, String> smartMeterToPricePlanAccounts) {
-        this.smartMeterToPricePlanAccounts = smartMeterToPricePlanAccounts;
+        this(smartMeterToPricePlanAccounts, new SmartMeterRegistry());
+    }
+
+    @Autowired
+    public AccountService(Map<String, String> smartMeterToPricePlanAccounts, SmartMeterRegistry smartMeterRegistry) {
+        this.smartMeterRegistry = smartMeterRegistry;
+        Map<String, String> interned = new HashMap<>();
+        accountHandles = new int[smartMeterToPricePlanAccounts.size()];
+        int account = 0;
+        for (Map.Entry<String, String> entry : smartMeterToPricePlanAccounts.entrySet()) {
+            int handle = smartMeterRegistry.register(entry.getKey());
+            pricePlanIds.set(handle, interned.computeIfAbsent(entry.getValue(), pricePlanId -> pricePlanId));
+            accountHandles[account++] = handle;
+        }
     }
 
     public String getPricePlanIdForSmartMeterId(String smartMeterId) {
-        return smartMeterToPricePlanAccounts.get(smartMeterId);
+        int handle = smartMeterRegistry.handleOf(smartMeterId);
+        return handle < 0 ? null : pricePlanIds.get(handle);
+    }
+
+    /**
+     * @return every account, as its smart meter id mapped to its price plan id
+     */
+    public Map<String, String> getSmartMeterToPricePlanAccounts() {
+        Map<String, String> accounts = new HashMap<>((int) (accountHandles.length / 0.75f) + 1);
+        for (int handle : accountHandles) {
+            accounts.put(smartMeterRegistry.smartMeterId(handle), pricePlanIds.get(handle));
+        }
+        return accounts;
+    }
+
+    /**
+     * @return the {@link SmartMeterRegistry} handle of the smart meter of every account
+     */
+    public IntStream accountHandles() {
+        return IntStream.of(accountHandles);
+    }
+
+    public String getSmartMeterId(int handle) {
+        return smartMeterRegistry.smartMeterId(handle);
+    }
+
+    /**
+     * @return the price plan id of the account of the meter, or null if it has no account
+     */
+    public String getPricePlanId(int handle) {
+        return pricePlanIds.get(handle);
     }
 }
@@ -0,0 +1,85 @@
+package uk.tw.energy.service;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.DayOfWeek;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import uk.tw.energy.domain.PricePlan;
+import uk.tw.energy.store.ReadingAggregate;
+
+/**
+ * The reference {@link CostCalculator}, defining the rounding of every cost. Used whenever the
+ * {@link FixedPointCostCalculator} cannot represent a calculation in {@code long}s.
+ */
+final class BigDecimalCostCalculator implements CostCalculator {
+
+    private final List<PricePlan> pricePlans;
+
+    BigDecimalCostCalculator(List<PricePlan> pricePlans) {
+        this.pricePlans = pricePlans;
+    }
+
+    @Override
+    public Map<String, BigDecimal> calculateCosts(ReadingAggregate aggregate, long[] consumptionByDayOfWeek) {
+        BigDecimal averagedCost = calculateAveragedCost(aggregate);
+        return pricePlans.stream()
+                .collect(Collectors.toMap(
+                        PricePlan::getPlanName, t -> calculateCost(averagedCost, consumptionByDayOfWeek, t)));
+    }
+
+    @Override
+    public BigDecimal[] calculateCosts(ReadingAggregate aggregate, long[] consumptionByDayOfWeek, int[] plans) {
+        BigDecimal averagedCost = calculateAveragedCost(aggregate);
+        BigDecimal[] costs = new BigDecimal[plans.length];
+        for (int i = 0; i < plans.length; i++) {
+            costs[i] = calculateCost(averagedCost, consumptionByDayOfWeek, pricePlans.get(plans[i]));
+        }
+        return costs;
+    }
+
+    private BigDecimal calculateCost(BigDecimal averagedCost, long[] consumptionByDayOfWeek, PricePlan pricePlan) {
+        if (!pricePlan.isTimeOfUse()) {
+            return averagedCost.multiply(pricePlan.getUnitRate());
+        }
+
+        BigDecimal weightedPrice = BigDecimal.ZERO;
+        long totalConsumption = 0;
+        for (DayOfWeek dayOfWeek : DayOfWeek.values()) {
+            long consumption = consumptionByDayOfWeek[dayOfWeek.ordinal()];
+            if (consumption != 0) {
+                weightedPrice =
+                        weightedPrice.add(pricePlan.getPrice(dayOfWeek).multiply(BigDecimal.valueOf(consumption)));
+                totalConsumption += consumption;
+            }
+        }
+        if (totalConsumption == 0) {
+            return averagedCost.multiply(pricePlan.getUnitRate());
+        }
+
+        return averagedCost
+                .multiply(weightedPrice)
+                .divide(
+                        BigDecimal.valueOf(totalConsumption),
+                        averagedCost.scale() + weightedPrice.scale(),
+                        RoundingMode.HALF_UP);
+    }
+
+    private BigDecimal calculateAveragedCost(ReadingAggregate electricityReadings) {
+        BigDecimal average = calculateAverageReading(electricityReadings);
+        BigDecimal timeElapsed = calculateTimeElapsed(electricityReadings);
+
+        return average.divide(timeElapsed, RoundingMode.HALF_UP);
+    }
+
+    private BigDecimal calculateAverageReading(ReadingAggregate electricityReadings) {
+        return electricityReadings
+                .summedReadings()
+                .divide(BigDecimal.valueOf(electricityReadings.count()), RoundingMode.HALF_UP);
+    }
+
+    static BigDecimal calculateTimeElapsed(ReadingAggregate electricityReadings) {
+        return BigDecimal.valueOf(electricityReadings.timeElapsed().getSeconds() / 3600.0);
+    }
+}
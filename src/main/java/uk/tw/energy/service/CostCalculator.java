@@ -0,0 +1,26 @@
+package uk.tw.energy.service;
+
+import java.math.BigDecimal;
+import java.util.Map;
+import uk.tw.energy.store.ReadingAggregate;
+
+/**
+ * Cost of a meter's readings against each price plan, from the running aggregate of the readings and, for time-of-use
+ * plans, their consumption by day of week.
+ */
+interface CostCalculator {
+
+    /**
+     * @param consumptionByDayOfWeek doubled micro-kW seconds consumed on each day of week, or null if no plan is
+     *     time-of-use
+     * @throws ArithmeticException if there are no readings, or they span no time
+     */
+    Map<String, BigDecimal> calculateCosts(ReadingAggregate aggregate, long[] consumptionByDayOfWeek);
+
+    /**
+     * @param plans indices of the price plans to cost
+     * @return the cost against each of {@code plans}, in the same order
+     * @throws ArithmeticException if there are no readings, or they span no time
+     */
+    BigDecimal[] calculateCosts(ReadingAggregate aggregate, long[] consumptionByDayOfWeek, int[] plans);
+}
@@ -0,0 +1,12 @@
+package uk.tw.energy.service;
+
+import uk.tw.energy.domain.CostThresholdAlert;
+
+/**
+ * Told when an account's cost so far in its billing period reaches one of the configured alert thresholds, on the
+ * thread that stored the readings once they are stored.
+ */
+@FunctionalInterface
+public interface CostThresholdListener {
+    void thresholdCrossed(CostThresholdAlert alert);
+}
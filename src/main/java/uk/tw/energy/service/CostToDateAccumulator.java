@@ -0,0 +1,387 @@
+package uk.tw.energy.service;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.DayOfWeek;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.LongAdder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import uk.tw.energy.domain.CostThresholdAlert;
+import uk.tw.energy.domain.CostToDate;
+import uk.tw.energy.domain.PricePlan;
+import uk.tw.energy.store.FixedPoint;
+import uk.tw.energy.store.MeterReadingSeries;
+import uk.tw.energy.store.ReadingCursor;
+import uk.tw.energy.store.ReadingRollup;
+import uk.tw.energy.store.ReadingSnapshot;
+import uk.tw.energy.store.ReadingTimeIndex;
+
+/**
+ * Each account's cost so far in its billing period, on the price plan {@link AccountService} maps it to, kept up to
+ * date as {@link MeterReadingService} stores readings so that it never has to be recomputed from the whole history.
+ *
+ * <p>Costs the electricity used rather than the averaged readings that price plans are compared on, since only the
+ * former adds up reading by reading: consumption is integrated over each interval between consecutive readings (see
+ * {@link ReadingRollup#consumption}) and priced at the plan's price on the UTC day of week the interval starts, as when
+ * {@link PricePlanService} weights time-of-use prices. An interval belongs to the billing period it starts in. Costs
+ * are held as {@code long}s, in the unscaled price times the doubled micro-kW seconds, so storing a batch costs as much
+ * as the readings in it.
+ *
+ * <p>A meter is costed from its stored readings the first time it is used after startup. From then on the readings
+ * each append stores are costed in time order, but only those later than the last one costed, so readings stored out of
+ * order are not costed. A cost too large for a {@code long} is given up on until the next billing period.
+ *
+ * <p>{@link CostThresholdListener}s are told when an account's cost reaches each alert threshold, once per billing
+ * period. Thresholds already reached when the meter is first costed are not alerted again.
+ */
+public class CostToDateAccumulator implements MeterBinder {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CostToDateAccumulator.class);
+    private static final long SECONDS_PER_DAY = 86_400;
+    private static final int COST_SCALE = 4;
+    // consumption is in micro-kW seconds doubled, so this many micro-kWh
+    private static final BigDecimal CONSUMPTION_PER_MICRO_KWH = BigDecimal.valueOf(2 * 3_600);
+
+    private static final CostToDateAccumulator DISABLED = new CostToDateAccumulator();
+
+    private final AccountService accountService;
+    private final Map<String, CompiledPlan> pricePlans;
+    private final int billingDayOfMonth;
+    private final List<BigDecimal> alertThresholds;
+    private final List<CostThresholdListener> listeners;
+    private final SmartMeterArray<MeterCost> costs = new SmartMeterArray<>();
+    private final LongAdder alerts = new LongAdder();
+    private final LongAdder listenerFailures = new LongAdder();
+    private final LongAdder overflows = new LongAdder();
+
+    /**
+     * @throws ArithmeticException if a price or threshold does not fit in a {@code long} once scaled
+     */
+    public CostToDateAccumulator(
+            AccountService accountService,
+            List<PricePlan> pricePlans,
+            int billingDayOfMonth,
+            List<BigDecimal> alertThresholds,
+            List<CostThresholdListener> listeners) {
+        if (billingDayOfMonth < 1 || billingDayOfMonth > 31) {
+            throw new IllegalArgumentException("Billing day of month must be between 1 and 31: " + billingDayOfMonth);
+        }
+        this.accountService = accountService;
+        this.billingDayOfMonth = billingDayOfMonth;
+        this.alertThresholds = alertThresholds.stream().sorted().distinct().toList();
+        this.listeners = List.copyOf(listeners);
+        this.pricePlans = new HashMap<>();
+        for (PricePlan pricePlan : pricePlans) {
+            this.pricePlans.put(pricePlan.getPlanName(), new CompiledPlan(pricePlan, this.alertThresholds));
+        }
+    }
+
+    private CostToDateAccumulator() {
+        this.accountService = null;
+        this.pricePlans = null;
+        this.billingDayOfMonth = 0;
+        this.alertThresholds = List.of();
+        this.listeners = List.of();
+    }
+
+    public static CostToDateAccumulator disabled() {
+        return DISABLED;
+    }
+
+    public boolean isEnabled() {
+        return pricePlans != null;
+    }
+
+    /**
+     * Costs the meter's stored readings if it is not costed yet. Called with the meter's lock held before readings are
+     * appended to {@code series}, so that the thresholds they cross are alerted.
+     */
+    void prepare(int handle, String smartMeterId, MeterReadingSeries series) {
+        if (pricePlans == null) {
+            return;
+        }
+        costs.computeIfAbsent(handle, ignored -> costed(smartMeterId, series));
+    }
+
+    /**
+     * Costs the readings appended to {@code series} since the last one costed. Called with the meter's lock held after
+     * each append, so that a meter's readings are costed one at a time and in time order.
+     *
+     * @return the thresholds crossed, to be passed to {@link #alert} once the lock is released, null if none
+     */
+    List<CostThresholdAlert> add(int handle, MeterReadingSeries series) {
+        if (pricePlans == null) {
+            return null;
+        }
+        MeterCost cost = costs.get(handle);
+        if (cost == null || cost.plan == null) {
+            return null;
+        }
+        return cost.add(series.snapshot());
+    }
+
+    /**
+     * Tells the listeners about each of {@code crossed}, if any.
+     */
+    void alert(List<CostThresholdAlert> crossed) {
+        if (crossed == null) {
+            return;
+        }
+        for (CostThresholdAlert alert : crossed) {
+            notifyListeners(alert);
+        }
+    }
+
+    /**
+     * @return the meter's cost so far in the billing period its last interval between readings started in, empty if it
+     *     has no account, no readings, or its cost could not be kept
+     */
+    Optional<CostToDate> costToDate(int handle, String smartMeterId, MeterReadingSeries series) {
+        if (pricePlans == null) {
+            return Optional.empty();
+        }
+        return costs.computeIfAbsent(handle, ignored -> costed(smartMeterId, series))
+                .costToDate();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        if (pricePlans == null) {
+            return;
+        }
+        FunctionCounter.builder("price-plans.costs.to-date.alerts", alerts, LongAdder::sum)
+                .description("Cost thresholds reached by accounts")
+                .register(registry);
+        FunctionCounter.builder("price-plans.costs.to-date.alerts.failed", listenerFailures, LongAdder::sum)
+                .description("Cost threshold alerts that a listener failed to handle")
+                .register(registry);
+        FunctionCounter.builder("price-plans.costs.to-date.overflows", overflows, LongAdder::sum)
+                .description("Billing periods of an account whose cost grew too large to keep")
+                .register(registry);
+    }
+
+    /**
+     * Costs the readings already stored, without alerting the thresholds they reach.
+     */
+    private MeterCost costed(String smartMeterId, MeterReadingSeries series) {
+        String pricePlanId = accountService.getPricePlanIdForSmartMeterId(smartMeterId);
+        CompiledPlan plan = pricePlanId == null ? null : pricePlans.get(pricePlanId);
+        MeterCost cost = new MeterCost(smartMeterId, plan);
+        if (plan != null) {
+            cost.addStored(series.snapshot());
+        }
+        return cost;
+    }
+
+    private void notifyListeners(CostThresholdAlert alert) {
+        alerts.increment();
+        for (CostThresholdListener listener : listeners) {
+            try {
+                listener.thresholdCrossed(alert);
+            } catch (RuntimeException e) {
+                listenerFailures.increment();
+                LOGGER.warn("Cost threshold listener failed for {}", alert.smartMeterId(), e);
+            }
+        }
+    }
+
+    /**
+     * @return the first day of the billing period {@code date} falls in
+     */
+    private LocalDate billingPeriodStart(LocalDate date) {
+        LocalDate start = date.withDayOfMonth(Math.min(billingDayOfMonth, date.lengthOfMonth()));
+        if (start.isAfter(date)) {
+            LocalDate previousMonth = date.minusMonths(1);
+            start = previousMonth.withDayOfMonth(Math.min(billingDayOfMonth, previousMonth.lengthOfMonth()));
+        }
+        return start;
+    }
+
+    private LocalDate nextBillingPeriodStart(LocalDate start) {
+        LocalDate nextMonth = start.plusMonths(1);
+        return nextMonth.withDayOfMonth(Math.min(billingDayOfMonth, nextMonth.lengthOfMonth()));
+    }
+
+    /**
+     * A price plan's prices by day of week, and the alert thresholds, all unscaled at the largest scale of its prices.
+     */
+    private static final class CompiledPlan {
+
+        private final String planName;
+        private final int priceScale;
+        private final long[] pricesByDayOfWeek = new long[DayOfWeek.values().length];
+        private final long[] weightedThresholds;
+
+        private CompiledPlan(PricePlan pricePlan, List<BigDecimal> alertThresholds) {
+            planName = pricePlan.getPlanName();
+            int scale = 0;
+            for (DayOfWeek dayOfWeek : DayOfWeek.values()) {
+                scale = Math.max(scale, pricePlan.getPrice(dayOfWeek).scale());
+            }
+            priceScale = scale;
+            for (DayOfWeek dayOfWeek : DayOfWeek.values()) {
+                pricesByDayOfWeek[dayOfWeek.ordinal()] = pricePlan
+                        .getPrice(dayOfWeek)
+                        .setScale(priceScale)
+                        .unscaledValue()
+                        .longValueExact();
+            }
+            // the least weighted cost that is at least the threshold
+            weightedThresholds = alertThresholds.stream()
+                    .mapToLong(threshold -> threshold
+                            .multiply(CONSUMPTION_PER_MICRO_KWH)
+                            .movePointRight(priceScale + FixedPoint.READING_SCALE)
+                            .setScale(0, RoundingMode.CEILING)
+                            .longValueExact())
+                    .toArray();
+        }
+
+        private BigDecimal cost(long weightedCost) {
+            return BigDecimal.valueOf(weightedCost, priceScale + FixedPoint.READING_SCALE)
+                    .divide(CONSUMPTION_PER_MICRO_KWH, COST_SCALE, RoundingMode.HALF_UP);
+        }
+    }
+
+    /**
+     * The cost of one meter in its current billing period, and the last reading costed. Guarded by its own monitor, so
+     * that it can be read while readings are being costed.
+     */
+    private final class MeterCost {
+
+        private final String smartMeterId;
+        private final CompiledPlan plan;
+        private LocalDate periodStart;
+        private long periodEndEpochSecond = Long.MIN_VALUE;
+        private boolean hasLast;
+        private long lastEpochSecond;
+        private int lastNano;
+        private long lastReading;
+        private long weightedCost;
+        private boolean overflowed;
+        private int nextThreshold;
+
+        private MeterCost(String smartMeterId, CompiledPlan plan) {
+            this.smartMeterId = smartMeterId;
+            this.plan = plan;
+        }
+
+        private synchronized void addStored(ReadingSnapshot snapshot) {
+            for (ReadingRollup rollup : snapshot.rollups()) {
+                add(rollup.firstEpochSecond(), rollup.firstNano(), rollup.firstReading());
+                addConsumption(rollup.startEpochSecond(), rollup.consumption());
+                lastEpochSecond = rollup.lastEpochSecond();
+                lastNano = rollup.lastNano();
+                lastReading = rollup.lastReading();
+            }
+            ReadingCursor cursor = snapshot.cursor();
+            while (cursor.next()) {
+                add(cursor.epochSecond(), cursor.nano(), cursor.reading());
+            }
+            while (nextThreshold < plan.weightedThresholds.length
+                    && weightedCost >= plan.weightedThresholds[nextThreshold]) {
+                nextThreshold++;
+            }
+        }
+
+        /**
+         * Costs the raw readings in {@code snapshot} taken after the last one costed.
+         *
+         * @return the thresholds crossed, null if none
+         */
+        private synchronized List<CostThresholdAlert> add(ReadingSnapshot snapshot) {
+            ReadingTimeIndex timeIndex = snapshot.timeIndex();
+            int from = hasLast ? timeIndex.firstAfter(lastEpochSecond, lastNano) : 0;
+            ReadingCursor cursor = timeIndex.cursor(from, timeIndex.size());
+            List<CostThresholdAlert> crossed = null;
+            while (cursor.next()) {
+                long epochSecond = cursor.epochSecond();
+                int nano = cursor.nano();
+                add(epochSecond, nano, cursor.reading());
+                while (!overflowed
+                        && nextThreshold < plan.weightedThresholds.length
+                        && weightedCost >= plan.weightedThresholds[nextThreshold]) {
+                    if (crossed == null) {
+                        crossed = new ArrayList<>(1);
+                    }
+                    crossed.add(new CostThresholdAlert(
+                            smartMeterId,
+                            plan.planName,
+                            periodStart,
+                            alertThresholds.get(nextThreshold),
+                            plan.cost(weightedCost),
+                            Instant.ofEpochSecond(epochSecond, nano)));
+                    nextThreshold++;
+                }
+            }
+            return crossed;
+        }
+
+        private synchronized Optional<CostToDate> costToDate() {
+            if (plan == null || !hasLast || overflowed) {
+                return Optional.empty();
+            }
+            return Optional.of(new CostToDate(
+                    smartMeterId,
+                    plan.planName,
+                    periodStart,
+                    plan.cost(weightedCost),
+                    Instant.ofEpochSecond(lastEpochSecond, lastNano)));
+        }
+
+        /**
+         * Costs the interval from the last reading to this one, in the billing period of the last reading.
+         */
+        private void add(long epochSecond, int nano, long reading) {
+            if (hasLast) {
+                addConsumption(
+                        lastEpochSecond, ReadingRollup.consumption(lastEpochSecond, lastReading, epochSecond, reading));
+            } else {
+                startPeriod(epochSecond);
+            }
+            hasLast = true;
+            lastEpochSecond = epochSecond;
+            lastNano = nano;
+            lastReading = reading;
+        }
+
+        private void addConsumption(long epochSecond, long consumption) {
+            if (epochSecond >= periodEndEpochSecond) {
+                startPeriod(epochSecond);
+            }
+            if (overflowed) {
+                return;
+            }
+            try {
+                weightedCost = Math.addExact(
+                        weightedCost,
+                        Math.multiplyExact(
+                                consumption, plan.pricesByDayOfWeek[PricePlanService.dayOfWeek(epochSecond)]));
+            } catch (ArithmeticException e) {
+                overflowed = true;
+                overflows.increment();
+                LOGGER.warn(
+                        "Cost of {} is too large to keep for the billing period from {}", smartMeterId, periodStart);
+            }
+        }
+
+        private void startPeriod(long epochSecond) {
+            periodStart = billingPeriodStart(LocalDate.ofEpochDay(Math.floorDiv(epochSecond, SECONDS_PER_DAY)));
+            periodEndEpochSecond =
+                    nextBillingPeriodStart(periodStart).atStartOfDay().toEpochSecond(ZoneOffset.UTC);
+            weightedCost = 0;
+            overflowed = false;
+            nextThreshold = 0;
+        }
+    }
+}
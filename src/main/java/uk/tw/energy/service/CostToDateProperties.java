@@ -0,0 +1,19 @@
+package uk.tw.energy.service;
+
+import java.math.BigDecimal;
+import java.util.List;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * @param enabled whether each account's cost so far this billing period is accumulated as readings are stored, see
+ *     {@link CostToDateAccumulator}
+ * @param billingDayOfMonth the UTC day of the month each billing period starts on, or the last day of shorter months
+ * @param alertThresholds costs at which {@link CostThresholdListener}s are told that an account has crossed them, at
+ *     most once per threshold and billing period
+ */
+@ConfigurationProperties("readings.cost-to-date")
+public record CostToDateProperties(
+        @DefaultValue("false") boolean enabled,
+        @DefaultValue("1") int billingDayOfMonth,
+        @DefaultValue List<BigDecimal> alertThresholds) {}
@@ -0,0 +1,210 @@
+package uk.tw.energy.service;
+
+import java.math.BigDecimal;
+import java.time.DayOfWeek;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import uk.tw.energy.domain.PricePlan;
+import uk.tw.energy.store.FixedPoint;
+import uk.tw.energy.store.ReadingAggregate;
+
+/**
+ * {@link CostCalculator} on {@code long}s, giving exactly the costs of the {@link BigDecimalCostCalculator}, including
+ * their scale. Prices are compiled into unscaled values and scales up front, each step holds the unscaled value of the
+ * reference's intermediate {@link BigDecimal} at the same scale, and divisions round half up from an exact 128-bit
+ * quotient. Only the resulting costs are allocated.
+ *
+ * <p>Throws {@link ArithmeticException} when an intermediate value does not fit in a {@code long}, in which case the
+ * reference has to be used instead.
+ */
+final class FixedPointCostCalculator implements CostCalculator {
+
+    private static final long[] POWERS_OF_TEN = new long[19];
+
+    static {
+        POWERS_OF_TEN[0] = 1;
+        for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+        }
+    }
+
+    private final String[] planNames;
+    private final boolean[] timeOfUse;
+    private final long[] unitRates;
+    private final int[] unitRateScales;
+    private final long[][] pricesByDayOfWeek;
+    private final int[][] priceScalesByDayOfWeek;
+
+    /**
+     * @throws ArithmeticException if a price does not fit in a {@code long}, see {@link #supports(List)}
+     */
+    FixedPointCostCalculator(List<PricePlan> pricePlans) {
+        int planCount = pricePlans.size();
+        planNames = new String[planCount];
+        timeOfUse = new boolean[planCount];
+        unitRates = new long[planCount];
+        unitRateScales = new int[planCount];
+        pricesByDayOfWeek = new long[planCount][DayOfWeek.values().length];
+        priceScalesByDayOfWeek = new int[planCount][DayOfWeek.values().length];
+        for (int plan = 0; plan < planCount; plan++) {
+            PricePlan pricePlan = pricePlans.get(plan);
+            planNames[plan] = pricePlan.getPlanName();
+            timeOfUse[plan] = pricePlan.isTimeOfUse();
+            unitRates[plan] = pricePlan.getUnitRate().unscaledValue().longValueExact();
+            unitRateScales[plan] = pricePlan.getUnitRate().scale();
+            for (DayOfWeek dayOfWeek : DayOfWeek.values()) {
+                BigDecimal price = pricePlan.getPrice(dayOfWeek);
+                pricesByDayOfWeek[plan][dayOfWeek.ordinal()] =
+                        price.unscaledValue().longValueExact();
+                priceScalesByDayOfWeek[plan][dayOfWeek.ordinal()] = price.scale();
+            }
+        }
+    }
+
+    static boolean supports(List<PricePlan> pricePlans) {
+        for (PricePlan pricePlan : pricePlans) {
+            if (pricePlan.getUnitRate().unscaledValue().bitLength() >= Long.SIZE) {
+                return false;
+            }
+            for (DayOfWeek dayOfWeek : DayOfWeek.values()) {
+                if (pricePlan.getPrice(dayOfWeek).unscaledValue().bitLength() >= Long.SIZE) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public Map<String, BigDecimal> calculateCosts(ReadingAggregate aggregate, long[] consumptionByDayOfWeek) {
+        long averagedCost = calculateAveragedCost(aggregate);
+        int scale = aggregate.scale();
+        Map<String, BigDecimal> costs = new HashMap<>();
+        for (int plan = 0; plan < planNames.length; plan++) {
+            BigDecimal cost = calculateCost(averagedCost, scale, consumptionByDayOfWeek, plan);
+            if (costs.put(planNames[plan], cost) != null) {
+                throw new IllegalStateException("Duplicate key " + planNames[plan]);
+            }
+        }
+        return costs;
+    }
+
+    @Override
+    public BigDecimal[] calculateCosts(ReadingAggregate aggregate, long[] consumptionByDayOfWeek, int[] plans) {
+        long averagedCost = calculateAveragedCost(aggregate);
+        int scale = aggregate.scale();
+        BigDecimal[] costs = new BigDecimal[plans.length];
+        for (int i = 0; i < plans.length; i++) {
+            costs[i] = calculateCost(averagedCost, scale, consumptionByDayOfWeek, plans[i]);
+        }
+        return costs;
+    }
+
+    private BigDecimal calculateCost(long averagedCost, int scale, long[] consumptionByDayOfWeek, int plan) {
+        return timeOfUse[plan]
+                ? calculateTimeOfUseCost(averagedCost, scale, consumptionByDayOfWeek, plan)
+                : BigDecimal.valueOf(Math.multiplyExact(averagedCost, unitRates[plan]), scale + unitRateScales[plan]);
+    }
+
+    private BigDecimal calculateTimeOfUseCost(long averagedCost, int scale, long[] consumptionByDayOfWeek, int plan) {
+        long[] prices = pricesByDayOfWeek[plan];
+        int[] priceScales = priceScalesByDayOfWeek[plan];
+        int weightedPriceScale = 0;
+        for (int day = 0; day < consumptionByDayOfWeek.length; day++) {
+            if (consumptionByDayOfWeek[day] != 0) {
+                weightedPriceScale = Math.max(weightedPriceScale, priceScales[day]);
+            }
+        }
+
+        long weightedPrice = 0;
+        long totalConsumption = 0;
+        for (int day = 0; day < consumptionByDayOfWeek.length; day++) {
+            long consumption = consumptionByDayOfWeek[day];
+            if (consumption != 0) {
+                long price = Math.multiplyExact(prices[day], powerOfTen(weightedPriceScale - priceScales[day]));
+                weightedPrice = Math.addExact(weightedPrice, Math.multiplyExact(price, consumption));
+                totalConsumption += consumption;
+            }
+        }
+        if (totalConsumption == 0) {
+            return BigDecimal.valueOf(Math.multiplyExact(averagedCost, unitRates[plan]), scale + unitRateScales[plan]);
+        }
+
+        return BigDecimal.valueOf(
+                divideHalfUp(averagedCost, weightedPrice, totalConsumption), scale + weightedPriceScale);
+    }
+
+    /**
+     * @return the unscaled averaged cost at the scale of the aggregate
+     */
+    private static long calculateAveragedCost(ReadingAggregate aggregate) {
+        long summedReadings = aggregate.sum() / POWERS_OF_TEN[FixedPoint.READING_SCALE - aggregate.scale()];
+        long average = divideHalfUp(summedReadings, 1, aggregate.count());
+
+        // the exact decimal the reference divides by, including the shortest representation of the double
+        BigDecimal timeElapsed = BigDecimalCostCalculator.calculateTimeElapsed(aggregate);
+        long unscaledTimeElapsed = timeElapsed.unscaledValue().longValueExact();
+        int timeElapsedScale = timeElapsed.scale();
+        if (timeElapsedScale < 0) {
+            return divideHalfUp(average, 1, Math.multiplyExact(unscaledTimeElapsed, powerOfTen(-timeElapsedScale)));
+        }
+        int excessScale = Math.max(0, timeElapsedScale - (POWERS_OF_TEN.length - 1));
+        return divideHalfUp(
+                Math.multiplyExact(average, powerOfTen(excessScale)),
+                powerOfTen(timeElapsedScale - excessScale),
+                unscaledTimeElapsed);
+    }
+
+    private static long powerOfTen(int exponent) {
+        if (exponent >= POWERS_OF_TEN.length) {
+            throw new ArithmeticException("10^" + exponent + " does not fit in a long");
+        }
+        return POWERS_OF_TEN[exponent];
+    }
+
+    /**
+     * @return {@code multiplicand * multiplier / divisor} rounded half up, computed on the exact 128-bit product
+     * @throws ArithmeticException if {@code divisor} is zero or the result does not fit in a {@code long}
+     */
+    static long divideHalfUp(long multiplicand, long multiplier, long divisor) {
+        if (divisor == 0) {
+            throw new ArithmeticException("Division by zero");
+        }
+        boolean negative = (multiplicand < 0) ^ (multiplier < 0) ^ (divisor < 0);
+        long x = Math.absExact(multiplicand);
+        long y = Math.absExact(multiplier);
+        long d = Math.absExact(divisor);
+
+        long high = Math.multiplyHigh(x, y);
+        long low = x * y;
+        long quotient;
+        long remainder;
+        if (high == 0 && low >= 0) {
+            quotient = low / d;
+            remainder = low % d;
+        } else {
+            if (high >= d) {
+                throw new ArithmeticException("Quotient does not fit in a long");
+            }
+            // shift-subtract division of the unsigned 128-bit product; the remainder stays below d < 2^63
+            quotient = 0;
+            remainder = high;
+            for (int bit = Long.SIZE - 1; bit >= 0; bit--) {
+                remainder = (remainder << 1) | ((low >>> bit) & 1);
+                quotient <<= 1;
+                if (Long.compareUnsigned(remainder, d) >= 0) {
+                    remainder -= d;
+                    quotient |= 1;
+                }
+            }
+            if (quotient < 0) {
+                throw new ArithmeticException("Quotient does not fit in a long");
+            }
+        }
+        if (remainder >= d - remainder) {
+            quotient = Math.incrementExact(quotient);
+        }
+        return negative ? -quotient : quotient;
+    }
+}
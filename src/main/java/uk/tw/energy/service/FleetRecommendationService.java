@@ -0,0 +1,133 @@
+package uk.tw.energy.service;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.LongAdder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import uk.tw.energy.domain.FleetRecommendationSummary;
+import uk.tw.energy.domain.MeterRecommendation;
+
+/**
+ * Recommends price plans for every account at once. Meters are costed in parallel on a fork-join pool, splitting the
+ * accounts by their meter handles, while the results are handed to the caller's thread through a bounded queue: the
+ * caller sees each meter as soon as it is costed, and costing slows down to the pace at which the caller consumes.
+ */
+@Service
+public class FleetRecommendationService {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(FleetRecommendationService.class);
+    private static final int QUEUE_CAPACITY = 4096;
+    private static final MeterRecommendation END = new MeterRecommendation(null, null, List.of());
+
+    private final AccountService accountService;
+    private final PricePlanService pricePlanService;
+    private final int parallelism;
+
+    @Autowired
+    public FleetRecommendationService(AccountService accountService, PricePlanService pricePlanService) {
+        this(accountService, pricePlanService, Runtime.getRuntime().availableProcessors());
+    }
+
+    public FleetRecommendationService(
+            AccountService accountService, PricePlanService pricePlanService, int parallelism) {
+        this.accountService = accountService;
+        this.pricePlanService = pricePlanService;
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Meters that cannot be costed, because they have no readings or their readings span no time, are left out of the
+     * results.
+     *
+     * @param results called on the calling thread, once for each meter, in no particular order
+     */
+    public FleetRecommendationSummary recommendAll(RecommendationConsumer results) throws IOException {
+        BlockingQueue<MeterRecommendation> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+        LongAdder metersSkipped = new LongAdder();
+        long meters = 0;
+        long start = System.nanoTime();
+
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            CompletableFuture<Void> costing = CompletableFuture.runAsync(
+                    () -> accountService.accountHandles().parallel().forEach(handle -> {
+                        Optional<MeterRecommendation> recommendation = recommend(
+                                accountService.getSmartMeterId(handle), accountService.getPricePlanId(handle));
+                        if (recommendation.isPresent()) {
+                            put(queue, recommendation.get());
+                        } else {
+                            metersSkipped.increment();
+                        }
+                    }),
+                    pool);
+            costing.whenComplete((ignored, failure) -> put(queue, END));
+
+            MeterRecommendation recommendation;
+            while ((recommendation = take(queue)) != END) {
+                results.accept(recommendation);
+                meters++;
+            }
+            costing.join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException cause ? cause : e;
+        } finally {
+            pool.shutdownNow();
+        }
+
+        FleetRecommendationSummary summary = new FleetRecommendationSummary(
+                meters, metersSkipped.sum(), parallelism, Duration.ofNanos(System.nanoTime() - start));
+        LOGGER.info(
+                "Recommended price plans for {} meters ({} skipped) on {} threads in {} ms, {} meters/s",
+                summary.meters(),
+                summary.metersSkipped(),
+                summary.parallelism(),
+                summary.elapsed().toMillis(),
+                Math.round(summary.metersPerSecond()));
+        return summary;
+    }
+
+    private Optional<MeterRecommendation> recommend(String smartMeterId, String pricePlanId) {
+        Optional<List<Map.Entry<String, BigDecimal>>> recommendations;
+        try {
+            recommendations = pricePlanService.getCheapestPricePlans(smartMeterId, Integer.MAX_VALUE);
+        } catch (ArithmeticException e) {
+            return Optional.empty();
+        }
+        return recommendations.map(cheapestFirst -> new MeterRecommendation(smartMeterId, pricePlanId, cheapestFirst));
+    }
+
+    private static void put(BlockingQueue<MeterRecommendation> queue, MeterRecommendation recommendation) {
+        try {
+            queue.put(recommendation);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CompletionException(e);
+        }
+    }
+
+    private static MeterRecommendation take(BlockingQueue<MeterRecommendation> queue) throws IOException {
+        try {
+            return queue.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while recommending price plans", e);
+        }
+    }
+
+    @FunctionalInterface
+    public interface RecommendationConsumer {
+        void accept(MeterRecommendation recommendation) throws IOException;
+    }
+}
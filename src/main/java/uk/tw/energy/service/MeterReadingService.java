@@ -1,29 +1,533 @@
 package uk.tw.energy.service;
 
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.IntStream;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import uk.tw.energy.domain.CostThresholdAlert;
+import uk.tw.energy.domain.CostToDate;
 import uk.tw.energy.domain.ElectricityReading;
+import uk.tw.energy.domain.ReadingBucket;
+import uk.tw.energy.store.FixedPoint;
+import uk.tw.energy.store.MeterReadingSeries;
+import uk.tw.energy.store.ReadingBatch;
+import uk.tw.energy.store.ReadingCursor;
+import uk.tw.energy.store.ReadingLog;
+import uk.tw.energy.store.ReadingRollup;
+import uk.tw.energy.store.ReadingSnapshot;
+import uk.tw.energy.store.ReadingStoreProperties;
+import uk.tw.energy.store.ReadingTimeIndex;
+import uk.tw.energy.store.StoreSnapshot;
+import uk.tw.energy.store.StoreSnapshotWriter;
 
+/**
+ * Stores and serves the readings of every smart meter.
+ *
+ * <p>Ingest is counted with {@link LongAdder}s, so storing readings allocates nothing for metrics. The size of the store
+ * is only measured when metrics are collected, at most once per {@link #STATISTICS_MAX_AGE_NANOS}.
+ *
+ * <p>Each meter's series is held by its {@link SmartMeterRegistry} handle, so finding it is an array access once the id
+ * has been looked up, and the ids are shared with the other services rather than held again here.
+ *
+ * <p>Meters restored from a {@link StoreSnapshot} are only read from it when first used, under the same lock that
+ * serialises storing their readings.
+ */
 @Service
-public class MeterReadingService {
+public class MeterReadingService implements MeterBinder {
 
-    private final Map<String, List<ElectricityReading>> meterAssociatedReadings;
+    private static final int LOCK_STRIPES =
+            Integer.highestOneBit(Runtime.getRuntime().availableProcessors() * 16);
+    private static final long STATISTICS_MAX_AGE_NANOS = TimeUnit.SECONDS.toNanos(1);
+    private static final double[] READINGS_PER_METER_QUANTILES = {0.5, 0.9, 0.99, 1.0};
 
+    private final SmartMeterRegistry smartMeterRegistry;
+    private final SmartMeterArray<MeterReadingSeries> meterAssociatedReadings = new SmartMeterArray<>();
+    private final ReentrantLock[] appendLocks = new ReentrantLock[LOCK_STRIPES];
+    private final ReadingLog readingLog;
+    private final CostToDateAccumulator costToDate;
+    private final StoreSnapshot storeSnapshot;
+    private final SmartMeterArray<Boolean> snapshotOnly = new SmartMeterArray<>();
+    private final AtomicInteger snapshotOnlyMeters = new AtomicInteger();
+    private final boolean compressSealedChunks;
+    private final LongAdder readingsStored = new LongAdder();
+    private final LongAdder duplicatesIgnored = new LongAdder();
+    private final LongAdder batchesStored = new LongAdder();
+    private final LongAdder readingsCompacted = new LongAdder();
+    private volatile ReadingStoreStatistics statistics;
+
+    /**
+     * A store of {@code meterAssociatedReadings} alone, without a reading log, snapshot or cost-to-date.
+     */
     public MeterReadingService(Map<String, List<ElectricityReading>> meterAssociatedReadings) {
-        this.meterAssociatedReadings = meterAssociatedReadings;
+        this(
+                meterAssociatedReadings,
+                ReadingLog.disabled(),
+                new ReadingStoreProperties(false),
+                StoreSnapshot.empty(),
+                new SmartMeterRegistry(),
+                CostToDateAccumulator.disabled());
+    }
+
+    /**
+     * The store starts from {@code storeSnapshot}, with the log replayed on top of it from the position the snapshot was
+     * taken at. Readings in both are only stored once.
+     *
+     * @param meterAssociatedReadings sample readings, only used when there is nothing in the snapshot or the log
+     */
+    @Autowired
+    public MeterReadingService(
+            Map<String, List<ElectricityReading>> meterAssociatedReadings,
+            ReadingLog readingLog,
+            ReadingStoreProperties storeProperties,
+            StoreSnapshot storeSnapshot,
+            SmartMeterRegistry smartMeterRegistry,
+            CostToDateAccumulator costToDate) {
+        for (int i = 0; i < appendLocks.length; i++) {
+            appendLocks[i] = new ReentrantLock();
+        }
+        this.readingLog = readingLog;
+        this.costToDate = costToDate;
+        this.storeSnapshot = storeSnapshot;
+        this.smartMeterRegistry = smartMeterRegistry;
+        this.compressSealedChunks = storeProperties.compressSealedChunks();
+        for (String smartMeterId : storeSnapshot.smartMeterIds()) {
+            snapshotOnly.set(smartMeterRegistry.register(smartMeterId), Boolean.TRUE);
+            snapshotOnlyMeters.incrementAndGet();
+        }
+
+        long replayed = readingLog.replay(storeSnapshot.logPosition(), (smartMeterId, batch) -> seriesFor(smartMeterId)
+                .append(batch));
+        if (replayed == 0 && snapshotOnlyMeters.get() == 0) {
+            meterAssociatedReadings.forEach(
+                    (smartMeterId, readings) -> seriesFor(smartMeterId).append(readings));
+        }
     }
 
     public Optional<List<ElectricityReading>> getReadings(String smartMeterId) {
-        return Optional.ofNullable(meterAssociatedReadings.get(smartMeterId));
+        return getSeries(smartMeterId).map(MeterReadingSeries::asList);
+    }
+
+    /**
+     * @return the readings stored so far in time order
+     */
+    public Optional<ReadingTimeIndex> getTimeIndex(String smartMeterId) {
+        return getSeries(smartMeterId).map(MeterReadingSeries::timeIndex);
+    }
+
+    /**
+     * Downsamples the readings taken from {@code from} (inclusive) until {@code to} (exclusive) into intervals of
+     * {@code resolution}. Intervals without readings are left out. Compacted readings are included by the start of their
+     * hour or day, and at that granularity when it is coarser than {@code resolution}.
+     *
+     * @param resolution a positive whole number of seconds
+     */
+    public Optional<List<ReadingBucket>> getReadingBuckets(
+            String smartMeterId, Instant from, Instant to, Duration resolution) {
+        if (resolution.isNegative() || resolution.isZero() || resolution.getNano() != 0) {
+            throw new IllegalArgumentException("Resolution must be a positive whole number of seconds: " + resolution);
+        }
+        return getSeries(smartMeterId).map(series -> bucket(series.snapshot(), from, to, resolution.getSeconds()));
+    }
+
+    public Optional<MeterReadingSeries> getSeries(String smartMeterId) {
+        int handle = smartMeterRegistry.handleOf(smartMeterId);
+        if (handle < 0) {
+            return Optional.empty();
+        }
+        MeterReadingSeries series = meterAssociatedReadings.get(handle);
+        if (series == null && isSnapshotOnly(handle)) {
+            series = restore(handle);
+        }
+        return Optional.ofNullable(series);
+    }
+
+    /**
+     * @return the number of readings stored, leaving out those taken at the same time as one already stored
+     */
+    public int storeReadings(String smartMeterId, List<ElectricityReading> electricityReadings) {
+        if (readingLog.isEnabled() || costToDate.isEnabled()) {
+            ReadingBatch batch = new ReadingBatch(electricityReadings.size());
+            electricityReadings.forEach(batch::add);
+            return storeReadings(smartMeterId, batch);
+        }
+
+        int handle = smartMeterRegistry.register(smartMeterId);
+        MeterReadingSeries series = seriesFor(handle);
+        int stored;
+        ReentrantLock lock = appendLockFor(handle);
+        lock.lock();
+        try {
+            stored = series.append(electricityReadings);
+        } finally {
+            lock.unlock();
+        }
+        recordStored(electricityReadings.size(), stored);
+        return stored;
+    }
+
+    /**
+     * With the reading log enabled, returns once the readings are durable. They are only logged once they are stored in
+     * memory, so that a batch that cannot be stored is not replayed on restart, and become visible to readers from then,
+     * possibly before they are durable.
+     *
+     * @return the number of readings stored, leaving out those taken at the same time as one already stored
+     */
+    public int storeReadings(String smartMeterId, ReadingBatch electricityReadings) {
+        int handle = smartMeterRegistry.register(smartMeterId);
+        MeterReadingSeries series = seriesFor(handle);
+        long logPosition;
+        int stored;
+        List<CostThresholdAlert> alerts = null;
+        ReentrantLock lock = appendLockFor(handle);
+        lock.lock();
+        try {
+            costToDate.prepare(handle, smartMeterId, series);
+            stored = series.append(electricityReadings);
+            logPosition = readingLog.append(smartMeterId, electricityReadings);
+            if (stored > 0) {
+                alerts = costToDate.add(handle, series);
+            }
+        } finally {
+            lock.unlock();
+        }
+        readingLog.awaitDurable(logPosition);
+        recordStored(electricityReadings.size(), stored);
+        costToDate.alert(alerts);
+        return stored;
+    }
+
+    /**
+     * @return the meter's cost so far in its billing period, empty if it has no readings or cost-to-date is disabled, see
+     *     {@link CostToDateAccumulator}
+     */
+    public Optional<CostToDate> getCostToDate(String smartMeterId) {
+        return getSeries(smartMeterId)
+                .flatMap(series ->
+                        costToDate.costToDate(smartMeterRegistry.handleOf(smartMeterId), smartMeterId, series));
+    }
+
+    /**
+     * Rolls readings taken before {@code hourlyBefore} up into hourly rollups, and those before {@code dailyBefore}
+     * into daily ones, see {@link MeterReadingSeries#compact}. Each meter is compacted in turn, holding up only the
+     * readings being stored for that meter meanwhile. Meters still only in the snapshot are left there, so that
+     * compacting does not read the whole snapshot onto the heap: their records were compacted as of when the snapshot
+     * was written, and they are compacted again by the first run after they are used.
+     *
+     * @return the number of raw readings compacted
+     */
+    public long compact(Instant hourlyBefore, Instant dailyBefore) {
+        long compacted = 0;
+        for (int handle = 0; handle < smartMeterRegistry.size(); handle++) {
+            MeterReadingSeries series = meterAssociatedReadings.get(handle);
+            if (series == null) {
+                continue;
+            }
+            ReentrantLock lock = appendLockFor(handle);
+            lock.lock();
+            try {
+                compacted += series.compact(hourlyBefore.getEpochSecond(), dailyBefore.getEpochSecond());
+            } finally {
+                lock.unlock();
+            }
+        }
+        readingsCompacted.add(compacted);
+        return compacted;
+    }
+
+    /**
+     * Writes the readings of every meter to {@code writer}, each as of the time it is written. Meters still only in the
+     * snapshot the store started from are copied from it as they are. The reading log is checkpointed first, and the
+     * position recorded in the snapshot: once it is committed, the log before there can be {@link #truncateLog
+     * truncated}.
+     *
+     * @return the number of meters written
+     */
+    public int writeSnapshot(StoreSnapshotWriter writer) {
+        // with every lock held no batch is in the log but not yet in its series, so all the log holds before the
+        // checkpoint is written below
+        long logPosition;
+        for (ReentrantLock lock : appendLocks) {
+            lock.lock();
+        }
+        try {
+            logPosition = readingLog.checkpoint();
+        } finally {
+            for (ReentrantLock lock : appendLocks) {
+                lock.unlock();
+            }
+        }
+        writer.setLogPosition(logPosition);
+
+        // meters registered since this started are left for the next snapshot
+        int meters = smartMeterRegistry.size();
+        boolean[] written = new boolean[meters];
+        int writtenCount = 0;
+        for (int handle = 0; handle < meters; handle++) {
+            MeterReadingSeries series = meterAssociatedReadings.get(handle);
+            if (series != null) {
+                writer.writeSeries(smartMeterRegistry.smartMeterId(handle), series.snapshot());
+                written[handle] = true;
+                writtenCount++;
+            }
+        }
+        for (int handle = 0; handle < meters; handle++) {
+            if (!written[handle] && isSnapshotOnly(handle)) {
+                String smartMeterId = smartMeterRegistry.smartMeterId(handle);
+                written[handle] = true;
+                writtenCount++;
+                ReentrantLock lock = appendLockFor(handle);
+                lock.lock();
+                try {
+                    // it may have been restored, and stored readings, since the live meters were written
+                    if (isSnapshotOnly(handle)) {
+                        writer.copySeries(smartMeterId, storeSnapshot);
+                    } else {
+                        writer.writeSeries(
+                                smartMeterId,
+                                meterAssociatedReadings.get(handle).snapshot());
+                    }
+                } finally {
+                    lock.unlock();
+                }
+            }
+        }
+        return writtenCount;
     }
 
-    public void storeReadings(String smartMeterId, List<ElectricityReading> electricityReadings) {
-        if (!meterAssociatedReadings.containsKey(smartMeterId)) {
-            meterAssociatedReadings.put(smartMeterId, new ArrayList<>());
+    /**
+     * Drops what the reading log holds before {@code logPosition}, once a snapshot recording it is committed.
+     */
+    public void truncateLog(long logPosition) {
+        readingLog.truncate(logPosition);
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("readings.stored", readingsStored, LongAdder::sum)
+                .description("Readings stored since startup")
+                .baseUnit("readings")
+                .register(registry);
+        FunctionCounter.builder("readings.duplicates.ignored", duplicatesIgnored, LongAdder::sum)
+                .description("Readings ignored because one taken at the same time was already stored")
+                .baseUnit("readings")
+                .register(registry);
+        FunctionCounter.builder("readings.compacted", readingsCompacted, LongAdder::sum)
+                .description("Raw readings rolled up into hourly rollups and freed")
+                .baseUnit("readings")
+                .register(registry);
+        FunctionCounter.builder("readings.batches.stored", batchesStored, LongAdder::sum)
+                .description("Batches of readings stored since startup")
+                .register(registry);
+        Gauge.builder("readings.store.meters", this, service -> service.statistics()
+                        .meters())
+                .description("Smart meters with stored readings")
+                .register(registry);
+        Gauge.builder("readings.store.readings", this, service -> service.statistics()
+                        .readings())
+                .description("Raw readings held in the store")
+                .baseUnit("readings")
+                .register(registry);
+        Gauge.builder("readings.store.size", this, service -> service.statistics()
+                        .estimatedBytes())
+                .description("Estimated heap footprint of the stored readings")
+                .baseUnit("bytes")
+                .register(registry);
+        for (double quantile : READINGS_PER_METER_QUANTILES) {
+            Gauge.builder("readings.per.meter", this, service -> service.statistics()
+                            .readingsPerMeter(quantile))
+                    .description("Readings stored per smart meter, at the given quantile of meters")
+                    .tag("quantile", Double.toString(quantile))
+                    .baseUnit("readings")
+                    .register(registry);
+        }
+    }
+
+    ReadingStoreStatistics statistics() {
+        ReadingStoreStatistics current = statistics;
+        long now = System.nanoTime();
+        if (current == null || now - current.takenAtNanos() > STATISTICS_MAX_AGE_NANOS) {
+            List<MeterReadingSeries> series = new ArrayList<>();
+            IntStream.Builder snapshotOnlySizes = IntStream.builder();
+            for (int handle = 0; handle < smartMeterRegistry.size(); handle++) {
+                MeterReadingSeries meter = meterAssociatedReadings.get(handle);
+                if (meter != null) {
+                    series.add(meter);
+                } else if (isSnapshotOnly(handle)) {
+                    snapshotOnlySizes.add(storeSnapshot.size(smartMeterRegistry.smartMeterId(handle)));
+                }
+            }
+            current =
+                    ReadingStoreStatistics.of(series, snapshotOnlySizes.build().toArray(), now);
+            statistics = current;
+        }
+        return current;
+    }
+
+    private void recordStored(int received, int stored) {
+        readingsStored.add(stored);
+        if (stored < received) {
+            duplicatesIgnored.add(received - stored);
+        }
+        batchesStored.increment();
+    }
+
+    private static List<ReadingBucket> bucket(
+            ReadingSnapshot snapshot, Instant from, Instant to, long resolutionSeconds) {
+        Buckets buckets = new Buckets(resolutionSeconds);
+        for (ReadingRollup rollup : snapshot.rollups()) {
+            Instant start = Instant.ofEpochSecond(rollup.startEpochSecond());
+            if (!start.isBefore(from) && start.isBefore(to)) {
+                buckets.add(
+                        rollup.startEpochSecond(),
+                        rollup.count(),
+                        rollup.sum(),
+                        rollup.scale(),
+                        rollup.minimum(),
+                        rollup.scale(),
+                        rollup.maximum(),
+                        rollup.scale());
+            }
+        }
+
+        ReadingTimeIndex index = snapshot.timeIndex();
+        int start = index.firstAtOrAfter(from);
+        ReadingCursor cursor = index.cursor(start, Math.max(start, index.firstAtOrAfter(to)));
+        while (cursor.next()) {
+            long reading = cursor.reading();
+            int scale = cursor.scale();
+            buckets.add(cursor.epochSecond(), 1, reading, scale, reading, scale, reading, scale);
+        }
+        return buckets.complete();
+    }
+
+    private MeterReadingSeries seriesFor(String smartMeterId) {
+        return seriesFor(smartMeterRegistry.register(smartMeterId));
+    }
+
+    private MeterReadingSeries seriesFor(int handle) {
+        MeterReadingSeries series = meterAssociatedReadings.get(handle);
+        if (series == null && isSnapshotOnly(handle)) {
+            series = restore(handle);
+        }
+        if (series == null) {
+            series = meterAssociatedReadings.computeIfAbsent(
+                    handle, ignored -> new MeterReadingSeries(compressSealedChunks));
+        }
+        return series;
+    }
+
+    /**
+     * Reads a meter from the snapshot, unless another thread already has. The series is added to the store before the
+     * meter is removed from {@link #snapshotOnly}, so that it is always found in one or the other.
+     */
+    private MeterReadingSeries restore(int handle) {
+        ReentrantLock lock = appendLockFor(handle);
+        lock.lock();
+        try {
+            MeterReadingSeries series = meterAssociatedReadings.get(handle);
+            if (series == null && isSnapshotOnly(handle)) {
+                series = storeSnapshot
+                        .read(smartMeterRegistry.smartMeterId(handle), compressSealedChunks)
+                        .orElseThrow();
+                meterAssociatedReadings.set(handle, series);
+                snapshotOnly.set(handle, null);
+                snapshotOnlyMeters.decrementAndGet();
+            }
+            return series;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private boolean isSnapshotOnly(int handle) {
+        return snapshotOnly.get(handle) != null;
+    }
+
+    private ReentrantLock appendLockFor(int handle) {
+        return appendLocks[handle & (appendLocks.length - 1)];
+    }
+
+    /**
+     * Accumulates readings, and rollups of readings, in time order into buckets. A rollup longer than the resolution
+     * goes into the bucket it starts in.
+     */
+    private static final class Buckets {
+
+        private final long resolutionSeconds;
+        private final List<ReadingBucket> buckets = new ArrayList<>();
+        private long start = Long.MIN_VALUE;
+        private int count;
+        private long sum;
+        private int scale;
+        private long minimum;
+        private int minimumScale;
+        private long maximum;
+        private int maximumScale;
+
+        private Buckets(long resolutionSeconds) {
+            this.resolutionSeconds = resolutionSeconds;
+        }
+
+        private void add(
+                long epochSecond,
+                int readings,
+                long readingsSum,
+                int readingsScale,
+                long readingsMinimum,
+                int readingsMinimumScale,
+                long readingsMaximum,
+                int readingsMaximumScale) {
+            long bucketStart = Math.floorDiv(epochSecond, resolutionSeconds) * resolutionSeconds;
+            if (count == 0 || bucketStart != start) {
+                complete();
+                start = bucketStart;
+                minimum = readingsMinimum;
+                minimumScale = readingsMinimumScale;
+                maximum = readingsMaximum;
+                maximumScale = readingsMaximumScale;
+            } else {
+                if (readingsMinimum < minimum) {
+                    minimum = readingsMinimum;
+                    minimumScale = readingsMinimumScale;
+                }
+                if (readingsMaximum > maximum) {
+                    maximum = readingsMaximum;
+                    maximumScale = readingsMaximumScale;
+                }
+            }
+            count += readings;
+            sum = Math.addExact(sum, readingsSum);
+            scale = Math.max(scale, readingsScale);
+        }
+
+        private List<ReadingBucket> complete() {
+            if (count > 0) {
+                buckets.add(new ReadingBucket(
+                        Instant.ofEpochSecond(start),
+                        count,
+                        FixedPoint.toBigDecimal(minimum, minimumScale),
+                        FixedPoint.toBigDecimal(sum, scale).divide(BigDecimal.valueOf(count), RoundingMode.HALF_UP),
+                        FixedPoint.toBigDecimal(maximum, maximumScale)));
+                count = 0;
+                sum = 0;
+                scale = 0;
+            }
+            return buckets;
         }
-        meterAssociatedReadings.get(smartMeterId).addAll(electricityReadings);
     }
 }
@@ -0,0 +1,102 @@
+package uk.tw.energy.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.github.benmanes.caffeine.cache.stats.ConcurrentStatsCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.Map;
+import java.util.function.Supplier;
+import uk.tw.energy.store.ReadingAggregate;
+
+/**
+ * Costs of each meter's readings against every price plan, bounded in size and age with W-TinyLFU eviction.
+ *
+ * <p>An entry is only used while it was computed from the current generation of the meter's readings. Every stored batch
+ * publishes a new {@link ReadingAggregate}, so the aggregate instance identifies the generation: storing readings makes
+ * the meter's entry stale, and the next request recomputes and replaces it.
+ */
+public class PricePlanCostCache implements MeterBinder {
+
+    static final String CACHE_NAME = "price-plan-costs";
+
+    private static final PricePlanCostCache DISABLED = new PricePlanCostCache();
+
+    private final Cache<String, CachedCosts> costs;
+    private final ConcurrentStatsCounter stats;
+
+    public PricePlanCostCache(long maximumSize, Duration expireAfterWrite) {
+        this.stats = new ConcurrentStatsCounter();
+        this.costs = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expireAfterWrite)
+                .recordStats(() -> stats)
+                .build();
+    }
+
+    private PricePlanCostCache() {
+        this.stats = null;
+        this.costs = null;
+    }
+
+    public static PricePlanCostCache disabled() {
+        return DISABLED;
+    }
+
+    public boolean isEnabled() {
+        return costs != null;
+    }
+
+    /**
+     * @param generation the aggregate the costs are computed from
+     * @param calculateCosts computes the costs of exactly the readings summarised by {@code generation}
+     */
+    public Map<String, BigDecimal> get(
+            String smartMeterId, ReadingAggregate generation, Supplier<Map<String, BigDecimal>> calculateCosts) {
+        if (costs == null) {
+            return calculateCosts.get();
+        }
+
+        // asMap() lookups bypass the statistics, which are recorded here against the generation instead
+        CachedCosts cached = costs.asMap().get(smartMeterId);
+        if (cached != null && cached.generation() == generation) {
+            stats.recordHits(1);
+            return cached.costs();
+        }
+
+        stats.recordMisses(1);
+        long start = System.nanoTime();
+        Map<String, BigDecimal> calculated = Collections.unmodifiableMap(calculateCosts.get());
+        stats.recordLoadSuccess(System.nanoTime() - start);
+        costs.asMap()
+                .merge(
+                        smartMeterId,
+                        new CachedCosts(generation, calculated),
+                        (current, latest) -> latest.generation().count()
+                                        >= current.generation().count()
+                                ? latest
+                                : current);
+        return calculated;
+    }
+
+    public CacheStats stats() {
+        return costs == null ? CacheStats.empty() : costs.stats();
+    }
+
+    /**
+     * Publishes the hit, miss, load and eviction statistics as the standard {@code cache.*} meters.
+     */
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        if (costs != null) {
+            new CaffeineCacheMetrics<>(costs, CACHE_NAME, Collections.emptyList()).bindTo(registry);
+        }
+    }
+
+    private record CachedCosts(ReadingAggregate generation, Map<String, BigDecimal> costs) {}
+}
@@ -0,0 +1,16 @@
+package uk.tw.energy.service;
+
+import java.time.Duration;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * @param enabled whether price plan costs are cached per meter, see {@link PricePlanCostCache}
+ * @param maximumSize number of meters whose costs are kept
+ * @param expireAfterWrite how long costs are kept after being calculated
+ */
+@ConfigurationProperties("price-plans.cache")
+public record PricePlanCostCacheProperties(
+        @DefaultValue("true") boolean enabled,
+        @DefaultValue("10000") long maximumSize,
+        @DefaultValue("10m") Duration expireAfterWrite) {}
@@ -0,0 +1,103 @@
+package uk.tw.energy.service;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+import uk.tw.energy.domain.PricePlan;
+
+/**
+ * The price plans ranked once by unit rate, so that the cheapest plans for a meter can be found without costing and
+ * sorting every plan. A flat-rate plan costs the averaged cost of the readings times its unit rate, so flat-rate plans
+ * rank in the order of their unit rates for every meter: cheapest first while the averaged cost is not negative, and the
+ * reverse otherwise. The {@code limit} cheapest plans are therefore among the {@code limit} cheapest flat-rate plans and
+ * the time-of-use plans, whose prices are weighted by when electricity was used and which are ranked per meter.
+ */
+final class PricePlanIndex {
+
+    private final String[] planNames;
+    private final int[] flatRatePlans; // by ascending unit rate, ties in plan order
+    private final int[] timeOfUsePlans;
+
+    PricePlanIndex(List<PricePlan> pricePlans) {
+        planNames = pricePlans.stream().map(PricePlan::getPlanName).toArray(String[]::new);
+        flatRatePlans = IntStream.range(0, pricePlans.size())
+                .filter(plan -> !pricePlans.get(plan).isTimeOfUse())
+                .boxed()
+                .sorted(Comparator.comparing(plan -> pricePlans.get(plan).getUnitRate()))
+                .mapToInt(Integer::intValue)
+                .toArray();
+        timeOfUsePlans = IntStream.range(0, pricePlans.size())
+                .filter(plan -> pricePlans.get(plan).isTimeOfUse())
+                .toArray();
+    }
+
+    boolean hasTimeOfUsePlans() {
+        return timeOfUsePlans.length > 0;
+    }
+
+    String planName(int plan) {
+        return planNames[plan];
+    }
+
+    /**
+     * @param ascending whether the averaged cost is not negative, so that flat-rate plans cost more the higher their unit
+     *     rate
+     * @return the plans that can be among the {@code limit} cheapest: the cheapest flat-rate plans, cheapest first,
+     *     followed by every time-of-use plan
+     */
+    int[] candidates(int limit, boolean ascending) {
+        int flatRateCount = Math.min(limit, flatRatePlans.length);
+        int[] candidates = new int[flatRateCount + timeOfUsePlans.length];
+        for (int i = 0; i < flatRateCount; i++) {
+            candidates[i] = ascending ? flatRatePlans[i] : flatRatePlans[flatRatePlans.length - 1 - i];
+        }
+        System.arraycopy(timeOfUsePlans, 0, candidates, flatRateCount, timeOfUsePlans.length);
+        return candidates;
+    }
+
+    /**
+     * Merges the flat-rate candidates, which are already ranked, with the time-of-use candidates ranked here. Plans
+     * costing the same are returned in no particular order.
+     *
+     * @param candidates as returned by {@link #candidates}
+     * @param costs the cost against each candidate
+     * @return the {@code limit} cheapest candidates with their costs, cheapest first
+     */
+    List<Map.Entry<String, BigDecimal>> cheapest(int[] candidates, BigDecimal[] costs, int limit) {
+        int flatRateCount = candidates.length - timeOfUsePlans.length;
+        int[] timeOfUseOrder = rank(costs, flatRateCount, candidates.length);
+
+        List<Map.Entry<String, BigDecimal>> cheapest = new ArrayList<>(Math.min(limit, candidates.length));
+        int flatRate = 0;
+        int timeOfUse = 0;
+        while (cheapest.size() < limit && (flatRate < flatRateCount || timeOfUse < timeOfUseOrder.length)) {
+            int next = timeOfUse == timeOfUseOrder.length
+                            || flatRate < flatRateCount
+                                    && costs[flatRate].compareTo(costs[timeOfUseOrder[timeOfUse]]) <= 0
+                    ? flatRate++
+                    : timeOfUseOrder[timeOfUse++];
+            cheapest.add(Map.entry(planNames[candidates[next]], costs[next]));
+        }
+        return cheapest;
+    }
+
+    /**
+     * @return the positions {@code from} (inclusive) to {@code to} (exclusive) of {@code costs}, cheapest first
+     */
+    private static int[] rank(BigDecimal[] costs, int from, int to) {
+        int[] order = new int[to - from];
+        for (int i = 0; i < order.length; i++) {
+            int position = from + i;
+            int j = i;
+            while (j > 0 && costs[order[j - 1]].compareTo(costs[position]) > 0) {
+                order[j] = order[j - 1];
+                j--;
+            }
+            order[j] = position;
+        }
+        return order;
+    }
+}
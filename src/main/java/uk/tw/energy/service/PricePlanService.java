@@ -1,65 +1,200 @@
 package uk.tw.energy.service;
 
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
 import java.math.BigDecimal;
-import java.math.RoundingMode;
-import java.time.Duration;
-import java.util.Comparator;
+import java.time.DayOfWeek;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
-import java.util.stream.Collectors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
-import uk.tw.energy.domain.ElectricityReading;
 import uk.tw.energy.domain.PricePlan;
+import uk.tw.energy.store.MeterReadingSeries;
+import uk.tw.energy.store.ReadingAggregate;
+import uk.tw.energy.store.ReadingCursor;
+import uk.tw.energy.store.ReadingRollup;
+import uk.tw.energy.store.ReadingSnapshot;
 
 @Service
-public class PricePlanService {
+public class PricePlanService implements MeterBinder {
+
+    private static final long SECONDS_PER_DAY = 86_400;
+    private static final int EPOCH_DAY_OF_WEEK = DayOfWeek.THURSDAY.ordinal();
 
-    private final List<PricePlan> pricePlans;
     private final MeterReadingService meterReadingService;
+    private final PricePlanCostCache pricePlanCostCache;
+    private final CostCalculator costCalculator;
+    private final CostCalculator referenceCostCalculator;
+    private final PricePlanIndex pricePlanIndex;
+    private final LongAdder calculations = new LongAdder();
+    private final LongAdder calculationNanos = new LongAdder();
+    private final LongAdder referenceFallbacks = new LongAdder();
 
     public PricePlanService(List<PricePlan> pricePlans, MeterReadingService meterReadingService) {
-        this.pricePlans = pricePlans;
+        this(pricePlans, meterReadingService, PricePlanCostCache.disabled());
+    }
+
+    @Autowired
+    public PricePlanService(
+            List<PricePlan> pricePlans,
+            MeterReadingService meterReadingService,
+            PricePlanCostCache pricePlanCostCache) {
         this.meterReadingService = meterReadingService;
+        this.pricePlanCostCache = pricePlanCostCache;
+        this.referenceCostCalculator = new BigDecimalCostCalculator(pricePlans);
+        this.costCalculator = FixedPointCostCalculator.supports(pricePlans)
+                ? new FixedPointCostCalculator(pricePlans)
+                : referenceCostCalculator;
+        this.pricePlanIndex = new PricePlanIndex(pricePlans);
     }
 
     public Optional<Map<String, BigDecimal>> getConsumptionCostOfElectricityReadingsForEachPricePlan(
             String smartMeterId) {
-        Optional<List<ElectricityReading>> electricityReadings = meterReadingService.getReadings(smartMeterId);
+        Optional<MeterReadingSeries> electricityReadings = meterReadingService.getSeries(smartMeterId);
+
+        if (!electricityReadings.isPresent()) {
+            return Optional.empty();
+        }
+
+        ReadingSnapshot snapshot = electricityReadings.get().snapshot();
+        return Optional.of(pricePlanCostCache.get(smartMeterId, snapshot.aggregate(), () -> calculateCosts(snapshot)));
+    }
+
+    /**
+     * Costs only the plans that can be among the cheapest, see {@link PricePlanIndex}, unless every cost is cached.
+     *
+     * @return the {@code limit} cheapest price plans with the cost of the meter's readings on each, cheapest first
+     */
+    public Optional<List<Map.Entry<String, BigDecimal>>> getCheapestPricePlans(String smartMeterId, int limit) {
+        if (limit < 0) {
+            throw new IllegalArgumentException("limit must not be negative: " + limit);
+        }
+        Optional<MeterReadingSeries> electricityReadings = meterReadingService.getSeries(smartMeterId);
 
         if (!electricityReadings.isPresent()) {
             return Optional.empty();
         }
 
-        return Optional.of(pricePlans.stream()
-                .collect(Collectors.toMap(PricePlan::getPlanName, t -> calculateCost(electricityReadings.get(), t))));
+        ReadingSnapshot snapshot = electricityReadings.get().snapshot();
+        int[] candidates = pricePlanIndex.candidates(limit, snapshot.aggregate().sum() >= 0);
+        BigDecimal[] costs;
+        if (pricePlanCostCache.isEnabled()) {
+            Map<String, BigDecimal> cached =
+                    pricePlanCostCache.get(smartMeterId, snapshot.aggregate(), () -> calculateCosts(snapshot));
+            costs = new BigDecimal[candidates.length];
+            for (int i = 0; i < candidates.length; i++) {
+                costs[i] = cached.get(pricePlanIndex.planName(candidates[i]));
+            }
+        } else {
+            costs = calculateCosts(
+                    snapshot,
+                    (calculator, aggregate, consumptionByDayOfWeek) ->
+                            calculator.calculateCosts(aggregate, consumptionByDayOfWeek, candidates));
+        }
+        return Optional.of(pricePlanIndex.cheapest(candidates, costs, limit));
     }
 
-    private BigDecimal calculateCost(List<ElectricityReading> electricityReadings, PricePlan pricePlan) {
-        BigDecimal average = calculateAverageReading(electricityReadings);
-        BigDecimal timeElapsed = calculateTimeElapsed(electricityReadings);
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionTimer.builder(
+                        "price-plans.costs.calculation",
+                        this,
+                        service -> service.calculations.sum(),
+                        service -> service.calculationNanos.sum(),
+                        TimeUnit.NANOSECONDS)
+                .description("Calculations of a meter's costs against every price plan, excluding cache hits")
+                .register(registry);
+        FunctionCounter.builder("price-plans.costs.reference.fallbacks", referenceFallbacks, LongAdder::sum)
+                .description("Cost calculations that overflowed fixed-point arithmetic and were redone with BigDecimal")
+                .register(registry);
+    }
+
+    private Map<String, BigDecimal> calculateCosts(ReadingSnapshot electricityReadings) {
+        return calculateCosts(electricityReadings, CostCalculator::calculateCosts);
+    }
 
-        BigDecimal averagedCost = average.divide(timeElapsed, RoundingMode.HALF_UP);
-        return averagedCost.multiply(pricePlan.getUnitRate());
+    private <T> T calculateCosts(ReadingSnapshot electricityReadings, Calculation<T> calculation) {
+        ReadingAggregate aggregate = electricityReadings.aggregate();
+        long start = System.nanoTime();
+        try {
+            long[] consumptionByDayOfWeek =
+                    pricePlanIndex.hasTimeOfUsePlans() ? calculateConsumptionByDayOfWeek(electricityReadings) : null;
+            try {
+                return calculation.calculate(costCalculator, aggregate, consumptionByDayOfWeek);
+            } catch (ArithmeticException e) {
+                referenceFallbacks.increment();
+                return calculation.calculate(referenceCostCalculator, aggregate, consumptionByDayOfWeek);
+            }
+        } finally {
+            calculations.increment();
+            calculationNanos.add(System.nanoTime() - start);
+        }
     }
 
-    private BigDecimal calculateAverageReading(List<ElectricityReading> electricityReadings) {
-        BigDecimal summedReadings = electricityReadings.stream()
-                .map(ElectricityReading::reading)
-                .reduce(BigDecimal.ZERO, (reading, accumulator) -> reading.add(accumulator));
+    /**
+     * Integrates consumption over each interval between consecutive readings (see {@link ReadingRollup#consumption}),
+     * and attributes it to the UTC day of week on which the interval starts. Compacted readings contribute the
+     * consumption of their hour or day, which lies within a single day, and the interval to the next reading. The result
+     * weights each day's price when costing time-of-use plans.
+     */
+    private long[] calculateConsumptionByDayOfWeek(ReadingSnapshot electricityReadings) {
+        long[] consumptionByDayOfWeek = new long[DayOfWeek.values().length];
+        boolean hasPrevious = false;
+        long previousEpochSecond = 0;
+        long previousReading = 0;
+        for (ReadingRollup rollup : electricityReadings.rollups()) {
+            if (hasPrevious) {
+                addConsumption(
+                        consumptionByDayOfWeek,
+                        previousEpochSecond,
+                        ReadingRollup.consumption(
+                                previousEpochSecond,
+                                previousReading,
+                                rollup.firstEpochSecond(),
+                                rollup.firstReading()));
+            }
+            addConsumption(consumptionByDayOfWeek, rollup.startEpochSecond(), rollup.consumption());
+            hasPrevious = true;
+            previousEpochSecond = rollup.lastEpochSecond();
+            previousReading = rollup.lastReading();
+        }
 
-        return summedReadings.divide(BigDecimal.valueOf(electricityReadings.size()), RoundingMode.HALF_UP);
+        ReadingCursor cursor = electricityReadings.cursor();
+        while (cursor.next()) {
+            long epochSecond = cursor.epochSecond();
+            long reading = cursor.reading();
+            if (hasPrevious) {
+                addConsumption(
+                        consumptionByDayOfWeek,
+                        previousEpochSecond,
+                        ReadingRollup.consumption(previousEpochSecond, previousReading, epochSecond, reading));
+            }
+            hasPrevious = true;
+            previousEpochSecond = epochSecond;
+            previousReading = reading;
+        }
+        return consumptionByDayOfWeek;
     }
 
-    private BigDecimal calculateTimeElapsed(List<ElectricityReading> electricityReadings) {
-        ElectricityReading first = electricityReadings.stream()
-                .min(Comparator.comparing(ElectricityReading::time))
-                .get();
+    private static void addConsumption(long[] consumptionByDayOfWeek, long epochSecond, long consumption) {
+        int dayOfWeek = dayOfWeek(epochSecond);
+        consumptionByDayOfWeek[dayOfWeek] = Math.addExact(consumptionByDayOfWeek[dayOfWeek], consumption);
+    }
 
-        ElectricityReading last = electricityReadings.stream()
-                .max(Comparator.comparing(ElectricityReading::time))
-                .get();
+    /**
+     * @return the {@link DayOfWeek#ordinal() ordinal} of the UTC day of week of {@code epochSecond}
+     */
+    static int dayOfWeek(long epochSecond) {
+        return Math.floorMod(Math.floorDiv(epochSecond, SECONDS_PER_DAY) + EPOCH_DAY_OF_WEEK, 7);
+    }
 
-        return BigDecimal.valueOf(Duration.between(first.time(), last.time()).getSeconds() / 3600.0);
+    @FunctionalInterface
+    private interface Calculation<T> {
+        T calculate(CostCalculator calculator, ReadingAggregate aggregate, long[] consumptionByDayOfWeek);
     }
 }
@@ -0,0 +1,73 @@
+package uk.tw.energy.service;
+
+import jakarta.annotation.PostConstruct;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Compacts the readings of every meter in the background: readings older than {@code rawAge} are rolled up by the hour,
+ * and hourly rollups older than {@code hourlyAge} by the day, every {@code interval} from {@link #start()}. See
+ * {@link MeterReadingService#compact}.
+ */
+public class ReadingCompactionScheduler implements AutoCloseable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ReadingCompactionScheduler.class);
+
+    private final MeterReadingService meterReadingService;
+    private final Clock clock;
+    private final Duration rawAge;
+    private final Duration hourlyAge;
+    private final Duration interval;
+    private final ScheduledExecutorService compactor;
+
+    public ReadingCompactionScheduler(
+            MeterReadingService meterReadingService,
+            Clock clock,
+            Duration rawAge,
+            Duration hourlyAge,
+            Duration interval) {
+        this.meterReadingService = meterReadingService;
+        this.clock = clock;
+        this.rawAge = rawAge;
+        this.hourlyAge = hourlyAge;
+        this.interval = interval;
+        compactor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "reading-compactor");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PostConstruct
+    public void start() {
+        compactor.scheduleWithFixedDelay(this::compact, 0, interval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * @return the number of raw readings compacted
+     */
+    public long compact() {
+        Instant now = clock.instant();
+        try {
+            long compacted = meterReadingService.compact(now.minus(rawAge), now.minus(hourlyAge));
+            if (compacted > 0) {
+                LOGGER.info("Compacted {} readings taken before {}", compacted, now.minus(rawAge));
+            }
+            return compacted;
+        } catch (RuntimeException e) {
+            LOGGER.warn("Compacting readings failed", e);
+            return 0;
+        }
+    }
+
+    @Override
+    public void close() {
+        compactor.shutdownNow();
+    }
+}
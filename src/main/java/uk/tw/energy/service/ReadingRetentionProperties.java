@@ -0,0 +1,18 @@
+package uk.tw.energy.service;
+
+import java.time.Duration;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * @param enabled whether old readings are compacted, see {@link ReadingCompactionScheduler}
+ * @param rawAge how long readings are kept raw before being rolled up by the hour
+ * @param hourlyAge how long hourly rollups are kept before being rolled up by the day
+ * @param interval how often compaction runs
+ */
+@ConfigurationProperties("readings.retention")
+public record ReadingRetentionProperties(
+        @DefaultValue("false") boolean enabled,
+        @DefaultValue("7d") Duration rawAge,
+        @DefaultValue("90d") Duration hourlyAge,
+        @DefaultValue("10m") Duration interval) {}
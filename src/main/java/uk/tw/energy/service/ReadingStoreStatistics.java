@@ -0,0 +1,55 @@
+package uk.tw.energy.service;
+
+import java.util.Arrays;
+import java.util.Collection;
+import uk.tw.energy.store.MeterReadingSeries;
+
+/**
+ * Size of the reading store at one point in time, taken for metrics rather than on the ingest path.
+ *
+ * @param readingsPerMeter the number of readings of each meter, in ascending order
+ */
+record ReadingStoreStatistics(long takenAtNanos, long readings, long estimatedBytes, int[] readingsPerMeter) {
+
+    /**
+     * @param snapshotOnlySizes the number of readings of each meter not yet read from the store snapshot, which take no
+     *     heap
+     */
+    static ReadingStoreStatistics of(
+            Collection<MeterReadingSeries> series, int[] snapshotOnlySizes, long takenAtNanos) {
+        int[] readingsPerMeter = Arrays.copyOf(snapshotOnlySizes, snapshotOnlySizes.length + series.size());
+        int meters = snapshotOnlySizes.length;
+        long readings = 0;
+        for (int size : snapshotOnlySizes) {
+            readings += size;
+        }
+        long estimatedBytes = 0;
+        for (MeterReadingSeries meterReadings : series) {
+            if (meters == readingsPerMeter.length) {
+                readingsPerMeter = Arrays.copyOf(readingsPerMeter, meters * 2 + 1);
+            }
+            int size = meterReadings.size();
+            readingsPerMeter[meters++] = size;
+            readings += size;
+            estimatedBytes += meterReadings.estimatedBytes();
+        }
+        readingsPerMeter = Arrays.copyOf(readingsPerMeter, meters);
+        Arrays.sort(readingsPerMeter);
+        return new ReadingStoreStatistics(takenAtNanos, readings, estimatedBytes, readingsPerMeter);
+    }
+
+    int meters() {
+        return readingsPerMeter.length;
+    }
+
+    /**
+     * @return the number of readings that {@code quantile} of the meters have at most (nearest rank)
+     */
+    int readingsPerMeter(double quantile) {
+        if (readingsPerMeter.length == 0) {
+            return 0;
+        }
+        int rank = (int) Math.ceil(quantile * readingsPerMeter.length);
+        return readingsPerMeter[Math.max(rank, 1) - 1];
+    }
+}
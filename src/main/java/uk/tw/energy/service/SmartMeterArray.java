@@ -0,0 +1,69 @@
+package uk.tw.energy.service;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.IntFunction;
+
+/**
+ * A value per smart meter, indexed by its {@link SmartMeterRegistry} handle. Values are held in pages that are added as
+ * handles grow, so existing values are never copied. Reads and writes of a value never block.
+ */
+final class SmartMeterArray<V> {
+
+    private static final int PAGE_SHIFT = 10;
+    private static final int PAGE_SIZE = 1 << PAGE_SHIFT;
+    private static final int PAGE_MASK = PAGE_SIZE - 1;
+
+    private volatile AtomicReferenceArray<V>[] pages = newPages(0);
+
+    /**
+     * @return the value of the meter, or null if it has none
+     */
+    V get(int handle) {
+        AtomicReferenceArray<V>[] current = pages;
+        int page = handle >>> PAGE_SHIFT;
+        return page < current.length ? current[page].get(handle & PAGE_MASK) : null;
+    }
+
+    void set(int handle, V value) {
+        page(handle).set(handle & PAGE_MASK, value);
+    }
+
+    /**
+     * @return the value of the meter, setting it to {@code create}'s if it has none. {@code create} may be called even
+     *     though another thread sets the value first, and its value is then discarded.
+     */
+    V computeIfAbsent(int handle, IntFunction<V> create) {
+        V value = get(handle);
+        if (value != null) {
+            return value;
+        }
+        AtomicReferenceArray<V> page = page(handle);
+        V created = create.apply(handle);
+        return page.compareAndSet(handle & PAGE_MASK, null, created) ? created : page.get(handle & PAGE_MASK);
+    }
+
+    private AtomicReferenceArray<V> page(int handle) {
+        AtomicReferenceArray<V>[] current = pages;
+        int page = handle >>> PAGE_SHIFT;
+        return page < current.length ? current[page] : addPages(page);
+    }
+
+    private synchronized AtomicReferenceArray<V> addPages(int page) {
+        AtomicReferenceArray<V>[] current = pages;
+        if (page >= current.length) {
+            AtomicReferenceArray<V>[] grown = newPages(Math.max(page + 1, current.length * 2));
+            System.arraycopy(current, 0, grown, 0, current.length);
+            for (int i = current.length; i < grown.length; i++) {
+                grown[i] = new AtomicReferenceArray<>(PAGE_SIZE);
+            }
+            pages = grown;
+            current = grown;
+        }
+        return current[page];
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <V> AtomicReferenceArray<V>[] newPages(int length) {
+        return (AtomicReferenceArray<V>[]) new AtomicReferenceArray<?>[length];
+    }
+}
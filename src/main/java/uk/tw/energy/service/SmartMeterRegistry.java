@@ -0,0 +1,128 @@
+package uk.tw.energy.service;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
+import org.springframework.stereotype.Component;
+
+/**
+ * Interns smart meter ids to dense {@code int} handles, shared by the services that hold something per meter, so that
+ * each keeps its data in arrays indexed by handle instead of a map keyed by id. Each id is held once, whichever
+ * services know the meter.
+ *
+ * <p>Ids are found in an open-addressing table of handles with linear probing. Lookups never block; registering a
+ * meter takes a lock, and growing the table replaces it, so that a lookup sees either the old table or the new one.
+ * Handles are never reused.
+ */
+@Component
+public class SmartMeterRegistry {
+
+    private static final int INITIAL_SLOTS = 64;
+
+    private final ReentrantLock registrationLock = new ReentrantLock();
+    private volatile Table table = new Table(INITIAL_SLOTS, new AtomicReferenceArray<>(INITIAL_SLOTS / 2));
+    private volatile int size;
+
+    /**
+     * @return the handle of the meter, or -1 if it has not been registered
+     */
+    public int handleOf(String smartMeterId) {
+        return table.find(smartMeterId);
+    }
+
+    /**
+     * @return the handle of the meter, registering it first if needed
+     */
+    public int register(String smartMeterId) {
+        int handle = handleOf(smartMeterId);
+        if (handle >= 0) {
+            return handle;
+        }
+        registrationLock.lock();
+        try {
+            Table current = table;
+            handle = current.find(smartMeterId);
+            if (handle >= 0) {
+                return handle;
+            }
+            handle = size;
+            if (handle == current.ids.length()) {
+                current = current.grow();
+                table = current;
+            }
+            current.add(smartMeterId, handle);
+            size = handle + 1;
+            return handle;
+        } finally {
+            registrationLock.unlock();
+        }
+    }
+
+    /**
+     * @param handle as returned by {@link #register}
+     */
+    public String smartMeterId(int handle) {
+        if (handle < 0 || handle >= size) {
+            throw new IndexOutOfBoundsException(handle);
+        }
+        return table.ids.get(handle);
+    }
+
+    /**
+     * @return the number of meters registered, whose handles are 0 to one less than it
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Slots hold a handle plus one, 0 marking an empty slot. An id is written before the slot referring to it, so a
+     * lookup that finds the slot finds the id. The table is grown when half full.
+     */
+    private static final class Table {
+
+        private final AtomicIntegerArray slots;
+        private final AtomicReferenceArray<String> ids;
+
+        private Table(int slotCount, AtomicReferenceArray<String> ids) {
+            this.slots = new AtomicIntegerArray(slotCount);
+            this.ids = ids;
+        }
+
+        private int find(String smartMeterId) {
+            int mask = slots.length() - 1;
+            for (int slot = spread(smartMeterId.hashCode()) & mask; ; slot = (slot + 1) & mask) {
+                int entry = slots.get(slot);
+                if (entry == 0) {
+                    return -1;
+                }
+                if (smartMeterId.equals(ids.get(entry - 1))) {
+                    return entry - 1;
+                }
+            }
+        }
+
+        private void add(String smartMeterId, int handle) {
+            ids.set(handle, smartMeterId);
+            int mask = slots.length() - 1;
+            int slot = spread(smartMeterId.hashCode()) & mask;
+            while (slots.get(slot) != 0) {
+                slot = (slot + 1) & mask;
+            }
+            slots.set(slot, handle + 1);
+        }
+
+        private Table grow() {
+            AtomicReferenceArray<String> grownIds = new AtomicReferenceArray<>(ids.length() * 2);
+            Table grown = new Table(slots.length() * 2, grownIds);
+            for (int handle = 0; handle < ids.length(); handle++) {
+                grown.add(ids.get(handle), handle);
+            }
+            return grown;
+        }
+
+        private static int spread(int hash) {
+            return (hash ^ (hash >>> 16)) * 0x9e3779b9;
+        }
+    }
+}
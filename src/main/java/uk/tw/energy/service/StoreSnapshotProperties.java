@@ -0,0 +1,17 @@
+package uk.tw.energy.service;
+
+import java.time.Duration;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * @param enabled whether the store is started from a {@link uk.tw.energy.store.StoreSnapshot} and snapshotted while it
+ *     runs
+ * @param file local file holding the snapshot
+ * @param interval how often a snapshot is written, besides on shutdown
+ */
+@ConfigurationProperties("readings.snapshot")
+public record StoreSnapshotProperties(
+        @DefaultValue("false") boolean enabled,
+        @DefaultValue("data/snapshot/store.snapshot") String file,
+        @DefaultValue("10m") Duration interval) {}
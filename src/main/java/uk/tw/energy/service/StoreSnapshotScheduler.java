@@ -0,0 +1,116 @@
+package uk.tw.energy.service;
+
+import jakarta.annotation.PostConstruct;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import uk.tw.energy.domain.PricePlan;
+import uk.tw.energy.store.StoreSnapshotWriter;
+
+/**
+ * Writes a {@link uk.tw.energy.store.StoreSnapshot} of the readings, accounts and price plans in the background every
+ * {@code interval} from {@link #start()}, and once more on shutdown. A scheduled snapshot is skipped while another is
+ * still being written. Once a snapshot is committed, the reading log is truncated up to where it was taken.
+ */
+public class StoreSnapshotScheduler implements AutoCloseable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(StoreSnapshotScheduler.class);
+
+    private final MeterReadingService meterReadingService;
+    private final AccountService accountService;
+    private final List<PricePlan> pricePlans;
+    private final Path file;
+    private final Clock clock;
+    private final Duration interval;
+    private final ScheduledExecutorService snapshotter;
+    private final ReentrantLock writing = new ReentrantLock();
+
+    public StoreSnapshotScheduler(
+            MeterReadingService meterReadingService,
+            AccountService accountService,
+            List<PricePlan> pricePlans,
+            Path file,
+            Clock clock,
+            Duration interval) {
+        this.meterReadingService = meterReadingService;
+        this.accountService = accountService;
+        this.pricePlans = pricePlans;
+        this.file = file;
+        this.clock = clock;
+        this.interval = interval;
+        snapshotter = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "store-snapshotter");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PostConstruct
+    public void start() {
+        snapshotter.scheduleWithFixedDelay(
+                this::writeSnapshotUnlessWriting, interval.toMillis(), interval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Writes a snapshot, waiting for one already being written to finish first.
+     *
+     * @return whether the snapshot was written
+     */
+    public boolean writeSnapshot() {
+        writing.lock();
+        try {
+            return write();
+        } finally {
+            writing.unlock();
+        }
+    }
+
+    private void writeSnapshotUnlessWriting() {
+        if (!writing.tryLock()) {
+            LOGGER.debug("Skipping a store snapshot while another is being written to {}", file);
+            return;
+        }
+        try {
+            write();
+        } finally {
+            writing.unlock();
+        }
+    }
+
+    private boolean write() {
+        long start = System.nanoTime();
+        Instant takenAt = clock.instant();
+        try (StoreSnapshotWriter writer =
+                new StoreSnapshotWriter(file, takenAt, pricePlans, accountService.getSmartMeterToPricePlanAccounts())) {
+            int meters = meterReadingService.writeSnapshot(writer);
+            writer.commit();
+            meterReadingService.truncateLog(writer.logPosition());
+            LOGGER.info(
+                    "Wrote a snapshot of {} meters to {} in {} ms",
+                    meters,
+                    file,
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            return true;
+        } catch (RuntimeException e) {
+            LOGGER.warn("Writing a store snapshot to {} failed", file, e);
+            return false;
+        }
+    }
+
+    /**
+     * Stops snapshotting in the background and writes a last snapshot.
+     */
+    @Override
+    public void close() {
+        snapshotter.shutdownNow();
+        writeSnapshot();
+    }
+}
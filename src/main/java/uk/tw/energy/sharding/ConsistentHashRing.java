@@ -0,0 +1,87 @@
+package uk.tw.energy.sharding;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Consistent hash ring assigning keys to nodes. Each node is placed on the ring at {@code virtualNodes} points, and a
+ * key belongs to the node of the first point at or after its hash, wrapping around. Adding or removing a node moves only
+ * the keys of the points it gains or loses, about {@code 1 / nodes} of them, and the virtual nodes even out the share of
+ * each node.
+ *
+ * <p>Hashes are computed from the UTF-8 bytes of the key, so every JVM given the same nodes agrees on the owner of every
+ * key.
+ */
+final class ConsistentHashRing<N> {
+
+    private final long[] points; // sorted
+    private final int[] owners; // index into nodes of the owner of each point
+    private final List<N> nodes;
+
+    ConsistentHashRing(List<N> nodes, int virtualNodes) {
+        if (nodes.isEmpty() || virtualNodes < 1) {
+            throw new IllegalArgumentException("A ring needs at least one node and one virtual node per node");
+        }
+        this.nodes = List.copyOf(nodes);
+        int pointCount = nodes.size() * virtualNodes;
+        long[] unsorted = new long[pointCount];
+        for (int node = 0; node < nodes.size(); node++) {
+            for (int virtualNode = 0; virtualNode < virtualNodes; virtualNode++) {
+                unsorted[node * virtualNodes + virtualNode] = hash(nodes.get(node) + "#" + virtualNode);
+            }
+        }
+
+        // sort the points, carrying their owners, and break the (unlikely) ties by node order
+        Integer[] order = new Integer[pointCount];
+        Arrays.setAll(order, point -> point);
+        Arrays.sort(order, (left, right) -> {
+            int byPoint = Long.compare(unsorted[left], unsorted[right]);
+            return byPoint != 0 ? byPoint : Integer.compare(left, right);
+        });
+        points = new long[pointCount];
+        owners = new int[pointCount];
+        for (int i = 0; i < pointCount; i++) {
+            points[i] = unsorted[order[i]];
+            owners[i] = order[i] / virtualNodes;
+        }
+    }
+
+    N nodeFor(String key) {
+        int point = Arrays.binarySearch(points, hash(key));
+        if (point < 0) {
+            point = -point - 1;
+        }
+        if (point == points.length) {
+            point = 0;
+        } else {
+            // the first of equal points
+            while (point > 0 && points[point - 1] == points[point]) {
+                point--;
+            }
+        }
+        return nodes.get(owners[point]);
+    }
+
+    List<N> nodes() {
+        return nodes;
+    }
+
+    /**
+     * 64-bit FNV-1a, finished with the MurmurHash3 mix so that keys differing only in their last characters spread
+     * across the ring.
+     */
+    static long hash(String key) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xff;
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
@@ -0,0 +1,144 @@
+package uk.tw.energy.sharding;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.web.util.UriComponentsBuilder;
+import uk.tw.energy.domain.ElectricityReading;
+import uk.tw.energy.domain.MeterReadings;
+import uk.tw.energy.store.FixedPoint;
+import uk.tw.energy.store.ReadingBatch;
+
+/**
+ * Sends requests to the other nodes of a sharded deployment, see {@link ShardRouter}.
+ */
+public class ShardClient {
+
+    /**
+     * Asks a node to answer a fleet-wide request from its own meters only, rather than fanning it out again.
+     */
+    public static final String LOCAL_PARAMETER = "local";
+
+    private static final ShardClient DISABLED = new ShardClient();
+
+    private final HttpClient httpClient;
+    private final ObjectMapper objectMapper;
+    private final Duration timeout;
+
+    public ShardClient(ObjectMapper objectMapper, Duration timeout) {
+        this.httpClient = HttpClient.newBuilder()
+                .connectTimeout(timeout)
+                .followRedirects(HttpClient.Redirect.NEVER)
+                .build();
+        this.objectMapper = objectMapper;
+        this.timeout = timeout;
+    }
+
+    private ShardClient() {
+        this.httpClient = null;
+        this.objectMapper = null;
+        this.timeout = null;
+    }
+
+    public static ShardClient disabled() {
+        return DISABLED;
+    }
+
+    /**
+     * Stores readings on the node owning their meter. Redirects are not followed, so readings sent to a node that does
+     * not own the meter, because the nodes disagree on the partitioning, fail rather than bounce between nodes.
+     *
+     * @throws UncheckedIOException if the node could not be reached or did not store the readings
+     */
+    public void storeReadings(URI node, String smartMeterId, ReadingBatch readings) {
+        List<ElectricityReading> electricityReadings = new ArrayList<>(readings.size());
+        for (int i = 0; i < readings.size(); i++) {
+            electricityReadings.add(new ElectricityReading(
+                    Instant.ofEpochSecond(readings.epochSecond(i), readings.nano(i)),
+                    FixedPoint.toBigDecimal(readings.reading(i), readings.scale(i))));
+        }
+        HttpRequest request = request(node, "/readings/store", null)
+                .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                .POST(HttpRequest.BodyPublishers.ofByteArray(
+                        toJson(new MeterReadings(smartMeterId, electricityReadings))))
+                .build();
+        HttpResponse<Void> response;
+        try {
+            response = client().send(request, HttpResponse.BodyHandlers.discarding());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not send readings to " + node, e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new UncheckedIOException(new IOException("Interrupted while sending readings to " + node, e));
+        }
+        if (response.statusCode() / 100 != 2) {
+            throw new UncheckedIOException(
+                    new IOException(node + " responded " + response.statusCode() + " to readings for " + smartMeterId));
+        }
+    }
+
+    /**
+     * @return the recommendations for the accounts the node owns, one JSON object per line, streamed as they arrive;
+     *     completes exceptionally with an {@link UncheckedIOException} if the node does not respond successfully
+     */
+    public CompletableFuture<InputStream> recommendAll(URI node) {
+        HttpRequest request = request(node, "/price-plans/recommend-all", LOCAL_PARAMETER + "=true")
+                .header(HttpHeaders.ACCEPT, MediaType.APPLICATION_NDJSON_VALUE)
+                .GET()
+                .build();
+        return client().sendAsync(request, HttpResponse.BodyHandlers.ofInputStream())
+                .thenApply(response -> {
+                    if (response.statusCode() != 200) {
+                        close(response.body());
+                        throw new UncheckedIOException(new IOException(
+                                node + " responded " + response.statusCode() + " to recommending price plans"));
+                    }
+                    return response.body();
+                });
+    }
+
+    private HttpRequest.Builder request(URI node, String path, String query) {
+        URI uri = UriComponentsBuilder.fromUri(node)
+                .path(path)
+                .query(query)
+                .build(true)
+                .toUri();
+        return HttpRequest.newBuilder(uri).timeout(timeout);
+    }
+
+    private HttpClient client() {
+        if (httpClient == null) {
+            throw new IllegalStateException("Sharding is disabled");
+        }
+        return httpClient;
+    }
+
+    private byte[] toJson(MeterReadings meterReadings) {
+        try {
+            return objectMapper.writeValueAsBytes(meterReadings);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not write readings as JSON", e);
+        }
+    }
+
+    private static void close(InputStream body) {
+        try {
+            body.close();
+        } catch (IOException e) {
+            // nothing more to read
+        }
+    }
+}
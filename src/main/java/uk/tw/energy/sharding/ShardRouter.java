@@ -0,0 +1,78 @@
+package uk.tw.energy.sharding;
+
+import java.net.URI;
+import java.util.List;
+import org.springframework.web.util.UriComponentsBuilder;
+
+/**
+ * Partitions smart meters across the nodes of a sharded deployment by consistent hashing on the smart meter id. Each
+ * node holds the readings and accounts of the meters it owns, and sends requests for any other meter to its owner.
+ */
+public class ShardRouter {
+
+    private static final ShardRouter DISABLED = new ShardRouter();
+
+    private final ConsistentHashRing<URI> ring;
+    private final URI self;
+    private final List<URI> peers;
+
+    public ShardRouter(List<URI> nodes, URI self, int virtualNodes) {
+        if (!nodes.contains(self)) {
+            throw new IllegalArgumentException("This node " + self + " is not one of the nodes " + nodes);
+        }
+        this.ring = new ConsistentHashRing<>(nodes, virtualNodes);
+        this.self = self;
+        this.peers = nodes.stream().filter(node -> !node.equals(self)).toList();
+    }
+
+    private ShardRouter() {
+        this.ring = null;
+        this.self = null;
+        this.peers = List.of();
+    }
+
+    public static ShardRouter disabled() {
+        return DISABLED;
+    }
+
+    public boolean isEnabled() {
+        return ring != null;
+    }
+
+    /**
+     * @return whether this node owns the meter, always true when sharding is disabled
+     */
+    public boolean isLocal(String smartMeterId) {
+        return ring == null || ring.nodeFor(smartMeterId).equals(self);
+    }
+
+    /**
+     * @return the base URL of the node owning the meter
+     */
+    public URI ownerOf(String smartMeterId) {
+        if (ring == null) {
+            throw new IllegalStateException("Sharding is disabled");
+        }
+        return ring.nodeFor(smartMeterId);
+    }
+
+    /**
+     * @param path the already encoded path of the request
+     * @param query the already encoded query of the request, or null
+     * @return the same request on the node owning the meter
+     */
+    public URI locationOf(String smartMeterId, String path, String query) {
+        return UriComponentsBuilder.fromUri(ownerOf(smartMeterId))
+                .path(path)
+                .query(query)
+                .build(true)
+                .toUri();
+    }
+
+    /**
+     * @return the base URL of every other node
+     */
+    public List<URI> peers() {
+        return peers;
+    }
+}
@@ -0,0 +1,42 @@
+package uk.tw.energy.sharding;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.util.Map;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+/**
+ * Redirects requests for a meter owned by another node, identified by a {@code smartMeterId} path variable, to the same
+ * request on its owner. {@code 307 Temporary Redirect} keeps the method and body of the request.
+ */
+public class ShardRoutingInterceptor implements HandlerInterceptor {
+
+    static final String SMART_METER_ID_VARIABLE = "smartMeterId";
+
+    private final ShardRouter shardRouter;
+
+    public ShardRoutingInterceptor(ShardRouter shardRouter) {
+        this.shardRouter = shardRouter;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        @SuppressWarnings("unchecked")
+        Map<String, String> variables =
+                (Map<String, String>) request.getAttribute(HandlerMapping.URI_TEMPLATE_VARIABLES_ATTRIBUTE);
+        String smartMeterId = variables == null ? null : variables.get(SMART_METER_ID_VARIABLE);
+        if (smartMeterId == null || shardRouter.isLocal(smartMeterId)) {
+            return true;
+        }
+        response.setStatus(HttpStatus.TEMPORARY_REDIRECT.value());
+        response.setHeader(
+                HttpHeaders.LOCATION,
+                shardRouter
+                        .locationOf(smartMeterId, request.getRequestURI(), request.getQueryString())
+                        .toString());
+        return false;
+    }
+}
@@ -0,0 +1,22 @@
+package uk.tw.energy.sharding;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.List;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * @param enabled whether smart meters are partitioned across {@code nodes}, see {@link ShardRouter}
+ * @param nodes base URL of every node, including this one, the same on every node
+ * @param self base URL of this node, one of {@code nodes}
+ * @param virtualNodes points each node takes on the hash ring
+ * @param timeout how long to wait for another node to respond
+ */
+@ConfigurationProperties("readings.sharding")
+public record ShardingProperties(
+        @DefaultValue("false") boolean enabled,
+        @DefaultValue List<URI> nodes,
+        URI self,
+        @DefaultValue("128") int virtualNodes,
+        @DefaultValue("10s") Duration timeout) {}
@@ -0,0 +1,36 @@
+package uk.tw.energy.store;
+
+import uk.tw.energy.domain.ElectricityReading;
+
+/**
+ * Random access to the readings of a series, for its list views. A compressed chunk is decoded as a whole when one of
+ * its readings is first asked for, and kept until a reading of another compressed chunk is, so that iterating over a
+ * view, as serialising it does, decodes each chunk once.
+ */
+final class ChunkedReadings {
+
+    private final ReadingChunk[] chunks;
+    // replaced rather than updated, so that concurrent readers only ever see a fully decoded chunk
+    private DecodedChunk decoded;
+
+    ChunkedReadings(ReadingChunk[] chunks) {
+        this.chunks = chunks;
+    }
+
+    ElectricityReading get(int position) {
+        int index = position >>> MeterReadingSeries.CHUNK_SHIFT;
+        int offset = position & MeterReadingSeries.CHUNK_MASK;
+        ReadingChunk chunk = chunks[index];
+        if (chunk instanceof RawReadingChunk) {
+            return MeterReadingSeries.get(chunk, offset);
+        }
+        DecodedChunk current = decoded;
+        if (current == null || current.index() != index) {
+            current = new DecodedChunk(index, chunk.columns(null));
+            decoded = current;
+        }
+        return MeterReadingSeries.get(current.columns(), offset);
+    }
+
+    private record DecodedChunk(int index, RawReadingChunk columns) {}
+}
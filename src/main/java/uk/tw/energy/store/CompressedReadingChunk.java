@@ -0,0 +1,412 @@
+package uk.tw.energy.store;
+
+import java.util.Arrays;
+
+/**
+ * A sealed chunk, encoded in the manner of Gorilla time series compression: smart meters send readings at near-regular
+ * intervals, with a handful of decimal places, so most of each reading can be predicted from the one before.
+ *
+ * <p>The first reading is held as it is. For the others, a bit stream holds:
+ *
+ * <ul>
+ *   <li>the change in the interval between readings (delta of delta) of each timestamp, in a single bit when the
+ *       interval is unchanged, followed by the nanoseconds if they are not the same for every reading;
+ *   <li>then each reading, counted in the largest power of ten that divides every reading of the chunk. Readings are
+ *       encoded either as the zigzag difference from the previous reading, written in a bit width carried over from
+ *       the previous difference until a narrower or wider one pays off, or as the offset from the smallest reading in a
+ *       fixed bit width, whichever is shorter. The scale precedes the reading if it is not the same for every reading.
+ * </ul>
+ *
+ * <p>The encoding is lossless. Readings are decoded sequentially, so random access costs up to a chunk's worth of
+ * decoding; callers that read many readings decode the whole chunk with {@link #columns}.
+ */
+final class CompressedReadingChunk extends ReadingChunk {
+
+    private static final int NANO_BITS = 30;
+    private static final int SCALE_BITS = 3;
+    private static final int WIDTH_BITS = 6;
+    private static final long[] POWERS_OF_TEN = {1, 10, 100, 1_000, 10_000, 100_000, 1_000_000};
+
+    private final int size;
+    private final long firstEpochSecond;
+    private final int firstNano;
+    private final int firstScale;
+    private final long firstUnits;
+    private final long unit;
+    private final boolean uniformNanos;
+    private final boolean uniformScales;
+    private final boolean offsets;
+    private final int width;
+    private final long minimumUnits;
+    private final int valuesStart;
+    private final long[] words;
+
+    private CompressedReadingChunk(
+            RawReadingChunk raw,
+            long unit,
+            boolean uniformNanos,
+            boolean uniformScales,
+            boolean offsets,
+            int width,
+            long minimumUnits,
+            int valuesStart,
+            long[] words) {
+        this.size = raw.size;
+        this.firstEpochSecond = raw.epochSeconds[0];
+        this.firstNano = raw.nanos[0];
+        this.firstScale = raw.scales[0];
+        this.firstUnits = raw.readings[0] / unit;
+        this.unit = unit;
+        this.uniformNanos = uniformNanos;
+        this.uniformScales = uniformScales;
+        this.offsets = offsets;
+        this.width = width;
+        this.minimumUnits = minimumUnits;
+        this.valuesStart = valuesStart;
+        this.words = words;
+    }
+
+    static CompressedReadingChunk of(RawReadingChunk raw) {
+        if (raw.size == 0) {
+            throw new IllegalArgumentException("Cannot compress an empty chunk");
+        }
+        int power = POWERS_OF_TEN.length - 1;
+        boolean uniformNanos = true;
+        boolean uniformScales = true;
+        for (int i = 0; i < raw.size; i++) {
+            while (power > 0 && raw.readings[i] % POWERS_OF_TEN[power] != 0) {
+                power--;
+            }
+            uniformNanos &= raw.nanos[i] == raw.nanos[0];
+            uniformScales &= raw.scales[i] == raw.scales[0];
+        }
+        long unit = POWERS_OF_TEN[power];
+        long minimumUnits = Long.MAX_VALUE;
+        long maximumUnits = Long.MIN_VALUE;
+        for (int i = 0; i < raw.size; i++) {
+            minimumUnits = Math.min(minimumUnits, raw.readings[i] / unit);
+            maximumUnits = Math.max(maximumUnits, raw.readings[i] / unit);
+        }
+        // the difference is taken as unsigned, so it cannot overflow
+        int width = Long.SIZE - Long.numberOfLeadingZeros(maximumUnits - minimumUnits);
+
+        BitWriter differences = new BitWriter(null);
+        writeValues(raw, unit, uniformScales, false, width, minimumUnits, differences);
+        BitWriter offsets = new BitWriter(null);
+        writeValues(raw, unit, uniformScales, true, width, minimumUnits, offsets);
+        boolean useOffsets = offsets.position < differences.position;
+
+        BitWriter bits = new BitWriter(new long[(raw.size >>> 2) + 1]);
+        writeTimes(raw, uniformNanos, bits);
+        int valuesStart = bits.position;
+        writeValues(raw, unit, uniformScales, useOffsets, width, minimumUnits, bits);
+        return new CompressedReadingChunk(
+                raw,
+                unit,
+                uniformNanos,
+                uniformScales,
+                useOffsets,
+                width,
+                minimumUnits,
+                valuesStart,
+                Arrays.copyOf(bits.words, (bits.position + Long.SIZE - 1) >>> 6));
+    }
+
+    @Override
+    int size() {
+        return size;
+    }
+
+    @Override
+    long epochSecond(int offset) {
+        return timesAt(offset).epochSecond;
+    }
+
+    @Override
+    int nano(int offset) {
+        return uniformNanos ? firstNano : timesAt(offset).nano;
+    }
+
+    @Override
+    long reading(int offset) {
+        if (offsets && uniformScales && offset > 0) {
+            return (minimumUnits + new BitReader(words, valuesStart + (offset - 1) * width).read(width)) * unit;
+        }
+        return valuesAt(offset).units * unit;
+    }
+
+    @Override
+    int scale(int offset) {
+        return uniformScales ? firstScale : valuesAt(offset).scale;
+    }
+
+    @Override
+    int firstAtOrAfter(long epochSecond, int nano, int length) {
+        Times times = new Times();
+        for (int offset = 0; offset < length; offset++) {
+            if (offset > 0) {
+                times.next();
+            }
+            int bySecond = Long.compare(times.epochSecond, epochSecond);
+            if ((bySecond != 0 ? bySecond : Integer.compare(times.nano, nano)) >= 0) {
+                return offset;
+            }
+        }
+        return length;
+    }
+
+    @Override
+    void copyTo(RawReadingChunk target, int length) {
+        Times times = new Times();
+        Values values = new Values();
+        int base = target.size;
+        for (int i = 0; i < length; i++) {
+            if (i > 0) {
+                times.next();
+                values.next();
+            }
+            target.epochSeconds[base + i] = times.epochSecond;
+            target.nanos[base + i] = times.nano;
+            target.readings[base + i] = values.units * unit;
+            target.scales[base + i] = (byte) values.scale;
+        }
+        target.size += length;
+    }
+
+    @Override
+    RawReadingChunk columns(RawReadingChunk scratch) {
+        RawReadingChunk target = scratch != null ? scratch : new RawReadingChunk(MeterReadingSeries.CHUNK_SIZE);
+        target.size = 0;
+        copyTo(target, size);
+        return target;
+    }
+
+    @Override
+    long estimatedBytes() {
+        return OBJECT_HEADER_BYTES
+                + 4L * Long.BYTES
+                + 5L * Integer.BYTES
+                + 3
+                + REFERENCE_BYTES
+                + ARRAY_HEADER_BYTES
+                + (long) words.length * Long.BYTES;
+    }
+
+    private Times timesAt(int offset) {
+        Times times = new Times();
+        while (times.index < offset) {
+            times.next();
+        }
+        return times;
+    }
+
+    private Values valuesAt(int offset) {
+        Values values = new Values();
+        while (values.index < offset) {
+            values.next();
+        }
+        return values;
+    }
+
+    private static void writeTimes(RawReadingChunk raw, boolean uniformNanos, BitWriter bits) {
+        long previousDelta = 0;
+        for (int i = 1; i < raw.size; i++) {
+            long delta = raw.epochSeconds[i] - raw.epochSeconds[i - 1];
+            long deltaOfDelta = zigzag(delta - previousDelta);
+            if (deltaOfDelta == 0) {
+                bits.write(0b0, 1);
+            } else if (deltaOfDelta < 1L << 7) {
+                bits.write(0b10, 2);
+                bits.write(deltaOfDelta, 7);
+            } else if (deltaOfDelta < 1L << 12) {
+                bits.write(0b110, 3);
+                bits.write(deltaOfDelta, 12);
+            } else if (deltaOfDelta < 1L << 20) {
+                bits.write(0b1110, 4);
+                bits.write(deltaOfDelta, 20);
+            } else {
+                bits.write(0b1111, 4);
+                bits.write(deltaOfDelta, Long.SIZE);
+            }
+            previousDelta = delta;
+            if (!uniformNanos) {
+                if (raw.nanos[i] == raw.nanos[i - 1]) {
+                    bits.write(0b0, 1);
+                } else {
+                    bits.write(0b1, 1);
+                    bits.write(raw.nanos[i], NANO_BITS);
+                }
+            }
+        }
+    }
+
+    private static void writeValues(
+            RawReadingChunk raw,
+            long unit,
+            boolean uniformScales,
+            boolean offsets,
+            int width,
+            long minimumUnits,
+            BitWriter bits) {
+        int window = 0;
+        for (int i = 1; i < raw.size; i++) {
+            if (!uniformScales) {
+                if (raw.scales[i] == raw.scales[i - 1]) {
+                    bits.write(0b0, 1);
+                } else {
+                    bits.write(0b1, 1);
+                    bits.write(raw.scales[i], SCALE_BITS);
+                }
+            }
+            long units = raw.readings[i] / unit;
+            if (offsets) {
+                bits.write(units - minimumUnits, width);
+                continue;
+            }
+            long difference = zigzag(units - raw.readings[i - 1] / unit);
+            int length = Long.SIZE - Long.numberOfLeadingZeros(difference);
+            if (difference == 0) {
+                bits.write(0b0, 1);
+            } else if (length <= window && window <= length + WIDTH_BITS) {
+                bits.write(0b10, 2);
+                bits.write(difference, window);
+            } else {
+                bits.write(0b11, 2);
+                bits.write(length - 1, WIDTH_BITS);
+                bits.write(difference, length);
+                window = length;
+            }
+        }
+    }
+
+    private static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    /**
+     * Decodes the timestamps, starting from the first.
+     */
+    private final class Times {
+
+        private final BitReader bits = new BitReader(words, 0);
+        private int index;
+        private long epochSecond = firstEpochSecond;
+        private int nano = firstNano;
+        private long delta;
+
+        private void next() {
+            long deltaOfDelta;
+            if (!bits.readBit()) {
+                deltaOfDelta = 0;
+            } else if (!bits.readBit()) {
+                deltaOfDelta = bits.read(7);
+            } else if (!bits.readBit()) {
+                deltaOfDelta = bits.read(12);
+            } else if (!bits.readBit()) {
+                deltaOfDelta = bits.read(20);
+            } else {
+                deltaOfDelta = bits.read(Long.SIZE);
+            }
+            delta += unzigzag(deltaOfDelta);
+            epochSecond += delta;
+            if (!uniformNanos && bits.readBit()) {
+                nano = (int) bits.read(NANO_BITS);
+            }
+            index++;
+        }
+    }
+
+    /**
+     * Decodes the readings and their scales, starting from the first.
+     */
+    private final class Values {
+
+        private final BitReader bits = new BitReader(words, valuesStart);
+        private int index;
+        private long units = firstUnits;
+        private int scale = firstScale;
+        private int window;
+
+        private void next() {
+            if (!uniformScales && bits.readBit()) {
+                scale = (int) bits.read(SCALE_BITS);
+            }
+            if (offsets) {
+                units = minimumUnits + bits.read(width);
+            } else if (bits.readBit()) {
+                if (bits.readBit()) {
+                    window = (int) bits.read(WIDTH_BITS) + 1;
+                }
+                units += unzigzag(bits.read(window));
+            }
+            index++;
+        }
+    }
+
+    /**
+     * Writes bits most significant first into a growing array of words, or only counts them when it has none.
+     */
+    private static final class BitWriter {
+
+        private long[] words;
+        private int position;
+
+        private BitWriter(long[] words) {
+            this.words = words;
+        }
+
+        private void write(long value, int bits) {
+            if (bits == 0) {
+                return;
+            }
+            if (words != null) {
+                int word = position >>> 6;
+                int bit = position & 63;
+                if (word + 1 >= words.length) {
+                    words = Arrays.copyOf(words, Math.max(words.length << 1, word + 2));
+                }
+                long aligned = value << (Long.SIZE - bits);
+                words[word] |= aligned >>> bit;
+                if (bit + bits > Long.SIZE) {
+                    words[word + 1] |= aligned << (Long.SIZE - bit);
+                }
+            }
+            position += bits;
+        }
+    }
+
+    private static final class BitReader {
+
+        private final long[] words;
+        private int position;
+
+        private BitReader(long[] words, int position) {
+            this.words = words;
+            this.position = position;
+        }
+
+        private boolean readBit() {
+            boolean set = words[position >>> 6] << (position & 63) < 0;
+            position++;
+            return set;
+        }
+
+        private long read(int bits) {
+            if (bits == 0) {
+                return 0;
+            }
+            int word = position >>> 6;
+            int bit = position & 63;
+            long value = words[word] << bit;
+            if (bit + bits > Long.SIZE) {
+                value |= words[word + 1] >>> (Long.SIZE - bit);
+            }
+            position += bits;
+            return value >>> (Long.SIZE - bits);
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package uk.tw.energy.store;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Readings are stored as {@code long} micro-kW together with the scale they were received with, so that the
+ * {@link BigDecimal} handed back to callers is equal (including scale) to the one that was stored.
+ */
+public final class FixedPoint {
+
+    public static final int READING_SCALE = 6;
+    public static final int MAX_FORMATTED_LENGTH = 21;
+
+    private static final long[] POWERS_OF_TEN = {1, 10, 100, 1_000, 10_000, 100_000, 1_000_000};
+
+    private FixedPoint() {}
+
+    public static long toFixedPoint(BigDecimal reading) {
+        return reading.setScale(READING_SCALE, RoundingMode.HALF_UP)
+                .unscaledValue()
+                .longValueExact();
+    }
+
+    public static int scaleOf(BigDecimal reading) {
+        return Math.max(0, Math.min(READING_SCALE, reading.scale()));
+    }
+
+    /**
+     * @param unscaled a reading in units of 10<sup>-scale</sup> kW
+     * @param scale between 0 and {@link #READING_SCALE}
+     * @throws ArithmeticException if the reading does not fit
+     */
+    public static long fromUnscaled(long unscaled, int scale) {
+        return Math.multiplyExact(unscaled, POWERS_OF_TEN[READING_SCALE - scale]);
+    }
+
+    /**
+     * @return the reading in units of 10<sup>-scale</sup> kW, truncating any digits beyond {@code scale}
+     */
+    public static long toUnscaled(long fixedPoint, int scale) {
+        return fixedPoint / POWERS_OF_TEN[READING_SCALE - scale];
+    }
+
+    /**
+     * Writes the same digits as {@code toBigDecimal(fixedPoint, scale).toPlainString()} to the end of {@code buffer},
+     * without allocating.
+     *
+     * @param buffer at least {@link #MAX_FORMATTED_LENGTH} characters
+     * @return the offset of the first character written
+     */
+    public static int format(long fixedPoint, int scale, char[] buffer) {
+        long unscaled = toUnscaled(fixedPoint, scale);
+        boolean negative = unscaled < 0;
+        int position = buffer.length;
+        int digits = 0;
+        do {
+            buffer[--position] = (char) ('0' + Math.abs(unscaled % 10));
+            unscaled /= 10;
+            if (++digits == scale) {
+                buffer[--position] = '.';
+            }
+        } while (unscaled != 0 || digits <= scale);
+        if (negative) {
+            buffer[--position] = '-';
+        }
+        return position;
+    }
+
+    public static BigDecimal toBigDecimal(long fixedPoint, int scale) {
+        return BigDecimal.valueOf(fixedPoint, READING_SCALE).setScale(scale, RoundingMode.UNNECESSARY);
+    }
+}
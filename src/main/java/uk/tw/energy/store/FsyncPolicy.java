@@ -0,0 +1,10 @@
+package uk.tw.energy.store;
+
+public enum FsyncPolicy {
+    /** Readings are only acknowledged once they have been forced to disk; concurrent writers share each fsync. */
+    ALWAYS,
+    /** Readings are forced to disk in the background at a fixed interval. */
+    INTERVAL,
+    /** Flushing is left to the operating system. Readings survive the process, not the machine, crashing. */
+    NEVER
+}
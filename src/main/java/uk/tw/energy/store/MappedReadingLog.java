@@ -0,0 +1,405 @@
+package uk.tw.energy.store;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiConsumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Write-ahead log of readings in memory-mapped segment files on the local filesystem.
+ *
+ * <p>Every reading is a fixed-width, checksummed record:
+ *
+ * <pre>
+ *  0 type (1)  1 flags (1)  2 scale (1)  3 unused (1)  4 meter handle (4)  8 epoch second (8)
+ * 16 reading in micro-kW (8)  24 nano (4)  28 CRC32C of bytes 0-27 (4)
+ * </pre>
+ *
+ * The first and last record of a batch are flagged, so that a batch torn by a crash is dropped on replay. Meter ids are
+ * written once to a separate meters file and referred to by handle. A {@link #checkpoint()} starts a new segment, so
+ * that the segments before it are deleted whole on {@link #truncate}.
+ */
+public final class MappedReadingLog implements ReadingLog {
+
+    static final int RECORD_SIZE = 32;
+    private static final int CHECKSUMMED_BYTES = 28;
+    private static final byte READING = 1;
+    private static final byte START_OF_BATCH = 1;
+    private static final byte END_OF_BATCH = 2;
+    private static final String METERS_FILE = "meters.log";
+    private static final String SEGMENT_PREFIX = "readings-";
+    private static final String SEGMENT_SUFFIX = ".wal";
+
+    private final Path directory;
+    private final int segmentSize;
+    private final FsyncPolicy fsyncPolicy;
+    private final ScheduledExecutorService flusher;
+
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private final byte[] record = new byte[RECORD_SIZE];
+    private final ByteBuffer recordBuffer = ByteBuffer.wrap(record);
+    private final CRC32C checksum = new CRC32C();
+    private final Map<String, Integer> meterHandles = new HashMap<>();
+    private final List<String> meterIds = new ArrayList<>();
+    private FileChannel meters;
+    private int segmentIndex;
+    private MappedByteBuffer segment;
+    private int offset;
+    private int forcedOffset;
+
+    private final ReentrantLock commitLock = new ReentrantLock();
+    private final Condition committed = commitLock.newCondition();
+    private final AtomicLong durablePosition = new AtomicLong();
+    private boolean flushing;
+
+    public MappedReadingLog(Path directory, int segmentSize, FsyncPolicy fsyncPolicy, Duration fsyncInterval) {
+        this.directory = directory;
+        this.segmentSize = segmentSize - segmentSize % RECORD_SIZE;
+        this.fsyncPolicy = fsyncPolicy;
+        if (fsyncPolicy == FsyncPolicy.INTERVAL) {
+            flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "reading-log-flusher");
+                thread.setDaemon(true);
+                return thread;
+            });
+            flusher.scheduleWithFixedDelay(
+                    this::flush, fsyncInterval.toMillis(), fsyncInterval.toMillis(), TimeUnit.MILLISECONDS);
+        } else {
+            flusher = null;
+        }
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return true;
+    }
+
+    @Override
+    public long replay(long from, BiConsumer<String, ReadingBatch> batches) {
+        writeLock.lock();
+        try {
+            Files.createDirectories(directory);
+            readMeters();
+
+            ReadingBatch batch = new ReadingBatch(1024);
+            int batchHandle = -1;
+            long replayed = 0;
+            segmentIndex = (int) (from >>> 32);
+            int resumeOffset = (int) from;
+            for (Path path : segments()) {
+                int index = segmentIndex(path);
+                if (index < segmentIndex) {
+                    continue;
+                }
+                MappedByteBuffer buffer = map(path, FileChannel.MapMode.READ_ONLY, 0);
+                int position = index == segmentIndex ? resumeOffset : 0;
+                segmentIndex = index;
+                resumeOffset = position;
+                while (position + RECORD_SIZE <= buffer.capacity() && readRecord(buffer, position)) {
+                    if ((record[1] & START_OF_BATCH) != 0) {
+                        batch.clear();
+                    }
+                    batchHandle = recordBuffer.getInt(4);
+                    batch.add(recordBuffer.getLong(8), recordBuffer.getInt(24), recordBuffer.getLong(16), record[2]);
+                    position += RECORD_SIZE;
+                    if ((record[1] & END_OF_BATCH) != 0) {
+                        batches.accept(meterIds.get(batchHandle), batch);
+                        replayed += batch.size();
+                        batch.clear();
+                        resumeOffset = position;
+                    }
+                }
+            }
+
+            openSegment(resumeOffset);
+            for (int position = resumeOffset; position < segment.capacity(); position += RECORD_SIZE) {
+                if (segment.get(position) == 0) {
+                    break;
+                }
+                segment.put(position, new byte[RECORD_SIZE]);
+            }
+            return replayed;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public long append(String smartMeterId, ReadingBatch batch) {
+        writeLock.lock();
+        try {
+            if (segment == null) {
+                throw new IllegalStateException("The log must be replayed before it is appended to");
+            }
+            int handle = meterHandle(smartMeterId);
+            int last = batch.size() - 1;
+            for (int i = 0; i <= last; i++) {
+                if (offset + RECORD_SIZE > segment.capacity()) {
+                    roll();
+                }
+                recordBuffer.put(0, READING);
+                recordBuffer.put(1, (byte) ((i == 0 ? START_OF_BATCH : 0) | (i == last ? END_OF_BATCH : 0)));
+                recordBuffer.put(2, (byte) batch.scale(i));
+                recordBuffer.putInt(4, handle);
+                recordBuffer.putLong(8, batch.epochSecond(i));
+                recordBuffer.putLong(16, batch.reading(i));
+                recordBuffer.putInt(24, batch.nano(i));
+                checksum.reset();
+                checksum.update(record, 0, CHECKSUMMED_BYTES);
+                recordBuffer.putInt(CHECKSUMMED_BYTES, (int) checksum.getValue());
+                segment.put(offset, record);
+                offset += RECORD_SIZE;
+            }
+            return position();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Group commit: the first writer to find its batch not yet durable forces everything written so far, covering the
+     * batches of every writer that arrived meanwhile, while those writers wait for it.
+     */
+    @Override
+    public void awaitDurable(long position) {
+        if (fsyncPolicy != FsyncPolicy.ALWAYS) {
+            return;
+        }
+        commitLock.lock();
+        try {
+            while (durablePosition.get() < position) {
+                if (flushing) {
+                    committed.awaitUninterruptibly();
+                    continue;
+                }
+                flushing = true;
+                commitLock.unlock();
+                try {
+                    flush();
+                } finally {
+                    commitLock.lock();
+                    flushing = false;
+                    committed.signalAll();
+                }
+            }
+        } finally {
+            commitLock.unlock();
+        }
+    }
+
+    @Override
+    public long checkpoint() {
+        writeLock.lock();
+        try {
+            if (segment == null) {
+                throw new IllegalStateException("The log must be replayed before it is checkpointed");
+            }
+            if (offset > 0) {
+                roll();
+            }
+            return position();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public void truncate(long position) {
+        int before = (int) (position >>> 32);
+        try {
+            for (Path path : segments()) {
+                if (segmentIndex(path) < before) {
+                    Files.delete(path);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void close() {
+        if (flusher != null) {
+            flusher.shutdownNow();
+        }
+        writeLock.lock();
+        try {
+            if (segment != null) {
+                segment.force();
+            }
+            if (meters != null) {
+                meters.close();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private void flush() {
+        MappedByteBuffer target;
+        int from;
+        int to;
+        long position;
+        writeLock.lock();
+        try {
+            if (segment == null) {
+                return;
+            }
+            target = segment;
+            from = forcedOffset;
+            to = offset;
+            position = position();
+            forcedOffset = offset;
+        } finally {
+            writeLock.unlock();
+        }
+        if (to > from) {
+            target.force(from, to - from);
+        }
+        durablePosition.accumulateAndGet(position, Math::max);
+    }
+
+    private long position() {
+        return ((long) segmentIndex << 32) | offset;
+    }
+
+    private void roll() throws IOException {
+        if (fsyncPolicy != FsyncPolicy.NEVER) {
+            segment.force();
+            durablePosition.accumulateAndGet(position(), Math::max);
+        }
+        segmentIndex++;
+        openSegment(0);
+    }
+
+    private void openSegment(int resumeOffset) throws IOException {
+        segment = map(directory.resolve(segmentName(segmentIndex)), FileChannel.MapMode.READ_WRITE, segmentSize);
+        offset = resumeOffset;
+        forcedOffset = resumeOffset;
+    }
+
+    private static MappedByteBuffer map(Path path, FileChannel.MapMode mode, int minimumSize) throws IOException {
+        StandardOpenOption[] options = mode == FileChannel.MapMode.READ_ONLY
+                ? new StandardOpenOption[] {StandardOpenOption.READ}
+                : new StandardOpenOption[] {StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE
+                };
+        try (FileChannel channel = FileChannel.open(path, options)) {
+            long size = Math.max(channel.size(), minimumSize);
+            return channel.map(mode, 0, size - size % RECORD_SIZE);
+        }
+    }
+
+    private boolean readRecord(MappedByteBuffer buffer, int position) {
+        buffer.get(position, record);
+        if (record[0] != READING) {
+            return false;
+        }
+        checksum.reset();
+        checksum.update(record, 0, CHECKSUMMED_BYTES);
+        return recordBuffer.getInt(CHECKSUMMED_BYTES) == (int) checksum.getValue()
+                && recordBuffer.getInt(4) >= 0
+                && recordBuffer.getInt(4) < meterIds.size();
+    }
+
+    private int meterHandle(String smartMeterId) throws IOException {
+        Integer handle = meterHandles.get(smartMeterId);
+        if (handle != null) {
+            return handle;
+        }
+
+        byte[] id = smartMeterId.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer entry = ByteBuffer.allocate(Integer.BYTES * 2 + id.length + Integer.BYTES);
+        entry.putInt(meterIds.size()).putInt(id.length).put(id);
+        checksum.reset();
+        checksum.update(entry.array(), 0, entry.position());
+        entry.putInt((int) checksum.getValue()).flip();
+        while (entry.hasRemaining()) {
+            meters.write(entry);
+        }
+        if (fsyncPolicy != FsyncPolicy.NEVER) {
+            meters.force(false);
+        }
+
+        meterHandles.put(smartMeterId, meterIds.size());
+        meterIds.add(smartMeterId);
+        return meterIds.size() - 1;
+    }
+
+    private void readMeters() throws IOException {
+        meters = FileChannel.open(
+                directory.resolve(METERS_FILE),
+                StandardOpenOption.CREATE,
+                StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        ByteBuffer contents = ByteBuffer.allocate((int) meters.size());
+        while (contents.hasRemaining() && meters.read(contents) >= 0) {}
+        contents.flip();
+
+        int valid = 0;
+        while (contents.remaining() >= Integer.BYTES * 2) {
+            int handle = contents.getInt();
+            int length = contents.getInt();
+            if (handle != meterIds.size() || length < 0 || contents.remaining() < length + Integer.BYTES) {
+                break;
+            }
+            byte[] id = new byte[length];
+            contents.get(id);
+            checksum.reset();
+            checksum.update(contents.array(), valid, Integer.BYTES * 2 + length);
+            if (contents.getInt() != (int) checksum.getValue()) {
+                break;
+            }
+            String smartMeterId = new String(id, StandardCharsets.UTF_8);
+            meterHandles.put(smartMeterId, handle);
+            meterIds.add(smartMeterId);
+            valid = contents.position();
+        }
+        meters.truncate(valid);
+        meters.position(valid);
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(path -> path.getFileName().toString().startsWith(SEGMENT_PREFIX))
+                    .filter(path -> path.getFileName().toString().endsWith(SEGMENT_SUFFIX))
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    private static String segmentName(int index) {
+        return String.format("%s%010d%s", SEGMENT_PREFIX, index, SEGMENT_SUFFIX);
+    }
+
+    private static int segmentIndex(Path segment) {
+        String name = segment.getFileName().toString();
+        return Integer.parseInt(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+}
@@ -0,0 +1,561 @@
+package uk.tw.energy.store;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import uk.tw.energy.domain.ElectricityReading;
+
+/**
+ * Reading history of a single smart meter, kept in time order as chunks of parallel primitive columns, with at most one
+ * reading per timestamp. {@link ElectricityReading} instances are only created when a caller asks for them through
+ * {@link #get(int)} or {@link #asList()}.
+ *
+ * <p>Batches that continue the series, as smart meters send them, are appended to the last chunk. A batch that reaches
+ * back into the series is merged in linearly, rebuilding the chunks from the first one it touches; only a batch that is
+ * not itself in time order is sorted first. A reading taken at the same time as one already stored, or as an earlier
+ * reading of its batch, is ignored, so replayed readings are stored once.
+ *
+ * <p>Full chunks can be sealed into {@link CompressedReadingChunk compressed} ones when the next chunk is started,
+ * which takes a fraction of the memory at the cost of decoding them when read.
+ *
+ * <p>Old readings can be {@link #compact compacted} into hourly and then daily {@link ReadingRollup rollups}, which
+ * bounds the memory a meter holds. Readings taken before the compacted period are ignored when stored afterwards.
+ *
+ * <p>A series supports a single writer at a time (callers serialise {@link #append} and {@link #compact} per meter) and
+ * any number of concurrent readers. Readers never block: a whole batch becomes visible at once when its
+ * {@link ReadingSnapshot} is published, and {@link #asList()}, {@link #cursor()} and {@link #timeIndex()} are taken from
+ * the snapshot visible at the time. A merge or compaction replaces the chunks it touches rather than rewriting them, so
+ * snapshots are unaffected.
+ */
+public final class MeterReadingSeries {
+
+    static final int CHUNK_SHIFT = 10;
+    static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+    static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    private static final long SECONDS_PER_HOUR = 3_600;
+    private static final long SECONDS_PER_DAY = 86_400;
+
+    private final boolean compressSealedChunks;
+    private volatile ReadingSnapshot published = ReadingSnapshot.EMPTY;
+
+    // writer-side state, published at the end of every batch
+    private ReadingChunk[] chunks = new ReadingChunk[0];
+    private int count;
+    private long sum;
+    private int scale;
+    private List<ReadingRollup> dailyRollups = List.of();
+    private List<ReadingRollup> hourlyRollups = List.of();
+    private int compactedCount;
+    private long compactedBeforeEpochSecond = Long.MIN_VALUE;
+
+    public MeterReadingSeries() {
+        this(false);
+    }
+
+    /**
+     * @param compressSealedChunks whether full chunks are compressed
+     */
+    public MeterReadingSeries(boolean compressSealedChunks) {
+        this.compressSealedChunks = compressSealedChunks;
+    }
+
+    /**
+     * @return the number of readings stored, excluding those ignored as duplicates or as taken before the compacted
+     *     period
+     */
+    public int append(List<ElectricityReading> electricityReadings) {
+        ReadingBatch batch = new ReadingBatch(electricityReadings.size());
+        electricityReadings.forEach(batch::add);
+        return append(batch);
+    }
+
+    /**
+     * @return the number of readings stored, excluding those ignored as duplicates or as taken before the compacted
+     *     period
+     */
+    public int append(ReadingBatch batch) {
+        int[] order = isInTimeOrder(batch) ? null : sortedOrder(batch);
+        int from = 0;
+        while (from < batch.size() && batch.epochSeconds[at(order, from)] < compactedBeforeEpochSecond) {
+            from++;
+        }
+        if (from == batch.size()) {
+            return 0;
+        }
+        int first = at(order, from);
+        int stored;
+        try {
+            stored = count == 0 || compare(lastChunk(), (count - 1) & CHUNK_MASK, batch, first) < 0
+                    ? appendInOrder(batch, order, from)
+                    : merge(batch, order, from);
+        } catch (RuntimeException e) {
+            discardPending();
+            throw e;
+        }
+        publish();
+        return stored;
+    }
+
+    /**
+     * Rolls the readings taken before {@code hourlyBeforeEpochSecond} up into hourly rollups, and the hourly rollups
+     * before {@code dailyBeforeEpochSecond} into daily ones, freeing the raw readings. Both times are rounded down to
+     * a whole hour and day, and a period is only compacted once.
+     *
+     * @return the number of raw readings compacted
+     */
+    public int compact(long hourlyBeforeEpochSecond, long dailyBeforeEpochSecond) {
+        long hourlyBefore = Math.floorDiv(hourlyBeforeEpochSecond, SECONDS_PER_HOUR) * SECONDS_PER_HOUR;
+        long dailyBefore =
+                Math.floorDiv(Math.min(dailyBeforeEpochSecond, hourlyBefore), SECONDS_PER_DAY) * SECONDS_PER_DAY;
+        if (hourlyBefore <= compactedBeforeEpochSecond) {
+            return 0;
+        }
+
+        int compacted = new ReadingTimeIndex(chunks, count).firstAtOrAfter(hourlyBefore, 0);
+        List<ReadingRollup> hourly = new ArrayList<>(hourlyRollups);
+        ReadingCursor rolledUp = new ReadingCursor(chunks, 0, compacted);
+        RollupBuilder rollup = null;
+        while (rolledUp.next()) {
+            long start = Math.floorDiv(rolledUp.epochSecond(), SECONDS_PER_HOUR) * SECONDS_PER_HOUR;
+            if (rollup != null && rollup.startEpochSecond != start) {
+                hourly.add(rollup.build());
+                rollup = null;
+            }
+            if (rollup == null) {
+                rollup = new RollupBuilder(start);
+            }
+            rollup.add(rolledUp);
+        }
+        if (rollup != null) {
+            hourly.add(rollup.build());
+        }
+
+        List<ReadingRollup> daily = new ArrayList<>(dailyRollups);
+        int hour = 0;
+        while (hour < hourly.size() && hourly.get(hour).startEpochSecond() < dailyBefore) {
+            long start = Math.floorDiv(hourly.get(hour).startEpochSecond(), SECONDS_PER_DAY) * SECONDS_PER_DAY;
+            int end = hour + 1;
+            while (end < hourly.size() && hourly.get(end).startEpochSecond() < start + SECONDS_PER_DAY) {
+                end++;
+            }
+            daily.add(ReadingRollup.combine(start, hourly.subList(hour, end)));
+            hour = end;
+        }
+
+        if ((compacted & CHUNK_MASK) == 0) {
+            chunks = Arrays.copyOfRange(chunks, compacted >>> CHUNK_SHIFT, chunks.length);
+            count -= compacted;
+        } else {
+            ReadingCursor retained = new ReadingCursor(chunks, compacted, count);
+            chunks = new ReadingChunk[0];
+            count = 0;
+            while (retained.next()) {
+                copy(retained);
+            }
+        }
+        compactedCount += compacted;
+        dailyRollups = List.copyOf(daily);
+        hourlyRollups = List.copyOf(hourly.subList(hour, hourly.size()));
+        compactedBeforeEpochSecond = hourlyBefore;
+        publish();
+        return compacted;
+    }
+
+    /**
+     * Rebuilds a series as it was when written to a {@link StoreSnapshot}.
+     *
+     * @param rawChunks the raw readings in time order, every chunk full but the last
+     */
+    static MeterReadingSeries restore(
+            boolean compressSealedChunks,
+            List<ReadingRollup> dailyRollups,
+            List<ReadingRollup> hourlyRollups,
+            long compactedBeforeEpochSecond,
+            RawReadingChunk[] rawChunks,
+            long sum,
+            int scale) {
+        MeterReadingSeries series = new MeterReadingSeries(compressSealedChunks);
+        series.chunks = new ReadingChunk[rawChunks.length];
+        for (int i = 0; i < rawChunks.length; i++) {
+            series.chunks[i] = i < rawChunks.length - 1 ? series.seal(rawChunks[i]) : rawChunks[i];
+            series.count += rawChunks[i].size();
+        }
+        series.sum = sum;
+        series.scale = scale;
+        series.dailyRollups = List.copyOf(dailyRollups);
+        series.hourlyRollups = List.copyOf(hourlyRollups);
+        for (ReadingRollup rollup : series.dailyRollups) {
+            series.compactedCount += rollup.count();
+        }
+        for (ReadingRollup rollup : series.hourlyRollups) {
+            series.compactedCount += rollup.count();
+        }
+        series.compactedBeforeEpochSecond = compactedBeforeEpochSecond;
+        series.publish();
+        return series;
+    }
+
+    public ReadingSnapshot snapshot() {
+        return published;
+    }
+
+    /**
+     * @return the number of readings held raw, see {@link #aggregate()} for the number stored
+     */
+    public int size() {
+        return published.size();
+    }
+
+    public ReadingAggregate aggregate() {
+        return published.aggregate();
+    }
+
+    // Indices refer to the raw readings visible at the time of each call, and move when older readings are merged in or
+    // compacted. Snapshots read several readings consistently.
+
+    public long epochSecond(int index) {
+        return published.chunk(index).epochSecond(index & CHUNK_MASK);
+    }
+
+    public int nano(int index) {
+        return published.chunk(index).nano(index & CHUNK_MASK);
+    }
+
+    /**
+     * @return the reading at {@code index} in micro-kW, see {@link FixedPoint}
+     */
+    public long reading(int index) {
+        return published.chunk(index).reading(index & CHUNK_MASK);
+    }
+
+    public int scale(int index) {
+        return published.chunk(index).scale(index & CHUNK_MASK);
+    }
+
+    public ElectricityReading get(int index) {
+        return get(published.chunk(index), index & CHUNK_MASK);
+    }
+
+    public ReadingCursor cursor() {
+        return published.cursor();
+    }
+
+    /**
+     * @return the raw readings stored so far, searchable by time
+     */
+    public ReadingTimeIndex timeIndex() {
+        return published.timeIndex();
+    }
+
+    /**
+     * @return the approximate heap footprint of the series
+     */
+    public long estimatedBytes() {
+        return published.estimatedBytes();
+    }
+
+    /**
+     * @return a read-only view over the raw readings stored so far
+     */
+    public List<ElectricityReading> asList() {
+        return published.asList();
+    }
+
+    static ElectricityReading get(ReadingChunk chunk, int offset) {
+        return new ElectricityReading(
+                Instant.ofEpochSecond(chunk.epochSecond(offset), chunk.nano(offset)),
+                FixedPoint.toBigDecimal(chunk.reading(offset), chunk.scale(offset)));
+    }
+
+    private int appendInOrder(ReadingBatch batch, int[] order, int from) {
+        int stored = 0;
+        int previous = -1;
+        for (int i = from; i < batch.size(); i++) {
+            int next = at(order, i);
+            if (previous < 0 || compare(batch, previous, batch, next) != 0) {
+                store(batch, next);
+                stored++;
+            }
+            previous = next;
+        }
+        return stored;
+    }
+
+    /**
+     * Rebuilds the series from the chunk holding the first reading taken at or after the start of the batch, merging
+     * the batch in. The chunks before it are kept as they are, and the readings of that chunk before the batch are
+     * copied (or decoded) as a block.
+     */
+    private int merge(ReadingBatch batch, int[] order, int from) {
+        int first = at(order, from);
+        int start = new ReadingTimeIndex(chunks, count).firstAtOrAfter(batch.epochSeconds[first], batch.nanos[first]);
+        int retainedChunks = start >>> CHUNK_SHIFT;
+        ReadingChunk[] existing = chunks;
+        int existingCount = count;
+        count = retainedChunks << CHUNK_SHIFT;
+        chunks = Arrays.copyOf(existing, retainedChunks + 1);
+        RawReadingChunk rebuilt =
+                new RawReadingChunk(Math.min(existingCount - count + batch.size() - from, CHUNK_SIZE));
+        existing[retainedChunks].copyTo(rebuilt, start - count);
+        chunks[retainedChunks] = rebuilt;
+        count = start;
+
+        ReadingCursor following = new ReadingCursor(existing, start, existingCount);
+        boolean remaining = following.next();
+        int stored = 0;
+        int previous = -1;
+        for (int i = from; i < batch.size(); i++) {
+            int next = at(order, i);
+            int byTime = 1;
+            while (remaining && (byTime = compare(following, batch, next)) < 0) {
+                copy(following);
+                remaining = following.next();
+            }
+            boolean duplicate = remaining && byTime == 0 || previous >= 0 && compare(batch, previous, batch, next) == 0;
+            if (!duplicate) {
+                store(batch, next);
+                stored++;
+            }
+            previous = next;
+        }
+        while (remaining) {
+            copy(following);
+            remaining = following.next();
+        }
+        return stored;
+    }
+
+    private void store(ReadingBatch batch, int index) {
+        long reading = batch.readings[index];
+        sum = Math.addExact(sum, reading);
+        scale = Math.max(scale, batch.scales[index]);
+        tail().add(batch.epochSeconds[index], batch.nanos[index], reading, batch.scales[index]);
+        count++;
+    }
+
+    private void copy(ReadingCursor cursor) {
+        tail().add(cursor.epochSecond(), cursor.nano(), cursor.reading(), cursor.scale());
+        count++;
+    }
+
+    private void publish() {
+        ReadingRollup[] rollups = new ReadingRollup[dailyRollups.size() + hourlyRollups.size()];
+        for (int i = 0; i < rollups.length; i++) {
+            rollups[i] = i < dailyRollups.size() ? dailyRollups.get(i) : hourlyRollups.get(i - dailyRollups.size());
+        }
+
+        ReadingAggregate aggregate;
+        if (count == 0 && rollups.length == 0) {
+            aggregate = ReadingAggregate.EMPTY;
+        } else {
+            long earliestEpochSecond;
+            int earliestNano;
+            if (rollups.length > 0) {
+                earliestEpochSecond = rollups[0].firstEpochSecond();
+                earliestNano = rollups[0].firstNano();
+            } else {
+                earliestEpochSecond = chunks[0].epochSecond(0);
+                earliestNano = chunks[0].nano(0);
+            }
+            long latestEpochSecond;
+            int latestNano;
+            if (count > 0) {
+                ReadingChunk last = lastChunk();
+                latestEpochSecond = last.epochSecond((count - 1) & CHUNK_MASK);
+                latestNano = last.nano((count - 1) & CHUNK_MASK);
+            } else {
+                latestEpochSecond = rollups[rollups.length - 1].lastEpochSecond();
+                latestNano = rollups[rollups.length - 1].lastNano();
+            }
+            aggregate = new ReadingAggregate(
+                    compactedCount + count,
+                    sum,
+                    scale,
+                    earliestEpochSecond,
+                    earliestNano,
+                    latestEpochSecond,
+                    latestNano);
+        }
+        published =
+                new ReadingSnapshot(chunks, count, aggregate, rollups, dailyRollups.size(), compactedBeforeEpochSecond);
+    }
+
+    private void discardPending() {
+        ReadingSnapshot snapshot = published;
+        int size = snapshot.size();
+        int chunkCount = (size + CHUNK_MASK) >>> CHUNK_SHIFT;
+        ReadingChunk[] retained = snapshot.chunks().clone();
+        // a compressed chunk is full, so only a raw one can have readings to discard
+        if (chunkCount > 0 && retained[chunkCount - 1] instanceof RawReadingChunk last) {
+            last.size = size - ((chunkCount - 1) << CHUNK_SHIFT);
+        }
+        chunks = retained;
+
+        count = size;
+        sum = snapshot.aggregate().sum();
+        scale = snapshot.aggregate().scale();
+    }
+
+    private ReadingChunk lastChunk() {
+        return chunks[(count - 1) >>> CHUNK_SHIFT];
+    }
+
+    /**
+     * @return the chunk to add the next reading to, sealing the last chunk if it is full
+     */
+    private RawReadingChunk tail() {
+        ReadingChunk[] current = chunks;
+        int last = current.length - 1;
+        if (last >= 0 && current[last] instanceof RawReadingChunk raw && raw.hasRoom()) {
+            return raw;
+        }
+        ReadingChunk[] next;
+        RawReadingChunk added;
+        if (last < 0 || current[last].size() == CHUNK_SIZE) {
+            next = Arrays.copyOf(current, current.length + 1);
+            if (last >= 0) {
+                next[last] = seal(current[last]);
+            }
+            added = new RawReadingChunk();
+        } else {
+            next = current.clone();
+            added = ((RawReadingChunk) current[last]).grow();
+        }
+        next[next.length - 1] = added;
+        chunks = next;
+        return added;
+    }
+
+    private ReadingChunk seal(ReadingChunk chunk) {
+        return compressSealedChunks && chunk instanceof RawReadingChunk raw ? CompressedReadingChunk.of(raw) : chunk;
+    }
+
+    private static int at(int[] order, int position) {
+        return order == null ? position : order[position];
+    }
+
+    private static boolean isInTimeOrder(ReadingBatch batch) {
+        for (int i = 1; i < batch.size(); i++) {
+            if (compare(batch, i - 1, batch, i) > 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return the indices of the batch in time order, keeping readings taken at the same time in the order received
+     */
+    private static int[] sortedOrder(ReadingBatch batch) {
+        int[] order = new int[batch.size()];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        sort(batch, order, new int[order.length], 0, order.length);
+        return order;
+    }
+
+    /**
+     * Stable merge sort of {@code order[from, to)}.
+     */
+    private static void sort(ReadingBatch batch, int[] order, int[] scratch, int from, int to) {
+        if (to - from < 2) {
+            return;
+        }
+        int middle = (from + to) >>> 1;
+        sort(batch, order, scratch, from, middle);
+        sort(batch, order, scratch, middle, to);
+        if (compare(batch, order[middle - 1], batch, order[middle]) <= 0) {
+            return;
+        }
+        System.arraycopy(order, from, scratch, from, to - from);
+        int left = from;
+        int right = middle;
+        int next = from;
+        while (left < middle && right < to) {
+            order[next++] =
+                    compare(batch, scratch[right], batch, scratch[left]) < 0 ? scratch[right++] : scratch[left++];
+        }
+        System.arraycopy(scratch, left, order, next, middle - left);
+        System.arraycopy(scratch, right, order, next + middle - left, to - right);
+    }
+
+    private static int compare(ReadingBatch left, int leftIndex, ReadingBatch right, int rightIndex) {
+        int bySecond = Long.compare(left.epochSeconds[leftIndex], right.epochSeconds[rightIndex]);
+        return bySecond != 0 ? bySecond : Integer.compare(left.nanos[leftIndex], right.nanos[rightIndex]);
+    }
+
+    private static int compare(ReadingChunk chunk, int offset, ReadingBatch batch, int index) {
+        int bySecond = Long.compare(chunk.epochSecond(offset), batch.epochSeconds[index]);
+        return bySecond != 0 ? bySecond : Integer.compare(chunk.nano(offset), batch.nanos[index]);
+    }
+
+    private static int compare(ReadingCursor cursor, ReadingBatch batch, int index) {
+        int bySecond = Long.compare(cursor.epochSecond(), batch.epochSeconds[index]);
+        return bySecond != 0 ? bySecond : Integer.compare(cursor.nano(), batch.nanos[index]);
+    }
+
+    /**
+     * Rolls consecutive readings of one hour up.
+     */
+    private static final class RollupBuilder {
+
+        private final long startEpochSecond;
+        private int count;
+        private long sum;
+        private int scale;
+        private long minimum = Long.MAX_VALUE;
+        private long maximum = Long.MIN_VALUE;
+        private long firstEpochSecond;
+        private int firstNano;
+        private long firstReading;
+        private long lastEpochSecond;
+        private int lastNano;
+        private long lastReading;
+        private long consumption;
+
+        private RollupBuilder(long startEpochSecond) {
+            this.startEpochSecond = startEpochSecond;
+        }
+
+        private void add(ReadingCursor cursor) {
+            long epochSecond = cursor.epochSecond();
+            long reading = cursor.reading();
+            if (count == 0) {
+                firstEpochSecond = epochSecond;
+                firstNano = cursor.nano();
+                firstReading = reading;
+            } else {
+                consumption = Math.addExact(
+                        consumption, ReadingRollup.consumption(lastEpochSecond, lastReading, epochSecond, reading));
+            }
+            count++;
+            sum = Math.addExact(sum, reading);
+            scale = Math.max(scale, cursor.scale());
+            minimum = Math.min(minimum, reading);
+            maximum = Math.max(maximum, reading);
+            lastEpochSecond = epochSecond;
+            lastNano = cursor.nano();
+            lastReading = reading;
+        }
+
+        private ReadingRollup build() {
+            return new ReadingRollup(
+                    startEpochSecond,
+                    count,
+                    sum,
+                    scale,
+                    minimum,
+                    maximum,
+                    firstEpochSecond,
+                    firstNano,
+                    firstReading,
+                    lastEpochSecond,
+                    lastNano,
+                    lastReading,
+                    consumption);
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package uk.tw.energy.store;
+
+import java.util.Arrays;
+
+/**
+ * Readings held as parallel primitive columns, with room to append more.
+ */
+final class RawReadingChunk extends ReadingChunk {
+
+    private static final int INITIAL_CAPACITY = 8;
+
+    final long[] epochSeconds;
+    final int[] nanos;
+    final long[] readings;
+    final byte[] scales;
+    int size;
+
+    RawReadingChunk() {
+        this(INITIAL_CAPACITY);
+    }
+
+    RawReadingChunk(int capacity) {
+        this(new long[capacity], new int[capacity], new long[capacity], new byte[capacity], 0);
+    }
+
+    private RawReadingChunk(long[] epochSeconds, int[] nanos, long[] readings, byte[] scales, int size) {
+        this.epochSeconds = epochSeconds;
+        this.nanos = nanos;
+        this.readings = readings;
+        this.scales = scales;
+        this.size = size;
+    }
+
+    @Override
+    int size() {
+        return size;
+    }
+
+    @Override
+    long epochSecond(int offset) {
+        return epochSeconds[offset];
+    }
+
+    @Override
+    int nano(int offset) {
+        return nanos[offset];
+    }
+
+    @Override
+    long reading(int offset) {
+        return readings[offset];
+    }
+
+    @Override
+    int scale(int offset) {
+        return scales[offset];
+    }
+
+    @Override
+    int firstAtOrAfter(long epochSecond, int nano, int length) {
+        int low = 0;
+        int high = length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            int bySecond = Long.compare(epochSeconds[middle], epochSecond);
+            if ((bySecond != 0 ? bySecond : Integer.compare(nanos[middle], nano)) < 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    @Override
+    void copyTo(RawReadingChunk target, int length) {
+        System.arraycopy(epochSeconds, 0, target.epochSeconds, target.size, length);
+        System.arraycopy(nanos, 0, target.nanos, target.size, length);
+        System.arraycopy(readings, 0, target.readings, target.size, length);
+        System.arraycopy(scales, 0, target.scales, target.size, length);
+        target.size += length;
+    }
+
+    @Override
+    RawReadingChunk columns(RawReadingChunk scratch) {
+        return this;
+    }
+
+    /**
+     * @return the approximate heap footprint of the chunk, counting allocated capacity rather than stored readings
+     */
+    @Override
+    long estimatedBytes() {
+        int capacity = epochSeconds.length;
+        return OBJECT_HEADER_BYTES
+                + 4L * REFERENCE_BYTES
+                + Integer.BYTES
+                + 4L * ARRAY_HEADER_BYTES
+                + (long) capacity * (Long.BYTES + Integer.BYTES + Long.BYTES + Byte.BYTES);
+    }
+
+    boolean isFull() {
+        return size == MeterReadingSeries.CHUNK_SIZE;
+    }
+
+    boolean hasRoom() {
+        return size < epochSeconds.length;
+    }
+
+    void add(long epochSecond, int nano, long reading, int scale) {
+        epochSeconds[size] = epochSecond;
+        nanos[size] = nano;
+        readings[size] = reading;
+        scales[size] = (byte) scale;
+        size++;
+    }
+
+    /**
+     * Copies into a larger chunk rather than growing in place, so that readers holding this chunk keep seeing fully
+     * initialised arrays.
+     */
+    RawReadingChunk grow() {
+        int capacity = Math.min(epochSeconds.length << 1, MeterReadingSeries.CHUNK_SIZE);
+        return new RawReadingChunk(
+                Arrays.copyOf(epochSeconds, capacity),
+                Arrays.copyOf(nanos, capacity),
+                Arrays.copyOf(readings, capacity),
+                Arrays.copyOf(scales, capacity),
+                size);
+    }
+}
@@ -0,0 +1,31 @@
+package uk.tw.energy.store;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+
+/**
+ * Running totals over every reading of a series, maintained on append so that costs can be computed without
+ * rescanning the readings.
+ *
+ * @param sum sum of all readings in micro-kW
+ * @param scale the largest scale of any reading, i.e. the scale of the exact {@link BigDecimal} sum
+ */
+public record ReadingAggregate(
+        int count,
+        long sum,
+        int scale,
+        long earliestEpochSecond,
+        int earliestNano,
+        long latestEpochSecond,
+        int latestNano) {
+
+    public static final ReadingAggregate EMPTY = new ReadingAggregate(0, 0, 0, Long.MAX_VALUE, 0, Long.MIN_VALUE, 0);
+
+    public BigDecimal summedReadings() {
+        return FixedPoint.toBigDecimal(sum, scale);
+    }
+
+    public Duration timeElapsed() {
+        return Duration.ofSeconds(latestEpochSecond - earliestEpochSecond, latestNano - earliestNano);
+    }
+}
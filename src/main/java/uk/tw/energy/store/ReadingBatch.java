@@ -0,0 +1,85 @@
+package uk.tw.energy.store;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.Arrays;
+import uk.tw.energy.domain.ElectricityReading;
+
+/**
+ * Reusable buffer of readings in the same primitive representation as {@link MeterReadingSeries}, so that ingestion
+ * paths which decode readings themselves can store them without creating an {@link ElectricityReading} per reading.
+ */
+public final class ReadingBatch {
+
+    long[] epochSeconds;
+    int[] nanos;
+    long[] readings;
+    byte[] scales;
+    private int size;
+
+    public ReadingBatch(int initialCapacity) {
+        epochSeconds = new long[initialCapacity];
+        nanos = new int[initialCapacity];
+        readings = new long[initialCapacity];
+        scales = new byte[initialCapacity];
+    }
+
+    /**
+     * @param reading the reading in micro-kW, see {@link FixedPoint}
+     * @param scale the scale the reading was received with
+     */
+    public void add(long epochSecond, int nano, long reading, int scale) {
+        if (size == epochSeconds.length) {
+            int capacity = Math.max(8, size << 1);
+            epochSeconds = Arrays.copyOf(epochSeconds, capacity);
+            nanos = Arrays.copyOf(nanos, capacity);
+            readings = Arrays.copyOf(readings, capacity);
+            scales = Arrays.copyOf(scales, capacity);
+        }
+        epochSeconds[size] = epochSecond;
+        nanos[size] = nano;
+        readings[size] = reading;
+        scales[size] = (byte) scale;
+        size++;
+    }
+
+    public long epochSecond(int index) {
+        return epochSeconds[index];
+    }
+
+    public int nano(int index) {
+        return nanos[index];
+    }
+
+    public long reading(int index) {
+        return readings[index];
+    }
+
+    public int scale(int index) {
+        return scales[index];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void add(ElectricityReading electricityReading) {
+        Instant time = electricityReading.time();
+        BigDecimal reading = electricityReading.reading();
+        add(time.getEpochSecond(), time.getNano(), FixedPoint.toFixedPoint(reading), FixedPoint.scaleOf(reading));
+    }
+
+    public void addAll(ReadingBatch batch) {
+        for (int i = 0; i < batch.size; i++) {
+            add(batch.epochSeconds[i], batch.nanos[i], batch.readings[i], batch.scales[i]);
+        }
+    }
+
+    public void clear() {
+        size = 0;
+    }
+}
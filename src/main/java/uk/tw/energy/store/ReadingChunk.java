@@ -0,0 +1,48 @@
+package uk.tw.energy.store;
+
+/**
+ * Up to {@link MeterReadingSeries#CHUNK_SIZE} consecutive readings of a series, in time order. Readings are appended
+ * to a {@link RawReadingChunk}; a full chunk may be sealed into a {@link CompressedReadingChunk}.
+ */
+abstract class ReadingChunk {
+
+    // object and array headers on a 64-bit JVM with compressed references
+    static final int OBJECT_HEADER_BYTES = 16;
+    static final int ARRAY_HEADER_BYTES = 16;
+    static final int REFERENCE_BYTES = 4;
+
+    abstract int size();
+
+    abstract long epochSecond(int offset);
+
+    abstract int nano(int offset);
+
+    /**
+     * @return the reading at {@code offset} in micro-kW, see {@link FixedPoint}
+     */
+    abstract long reading(int offset);
+
+    abstract int scale(int offset);
+
+    /**
+     * @return the offset of the first reading taken at or after the given time, searching the first {@code length}
+     *     readings only, or {@code length} if there is none
+     */
+    abstract int firstAtOrAfter(long epochSecond, int nano, int length);
+
+    /**
+     * Appends the first {@code length} readings to {@code target}.
+     */
+    abstract void copyTo(RawReadingChunk target, int length);
+
+    /**
+     * @param scratch a chunk of {@link MeterReadingSeries#CHUNK_SIZE} capacity that may be overwritten, or {@code null}
+     * @return the readings as columns: this chunk if it is raw, otherwise {@code scratch} (or a new chunk) holding them
+     */
+    abstract RawReadingChunk columns(RawReadingChunk scratch);
+
+    /**
+     * @return the approximate heap footprint of the chunk
+     */
+    abstract long estimatedBytes();
+}
@@ -0,0 +1,69 @@
+package uk.tw.energy.store;
+
+/**
+ * Forward-only iteration over the raw columns of a {@link MeterReadingSeries}, bound to the readings that were visible
+ * when the cursor was created. Nothing is allocated per reading: a compressed chunk is decoded as a whole, into a
+ * buffer reused for every chunk, when the cursor reaches it.
+ */
+public final class ReadingCursor {
+
+    private final ReadingChunk[] chunks;
+    private final int end;
+    private int index;
+    private int offset;
+    private RawReadingChunk columns;
+    private RawReadingChunk scratch;
+
+    ReadingCursor(ReadingChunk[] chunks, int size) {
+        this(chunks, 0, size);
+    }
+
+    /**
+     * @param start position of the first reading (inclusive)
+     * @param end position of the last reading (exclusive)
+     */
+    ReadingCursor(ReadingChunk[] chunks, int start, int end) {
+        this.chunks = chunks;
+        this.end = end;
+        this.index = start - 1;
+    }
+
+    public boolean next() {
+        if (index + 1 >= end) {
+            return false;
+        }
+        index++;
+        offset = index & MeterReadingSeries.CHUNK_MASK;
+        if (offset == 0 || columns == null) {
+            ReadingChunk chunk = chunks[index >>> MeterReadingSeries.CHUNK_SHIFT];
+            columns = chunk.columns(scratch);
+            if (columns != chunk) {
+                scratch = columns;
+            }
+        }
+        return true;
+    }
+
+    public int index() {
+        return index;
+    }
+
+    public long epochSecond() {
+        return columns.epochSeconds[offset];
+    }
+
+    public int nano() {
+        return columns.nanos[offset];
+    }
+
+    /**
+     * @return the current reading in micro-kW, see {@link FixedPoint}
+     */
+    public long reading() {
+        return columns.readings[offset];
+    }
+
+    public int scale() {
+        return columns.scales[offset];
+    }
+}
@@ -0,0 +1,51 @@
+package uk.tw.energy.store;
+
+import java.io.Closeable;
+import java.util.function.BiConsumer;
+
+/**
+ * Durable record of every batch of readings stored, from which the in-memory store is rebuilt on startup.
+ */
+public interface ReadingLog extends Closeable {
+
+    static ReadingLog disabled() {
+        return DisabledReadingLog.INSTANCE;
+    }
+
+    boolean isEnabled();
+
+    /**
+     * Replays every complete batch from {@code from} on in the order it was appended. Must be called once, before
+     * anything is appended.
+     *
+     * @param from a position returned by {@link #checkpoint()}, or 0 for the whole log
+     * @return the number of readings replayed
+     */
+    long replay(long from, BiConsumer<String, ReadingBatch> batches);
+
+    /**
+     * @return the position of the batch in the log, to be passed to {@link #awaitDurable(long)}
+     */
+    long append(String smartMeterId, ReadingBatch batch);
+
+    /**
+     * Blocks until everything up to {@code position} is durable according to the log's {@link FsyncPolicy}.
+     */
+    void awaitDurable(long position);
+
+    /**
+     * Starts appending after a position that nothing appended later comes before, so that what the log holds up to
+     * there can be {@link #truncate truncated} once it is in a store snapshot.
+     *
+     * @return the position to replay from on top of that snapshot
+     */
+    long checkpoint();
+
+    /**
+     * Drops what the log holds before {@code position}, a position returned by {@link #checkpoint()}.
+     */
+    void truncate(long position);
+
+    @Override
+    void close();
+}
@@ -0,0 +1,20 @@
+package uk.tw.energy.store;
+
+import java.time.Duration;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+import org.springframework.util.unit.DataSize;
+
+/**
+ * @param enabled whether readings are written to a {@link MappedReadingLog} and replayed from it on startup
+ * @param directory local directory holding the log
+ * @param segmentSize size of each memory-mapped segment file
+ * @param fsyncInterval how often the log is forced to disk with {@link FsyncPolicy#INTERVAL}
+ */
+@ConfigurationProperties("readings.log")
+public record ReadingLogProperties(
+        @DefaultValue("false") boolean enabled,
+        @DefaultValue("data/readings") String directory,
+        @DefaultValue("64MB") DataSize segmentSize,
+        @DefaultValue("always") FsyncPolicy fsync,
+        @DefaultValue("100ms") Duration fsyncInterval) {}
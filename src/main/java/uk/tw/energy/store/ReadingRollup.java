@@ -0,0 +1,85 @@
+package uk.tw.energy.store;
+
+import java.util.List;
+
+/**
+ * The readings of one hour or day of a series, compacted into what costing and downsampling need once the readings
+ * themselves are gone. Readings are in micro-kW, see {@link FixedPoint}.
+ *
+ * @param startEpochSecond the start of the hour or day
+ * @param scale the largest scale of any reading, used for the sum, minimum and maximum
+ * @param consumption the {@link #consumption(long, long, long, long) consumption} over every interval between
+ *     consecutive readings of the period
+ */
+public record ReadingRollup(
+        long startEpochSecond,
+        int count,
+        long sum,
+        int scale,
+        long minimum,
+        long maximum,
+        long firstEpochSecond,
+        int firstNano,
+        long firstReading,
+        long lastEpochSecond,
+        int lastNano,
+        long lastReading,
+        long consumption) {
+
+    static final long BYTES = ReadingChunk.OBJECT_HEADER_BYTES + 9L * Long.BYTES + 4L * Integer.BYTES;
+
+    /**
+     * Integrates consumption trapezoidally over the interval between two consecutive readings, in micro-kW seconds
+     * doubled to stay integral. Only whole seconds count, so readings less than a second apart add nothing.
+     */
+    public static long consumption(long fromEpochSecond, long fromReading, long toEpochSecond, long toReading) {
+        long elapsedSeconds = toEpochSecond - fromEpochSecond;
+        return elapsedSeconds > 0 ? Math.multiplyExact(fromReading + toReading, elapsedSeconds) : 0;
+    }
+
+    /**
+     * @param rollups consecutive rollups that all fall within the period starting at {@code startEpochSecond}
+     */
+    static ReadingRollup combine(long startEpochSecond, List<ReadingRollup> rollups) {
+        ReadingRollup first = rollups.get(0);
+        int count = 0;
+        long sum = 0;
+        int scale = 0;
+        long minimum = Long.MAX_VALUE;
+        long maximum = Long.MIN_VALUE;
+        long consumption = 0;
+        ReadingRollup previous = null;
+        for (ReadingRollup rollup : rollups) {
+            count += rollup.count();
+            sum = Math.addExact(sum, rollup.sum());
+            scale = Math.max(scale, rollup.scale());
+            minimum = Math.min(minimum, rollup.minimum());
+            maximum = Math.max(maximum, rollup.maximum());
+            consumption = Math.addExact(consumption, rollup.consumption());
+            if (previous != null) {
+                consumption = Math.addExact(
+                        consumption,
+                        consumption(
+                                previous.lastEpochSecond(),
+                                previous.lastReading(),
+                                rollup.firstEpochSecond(),
+                                rollup.firstReading()));
+            }
+            previous = rollup;
+        }
+        return new ReadingRollup(
+                startEpochSecond,
+                count,
+                sum,
+                scale,
+                minimum,
+                maximum,
+                first.firstEpochSecond(),
+                first.firstNano(),
+                first.firstReading(),
+                previous.lastEpochSecond(),
+                previous.lastNano(),
+                previous.lastReading(),
+                consumption);
+    }
+}
@@ -0,0 +1,144 @@
+package uk.tw.energy.store;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.RandomAccess;
+import uk.tw.energy.domain.ElectricityReading;
+
+/**
+ * One generation of a {@link MeterReadingSeries}: its aggregate, the rollups of compacted readings and the readings
+ * still held raw, all taken together so that they describe the same readings.
+ */
+public final class ReadingSnapshot {
+
+    static final ReadingSnapshot EMPTY = new ReadingSnapshot(
+            new ReadingChunk[0], 0, ReadingAggregate.EMPTY, new ReadingRollup[0], 0, Long.MIN_VALUE);
+
+    private final ReadingChunk[] chunks;
+    private final int size;
+    private final ReadingAggregate aggregate;
+    private final ReadingRollup[] rollups;
+    private final int dailyRollupCount;
+    private final long compactedBeforeEpochSecond;
+
+    ReadingSnapshot(
+            ReadingChunk[] chunks,
+            int size,
+            ReadingAggregate aggregate,
+            ReadingRollup[] rollups,
+            int dailyRollupCount,
+            long compactedBeforeEpochSecond) {
+        this.chunks = chunks;
+        this.size = size;
+        this.aggregate = aggregate;
+        this.rollups = rollups;
+        this.dailyRollupCount = dailyRollupCount;
+        this.compactedBeforeEpochSecond = compactedBeforeEpochSecond;
+    }
+
+    /**
+     * @return totals over every reading, including compacted ones
+     */
+    public ReadingAggregate aggregate() {
+        return aggregate;
+    }
+
+    /**
+     * @return the number of readings held raw
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return the daily and then the hourly rollups of the compacted readings, in time order and all taken before the
+     *     first raw reading
+     */
+    public List<ReadingRollup> rollups() {
+        return Collections.unmodifiableList(Arrays.asList(rollups));
+    }
+
+    public ReadingCursor cursor() {
+        return new ReadingCursor(chunks, size);
+    }
+
+    /**
+     * @return the raw readings, searchable by time
+     */
+    public ReadingTimeIndex timeIndex() {
+        return new ReadingTimeIndex(chunks, size);
+    }
+
+    /**
+     * @return a read-only view over the raw readings
+     */
+    public List<ElectricityReading> asList() {
+        return new ReadingsView(chunks, size);
+    }
+
+    ReadingChunk[] chunks() {
+        return chunks;
+    }
+
+    ReadingRollup[] rollupArray() {
+        return rollups;
+    }
+
+    /**
+     * @return how many of the {@link #rollups()} are daily, the rest being hourly
+     */
+    int dailyRollupCount() {
+        return dailyRollupCount;
+    }
+
+    /**
+     * @return the end of the compacted period, before which readings are ignored when stored
+     */
+    long compactedBeforeEpochSecond() {
+        return compactedBeforeEpochSecond;
+    }
+
+    long estimatedBytes() {
+        long bytes = ReadingChunk.OBJECT_HEADER_BYTES
+                + 2L * ReadingChunk.ARRAY_HEADER_BYTES
+                + (long) (chunks.length + rollups.length) * ReadingChunk.REFERENCE_BYTES
+                + rollups.length * ReadingRollup.BYTES;
+        for (ReadingChunk chunk : chunks) {
+            bytes += chunk.estimatedBytes();
+        }
+        return bytes;
+    }
+
+    ReadingChunk chunk(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException(index);
+        }
+        return chunks[index >>> MeterReadingSeries.CHUNK_SHIFT];
+    }
+
+    private static final class ReadingsView extends AbstractList<ElectricityReading> implements RandomAccess {
+
+        private final ChunkedReadings readings;
+        private final int size;
+
+        private ReadingsView(ReadingChunk[] chunks, int size) {
+            this.readings = new ChunkedReadings(chunks);
+            this.size = size;
+        }
+
+        @Override
+        public ElectricityReading get(int index) {
+            if (index < 0 || index >= size) {
+                throw new IndexOutOfBoundsException(index);
+            }
+            return readings.get(index);
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package uk.tw.energy.store;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * @param compressSealedChunks whether the full chunks of every {@link MeterReadingSeries} are compressed, see
+ *     {@link CompressedReadingChunk}
+ */
+@ConfigurationProperties("readings.store")
+public record ReadingStoreProperties(@DefaultValue("false") boolean compressSealedChunks) {}
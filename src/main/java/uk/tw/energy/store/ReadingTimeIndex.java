@@ -0,0 +1,153 @@
+package uk.tw.energy.store;
+
+import java.time.Instant;
+import java.util.AbstractList;
+import java.util.List;
+import java.util.RandomAccess;
+import uk.tw.energy.domain.ElectricityReading;
+
+/**
+ * The readings of a {@link MeterReadingSeries} as visible when the index was taken. They are in time order with
+ * distinct timestamps, so positions are found by binary search over the chunks and then within one.
+ */
+public final class ReadingTimeIndex {
+
+    private final ReadingChunk[] chunks;
+    private final int size;
+
+    ReadingTimeIndex(ReadingChunk[] chunks, int size) {
+        this.chunks = chunks;
+        this.size = size;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return the position of the first reading taken at or after {@code time}, or {@link #size()} if there is none
+     */
+    public int firstAtOrAfter(Instant time) {
+        return firstAtOrAfter(time.getEpochSecond(), time.getNano());
+    }
+
+    /**
+     * @return the position of the first reading taken after the given time, or {@link #size()} if there is none
+     */
+    public int firstAfter(long epochSecond, int nano) {
+        int position = firstAtOrAfter(epochSecond, nano);
+        return position < size && compare(position, epochSecond, nano) == 0 ? position + 1 : position;
+    }
+
+    /**
+     * Finds the chunk first, by the time of its first reading, and then the reading within it.
+     */
+    int firstAtOrAfter(long epochSecond, int nano) {
+        int low = 0;
+        int high = (size + MeterReadingSeries.CHUNK_MASK) >>> MeterReadingSeries.CHUNK_SHIFT;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (compare(chunks[middle], 0, epochSecond, nano) < 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        if (low == 0) {
+            return 0;
+        }
+        int start = (low - 1) << MeterReadingSeries.CHUNK_SHIFT;
+        return start
+                + chunks[low - 1].firstAtOrAfter(
+                        epochSecond, nano, Math.min(size - start, MeterReadingSeries.CHUNK_SIZE));
+    }
+
+    public long epochSecond(int position) {
+        return chunk(position).epochSecond(position & MeterReadingSeries.CHUNK_MASK);
+    }
+
+    public int nano(int position) {
+        return chunk(position).nano(position & MeterReadingSeries.CHUNK_MASK);
+    }
+
+    /**
+     * @return the reading at {@code position} in micro-kW, see {@link FixedPoint}
+     */
+    public long reading(int position) {
+        return chunk(position).reading(position & MeterReadingSeries.CHUNK_MASK);
+    }
+
+    public int scale(int position) {
+        return chunk(position).scale(position & MeterReadingSeries.CHUNK_MASK);
+    }
+
+    /**
+     * @return a cursor over the readings from position {@code start} (inclusive) to {@code end} (exclusive), which
+     *     reads consecutive readings faster than the methods above
+     */
+    public ReadingCursor cursor(int start, int end) {
+        checkRange(start, end);
+        return new ReadingCursor(chunks, start, end);
+    }
+
+    /**
+     * @return a read-only view over the readings taken from {@code from} (inclusive) until {@code to} (exclusive)
+     */
+    public List<ElectricityReading> between(Instant from, Instant to) {
+        int start = firstAtOrAfter(from);
+        return asList(start, Math.max(start, firstAtOrAfter(to)));
+    }
+
+    /**
+     * @return a read-only view over the readings from position {@code start} (inclusive) to {@code end} (exclusive)
+     */
+    public List<ElectricityReading> asList(int start, int end) {
+        checkRange(start, end);
+        return new RangeView(chunks, start, end);
+    }
+
+    private void checkRange(int start, int end) {
+        if (start < 0 || end > size || start > end) {
+            throw new IndexOutOfBoundsException("[" + start + ", " + end + ") of " + size);
+        }
+    }
+
+    private ReadingChunk chunk(int position) {
+        return chunks[position >>> MeterReadingSeries.CHUNK_SHIFT];
+    }
+
+    private int compare(int position, long epochSecond, int nano) {
+        return compare(chunk(position), position & MeterReadingSeries.CHUNK_MASK, epochSecond, nano);
+    }
+
+    private static int compare(ReadingChunk chunk, int offset, long epochSecond, int nano) {
+        int bySecond = Long.compare(chunk.epochSecond(offset), epochSecond);
+        return bySecond != 0 ? bySecond : Integer.compare(chunk.nano(offset), nano);
+    }
+
+    private static final class RangeView extends AbstractList<ElectricityReading> implements RandomAccess {
+
+        private final ChunkedReadings readings;
+        private final int start;
+        private final int size;
+
+        private RangeView(ReadingChunk[] chunks, int start, int end) {
+            this.readings = new ChunkedReadings(chunks);
+            this.start = start;
+            this.size = end - start;
+        }
+
+        @Override
+        public ElectricityReading get(int position) {
+            if (position < 0 || position >= size) {
+                throw new IndexOutOfBoundsException(position);
+            }
+            return readings.get(start + position);
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+}
@@ -0,0 +1,302 @@
+package uk.tw.energy.store;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.DayOfWeek;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.zip.CRC32C;
+import uk.tw.energy.domain.PricePlan;
+
+/**
+ * Point-in-time copy of the reading store, the accounts and the price plans in a single file, written by
+ * {@link StoreSnapshotWriter} and opened on startup instead of seeding or replaying the whole store.
+ *
+ * <p>The file starts with a header:
+ *
+ * <pre>
+ *  0 magic (8)  8 version (4)  12 meter count (4)  16 taken at, epoch millis (8)  24 price plans offset (8)
+ * 32 accounts offset (8)  40 index offset (8)  48 reading log position (8)  56 unused (8)
+ * </pre>
+ *
+ * followed by the price plans, the accounts, one record per meter and an index of the meters, giving the offset, length,
+ * raw reading count and CRC32C of each record. A record holds the rollups and compaction state of a series and its raw
+ * readings as columns:
+ *
+ * <pre>
+ *  0 daily rollups (4)  4 hourly rollups (4)  8 compacted before, epoch second (8)  16 sum (8)  24 scale (4)
+ * 28 raw readings n (4)  32 rollups (88 each)  then epoch seconds (8n), nanos (4n), readings in micro-kW (8n) and
+ * scales (n)
+ * </pre>
+ *
+ * <p>Only the header, price plans, accounts and index are read when the snapshot is opened. Records are memory-mapped
+ * and a meter's series is only {@link #read rebuilt} when asked for, so a large store opens in the time it takes to
+ * read the index, and memory is only spent on the meters used. No record crosses a {@link #REGION_SIZE} boundary, so
+ * each is read from a single mapping.
+ */
+public final class StoreSnapshot {
+
+    static final long MAGIC = 0x4a4f45534e415031L; // "JOESNAP1"
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 64;
+    static final int SERIES_HEADER_SIZE = 32;
+    static final int ROLLUP_SIZE = 9 * Long.BYTES + 4 * Integer.BYTES;
+    static final int READING_SIZE = 2 * Long.BYTES + Integer.BYTES + 1;
+    static final long REGION_SIZE = 1L << 30;
+
+    private static final StoreSnapshot EMPTY =
+            new StoreSnapshot(null, 0, new ByteBuffer[0], List.of(), Map.of(), Map.of());
+
+    private final Instant takenAt;
+    private final long logPosition;
+    private final ByteBuffer[] regions;
+    private final List<PricePlan> pricePlans;
+    private final Map<String, String> smartMeterToPricePlanAccounts;
+    private final Map<String, MeterRecord> meters;
+
+    private StoreSnapshot(
+            Instant takenAt,
+            long logPosition,
+            ByteBuffer[] regions,
+            List<PricePlan> pricePlans,
+            Map<String, String> smartMeterToPricePlanAccounts,
+            Map<String, MeterRecord> meters) {
+        this.takenAt = takenAt;
+        this.logPosition = logPosition;
+        this.regions = regions;
+        this.pricePlans = pricePlans;
+        this.smartMeterToPricePlanAccounts = smartMeterToPricePlanAccounts;
+        this.meters = meters;
+    }
+
+    public static StoreSnapshot empty() {
+        return EMPTY;
+    }
+
+    /**
+     * @return the snapshot in {@code file}, or an empty one if there is no such file
+     * @throws IllegalStateException if the file is not a snapshot this version can read
+     */
+    public static StoreSnapshot open(Path file) {
+        if (!Files.exists(file)) {
+            return EMPTY;
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            while (header.hasRemaining() && channel.read(header) >= 0) {}
+            header.flip();
+            if (header.remaining() < HEADER_SIZE || header.getLong(0) != MAGIC) {
+                throw new IllegalStateException("Not a store snapshot: " + file);
+            }
+            if (header.getInt(8) != VERSION) {
+                throw new IllegalStateException("Unsupported store snapshot version " + header.getInt(8) + ": " + file);
+            }
+            int meterCount = header.getInt(12);
+            Instant takenAt = Instant.ofEpochMilli(header.getLong(16));
+            List<PricePlan> pricePlans = readPricePlans(section(channel, header.getLong(24)));
+            Map<String, String> accounts = readAccounts(section(channel, header.getLong(32)));
+            Map<String, MeterRecord> meters = readIndex(section(channel, header.getLong(40)), meterCount);
+
+            long size = channel.size();
+            ByteBuffer[] regions = new ByteBuffer[(int) ((size + REGION_SIZE - 1) / REGION_SIZE)];
+            for (int i = 0; i < regions.length; i++) {
+                long start = i * REGION_SIZE;
+                regions[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(REGION_SIZE, size - start));
+            }
+            return new StoreSnapshot(takenAt, header.getLong(48), regions, pricePlans, accounts, meters);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * @return whether the snapshot holds nothing at all
+     */
+    public boolean isEmpty() {
+        return meters.isEmpty() && pricePlans.isEmpty() && smartMeterToPricePlanAccounts.isEmpty();
+    }
+
+    /**
+     * @return when the snapshot was taken, empty for an empty snapshot
+     */
+    public Optional<Instant> takenAt() {
+        return Optional.ofNullable(takenAt);
+    }
+
+    /**
+     * @return the position in the {@link ReadingLog} to replay from on top of the snapshot, 0 for the whole log
+     */
+    public long logPosition() {
+        return logPosition;
+    }
+
+    public List<PricePlan> pricePlans() {
+        return pricePlans;
+    }
+
+    /**
+     * @return every account, as its smart meter id mapped to its price plan id
+     */
+    public Map<String, String> smartMeterToPricePlanAccounts() {
+        return smartMeterToPricePlanAccounts;
+    }
+
+    public Set<String> smartMeterIds() {
+        return Collections.unmodifiableSet(meters.keySet());
+    }
+
+    /**
+     * @return the number of readings the meter holds raw, 0 if it is not in the snapshot
+     */
+    public int size(String smartMeterId) {
+        MeterRecord meter = meters.get(smartMeterId);
+        return meter == null ? 0 : meter.size();
+    }
+
+    /**
+     * Rebuilds the series of one meter from its record.
+     *
+     * @param compressSealedChunks whether the full chunks of the series are compressed
+     * @throws IllegalStateException if the record is corrupt
+     */
+    public Optional<MeterReadingSeries> read(String smartMeterId, boolean compressSealedChunks) {
+        ByteBuffer record = record(smartMeterId);
+        if (record == null) {
+            return Optional.empty();
+        }
+        CRC32C checksum = new CRC32C();
+        checksum.update(record.duplicate());
+        if ((int) checksum.getValue() != meters.get(smartMeterId).checksum()) {
+            throw new IllegalStateException("Corrupt store snapshot record for " + smartMeterId);
+        }
+
+        int dailyCount = record.getInt();
+        int hourlyCount = record.getInt();
+        long compactedBeforeEpochSecond = record.getLong();
+        long sum = record.getLong();
+        int scale = record.getInt();
+        int size = record.getInt();
+        List<ReadingRollup> daily = new ArrayList<>(dailyCount);
+        for (int i = 0; i < dailyCount; i++) {
+            daily.add(readRollup(record));
+        }
+        List<ReadingRollup> hourly = new ArrayList<>(hourlyCount);
+        for (int i = 0; i < hourlyCount; i++) {
+            hourly.add(readRollup(record));
+        }
+
+        int columns = record.position();
+        LongBuffer epochSeconds = record.slice(columns, size * Long.BYTES).asLongBuffer();
+        IntBuffer nanos =
+                record.slice(columns + size * Long.BYTES, size * Integer.BYTES).asIntBuffer();
+        LongBuffer readings = record.slice(columns + size * (Long.BYTES + Integer.BYTES), size * Long.BYTES)
+                .asLongBuffer();
+        int scalesOffset = columns + size * (2 * Long.BYTES + Integer.BYTES);
+        RawReadingChunk[] chunks =
+                new RawReadingChunk[(size + MeterReadingSeries.CHUNK_MASK) >>> MeterReadingSeries.CHUNK_SHIFT];
+        for (int i = 0; i < chunks.length; i++) {
+            int from = i << MeterReadingSeries.CHUNK_SHIFT;
+            int length = Math.min(MeterReadingSeries.CHUNK_SIZE, size - from);
+            RawReadingChunk chunk = new RawReadingChunk(length);
+            epochSeconds.get(from, chunk.epochSeconds, 0, length);
+            nanos.get(from, chunk.nanos, 0, length);
+            readings.get(from, chunk.readings, 0, length);
+            record.get(scalesOffset + from, chunk.scales, 0, length);
+            chunk.size = length;
+            chunks[i] = chunk;
+        }
+        return Optional.of(MeterReadingSeries.restore(
+                compressSealedChunks, daily, hourly, compactedBeforeEpochSecond, chunks, sum, scale));
+    }
+
+    /**
+     * @return the record of one meter, or null if it is not in the snapshot
+     */
+    ByteBuffer record(String smartMeterId) {
+        MeterRecord meter = meters.get(smartMeterId);
+        if (meter == null) {
+            return null;
+        }
+        ByteBuffer region = regions[(int) (meter.offset() / REGION_SIZE)];
+        return region.slice((int) (meter.offset() % REGION_SIZE), meter.length());
+    }
+
+    private static DataInputStream section(FileChannel channel, long offset) throws IOException {
+        // not closed, as that would close the channel
+        return new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel.position(offset)), 1 << 16));
+    }
+
+    private static List<PricePlan> readPricePlans(DataInputStream in) throws IOException {
+        int count = in.readInt();
+        List<PricePlan> pricePlans = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String planName = in.readUTF();
+            String energySupplier = in.readBoolean() ? in.readUTF() : null;
+            BigDecimal unitRate = new BigDecimal(in.readUTF());
+            int multiplierCount = in.readInt();
+            List<PricePlan.PeakTimeMultiplier> multipliers = new ArrayList<>(multiplierCount);
+            for (int j = 0; j < multiplierCount; j++) {
+                multipliers.add(
+                        new PricePlan.PeakTimeMultiplier(DayOfWeek.of(in.readByte()), new BigDecimal(in.readUTF())));
+            }
+            pricePlans.add(new PricePlan(planName, energySupplier, unitRate, multipliers));
+        }
+        return Collections.unmodifiableList(pricePlans);
+    }
+
+    private static Map<String, String> readAccounts(DataInputStream in) throws IOException {
+        int count = in.readInt();
+        Map<String, String> accounts = new HashMap<>((int) (count / 0.75f) + 1);
+        for (int i = 0; i < count; i++) {
+            accounts.put(in.readUTF(), in.readUTF());
+        }
+        return Collections.unmodifiableMap(accounts);
+    }
+
+    private static Map<String, MeterRecord> readIndex(DataInputStream in, int meterCount) throws IOException {
+        if (in.readInt() != meterCount) {
+            throw new IllegalStateException("Store snapshot index does not match its header");
+        }
+        Map<String, MeterRecord> meters = new HashMap<>((int) (meterCount / 0.75f) + 1);
+        for (int i = 0; i < meterCount; i++) {
+            meters.put(in.readUTF(), new MeterRecord(in.readLong(), in.readInt(), in.readInt(), in.readInt()));
+        }
+        return meters;
+    }
+
+    private static ReadingRollup readRollup(ByteBuffer record) {
+        return new ReadingRollup(
+                record.getLong(),
+                record.getInt(),
+                record.getLong(),
+                record.getInt(),
+                record.getLong(),
+                record.getLong(),
+                record.getLong(),
+                record.getInt(),
+                record.getLong(),
+                record.getLong(),
+                record.getInt(),
+                record.getLong(),
+                record.getLong());
+    }
+
+    private record MeterRecord(long offset, int length, int size, int checksum) {}
+}
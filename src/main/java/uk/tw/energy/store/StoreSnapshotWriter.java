@@ -0,0 +1,272 @@
+package uk.tw.energy.store;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32C;
+import uk.tw.energy.domain.PricePlan;
+
+/**
+ * Writes a {@link StoreSnapshot} to a temporary file next to its destination, which replaces the destination
+ * atomically on {@link #commit()}, so that a snapshot is either complete or not there at all. Closing a writer that was
+ * not committed discards what it wrote.
+ */
+public final class StoreSnapshotWriter implements Closeable {
+
+    private final Path file;
+    private final Path temporaryFile;
+    private final FileChannel channel;
+    private final DataOutputStream out;
+    private final ByteArrayOutputStream index = new ByteArrayOutputStream();
+    private final DataOutputStream indexOut = new DataOutputStream(index);
+    private final CRC32C checksum = new CRC32C();
+    private final Instant takenAt;
+    private ByteBuffer record = ByteBuffer.allocate(1 << 16);
+    private long position;
+    private long pricePlansOffset;
+    private long accountsOffset;
+    private long logPosition;
+    private int meters;
+    private boolean committed;
+
+    /**
+     * @param takenAt when the data being written was current
+     */
+    public StoreSnapshotWriter(
+            Path file, Instant takenAt, List<PricePlan> pricePlans, Map<String, String> smartMeterToPricePlanAccounts) {
+        this.file = file;
+        this.temporaryFile = file.resolveSibling(file.getFileName() + ".tmp");
+        this.takenAt = takenAt;
+        try {
+            Files.createDirectories(file.toAbsolutePath().getParent());
+            channel = FileChannel.open(
+                    temporaryFile,
+                    StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING,
+                    StandardOpenOption.WRITE);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel), 1 << 16));
+        try {
+            write(new byte[StoreSnapshot.HEADER_SIZE]);
+            writePricePlans(pricePlans);
+            writeAccounts(smartMeterToPricePlanAccounts);
+        } catch (IOException e) {
+            close();
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Writes the readings of one meter as of {@code snapshot}. Each meter is written at most once.
+     */
+    public void writeSeries(String smartMeterId, ReadingSnapshot snapshot) {
+        ReadingRollup[] rollups = snapshot.rollupArray();
+        int size = snapshot.size();
+        long length = StoreSnapshot.SERIES_HEADER_SIZE
+                + (long) rollups.length * StoreSnapshot.ROLLUP_SIZE
+                + (long) size * StoreSnapshot.READING_SIZE;
+        if (length > StoreSnapshot.REGION_SIZE) {
+            throw new IllegalArgumentException("Too many readings to snapshot for " + smartMeterId);
+        }
+        if (record.capacity() < length) {
+            record = ByteBuffer.allocate((int) Math.min(Math.max(length, record.capacity() * 2L), Integer.MAX_VALUE));
+        }
+        ByteBuffer buffer = record.clear();
+        buffer.putInt(snapshot.dailyRollupCount())
+                .putInt(rollups.length - snapshot.dailyRollupCount())
+                .putLong(snapshot.compactedBeforeEpochSecond())
+                .putLong(snapshot.aggregate().sum())
+                .putInt(snapshot.aggregate().scale())
+                .putInt(size);
+        for (ReadingRollup rollup : rollups) {
+            buffer.putLong(rollup.startEpochSecond())
+                    .putInt(rollup.count())
+                    .putLong(rollup.sum())
+                    .putInt(rollup.scale())
+                    .putLong(rollup.minimum())
+                    .putLong(rollup.maximum())
+                    .putLong(rollup.firstEpochSecond())
+                    .putInt(rollup.firstNano())
+                    .putLong(rollup.firstReading())
+                    .putLong(rollup.lastEpochSecond())
+                    .putInt(rollup.lastNano())
+                    .putLong(rollup.lastReading())
+                    .putLong(rollup.consumption());
+        }
+        // columns rather than rows, so that they are read back in bulk
+        int columns = buffer.position();
+        ReadingCursor cursor = snapshot.cursor();
+        for (int i = 0; cursor.next(); i++) {
+            buffer.putLong(columns + i * Long.BYTES, cursor.epochSecond());
+            buffer.putInt(columns + size * Long.BYTES + i * Integer.BYTES, cursor.nano());
+            buffer.putLong(columns + size * (Long.BYTES + Integer.BYTES) + i * Long.BYTES, cursor.reading());
+            buffer.put(columns + size * (2 * Long.BYTES + Integer.BYTES) + i, (byte) cursor.scale());
+        }
+        buffer.position((int) length).flip();
+        writeRecord(smartMeterId, size, buffer);
+    }
+
+    /**
+     * Writes the readings of one meter as they are in {@code previous}, without reading them.
+     *
+     * @return whether {@code previous} holds the meter
+     */
+    public boolean copySeries(String smartMeterId, StoreSnapshot previous) {
+        ByteBuffer buffer = previous.record(smartMeterId);
+        if (buffer == null) {
+            return false;
+        }
+        writeRecord(smartMeterId, previous.size(smartMeterId), buffer);
+        return true;
+    }
+
+    /**
+     * Records that the snapshot holds everything in the {@link ReadingLog} before {@code logPosition}, see
+     * {@link StoreSnapshot#logPosition()}.
+     */
+    public void setLogPosition(long logPosition) {
+        this.logPosition = logPosition;
+    }
+
+    public long logPosition() {
+        return logPosition;
+    }
+
+    /**
+     * @return the number of meters written so far
+     */
+    public int meters() {
+        return meters;
+    }
+
+    /**
+     * Completes the snapshot, forces it to disk and moves it into place.
+     */
+    public void commit() {
+        try {
+            long indexOffset = position;
+            out.writeInt(meters);
+            position += Integer.BYTES;
+            index.writeTo(out);
+            position += index.size();
+            out.flush();
+
+            ByteBuffer header = ByteBuffer.allocate(StoreSnapshot.HEADER_SIZE)
+                    .putLong(StoreSnapshot.MAGIC)
+                    .putInt(StoreSnapshot.VERSION)
+                    .putInt(meters)
+                    .putLong(takenAt.toEpochMilli())
+                    .putLong(pricePlansOffset)
+                    .putLong(accountsOffset)
+                    .putLong(indexOffset)
+                    .putLong(logPosition)
+                    .flip();
+            channel.write(header, 0);
+            channel.force(true);
+            channel.close();
+            Files.move(temporaryFile, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            committed = true;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void close() {
+        if (committed) {
+            return;
+        }
+        try {
+            channel.close();
+            Files.deleteIfExists(temporaryFile);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void writePricePlans(List<PricePlan> pricePlans) throws IOException {
+        pricePlansOffset = position;
+        ByteArrayOutputStream section = new ByteArrayOutputStream();
+        DataOutputStream sectionOut = new DataOutputStream(section);
+        sectionOut.writeInt(pricePlans.size());
+        for (PricePlan pricePlan : pricePlans) {
+            sectionOut.writeUTF(pricePlan.getPlanName());
+            sectionOut.writeBoolean(pricePlan.getEnergySupplier() != null);
+            if (pricePlan.getEnergySupplier() != null) {
+                sectionOut.writeUTF(pricePlan.getEnergySupplier());
+            }
+            sectionOut.writeUTF(pricePlan.getUnitRate().toString());
+            sectionOut.writeInt(pricePlan.getPeakTimeMultipliers().size());
+            for (PricePlan.PeakTimeMultiplier multiplier : pricePlan.getPeakTimeMultipliers()) {
+                sectionOut.writeByte(multiplier.getDayOfWeek().getValue());
+                sectionOut.writeUTF(multiplier.getMultiplier().toString());
+            }
+        }
+        write(section.toByteArray());
+    }
+
+    private void writeAccounts(Map<String, String> smartMeterToPricePlanAccounts) throws IOException {
+        accountsOffset = position;
+        ByteArrayOutputStream section = new ByteArrayOutputStream();
+        DataOutputStream sectionOut = new DataOutputStream(section);
+        sectionOut.writeInt(smartMeterToPricePlanAccounts.size());
+        for (Map.Entry<String, String> account : smartMeterToPricePlanAccounts.entrySet()) {
+            sectionOut.writeUTF(account.getKey());
+            sectionOut.writeUTF(account.getValue());
+        }
+        write(section.toByteArray());
+    }
+
+    private void writeRecord(String smartMeterId, int size, ByteBuffer buffer) {
+        int length = buffer.remaining();
+        checksum.reset();
+        checksum.update(buffer.duplicate());
+        try {
+            // a record never crosses into the next region, so that it is read from a single mapping
+            long regionEnd = (position / StoreSnapshot.REGION_SIZE + 1) * StoreSnapshot.REGION_SIZE;
+            if (position + length > regionEnd) {
+                write(new byte[(int) (regionEnd - position)]);
+            }
+            long offset = position;
+            if (buffer.hasArray()) {
+                write(buffer.array(), buffer.arrayOffset() + buffer.position(), length);
+            } else {
+                byte[] bytes = new byte[length];
+                buffer.duplicate().get(bytes);
+                write(bytes);
+            }
+            indexOut.writeUTF(smartMeterId);
+            indexOut.writeLong(offset);
+            indexOut.writeInt(length);
+            indexOut.writeInt(size);
+            indexOut.writeInt((int) checksum.getValue());
+            meters++;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void write(byte[] bytes) throws IOException {
+        write(bytes, 0, bytes.length);
+    }
+
+    private void write(byte[] bytes, int offset, int length) throws IOException {
+        out.write(bytes, offset, length);
+        position += length;
+    }
+}
@@ -2,17 +2,32 @@ package uk.tw.energy.controller;
 
 import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
 
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import uk.tw.energy.builders.MeterReadingsBuilder;
 import uk.tw.energy.domain.ElectricityReading;
 import uk.tw.energy.domain.MeterReadings;
+import uk.tw.energy.generator.ElectricityReadingsGenerator;
+import uk.tw.energy.ingestion.BinaryMeterReadings;
+import uk.tw.energy.ingestion.ReadingIngestionQueue;
+import uk.tw.energy.ingestion.StreamingMeterReadingsImporter;
 import uk.tw.energy.service.MeterReadingService;
+import uk.tw.energy.sharding.ShardRouter;
+import uk.tw.energy.store.ReadingBatch;
 
 public class MeterReadingControllerTest {
 
@@ -23,7 +38,8 @@ public class MeterReadingControllerTest {
     @BeforeEach
     public void setUp() {
         this.meterReadingService = new MeterReadingService(new HashMap<>());
-        this.meterReadingController = new MeterReadingController(meterReadingService);
+        this.meterReadingController = new MeterReadingController(
+                meterReadingService, new StreamingMeterReadingsImporter(meterReadingService));
     }
 
     @Test
@@ -65,6 +81,7 @@ public class MeterReadingControllerTest {
         List<ElectricityReading> expectedElectricityReadings = new ArrayList<>();
         expectedElectricityReadings.addAll(meterReadings.electricityReadings());
         expectedElectricityReadings.addAll(otherMeterReadings.electricityReadings());
+        expectedElectricityReadings.sort(Comparator.comparing(ElectricityReading::time));
 
         assertThat(meterReadingService.getReadings(SMART_METER_ID).get()).isEqualTo(expectedElectricityReadings);
     }
@@ -88,9 +105,155 @@ public class MeterReadingControllerTest {
                 .isEqualTo(meterReadings.electricityReadings());
     }
 
+    @Test
+    public void givenBinaryReadingsShouldStoreThem() {
+        ReadingBatch readings = new ReadingBatch(2);
+        readings.add(1_714_089_610L, 0, 1_234_500L, 4);
+        readings.add(1_714_089_620L, 0, 500L, 4);
+
+        assertThat(meterReadingController
+                        .storeBinaryReadings(new BinaryMeterReadings(SMART_METER_ID, readings))
+                        .getStatusCode())
+                .isEqualTo(HttpStatus.OK);
+        assertThat(meterReadingService.getReadings(SMART_METER_ID).get())
+                .isEqualTo(List.of(
+                        new ElectricityReading(Instant.ofEpochSecond(1_714_089_610L), new BigDecimal("1.2345")),
+                        new ElectricityReading(Instant.ofEpochSecond(1_714_089_620L), new BigDecimal("0.0005"))));
+        assertThat(meterReadingController
+                        .storeBinaryReadings(new BinaryMeterReadings("", readings))
+                        .getStatusCode())
+                .isEqualTo(HttpStatus.INTERNAL_SERVER_ERROR);
+    }
+
+    @Test
+    public void givenAsyncIngestionShouldAcceptReadingsUntilTheQueueIsFull() throws Exception {
+        CountDownLatch storing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        MeterReadingService blockedMeterReadingService = new MeterReadingService(new HashMap<>()) {
+            @Override
+            public int storeReadings(String smartMeterId, ReadingBatch electricityReadings) {
+                storing.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return super.storeReadings(smartMeterId, electricityReadings);
+            }
+        };
+        ReadingIngestionQueue queue = new ReadingIngestionQueue(blockedMeterReadingService, 1, 1, 1);
+        MeterReadingController controller = new MeterReadingController(
+                blockedMeterReadingService,
+                new StreamingMeterReadingsImporter(blockedMeterReadingService),
+                queue,
+                ShardRouter.disabled());
+        MeterReadings stored = new MeterReadingsBuilder()
+                .setSmartMeterId(SMART_METER_ID)
+                .generateElectricityReadings()
+                .build();
+        MeterReadings queued = new MeterReadingsBuilder()
+                .setSmartMeterId("00001")
+                .generateElectricityReadings()
+                .build();
+
+        // the consumer takes the first readings and blocks storing them, and the second fill the queue
+        assertThat(controller.storeReadings(stored).getStatusCode()).isEqualTo(HttpStatus.ACCEPTED);
+        assertThat(storing.await(10, TimeUnit.SECONDS)).isTrue();
+        assertThat(controller.storeReadings(queued).getStatusCode()).isEqualTo(HttpStatus.ACCEPTED);
+        ResponseEntity<?> rejected = controller.storeReadings(new MeterReadingsBuilder()
+                .setSmartMeterId("00002")
+                .generateElectricityReadings()
+                .build());
+        assertThat(rejected.getStatusCode()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+        assertThat(rejected.getHeaders().getFirst("Retry-After")).isEqualTo(MeterReadingController.RETRY_AFTER_SECONDS);
+
+        release.countDown();
+        queue.close();
+        assertThat(blockedMeterReadingService.getReadings(SMART_METER_ID).get())
+                .isEqualTo(stored.electricityReadings());
+        assertThat(blockedMeterReadingService.getReadings("00001").get()).isEqualTo(queued.electricityReadings());
+        assertThat(blockedMeterReadingService.getReadings("00002")).isEmpty();
+    }
+
+    @Test
+    public void givenAClosedIngestionQueueShouldReturnServiceUnavailable() {
+        ReadingIngestionQueue queue = new ReadingIngestionQueue(meterReadingService, 1, 1, 1);
+        MeterReadingController controller = new MeterReadingController(
+                meterReadingService,
+                new StreamingMeterReadingsImporter(meterReadingService),
+                queue,
+                ShardRouter.disabled());
+        queue.close();
+
+        ResponseEntity<?> rejected = controller.storeReadings(new MeterReadingsBuilder()
+                .setSmartMeterId(SMART_METER_ID)
+                .generateElectricityReadings()
+                .build());
+        assertThat(rejected.getStatusCode()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+        assertThat(rejected.getHeaders().getFirst("Retry-After")).isEqualTo(MeterReadingController.RETRY_AFTER_SECONDS);
+        assertThat(meterReadingService.getReadings(SMART_METER_ID)).isEmpty();
+    }
+
     @Test
     public void givenMeterIdThatIsNotRecognisedShouldReturnNotFound() {
-        assertThat(meterReadingController.readReadings(SMART_METER_ID).getStatusCode())
+        assertThat(meterReadingController
+                        .readReadings(SMART_METER_ID, null, null, null, null, null)
+                        .getStatusCode())
                 .isEqualTo(HttpStatus.NOT_FOUND);
     }
+
+    @Test
+    public void givenAnInvalidResolutionShouldReturnBadRequest() {
+        meterReadingService.storeReadings(SMART_METER_ID, new ElectricityReadingsGenerator().generate(3));
+
+        assertThat(meterReadingController
+                        .readReadings(SMART_METER_ID, null, null, "fortnightly", null, null)
+                        .getStatusCode())
+                .isEqualTo(HttpStatus.BAD_REQUEST);
+        assertThat(meterReadingController
+                        .readReadings(SMART_METER_ID, null, null, "500ms", null, null)
+                        .getStatusCode())
+                .isEqualTo(HttpStatus.BAD_REQUEST);
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void givenALimitShouldPageThroughReadingsInTimeOrder() {
+        List<ElectricityReading> readings = new ElectricityReadingsGenerator().generate(5);
+        List<ElectricityReading> reversed = new ArrayList<>(readings);
+        Collections.reverse(reversed);
+        meterReadingService.storeReadings(SMART_METER_ID, reversed);
+
+        List<ElectricityReading> paged = new ArrayList<>();
+        String cursor = null;
+        int pages = 0;
+        do {
+            ResponseEntity<?> response =
+                    meterReadingController.readReadings(SMART_METER_ID, null, null, null, cursor, 2);
+            paged.addAll((List<ElectricityReading>) response.getBody());
+            cursor = response.getHeaders().getFirst(MeterReadingController.NEXT_CURSOR_HEADER);
+            pages++;
+        } while (cursor != null);
+
+        assertThat(pages).isEqualTo(3);
+        assertThat(paged).isEqualTo(readings);
+    }
+
+    @Test
+    public void givenAnInvalidCursorShouldReturnBadRequest() {
+        meterReadingService.storeReadings(SMART_METER_ID, new ElectricityReadingsGenerator().generate(3));
+
+        assertThat(meterReadingController
+                        .readReadings(SMART_METER_ID, null, null, null, "not-a-cursor", 2)
+                        .getStatusCode())
+                .isEqualTo(HttpStatus.BAD_REQUEST);
+    }
+
+    @Test
+    public void givenMalformedBulkReadingsShouldReturnBadRequest() throws Exception {
+        InputStream meterReadings = new ByteArrayInputStream("[{\"smartMeterId\": ".getBytes(StandardCharsets.UTF_8));
+
+        assertThat(meterReadingController.storeBulkReadings(meterReadings).getStatusCode())
+                .isEqualTo(HttpStatus.BAD_REQUEST);
+    }
 }
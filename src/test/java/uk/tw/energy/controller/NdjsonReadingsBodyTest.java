@@ -0,0 +1,53 @@
+package uk.tw.energy.controller;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import uk.tw.energy.domain.ElectricityReading;
+import uk.tw.energy.generator.ElectricityReadingsGenerator;
+import uk.tw.energy.store.MeterReadingSeries;
+import uk.tw.energy.store.ReadingTimeIndex;
+
+public class NdjsonReadingsBodyTest {
+
+    @Test
+    public void givenReadingsShouldWriteOneJsonObjectPerLineWithTheStoredScale() throws Exception {
+        MeterReadingSeries series = new MeterReadingSeries();
+        series.append(List.of(
+                new ElectricityReading(Instant.parse("2024-04-26T00:00:10Z"), new BigDecimal("10")),
+                new ElectricityReading(Instant.parse("2024-04-26T00:00:20.5Z"), new BigDecimal("2.50")),
+                new ElectricityReading(Instant.parse("2024-04-26T00:00:30Z"), new BigDecimal("0.000001")),
+                new ElectricityReading(Instant.parse("2024-04-26T00:00:40Z"), new BigDecimal("-1.5"))));
+        ReadingTimeIndex index = series.timeIndex();
+
+        assertThat(write(new ReadingsPage(index, 0, index.size(), null)))
+                .isEqualTo(
+                        """
+                        {"time":"2024-04-26T00:00:10Z","reading":10}
+                        {"time":"2024-04-26T00:00:20.500Z","reading":2.50}
+                        {"time":"2024-04-26T00:00:30Z","reading":0.000001}
+                        {"time":"2024-04-26T00:00:40Z","reading":-1.5}
+                        """);
+    }
+
+    @Test
+    public void givenMoreReadingsThanAreFlushedAtOnceShouldWriteThemAll() throws Exception {
+        MeterReadingSeries series = new MeterReadingSeries();
+        series.append(new ElectricityReadingsGenerator().generate(NdjsonReadingsBody.FLUSH_EVERY * 2 + 1));
+        ReadingTimeIndex index = series.timeIndex();
+
+        assertThat(write(new ReadingsPage(index, 1, index.size(), null)).lines())
+                .hasSize(NdjsonReadingsBody.FLUSH_EVERY * 2);
+    }
+
+    private static String write(ReadingsPage page) throws Exception {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        new NdjsonReadingsBody(page).writeTo(output);
+        return output.toString(StandardCharsets.UTF_8);
+    }
+}
@@ -62,4 +62,41 @@ public class PricePlanTest {
 
         assertThat(price).isCloseTo(BigDecimal.TEN, Percentage.withPercentage(1));
     }
+
+    @Test
+    public void shouldApplyTheFirstMultiplierGivenForADay() {
+        LocalDateTime exceptionalDateTime = LocalDateTime.of(2017, Month.AUGUST, 30, 23, 0, 0);
+        List<PricePlan.PeakTimeMultiplier> peakTimeMultipliers = Arrays.asList(
+                new PricePlan.PeakTimeMultiplier(DayOfWeek.WEDNESDAY, BigDecimal.TEN),
+                new PricePlan.PeakTimeMultiplier(DayOfWeek.WEDNESDAY, BigDecimal.valueOf(2)));
+        PricePlan pricePlan = new PricePlan(null, null, BigDecimal.ONE, peakTimeMultipliers);
+
+        BigDecimal price = pricePlan.getPrice(exceptionalDateTime);
+
+        assertThat(price).isCloseTo(BigDecimal.TEN, Percentage.withPercentage(1));
+    }
+
+    @Test
+    public void shouldOnlyBeTimeOfUseGivenPeakTimeMultipliers() {
+        PricePlan flatPricePlan = new PricePlan(null, null, BigDecimal.ONE, null);
+        PricePlan timeOfUsePricePlan = new PricePlan(
+                null,
+                null,
+                BigDecimal.ONE,
+                singletonList(new PricePlan.PeakTimeMultiplier(DayOfWeek.MONDAY, BigDecimal.TEN)));
+
+        assertThat(flatPricePlan.isTimeOfUse()).isFalse();
+        assertThat(timeOfUsePricePlan.isTimeOfUse()).isTrue();
+    }
+
+    @Test
+    public void shouldNotBeTimeOfUseGivenPeakTimeMultipliersThatLeaveThePriceUnchanged() {
+        PricePlan pricePlan = new PricePlan(
+                null,
+                null,
+                new BigDecimal("0.5"),
+                singletonList(new PricePlan.PeakTimeMultiplier(DayOfWeek.MONDAY, BigDecimal.ONE)));
+
+        assertThat(pricePlan.isTimeOfUse()).isFalse();
+    }
 }
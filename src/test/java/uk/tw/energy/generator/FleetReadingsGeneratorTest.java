@@ -0,0 +1,62 @@
+package uk.tw.energy.generator;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+import java.time.Duration;
+import java.time.Instant;
+import org.junit.jupiter.api.Test;
+import uk.tw.energy.store.ReadingBatch;
+
+public class FleetReadingsGeneratorTest {
+
+    private static final long MONDAY = Instant.parse("2024-04-22T00:00:00Z").getEpochSecond();
+
+    private final FleetReadingsGenerator generator =
+            new FleetReadingsGenerator(42, DailyLoadProfile.RESIDENTIAL, Duration.ofMinutes(15));
+
+    @Test
+    public void givenTheSameSeedShouldGenerateTheSameReadingsForAMeterInAnyOrder() {
+        ReadingBatch meter7 = generator.generate(7, MONDAY, 96);
+        generator.generate(3, MONDAY, 96);
+
+        ReadingBatch again = new FleetReadingsGenerator(42, DailyLoadProfile.RESIDENTIAL, Duration.ofMinutes(15))
+                .generate(7, MONDAY, 96);
+        ReadingBatch otherSeed = new FleetReadingsGenerator(43, DailyLoadProfile.RESIDENTIAL, Duration.ofMinutes(15))
+                .generate(7, MONDAY, 96);
+
+        for (int i = 0; i < meter7.size(); i++) {
+            assertThat(again.epochSecond(i)).isEqualTo(meter7.epochSecond(i));
+            assertThat(again.reading(i)).isEqualTo(meter7.reading(i));
+        }
+        assertThat(otherSeed.reading(0)).isNotEqualTo(meter7.reading(0));
+    }
+
+    @Test
+    public void givenAPeriodShouldGenerateReadingsInTimeOrderAtTheInterval() {
+        ReadingBatch readings = generator.generate(0, MONDAY, 96);
+
+        assertThat(readings.size()).isEqualTo(96);
+        for (int i = 0; i < readings.size(); i++) {
+            assertThat(readings.epochSecond(i)).isEqualTo(MONDAY + i * 900L);
+            assertThat(readings.scale(i)).isEqualTo(FleetReadingsGenerator.SCALE);
+            assertThat(readings.reading(i)).isPositive();
+        }
+    }
+
+    @Test
+    public void givenAResidentialProfileShouldUseMoreInTheEveningThanOvernight() {
+        double evening = 0;
+        double overnight = 0;
+        for (int meter = 0; meter < 1_000; meter++) {
+            evening += generator.generate(meter, MONDAY + 19 * 3_600, 1).reading(0);
+            overnight += generator.generate(meter, MONDAY + 3 * 3_600, 1).reading(0);
+        }
+
+        assertThat(evening).isGreaterThan(3 * overnight);
+        DailyLoadProfile profile = DailyLoadProfile.RESIDENTIAL;
+        assertThat(profile.demand(MONDAY + 19 * 3_600 + 1_800))
+                .isCloseTo(
+                        (profile.demand(MONDAY + 19 * 3_600) + profile.demand(MONDAY + 20 * 3_600)) / 2, within(1e-9));
+    }
+}
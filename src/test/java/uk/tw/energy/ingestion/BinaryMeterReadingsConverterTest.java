@@ -0,0 +1,88 @@
+package uk.tw.energy.ingestion;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.mock.http.MockHttpInputMessage;
+import org.springframework.mock.http.MockHttpOutputMessage;
+import uk.tw.energy.store.ReadingBatch;
+
+public class BinaryMeterReadingsConverterTest {
+
+    private final BinaryMeterReadingsConverter converter = new BinaryMeterReadingsConverter();
+
+    @Test
+    public void givenAFrameShouldDecodeItIntoFixedPointReadings() throws IOException {
+        byte[] body = frame("meter-0", 4, 1_714_089_610L, 12_345L, 1_714_089_620L, 5L);
+
+        BinaryMeterReadings meterReadings = read(body);
+
+        ReadingBatch readings = meterReadings.electricityReadings();
+        assertThat(meterReadings.smartMeterId()).isEqualTo("meter-0");
+        assertThat(readings.size()).isEqualTo(2);
+        assertThat(readings.epochSecond(0)).isEqualTo(1_714_089_610L);
+        assertThat(readings.reading(0)).isEqualTo(1_234_500L);
+        assertThat(readings.scale(0)).isEqualTo(4);
+        assertThat(readings.epochSecond(1)).isEqualTo(1_714_089_620L);
+        assertThat(readings.reading(1)).isEqualTo(500L);
+    }
+
+    @Test
+    public void givenReadingsShouldWriteTheFrameTheyAreReadFrom() throws IOException {
+        byte[] body = frame("meter-0", 2, 1_714_089_610L, 125L, 1_714_089_620L, -1L);
+        MockHttpOutputMessage output = new MockHttpOutputMessage();
+
+        converter.write(read(body), BinaryMeterReadingsConverter.MEDIA_TYPE, output);
+
+        assertThat(output.getBodyAsBytes()).isEqualTo(body);
+    }
+
+    @Test
+    public void givenATruncatedFrameShouldRejectIt() {
+        byte[] body = frame("meter-0", 4, 1_714_089_610L, 12_345L);
+        byte[] truncated = Arrays.copyOf(body, body.length - 1);
+
+        assertThatThrownBy(() -> read(truncated)).isInstanceOf(HttpMessageNotReadableException.class);
+    }
+
+    @Test
+    public void givenDataAfterTheReadingsShouldRejectIt() {
+        byte[] body = frame("meter-0", 4, 1_714_089_610L, 12_345L);
+        byte[] extended = Arrays.copyOf(body, body.length + 1);
+
+        assertThatThrownBy(() -> read(extended)).isInstanceOf(HttpMessageNotReadableException.class);
+    }
+
+    @Test
+    public void givenAnInvalidScaleOrReadingShouldRejectIt() {
+        assertThatThrownBy(() -> read(frame("meter-0", 7, 1_714_089_610L, 1L)))
+                .isInstanceOf(HttpMessageNotReadableException.class);
+        assertThatThrownBy(() -> read(frame("meter-0", 0, 1_714_089_610L, Long.MAX_VALUE)))
+                .isInstanceOf(HttpMessageNotReadableException.class);
+    }
+
+    private BinaryMeterReadings read(byte[] body) throws IOException {
+        MockHttpInputMessage input = new MockHttpInputMessage(body);
+        input.getHeaders().setContentType(BinaryMeterReadingsConverter.MEDIA_TYPE);
+        return converter.read(BinaryMeterReadings.class, input);
+    }
+
+    /**
+     * @param readings pairs of epoch second and reading in units of 10^-scale kW
+     */
+    static byte[] frame(String smartMeterId, int scale, long... readings) {
+        byte[] id = smartMeterId.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer frame = ByteBuffer.allocate(Short.BYTES + id.length + 1 + Integer.BYTES + readings.length * 8);
+        frame.putShort((short) id.length).put(id).put((byte) scale).putInt(readings.length / 2);
+        for (long value : readings) {
+            frame.putLong(value);
+        }
+        return frame.array();
+    }
+}
@@ -0,0 +1,116 @@
+package uk.tw.energy.ingestion;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import org.junit.jupiter.api.Test;
+import uk.tw.energy.service.MeterReadingService;
+import uk.tw.energy.store.ReadingBatch;
+
+public class ReadingIngestionQueueTest {
+
+    @Test
+    public void shouldStoreQueuedReadingsGroupedByMeterOnceClosed() {
+        RecordingMeterReadingService meterReadingService = new RecordingMeterReadingService();
+        CountDownLatch release = meterReadingService.block();
+        ReadingIngestionQueue queue = new ReadingIngestionQueue(meterReadingService, 10, 1, 10);
+
+        queue.offer("meter-0", readings(0, 2));
+        meterReadingService.awaitBlocked();
+        queue.offer("meter-1", readings(10, 1));
+        queue.offer("meter-2", readings(20, 1));
+        queue.offer("meter-1", readings(11, 2));
+        release.countDown();
+        queue.close();
+
+        assertThat(meterReadingService.stored).containsExactly("meter-0:2", "meter-1:3", "meter-2:1");
+        assertThat(meterReadingService.getReadings("meter-1").get()).hasSize(3);
+    }
+
+    @Test
+    public void givenAFullQueueShouldRejectReadings() {
+        RecordingMeterReadingService meterReadingService = new RecordingMeterReadingService();
+        CountDownLatch release = meterReadingService.block();
+        ReadingIngestionQueue queue = new ReadingIngestionQueue(meterReadingService, 1, 1, 10);
+
+        assertThat(queue.offer("meter-0", readings(0, 1))).isTrue();
+        meterReadingService.awaitBlocked();
+        assertThat(queue.offer("meter-0", readings(1, 1))).isTrue();
+        assertThat(queue.offer("meter-0", readings(2, 1))).isFalse();
+        assertThat(queue.depth()).isEqualTo(1);
+
+        release.countDown();
+        queue.close();
+        assertThat(meterReadingService.getReadings("meter-0").get()).hasSize(2);
+        assertThat(queue.offer("meter-0", readings(3, 1))).isFalse();
+    }
+
+    @Test
+    public void givenAClosedQueueShouldRejectReadingsWithoutQueueingThem() {
+        RecordingMeterReadingService meterReadingService = new RecordingMeterReadingService();
+        ReadingIngestionQueue queue = new ReadingIngestionQueue(meterReadingService, 10, 1, 10);
+        queue.close();
+
+        assertThat(queue.offer("meter-0", readings(0, 1))).isFalse();
+        assertThat(queue.depth()).isZero();
+        assertThat(meterReadingService.getReadings("meter-0")).isEmpty();
+    }
+
+    @Test
+    public void givenAsyncIngestionIsDisabledShouldReportItIsNotEnabled() {
+        assertThat(ReadingIngestionQueue.disabled().isEnabled()).isFalse();
+        assertThat(ReadingIngestionQueue.disabled().depth()).isZero();
+    }
+
+    private static ReadingBatch readings(long firstEpochSecond, int count) {
+        ReadingBatch readings = new ReadingBatch(count);
+        for (int i = 0; i < count; i++) {
+            readings.add(firstEpochSecond + i, 0, 1_000_000L, 1);
+        }
+        return readings;
+    }
+
+    private static class RecordingMeterReadingService extends MeterReadingService {
+
+        private final List<String> stored = new ArrayList<>();
+        private final CountDownLatch entered = new CountDownLatch(1);
+        private CountDownLatch blocked = new CountDownLatch(0);
+
+        RecordingMeterReadingService() {
+            super(new HashMap<>());
+        }
+
+        /**
+         * @return releases the first store, which waits until then
+         */
+        CountDownLatch block() {
+            blocked = new CountDownLatch(1);
+            return blocked;
+        }
+
+        void awaitBlocked() {
+            try {
+                entered.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        @Override
+        public int storeReadings(String smartMeterId, ReadingBatch electricityReadings) {
+            entered.countDown();
+            try {
+                blocked.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            synchronized (stored) {
+                stored.add(smartMeterId + ":" + electricityReadings.size());
+            }
+            return super.storeReadings(smartMeterId, electricityReadings);
+        }
+    }
+}
@@ -0,0 +1,171 @@
+package uk.tw.energy.ingestion;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.ByteArrayInputStream;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.net.ConnectException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import uk.tw.energy.domain.BulkStoreResult;
+import uk.tw.energy.domain.ElectricityReading;
+import uk.tw.energy.domain.StoredReadingsCount;
+import uk.tw.energy.service.MeterReadingService;
+import uk.tw.energy.sharding.ShardClient;
+import uk.tw.energy.sharding.ShardRouter;
+import uk.tw.energy.store.ReadingBatch;
+
+public class StreamingMeterReadingsImporterTest {
+
+    private MeterReadingService meterReadingService;
+    private StreamingMeterReadingsImporter importer;
+
+    @BeforeEach
+    public void setUp() {
+        meterReadingService = new MeterReadingService(new HashMap<>());
+        importer = new StreamingMeterReadingsImporter(meterReadingService);
+    }
+
+    @Test
+    public void givenAnArrayOfMeterReadingsShouldStoreThemPerMeter() throws Exception {
+        String body =
+                """
+                [
+                  {"smartMeterId": "meter-0", "electricityReadings": [
+                    {"time": "2024-04-26T00:00:10Z", "reading": 0.1},
+                    {"time": "2024-04-26T00:00:20Z", "reading": 0.25}
+                  ]},
+                  {"electricityReadings": [{"time": "2024-04-26T00:00:10Z", "reading": 3}], "smartMeterId": "meter-1"}
+                ]
+                """;
+
+        BulkStoreResult result = importReadings(body);
+
+        assertThat(result.meters())
+                .isEqualTo(Map.of(
+                        "meter-0", new StoredReadingsCount(2, 0),
+                        "meter-1", new StoredReadingsCount(1, 0)));
+        assertThat(meterReadingService.getReadings("meter-0").get())
+                .isEqualTo(List.of(
+                        new ElectricityReading(Instant.parse("2024-04-26T00:00:10Z"), new BigDecimal("0.1")),
+                        new ElectricityReading(Instant.parse("2024-04-26T00:00:20Z"), new BigDecimal("0.25"))));
+        assertThat(meterReadingService.getReadings("meter-1").get())
+                .isEqualTo(List.of(new ElectricityReading(Instant.parse("2024-04-26T00:00:10Z"), new BigDecimal("3"))));
+    }
+
+    @Test
+    public void givenNewlineDelimitedMeterReadingsShouldStoreThem() throws Exception {
+        String body =
+                """
+                {"smartMeterId": "meter-0", "electricityReadings": [{"time": "2024-04-26T00:00:10Z", "reading": 1}]}
+                {"smartMeterId": "meter-0", "electricityReadings": [{"time": "2024-04-26T00:00:20Z", "reading": 2}]}
+                """;
+
+        BulkStoreResult result = importReadings(body);
+
+        assertThat(result.meters()).isEqualTo(Map.of("meter-0", new StoredReadingsCount(2, 0)));
+        assertThat(meterReadingService.getReadings("meter-0").get()).hasSize(2);
+    }
+
+    @Test
+    public void givenReadingsAlreadyStoredShouldNotCountThemAsAccepted() throws Exception {
+        String body =
+                """
+                {"smartMeterId": "meter-0", "electricityReadings": [{"time": "2024-04-26T00:00:10Z", "reading": 1}]}
+                {"smartMeterId": "meter-0", "electricityReadings": [
+                  {"time": "2024-04-26T00:00:10Z", "reading": 1},
+                  {"time": "2024-04-26T00:00:20Z", "reading": 2}
+                ]}
+                """;
+
+        BulkStoreResult result = importReadings(body);
+
+        assertThat(result.meters()).isEqualTo(Map.of("meter-0", new StoredReadingsCount(2, 0)));
+        assertThat(meterReadingService.getReadings("meter-0").get()).hasSize(2);
+    }
+
+    @Test
+    public void givenInvalidReadingsShouldRejectOnlyThose() throws Exception {
+        String body =
+                """
+                {"smartMeterId": "meter-0", "electricityReadings": [
+                  {"time": "2024-04-26T00:00:10Z", "reading": 1},
+                  {"time": "yesterday", "reading": 1},
+                  {"time": "2024-04-26T00:00:30Z"},
+                  {"time": "2024-04-26T00:00:40Z", "reading": "lots"},
+                  42
+                ]}
+                {"electricityReadings": [{"time": "2024-04-26T00:00:10Z", "reading": 1}]}
+                """;
+
+        BulkStoreResult result = importReadings(body);
+
+        assertThat(result.meters()).isEqualTo(Map.of("meter-0", new StoredReadingsCount(1, 4)));
+        assertThat(result.rejectedWithoutSmartMeterId()).isEqualTo(1);
+    }
+
+    @Test
+    public void givenMoreReadingsThanABatchShouldStoreThemAll() throws Exception {
+        int readings = StreamingMeterReadingsImporter.BATCH_SIZE * 2 + 1;
+
+        BulkStoreResult result = importReadings(readingsBody("meter-0", readings));
+
+        assertThat(result.meters()).isEqualTo(Map.of("meter-0", new StoredReadingsCount(readings, 0)));
+        assertThat(meterReadingService.getSeries("meter-0").get().aggregate().count())
+                .isEqualTo(readings);
+    }
+
+    @Test
+    public void givenAnUnreachableOwnerShouldRejectEachFailedBatchOnce() throws Exception {
+        URI self = URI.create("http://localhost:8081");
+        URI owner = URI.create("http://localhost:8082");
+        ShardRouter shardRouter = new ShardRouter(List.of(self, owner), self, 16);
+        String smartMeterId = IntStream.range(0, 100)
+                .mapToObj(meter -> "smart-meter-" + meter)
+                .filter(id -> !shardRouter.isLocal(id))
+                .findFirst()
+                .orElseThrow();
+        AtomicInteger requests = new AtomicInteger();
+        ShardClient unreachable = new ShardClient(new ObjectMapper(), Duration.ofSeconds(1)) {
+            @Override
+            public void storeReadings(URI node, String smartMeterId, ReadingBatch readings) {
+                requests.incrementAndGet();
+                throw new UncheckedIOException(new ConnectException("Connection refused"));
+            }
+        };
+        importer = new StreamingMeterReadingsImporter(meterReadingService, shardRouter, unreachable);
+        int readings = StreamingMeterReadingsImporter.BATCH_SIZE * 2 + 1;
+
+        BulkStoreResult result = importReadings(readingsBody(smartMeterId, readings));
+
+        assertThat(result.meters()).isEqualTo(Map.of(smartMeterId, new StoredReadingsCount(0, readings)));
+        assertThat(requests.get()).isEqualTo(3);
+    }
+
+    private static String readingsBody(String smartMeterId, int readings) {
+        StringBuilder body =
+                new StringBuilder("{\"smartMeterId\": \"" + smartMeterId + "\", \"electricityReadings\": [");
+        for (int i = 0; i < readings; i++) {
+            body.append(i == 0 ? "" : ",")
+                    .append("{\"time\": ")
+                    .append(1714089600 + i * 10)
+                    .append(", \"reading\": 0.5}");
+        }
+        return body.append("]}").toString();
+    }
+
+    private BulkStoreResult importReadings(String body) throws Exception {
+        return importer.importReadings(new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)));
+    }
+}
@@ -3,6 +3,7 @@ package uk.tw.energy.service;
 import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
 
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -26,4 +27,20 @@ public class AccountServiceTest {
     public void givenTheSmartMeterIdReturnsThePricePlanId() throws Exception {
         assertThat(accountService.getPricePlanIdForSmartMeterId(SMART_METER_ID)).isEqualTo(PRICE_PLAN_ID);
     }
+
+    @Test
+    public void givenASharedRegistryShouldFindTheAccountByTheHandleOfItsMeter() {
+        SmartMeterRegistry registry = new SmartMeterRegistry();
+        registry.register("another-smart-meter-id");
+        accountService = new AccountService(Map.of(SMART_METER_ID, PRICE_PLAN_ID), registry);
+
+        int handle = registry.handleOf(SMART_METER_ID);
+        assertThat(handle).isEqualTo(1);
+        assertThat(accountService.accountHandles().boxed().toList()).isEqualTo(List.of(handle));
+        assertThat(accountService.getSmartMeterId(handle)).isEqualTo(SMART_METER_ID);
+        assertThat(accountService.getPricePlanId(handle)).isEqualTo(PRICE_PLAN_ID);
+        assertThat(accountService.getPricePlanIdForSmartMeterId("another-smart-meter-id"))
+                .isNull();
+        assertThat(accountService.getSmartMeterToPricePlanAccounts()).isEqualTo(Map.of(SMART_METER_ID, PRICE_PLAN_ID));
+    }
 }
@@ -0,0 +1,167 @@
+package uk.tw.energy.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.math.BigDecimal;
+import java.time.DayOfWeek;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+import uk.tw.energy.domain.CostThresholdAlert;
+import uk.tw.energy.domain.CostToDate;
+import uk.tw.energy.domain.ElectricityReading;
+import uk.tw.energy.domain.PricePlan;
+import uk.tw.energy.store.ReadingLog;
+import uk.tw.energy.store.ReadingStoreProperties;
+import uk.tw.energy.store.StoreSnapshot;
+
+public class CostToDateAccumulatorTest {
+
+    private static final String SMART_METER_ID = "smart-meter-0";
+    private static final String FLAT_PLAN_ID = "flat-plan";
+    private static final String TIME_OF_USE_PLAN_ID = "time-of-use-plan";
+    private static final List<PricePlan> PRICE_PLANS = List.of(
+            new PricePlan(FLAT_PLAN_ID, null, BigDecimal.ONE, List.of()),
+            new PricePlan(
+                    TIME_OF_USE_PLAN_ID,
+                    null,
+                    new BigDecimal("0.5"),
+                    List.of(new PricePlan.PeakTimeMultiplier(DayOfWeek.TUESDAY, BigDecimal.valueOf(4)))));
+
+    private final List<CostThresholdAlert> alerts = new ArrayList<>();
+
+    @Test
+    public void givenReadingsStoredShouldCostThemOnTheAccountsPricePlanAndAlertEachThresholdOnce() {
+        MeterReadingService meterReadingService = meterReadingService(Map.of(), FLAT_PLAN_ID);
+
+        // 1 kW for two hours at 1 per kWh
+        meterReadingService.storeReadings(
+                SMART_METER_ID,
+                List.of(
+                        reading("2024-01-01T00:00:00Z", "1"),
+                        reading("2024-01-01T01:00:00Z", "1"),
+                        reading("2024-01-01T02:00:00Z", "1")));
+        // a reading stored out of order is not costed
+        meterReadingService.storeReadings(SMART_METER_ID, List.of(reading("2024-01-01T00:30:00Z", "9")));
+        meterReadingService.storeReadings(SMART_METER_ID, List.of(reading("2024-01-01T02:30:00Z", "1")));
+
+        assertThat(meterReadingService.getCostToDate(SMART_METER_ID))
+                .contains(new CostToDate(
+                        SMART_METER_ID,
+                        FLAT_PLAN_ID,
+                        LocalDate.parse("2024-01-01"),
+                        new BigDecimal("2.5000"),
+                        Instant.parse("2024-01-01T02:30:00Z")));
+        assertThat(alerts)
+                .containsExactly(new CostThresholdAlert(
+                        SMART_METER_ID,
+                        FLAT_PLAN_ID,
+                        LocalDate.parse("2024-01-01"),
+                        new BigDecimal("1.5"),
+                        new BigDecimal("2.0000"),
+                        Instant.parse("2024-01-01T02:00:00Z")));
+    }
+
+    @Test
+    public void givenATimeOfUsePlanShouldPriceEachIntervalOnTheDayItStarts() {
+        MeterReadingService meterReadingService = meterReadingService(Map.of(), TIME_OF_USE_PLAN_ID);
+
+        // 2024-01-01 is a Monday: an hour at 0.5, then an hour starting on Tuesday at 2
+        meterReadingService.storeReadings(
+                SMART_METER_ID,
+                List.of(
+                        reading("2024-01-01T23:00:00Z", "2"),
+                        reading("2024-01-02T00:00:00Z", "2"),
+                        reading("2024-01-02T01:00:00Z", "2")));
+
+        assertThat(meterReadingService.getCostToDate(SMART_METER_ID).map(CostToDate::cost))
+                .contains(new BigDecimal("5.0000"));
+    }
+
+    @Test
+    public void givenABatchOutOfTimeOrderShouldCostTheReadingsAsStored() {
+        MeterReadingService meterReadingService = meterReadingService(Map.of(), FLAT_PLAN_ID);
+
+        meterReadingService.storeReadings(
+                SMART_METER_ID,
+                List.of(
+                        reading("2024-01-01T02:00:00Z", "1"),
+                        reading("2024-01-01T00:00:00Z", "1"),
+                        reading("2024-01-01T01:00:00Z", "1")));
+        // taken at the same time as a stored reading, so not stored
+        meterReadingService.storeReadings(SMART_METER_ID, List.of(reading("2024-01-01T02:00:00Z", "9")));
+
+        assertThat(meterReadingService.getCostToDate(SMART_METER_ID).map(CostToDate::cost))
+                .contains(new BigDecimal("2.0000"));
+        assertThat(alerts).extracting(CostThresholdAlert::threshold).containsExactly(new BigDecimal("1.5"));
+    }
+
+    @Test
+    public void givenAReadingInTheNextBillingPeriodShouldStartCostingItAgain() {
+        MeterReadingService meterReadingService = meterReadingService(Map.of(), FLAT_PLAN_ID);
+
+        meterReadingService.storeReadings(
+                SMART_METER_ID, List.of(reading("2024-01-31T22:00:00Z", "1"), reading("2024-02-01T00:00:00Z", "1")));
+        meterReadingService.storeReadings(
+                SMART_METER_ID, List.of(reading("2024-02-01T01:00:00Z", "1"), reading("2024-02-01T03:00:00Z", "1")));
+
+        assertThat(meterReadingService.getCostToDate(SMART_METER_ID)).hasValueSatisfying(costToDate -> {
+            assertThat(costToDate.billingPeriodStart()).isEqualTo(LocalDate.parse("2024-02-01"));
+            assertThat(costToDate.cost()).isEqualTo(new BigDecimal("3.0000"));
+        });
+        assertThat(alerts)
+                .extracting(CostThresholdAlert::billingPeriodStart)
+                .containsExactly(LocalDate.parse("2024-01-01"), LocalDate.parse("2024-02-01"));
+    }
+
+    @Test
+    public void givenReadingsStoredBeforeStartupShouldCostThemWithoutAlertingAgain() {
+        MeterReadingService meterReadingService = meterReadingService(
+                Map.of(
+                        SMART_METER_ID,
+                        List.of(reading("2024-01-01T00:00:00Z", "1"), reading("2024-01-01T02:00:00Z", "1"))),
+                FLAT_PLAN_ID);
+
+        meterReadingService.storeReadings(SMART_METER_ID, List.of(reading("2024-01-01T03:00:00Z", "1")));
+
+        assertThat(meterReadingService.getCostToDate(SMART_METER_ID).map(CostToDate::cost))
+                .contains(new BigDecimal("3.0000"));
+        assertThat(alerts).isEmpty();
+    }
+
+    @Test
+    public void givenAMeterWithoutAnAccountShouldNotCostIt() {
+        MeterReadingService meterReadingService = meterReadingService(Map.of(), FLAT_PLAN_ID);
+
+        meterReadingService.storeReadings(
+                "smart-meter-without-account",
+                List.of(reading("2024-01-01T00:00:00Z", "1"), reading("2024-01-01T01:00:00Z", "1")));
+
+        assertThat(meterReadingService.getCostToDate("smart-meter-without-account"))
+                .isEmpty();
+        assertThat(meterReadingService.getCostToDate("unknown-id")).isEmpty();
+    }
+
+    private MeterReadingService meterReadingService(
+            Map<String, List<ElectricityReading>> readings, String pricePlanId) {
+        SmartMeterRegistry registry = new SmartMeterRegistry();
+        AccountService accountService = new AccountService(Map.of(SMART_METER_ID, pricePlanId), registry);
+        CostToDateAccumulator costToDate = new CostToDateAccumulator(
+                accountService, PRICE_PLANS, 1, List.of(new BigDecimal("1.5")), List.of(alerts::add));
+        return new MeterReadingService(
+                new HashMap<>(readings),
+                ReadingLog.disabled(),
+                new ReadingStoreProperties(false),
+                StoreSnapshot.empty(),
+                registry,
+                costToDate);
+    }
+
+    private static ElectricityReading reading(String time, String reading) {
+        return new ElectricityReading(Instant.parse(time), new BigDecimal(reading));
+    }
+}
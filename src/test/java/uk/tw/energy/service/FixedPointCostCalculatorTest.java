@@ -0,0 +1,118 @@
+package uk.tw.energy.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+import java.time.DayOfWeek;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+import uk.tw.energy.domain.PricePlan;
+import uk.tw.energy.store.ReadingAggregate;
+
+public class FixedPointCostCalculatorTest {
+
+    private final Random random = new Random(20240426);
+
+    @Test
+    public void givenRandomReadingsAndPlansShouldCalculateTheSameCostsAsTheReference() {
+        int compared = 0;
+        for (int run = 0; run < 500; run++) {
+            List<PricePlan> pricePlans = randomPricePlans();
+            FixedPointCostCalculator fixedPoint = new FixedPointCostCalculator(pricePlans);
+            BigDecimalCostCalculator reference = new BigDecimalCostCalculator(pricePlans);
+
+            for (int meter = 0; meter < 50; meter++) {
+                ReadingAggregate aggregate = randomAggregate();
+                long[] consumptionByDayOfWeek = randomConsumptionByDayOfWeek();
+
+                Map<String, BigDecimal> expected = reference.calculateCosts(aggregate, consumptionByDayOfWeek);
+                Map<String, BigDecimal> actual;
+                try {
+                    actual = fixedPoint.calculateCosts(aggregate, consumptionByDayOfWeek);
+                } catch (ArithmeticException e) {
+                    continue;
+                }
+                assertThat(actual).as("%s with %s", aggregate, pricePlans).isEqualTo(expected);
+            }
+        }
+    }
+
+    @Test
+    public void givenReadingsThatSpanNoTimeShouldFailLikeTheReference() {
+        List<PricePlan> pricePlans = List.of(new PricePlan("plan", null, BigDecimal.ONE, List.of()));
+        ReadingAggregate aggregate = new ReadingAggregate(1, 1_000_000, 0, 100, 0, 100, 0);
+
+        assertThatThrownBy(() -> new BigDecimalCostCalculator(pricePlans).calculateCosts(aggregate, null))
+                .isInstanceOf(ArithmeticException.class);
+        assertThatThrownBy(() -> new FixedPointCostCalculator(pricePlans).calculateCosts(aggregate, null))
+                .isInstanceOf(ArithmeticException.class);
+    }
+
+    @Test
+    public void givenProductsBeyondALongShouldDivideTheExactProduct() {
+        for (int run = 0; run < 100_000; run++) {
+            long multiplicand = random.nextLong() >> random.nextInt(64);
+            long multiplier = random.nextLong() >> random.nextInt(64);
+            long divisor = random.nextLong() >> random.nextInt(63);
+            if (divisor == 0) {
+                continue;
+            }
+            BigInteger expected = new BigDecimal(
+                            BigInteger.valueOf(multiplicand).multiply(BigInteger.valueOf(multiplier)))
+                    .divide(BigDecimal.valueOf(divisor), 0, RoundingMode.HALF_UP)
+                    .toBigIntegerExact();
+
+            if (expected.bitLength() < Long.SIZE) {
+                assertThat(FixedPointCostCalculator.divideHalfUp(multiplicand, multiplier, divisor))
+                        .isEqualTo(expected.longValueExact());
+            } else {
+                assertThatThrownBy(() -> FixedPointCostCalculator.divideHalfUp(multiplicand, multiplier, divisor))
+                        .isInstanceOf(ArithmeticException.class);
+            }
+        }
+    }
+
+    private List<PricePlan> randomPricePlans() {
+        List<PricePlan> pricePlans = new ArrayList<>();
+        for (int plan = 0; plan < 4; plan++) {
+            List<PricePlan.PeakTimeMultiplier> multipliers = new ArrayList<>();
+            if (random.nextBoolean()) {
+                for (int day = 0; day < 3; day++) {
+                    multipliers.add(new PricePlan.PeakTimeMultiplier(
+                            DayOfWeek.of(1 + random.nextInt(7)), randomDecimal(1_000, 3)));
+                }
+            }
+            pricePlans.add(new PricePlan("plan-" + plan, null, randomDecimal(100_000, 4), multipliers));
+        }
+        return pricePlans;
+    }
+
+    private ReadingAggregate randomAggregate() {
+        int count = 1 + random.nextInt(100_000);
+        int scale = random.nextInt(7);
+        long unit = BigDecimal.ONE.movePointRight(6 - scale).longValueExact();
+        long sum = (random.nextLong() >> (20 + random.nextInt(40))) / unit * unit;
+        long earliest = 1_700_000_000L + random.nextInt(1_000_000);
+        long elapsed =
+                random.nextInt(4) == 0 ? 1 + random.nextInt(10) : 1 + (random.nextLong() >>> (18 + random.nextInt(40)));
+        return new ReadingAggregate(count, sum, scale, earliest, 0, earliest + elapsed, random.nextInt(1_000_000_000));
+    }
+
+    private long[] randomConsumptionByDayOfWeek() {
+        long[] consumption = new long[7];
+        for (int day = 0; day < consumption.length; day++) {
+            consumption[day] = random.nextInt(3) == 0 ? 0 : random.nextLong() >>> (10 + random.nextInt(50));
+        }
+        return consumption;
+    }
+
+    private BigDecimal randomDecimal(int bound, int maximumScale) {
+        return BigDecimal.valueOf(random.nextInt(bound), random.nextInt(maximumScale + 1));
+    }
+}
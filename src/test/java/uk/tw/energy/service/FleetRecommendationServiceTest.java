@@ -0,0 +1,74 @@
+package uk.tw.energy.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import uk.tw.energy.domain.ElectricityReading;
+import uk.tw.energy.domain.FleetRecommendationSummary;
+import uk.tw.energy.domain.MeterRecommendation;
+import uk.tw.energy.domain.PricePlan;
+import uk.tw.energy.generator.ElectricityReadingsGenerator;
+
+public class FleetRecommendationServiceTest {
+
+    private static final int METER_COUNT = 10_000;
+
+    private PricePlanService pricePlanService;
+    private FleetRecommendationService fleetRecommendationService;
+
+    @BeforeEach
+    public void setUp() {
+        ElectricityReadingsGenerator electricityReadingsGenerator = new ElectricityReadingsGenerator();
+        Map<String, List<ElectricityReading>> readings = new HashMap<>();
+        Map<String, String> accounts = new HashMap<>();
+        for (int meter = 0; meter < METER_COUNT; meter++) {
+            accounts.put("meter-" + meter, "expensive");
+            readings.put("meter-" + meter, electricityReadingsGenerator.generate(5));
+        }
+        accounts.put("meter-without-readings", "cheap");
+
+        pricePlanService = new PricePlanService(
+                List.of(
+                        new PricePlan("expensive", null, BigDecimal.TEN, List.of()),
+                        new PricePlan("cheap", null, BigDecimal.ONE, List.of())),
+                new MeterReadingService(readings));
+        fleetRecommendationService = new FleetRecommendationService(new AccountService(accounts), pricePlanService, 4);
+    }
+
+    @Test
+    public void shouldRecommendPricePlansForEveryMeterWithReadings() throws Exception {
+        Map<String, MeterRecommendation> recommendations = new ConcurrentHashMap<>();
+
+        FleetRecommendationSummary summary = fleetRecommendationService.recommendAll(
+                recommendation -> recommendations.put(recommendation.smartMeterId(), recommendation));
+
+        assertThat(summary.meters()).isEqualTo(METER_COUNT);
+        assertThat(summary.metersSkipped()).isEqualTo(1);
+        assertThat(recommendations).hasSize(METER_COUNT);
+        MeterRecommendation recommendation = recommendations.get("meter-42");
+        Map<String, BigDecimal> costs = pricePlanService
+                .getConsumptionCostOfElectricityReadingsForEachPricePlan("meter-42")
+                .get();
+        assertThat(recommendation.pricePlanId()).isEqualTo("expensive");
+        assertThat(recommendation.recommendations())
+                .containsExactly(
+                        Map.entry("cheap", costs.get("cheap")), Map.entry("expensive", costs.get("expensive")));
+    }
+
+    @Test
+    public void givenTheConsumerFailsShouldStopAndRethrow() {
+        assertThatThrownBy(() -> fleetRecommendationService.recommendAll(recommendation -> {
+                    throw new IOException("client went away");
+                }))
+                .isInstanceOf(IOException.class)
+                .hasMessage("client went away");
+    }
+}
@@ -1,12 +1,36 @@
 package uk.tw.energy.service;
 
 import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
+import static org.assertj.core.api.AssertionsForClassTypes.assertThatThrownBy;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import uk.tw.energy.domain.ElectricityReading;
+import uk.tw.energy.domain.ReadingBucket;
+import uk.tw.energy.generator.ElectricityReadingsGenerator;
+import uk.tw.energy.store.FsyncPolicy;
+import uk.tw.energy.store.MappedReadingLog;
+import uk.tw.energy.store.ReadingLog;
+import uk.tw.energy.store.ReadingStoreProperties;
+import uk.tw.energy.store.StoreSnapshot;
+import uk.tw.energy.store.StoreSnapshotWriter;
 
 public class MeterReadingServiceTest {
 
@@ -27,4 +51,285 @@ public class MeterReadingServiceTest {
         meterReadingService.storeReadings("random-id", new ArrayList<>());
         assertThat(meterReadingService.getReadings("random-id")).isEqualTo(Optional.of(new ArrayList<>()));
     }
+
+    @Test
+    public void givenAResolutionShouldSummariseReadingsWithinTheRangeIntoBuckets() {
+        meterReadingService.storeReadings(
+                "random-id",
+                List.of(
+                        new ElectricityReading(Instant.parse("2024-04-26T00:00:10Z"), new BigDecimal("0.5")),
+                        new ElectricityReading(Instant.parse("2024-04-26T00:14:59Z"), new BigDecimal("1.5")),
+                        new ElectricityReading(Instant.parse("2024-04-26T00:15:00Z"), new BigDecimal("1")),
+                        new ElectricityReading(Instant.parse("2024-04-26T00:16:00Z"), new BigDecimal("2")),
+                        new ElectricityReading(Instant.parse("2024-04-26T00:30:00Z"), new BigDecimal("9"))));
+
+        Optional<List<ReadingBucket>> buckets = meterReadingService.getReadingBuckets(
+                "random-id",
+                Instant.parse("2024-04-26T00:00:00Z"),
+                Instant.parse("2024-04-26T00:30:00Z"),
+                Duration.ofMinutes(15));
+
+        assertThat(buckets)
+                .isEqualTo(Optional.of(List.of(
+                        new ReadingBucket(
+                                Instant.parse("2024-04-26T00:00:00Z"),
+                                2,
+                                new BigDecimal("0.5"),
+                                new BigDecimal("1.0"),
+                                new BigDecimal("1.5")),
+                        new ReadingBucket(
+                                Instant.parse("2024-04-26T00:15:00Z"),
+                                2,
+                                new BigDecimal("1"),
+                                new BigDecimal("2"),
+                                new BigDecimal("2")))));
+    }
+
+    @Test
+    public void givenStoredReadingsShouldPublishIngestAndStoreSizeMetrics() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        meterReadingService.bindTo(registry);
+        meterReadingService.storeReadings("small", new ElectricityReadingsGenerator().generate(2));
+        meterReadingService.storeReadings("large", new ElectricityReadingsGenerator().generate(10));
+        meterReadingService.storeReadings("large", new ElectricityReadingsGenerator().generate(5));
+
+        assertThat(registry.get("readings.stored").functionCounter().count()).isEqualTo(17.0);
+        assertThat(registry.get("readings.batches.stored").functionCounter().count())
+                .isEqualTo(3.0);
+        assertThat(registry.get("readings.store.meters").gauge().value()).isEqualTo(2.0);
+        assertThat(registry.get("readings.store.readings").gauge().value()).isEqualTo(17.0);
+        assertThat(registry.get("readings.store.size").gauge().value()).isGreaterThan(17.0 * 21);
+        assertThat(registry.get("readings.per.meter")
+                        .tag("quantile", "0.5")
+                        .gauge()
+                        .value())
+                .isEqualTo(2.0);
+        assertThat(registry.get("readings.per.meter")
+                        .tag("quantile", "1.0")
+                        .gauge()
+                        .value())
+                .isEqualTo(15.0);
+    }
+
+    @Test
+    public void givenCompactedReadingsShouldCombineRollupsWithRawReadingsIntoBuckets() {
+        List<ElectricityReading> readings = new ArrayList<>();
+        Instant start = Instant.parse("2024-04-24T00:00:00Z");
+        for (int reading = 0; reading < 3 * 24 * 4; reading++) {
+            readings.add(
+                    new ElectricityReading(start.plusSeconds(reading * 900L), BigDecimal.valueOf(reading % 11 + 1, 2)));
+        }
+        meterReadingService.storeReadings("compacted", readings);
+        List<ReadingBucket> daily = meterReadingService
+                .getReadingBuckets("compacted", Instant.MIN, Instant.MAX, Duration.ofDays(1))
+                .get();
+        List<ReadingBucket> hourly = meterReadingService
+                .getReadingBuckets("compacted", Instant.MIN, Instant.MAX, Duration.ofHours(1))
+                .get();
+
+        long compacted = meterReadingService.compact(
+                Instant.parse("2024-04-26T06:00:00Z"), Instant.parse("2024-04-25T00:00:00Z"));
+
+        assertThat(compacted).isEqualTo((2 * 24 + 6) * 4);
+        assertThat(meterReadingService.getReadings("compacted").get().size()).isEqualTo(18 * 4);
+        assertThat(meterReadingService.getReadingBuckets("compacted", Instant.MIN, Instant.MAX, Duration.ofDays(1)))
+                .isEqualTo(Optional.of(daily));
+        assertThat(meterReadingService
+                        .getReadingBuckets(
+                                "compacted", start.plus(Duration.ofDays(1)), Instant.MAX, Duration.ofHours(1))
+                        .get())
+                .isEqualTo(hourly.subList(24, hourly.size()));
+    }
+
+    @Test
+    public void givenAReadingLogShouldRestoreReadingsInsteadOfSampleReadings(@TempDir Path directory) {
+        List<ElectricityReading> readings = new ElectricityReadingsGenerator().generate(3);
+        try (ReadingLog readingLog = new MappedReadingLog(directory, 4096, FsyncPolicy.ALWAYS, Duration.ofSeconds(1))) {
+            meterReadingService(new HashMap<>(), readingLog, StoreSnapshot.empty())
+                    .storeReadings("meter-0", readings);
+        }
+
+        Map<String, List<ElectricityReading>> sampleReadings =
+                Map.of("sample-meter", new ElectricityReadingsGenerator().generate(3));
+        try (ReadingLog readingLog = new MappedReadingLog(directory, 4096, FsyncPolicy.ALWAYS, Duration.ofSeconds(1))) {
+            MeterReadingService restarted = meterReadingService(sampleReadings, readingLog, StoreSnapshot.empty());
+
+            assertThat(restarted.getReadings("meter-0")).isEqualTo(Optional.of(readings));
+            assertThat(restarted.getReadings("sample-meter")).isEqualTo(Optional.empty());
+        }
+    }
+
+    @Test
+    public void givenABatchThatCannotBeStoredShouldLeaveTheReadingLogUnchanged(@TempDir Path directory) {
+        Instant now = Instant.now();
+        ElectricityReading stored = new ElectricityReading(now, new BigDecimal("5000000000000"));
+        try (ReadingLog readingLog = new MappedReadingLog(directory, 4096, FsyncPolicy.ALWAYS, Duration.ofSeconds(1))) {
+            MeterReadingService service = meterReadingService(new HashMap<>(), readingLog, StoreSnapshot.empty());
+            service.storeReadings("meter-0", List.of(stored));
+
+            // the sum of the readings no longer fits
+            assertThatThrownBy(() -> service.storeReadings(
+                            "meter-0",
+                            List.of(new ElectricityReading(now.plusSeconds(10), new BigDecimal("5000000000000")))))
+                    .isInstanceOf(ArithmeticException.class);
+            assertThat(service.getReadings("meter-0")).isEqualTo(Optional.of(List.of(stored)));
+        }
+
+        try (ReadingLog readingLog = new MappedReadingLog(directory, 4096, FsyncPolicy.ALWAYS, Duration.ofSeconds(1))) {
+            MeterReadingService restarted = meterReadingService(new HashMap<>(), readingLog, StoreSnapshot.empty());
+
+            assertThat(restarted.getReadings("meter-0")).isEqualTo(Optional.of(List.of(stored)));
+        }
+    }
+
+    @Test
+    public void givenAStoreSnapshotShouldRestoreMetersWhenFirstUsed(@TempDir Path directory) {
+        List<ElectricityReading> readings = new ElectricityReadingsGenerator().generate(3);
+        meterReadingService.storeReadings("meter-0", readings);
+        meterReadingService.storeReadings("meter-1", readings);
+        Path file = directory.resolve("store.snapshot");
+        try (StoreSnapshotWriter writer = new StoreSnapshotWriter(file, Instant.now(), List.of(), Map.of())) {
+            assertThat(meterReadingService.writeSnapshot(writer)).isEqualTo(2);
+            writer.commit();
+        }
+
+        Map<String, List<ElectricityReading>> sampleReadings =
+                Map.of("sample-meter", new ElectricityReadingsGenerator().generate(3));
+        MeterReadingService restarted =
+                meterReadingService(sampleReadings, ReadingLog.disabled(), StoreSnapshot.open(file));
+
+        assertThat(restarted.statistics().meters()).isEqualTo(2);
+        assertThat(restarted.statistics().readings()).isEqualTo(6);
+        assertThat(restarted.getReadings("meter-0")).isEqualTo(Optional.of(readings));
+        assertThat(restarted.getReadings("sample-meter")).isEqualTo(Optional.empty());
+
+        // compacting rolls up the readings of meter-0 but leaves meter-1 in the snapshot
+        Instant later = Instant.now().plus(Duration.ofHours(2));
+        assertThat(restarted.compact(later, later)).isEqualTo(3);
+
+        // meter-1 was never restored, so it is copied from the first snapshot
+        Path next = directory.resolve("next.snapshot");
+        try (StoreSnapshotWriter writer = new StoreSnapshotWriter(next, Instant.now(), List.of(), Map.of())) {
+            assertThat(restarted.writeSnapshot(writer)).isEqualTo(2);
+            writer.commit();
+        }
+        MeterReadingService restartedAgain =
+                meterReadingService(Map.of(), ReadingLog.disabled(), StoreSnapshot.open(next));
+        assertThat(restartedAgain.getReadings("meter-1")).isEqualTo(Optional.of(readings));
+    }
+
+    @Test
+    public void givenAStoreSnapshotShouldReplayOnlyTheReadingLogAfterIt(@TempDir Path directory) {
+        List<ElectricityReading> readings = new ElectricityReadingsGenerator().generate(6);
+        Path logDirectory = directory.resolve("log");
+        Path file = directory.resolve("store.snapshot");
+        try (ReadingLog readingLog =
+                new MappedReadingLog(logDirectory, 4096, FsyncPolicy.ALWAYS, Duration.ofSeconds(1))) {
+            MeterReadingService service = meterReadingService(new HashMap<>(), readingLog, StoreSnapshot.empty());
+            service.storeReadings("meter-0", readings.subList(0, 3));
+            service.storeReadings("meter-1", readings.subList(0, 3));
+            try (StoreSnapshotWriter writer = new StoreSnapshotWriter(file, Instant.now(), List.of(), Map.of())) {
+                service.writeSnapshot(writer);
+                writer.commit();
+                service.truncateLog(writer.logPosition());
+            }
+            service.storeReadings("meter-0", readings.subList(3, 6));
+        }
+
+        try (ReadingLog readingLog =
+                new MappedReadingLog(logDirectory, 4096, FsyncPolicy.ALWAYS, Duration.ofSeconds(1))) {
+            MeterReadingService restarted = meterReadingService(Map.of(), readingLog, StoreSnapshot.open(file));
+
+            assertThat(restarted.getReadings("meter-0")).isEqualTo(Optional.of(readings));
+            assertThat(restarted.getReadings("meter-1")).isEqualTo(Optional.of(readings.subList(0, 3)));
+        }
+
+        // only meter-0 has readings in the log after the snapshot, so meter-1 is left in it
+        try (ReadingLog readingLog =
+                new MappedReadingLog(logDirectory, 4096, FsyncPolicy.ALWAYS, Duration.ofSeconds(1))) {
+            MeterReadingService restarted = meterReadingService(Map.of(), readingLog, StoreSnapshot.open(file));
+
+            Instant later = Instant.now().plus(Duration.ofHours(2));
+            assertThat(restarted.compact(later, later)).isEqualTo(6);
+        }
+    }
+
+    @Test
+    public void givenConcurrentWritersShouldNotLoseReadings() throws Exception {
+        int writers = 8;
+        int batchesPerWriter = 500;
+        int batchSize = 7;
+        List<String> smartMeterIds = List.of("meter-0", "meter-1", "meter-2");
+
+        ExecutorService executor = Executors.newFixedThreadPool(writers + 1);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicBoolean writing = new AtomicBoolean(true);
+        AtomicBoolean tornBatchSeen = new AtomicBoolean(false);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int writer = 0; writer < writers; writer++) {
+                int firstBatch = writer;
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < batchesPerWriter; i++) {
+                        // writers interleave in time, so most batches are merged in behind later ones
+                        List<ElectricityReading> batch = new ArrayList<>();
+                        long firstSecond = (long) (i * writers + firstBatch) * batchSize;
+                        for (int reading = 0; reading < batchSize; reading++) {
+                            batch.add(new ElectricityReading(
+                                    Instant.ofEpochSecond(1_714_089_600L + firstSecond + reading), BigDecimal.ONE));
+                        }
+                        meterReadingService.storeReadings(smartMeterIds.get(i % smartMeterIds.size()), batch);
+                    }
+                    return null;
+                }));
+            }
+            Future<?> reader = executor.submit(() -> {
+                start.await();
+                while (writing.get()) {
+                    for (String smartMeterId : smartMeterIds) {
+                        meterReadingService.getReadings(smartMeterId).ifPresent(readings -> {
+                            if (readings.size() % batchSize != 0) {
+                                tornBatchSeen.set(true);
+                            }
+                            for (int i = 1; i < readings.size(); i++) {
+                                if (!readings.get(i - 1)
+                                        .time()
+                                        .isBefore(readings.get(i).time())) {
+                                    tornBatchSeen.set(true);
+                                }
+                            }
+                        });
+                    }
+                }
+                return null;
+            });
+
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+            writing.set(false);
+            reader.get(30, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        int totalReadings = smartMeterIds.stream()
+                .mapToInt(id -> meterReadingService.getReadings(id).get().size())
+                .sum();
+        assertThat(totalReadings).isEqualTo(writers * batchesPerWriter * batchSize);
+        assertThat(tornBatchSeen.get()).isFalse();
+    }
+
+    private static MeterReadingService meterReadingService(
+            Map<String, List<ElectricityReading>> sampleReadings, ReadingLog readingLog, StoreSnapshot storeSnapshot) {
+        return new MeterReadingService(
+                sampleReadings,
+                readingLog,
+                new ReadingStoreProperties(false),
+                storeSnapshot,
+                new SmartMeterRegistry(),
+                CostToDateAccumulator.disabled());
+    }
 }
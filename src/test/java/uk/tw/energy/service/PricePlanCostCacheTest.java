@@ -0,0 +1,67 @@
+package uk.tw.energy.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import uk.tw.energy.domain.ElectricityReading;
+import uk.tw.energy.domain.PricePlan;
+
+public class PricePlanCostCacheTest {
+
+    private static final String SMART_METER_ID = "smart-meter-id";
+
+    private MeterReadingService meterReadingService;
+    private PricePlanCostCache pricePlanCostCache;
+    private PricePlanService pricePlanService;
+
+    @BeforeEach
+    public void setUp() {
+        meterReadingService = new MeterReadingService(new HashMap<>());
+        pricePlanCostCache = new PricePlanCostCache(100, Duration.ofMinutes(1));
+        pricePlanService = new PricePlanService(
+                List.of(new PricePlan("plan", null, BigDecimal.ONE, List.of())),
+                meterReadingService,
+                pricePlanCostCache);
+        storeReading("2024-04-26T00:00:00Z", "1.0");
+        storeReading("2024-04-26T01:00:00Z", "1.0");
+    }
+
+    @Test
+    public void givenNoNewReadingsShouldReturnCachedCosts() {
+        Map<String, BigDecimal> first = costs();
+        Map<String, BigDecimal> second = costs();
+
+        assertThat(second).isSameAs(first);
+        assertThat(pricePlanCostCache.stats().missCount()).isEqualTo(1);
+        assertThat(pricePlanCostCache.stats().hitCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void givenNewReadingsShouldRecalculateCosts() {
+        costs();
+
+        storeReading("2024-04-26T02:00:00Z", "4.0");
+
+        assertThat(costs()).isEqualTo(Map.of("plan", new BigDecimal("1.0")));
+        assertThat(pricePlanCostCache.stats().missCount()).isEqualTo(2);
+        assertThat(pricePlanCostCache.stats().hitCount()).isZero();
+    }
+
+    private Map<String, BigDecimal> costs() {
+        return pricePlanService
+                .getConsumptionCostOfElectricityReadingsForEachPricePlan(SMART_METER_ID)
+                .get();
+    }
+
+    private void storeReading(String time, String reading) {
+        meterReadingService.storeReadings(
+                SMART_METER_ID, List.of(new ElectricityReading(Instant.parse(time), new BigDecimal(reading))));
+    }
+}
@@ -0,0 +1,167 @@
+package uk.tw.energy.service;
+
+import static java.util.Collections.emptyList;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.math.BigDecimal;
+import java.time.DayOfWeek;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import uk.tw.energy.domain.ElectricityReading;
+import uk.tw.energy.domain.PricePlan;
+
+public class PricePlanServiceTest {
+
+    private static final String SMART_METER_ID = "smart-meter-id";
+    private static final String FLAT_PLAN_ID = "flat";
+    private static final String PEAK_WEDNESDAY_PLAN_ID = "peak-wednesday";
+
+    private MeterReadingService meterReadingService;
+    private PricePlanService pricePlanService;
+
+    @BeforeEach
+    public void setUp() {
+        meterReadingService = new MeterReadingService(new HashMap<>());
+        PricePlan flatPlan = new PricePlan(FLAT_PLAN_ID, null, BigDecimal.ONE, emptyList());
+        PricePlan peakWednesdayPlan = new PricePlan(
+                PEAK_WEDNESDAY_PLAN_ID,
+                null,
+                BigDecimal.ONE,
+                List.of(new PricePlan.PeakTimeMultiplier(DayOfWeek.WEDNESDAY, BigDecimal.valueOf(3))));
+        pricePlanService = new PricePlanService(List.of(flatPlan, peakWednesdayPlan), meterReadingService);
+    }
+
+    @Test
+    public void givenNoReadingsShouldReturnEmpty() {
+        assertThat(pricePlanService.getConsumptionCostOfElectricityReadingsForEachPricePlan(SMART_METER_ID))
+                .isEmpty();
+    }
+
+    @Test
+    public void givenReadingsSpanningAPeakDayShouldPriceEachIntervalAtItsDaysRate() {
+        meterReadingService.storeReadings(
+                SMART_METER_ID,
+                List.of(
+                        new ElectricityReading(Instant.parse("2024-04-23T23:00:00Z"), new BigDecimal("1.0")),
+                        new ElectricityReading(Instant.parse("2024-04-24T00:00:00Z"), new BigDecimal("1.0")),
+                        new ElectricityReading(Instant.parse("2024-04-24T01:00:00Z"), new BigDecimal("1.0"))));
+
+        Map<String, BigDecimal> costs = pricePlanService
+                .getConsumptionCostOfElectricityReadingsForEachPricePlan(SMART_METER_ID)
+                .get();
+
+        assertThat(costs)
+                .isEqualTo(Map.of(FLAT_PLAN_ID, new BigDecimal("0.5"), PEAK_WEDNESDAY_PLAN_ID, new BigDecimal("1.0")));
+    }
+
+    @Test
+    public void givenReadingsOutsideThePeakDayShouldPriceAtTheUnitRate() {
+        meterReadingService.storeReadings(
+                SMART_METER_ID,
+                List.of(
+                        new ElectricityReading(Instant.parse("2024-04-25T00:00:00Z"), new BigDecimal("1.0")),
+                        new ElectricityReading(Instant.parse("2024-04-25T02:00:00Z"), new BigDecimal("1.0"))));
+
+        Map<String, BigDecimal> costs = pricePlanService
+                .getConsumptionCostOfElectricityReadingsForEachPricePlan(SMART_METER_ID)
+                .get();
+
+        assertThat(costs.get(PEAK_WEDNESDAY_PLAN_ID)).isEqualByComparingTo(costs.get(FLAT_PLAN_ID));
+    }
+
+    @Test
+    public void givenCompactedReadingsShouldCostTheSameAsBeforeCompaction() {
+        List<ElectricityReading> readings = new ArrayList<>();
+        Instant start = Instant.parse("2024-04-22T22:00:00Z");
+        for (int reading = 0; reading < 3 * 24 * 6; reading++) {
+            readings.add(new ElectricityReading(
+                    start.plusSeconds(reading * 600L + reading % 7), BigDecimal.valueOf(reading % 13 + 1, 1)));
+        }
+        meterReadingService.storeReadings(SMART_METER_ID, readings);
+        Map<String, BigDecimal> costs = pricePlanService
+                .getConsumptionCostOfElectricityReadingsForEachPricePlan(SMART_METER_ID)
+                .get();
+
+        meterReadingService.compact(Instant.parse("2024-04-25T03:30:00Z"), Instant.parse("2024-04-24T12:00:00Z"));
+
+        assertThat(pricePlanService
+                        .getConsumptionCostOfElectricityReadingsForEachPricePlan(SMART_METER_ID)
+                        .get())
+                .isEqualTo(costs);
+    }
+
+    @Test
+    public void givenTimeOfUsePlansShouldRecommendTheCheapestPlansForWhenElectricityWasUsed() {
+        List<PricePlan> pricePlans = List.of(
+                new PricePlan("flat-3", null, BigDecimal.valueOf(3), emptyList()),
+                new PricePlan(
+                        "half-off-peak",
+                        null,
+                        new BigDecimal("0.5"),
+                        List.of(new PricePlan.PeakTimeMultiplier(DayOfWeek.WEDNESDAY, BigDecimal.TEN))),
+                new PricePlan("flat-1", null, BigDecimal.ONE, emptyList()),
+                new PricePlan("flat-2", null, BigDecimal.valueOf(2), emptyList()));
+        PricePlanService service = new PricePlanService(pricePlans, meterReadingService);
+        meterReadingService.storeReadings(
+                "wednesday",
+                List.of(
+                        new ElectricityReading(Instant.parse("2024-04-24T00:00:00Z"), new BigDecimal("1.0")),
+                        new ElectricityReading(Instant.parse("2024-04-24T02:00:00Z"), new BigDecimal("1.0"))));
+        meterReadingService.storeReadings(
+                "thursday",
+                List.of(
+                        new ElectricityReading(Instant.parse("2024-04-25T00:00:00Z"), new BigDecimal("1.0")),
+                        new ElectricityReading(Instant.parse("2024-04-25T02:00:00Z"), new BigDecimal("1.0"))));
+
+        assertThat(service.getCheapestPricePlans("wednesday", 2).get())
+                .extracting(Map.Entry::getKey)
+                .containsExactly("flat-1", "flat-2");
+        assertThat(service.getCheapestPricePlans("thursday", 2).get())
+                .extracting(Map.Entry::getKey)
+                .containsExactly("half-off-peak", "flat-1");
+    }
+
+    @Test
+    public void givenAnyLimitShouldRecommendTheSameCostsAsSortingEveryCost() {
+        List<PricePlan> pricePlans = new ArrayList<>();
+        for (int plan = 0; plan < 12; plan++) {
+            List<PricePlan.PeakTimeMultiplier> multipliers = plan % 3 == 0
+                    ? List.of(new PricePlan.PeakTimeMultiplier(DayOfWeek.of(plan % 7 + 1), BigDecimal.valueOf(plan)))
+                    : emptyList();
+            pricePlans.add(new PricePlan("plan-" + plan, null, BigDecimal.valueOf(plan * 7 % 12 + 1, 1), multipliers));
+        }
+        List<ElectricityReading> readings = new ArrayList<>();
+        Instant start = Instant.parse("2024-04-22T22:00:00Z");
+        for (int reading = 0; reading < 3 * 24; reading++) {
+            readings.add(
+                    new ElectricityReading(start.plusSeconds(reading * 3600L), BigDecimal.valueOf(reading % 5 + 1)));
+        }
+        meterReadingService.storeReadings(SMART_METER_ID, readings);
+
+        for (PricePlanService service : List.of(
+                new PricePlanService(pricePlans, meterReadingService),
+                new PricePlanService(
+                        pricePlans, meterReadingService, new PricePlanCostCache(10, Duration.ofMinutes(1))))) {
+            Map<String, BigDecimal> costs = service.getConsumptionCostOfElectricityReadingsForEachPricePlan(
+                            SMART_METER_ID)
+                    .get();
+            List<BigDecimal> sortedCosts = costs.values().stream().sorted().toList();
+            for (int limit = 0; limit <= pricePlans.size() + 1; limit++) {
+                List<Map.Entry<String, BigDecimal>> cheapest =
+                        service.getCheapestPricePlans(SMART_METER_ID, limit).get();
+
+                assertThat(cheapest)
+                        .extracting(Map.Entry::getValue)
+                        .isEqualTo(sortedCosts.subList(0, Math.min(limit, sortedCosts.size())));
+                assertThat(cheapest).allSatisfy(entry -> assertThat(costs.get(entry.getKey()))
+                        .isEqualTo(entry.getValue()));
+            }
+        }
+    }
+}
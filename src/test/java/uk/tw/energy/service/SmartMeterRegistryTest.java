@@ -0,0 +1,55 @@
+package uk.tw.energy.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.Test;
+
+public class SmartMeterRegistryTest {
+
+    @Test
+    public void givenMetersRegisteredShouldHandThemDenseHandlesAndFindThemAgain() {
+        SmartMeterRegistry registry = new SmartMeterRegistry();
+
+        for (int meter = 0; meter < 10_000; meter++) {
+            assertThat(registry.register("smart-meter-" + meter)).isEqualTo(meter);
+        }
+
+        assertThat(registry.size()).isEqualTo(10_000);
+        assertThat(registry.register("smart-meter-42")).isEqualTo(42);
+        assertThat(registry.handleOf("smart-meter-9999")).isEqualTo(9999);
+        assertThat(registry.smartMeterId(9999)).isEqualTo("smart-meter-9999");
+        assertThat(registry.handleOf("smart-meter-10000")).isEqualTo(-1);
+        assertThatThrownBy(() -> registry.smartMeterId(10_000)).isInstanceOf(IndexOutOfBoundsException.class);
+    }
+
+    @Test
+    public void givenTheSameMetersRegisteredConcurrentlyShouldHandEachOneHandle() throws Exception {
+        SmartMeterRegistry registry = new SmartMeterRegistry();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            Future<?>[] registrations = IntStream.range(0, 4)
+                    .mapToObj(thread -> executor.submit(() -> {
+                        for (int meter = 0; meter < 5_000; meter++) {
+                            int handle = registry.register("smart-meter-" + meter);
+                            assertThat(registry.smartMeterId(handle)).isEqualTo("smart-meter-" + meter);
+                        }
+                    }))
+                    .toArray(Future<?>[]::new);
+            for (Future<?> registration : registrations) {
+                registration.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        assertThat(registry.size()).isEqualTo(5_000);
+        assertThat(IntStream.range(0, 5_000).map(meter -> registry.handleOf("smart-meter-" + meter)))
+                .doesNotHaveDuplicates()
+                .allMatch(handle -> handle >= 0 && handle < 5_000);
+    }
+}
@@ -0,0 +1,55 @@
+package uk.tw.energy.sharding;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+public class ConsistentHashRingTest {
+
+    private static final int KEYS = 30_000;
+
+    @Test
+    public void givenTheSameNodesShouldAssignEveryKeyToTheSameNode() {
+        ConsistentHashRing<String> ring = new ConsistentHashRing<>(List.of("a", "b", "c"), 128);
+        ConsistentHashRing<String> reordered = new ConsistentHashRing<>(List.of("c", "a", "b"), 128);
+
+        for (int key = 0; key < KEYS; key++) {
+            assertThat(reordered.nodeFor("smart-meter-" + key)).isEqualTo(ring.nodeFor("smart-meter-" + key));
+        }
+    }
+
+    @Test
+    public void shouldSpreadKeysEvenlyAcrossNodes() {
+        ConsistentHashRing<String> ring = new ConsistentHashRing<>(List.of("a", "b", "c", "d"), 128);
+
+        Map<String, Integer> keysByNode = new HashMap<>();
+        for (int key = 0; key < KEYS; key++) {
+            keysByNode.merge(ring.nodeFor("smart-meter-" + key), 1, Integer::sum);
+        }
+
+        assertThat(keysByNode).hasSize(4);
+        assertThat(keysByNode.values())
+                .allSatisfy(keys -> assertThat(keys).isBetween(KEYS / 4 * 8 / 10, KEYS / 4 * 12 / 10));
+    }
+
+    @Test
+    public void givenANewNodeShouldOnlyMoveKeysToIt() {
+        ConsistentHashRing<String> ring = new ConsistentHashRing<>(List.of("a", "b", "c"), 128);
+        ConsistentHashRing<String> grown = new ConsistentHashRing<>(List.of("a", "b", "c", "d"), 128);
+
+        int moved = 0;
+        for (int key = 0; key < KEYS; key++) {
+            String before = ring.nodeFor("smart-meter-" + key);
+            String after = grown.nodeFor("smart-meter-" + key);
+            if (!before.equals(after)) {
+                assertThat(after).isEqualTo("d");
+                moved++;
+            }
+        }
+
+        assertThat(moved).isBetween(KEYS / 4 * 8 / 10, KEYS / 4 * 12 / 10);
+    }
+}
@@ -0,0 +1,50 @@
+package uk.tw.energy.sharding;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.net.URI;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+public class ShardRouterTest {
+
+    private static final URI FIRST = URI.create("http://localhost:8081");
+    private static final URI SECOND = URI.create("http://localhost:8082");
+    private static final List<URI> NODES = List.of(FIRST, SECOND);
+
+    @Test
+    public void shouldMakeEveryMeterLocalToExactlyOneNode() {
+        ShardRouter first = new ShardRouter(NODES, FIRST, 16);
+        ShardRouter second = new ShardRouter(NODES, SECOND, 16);
+
+        for (int meter = 0; meter < 100; meter++) {
+            String smartMeterId = "smart-meter-" + meter;
+            assertThat(first.isLocal(smartMeterId)).isNotEqualTo(second.isLocal(smartMeterId));
+            assertThat(first.ownerOf(smartMeterId)).isEqualTo(second.ownerOf(smartMeterId));
+        }
+        assertThat(first.peers()).containsExactly(SECOND);
+    }
+
+    @Test
+    public void shouldLocateTheSameRequestOnTheOwner() {
+        ShardRouter router = new ShardRouter(NODES, FIRST, 16);
+        String smartMeterId = "smart-meter-0";
+
+        assertThat(router.locationOf(smartMeterId, "/readings/read/smart-meter-0", "from=2024-04-26T00:00:00Z"))
+                .isEqualTo(URI.create(
+                        router.ownerOf(smartMeterId) + "/readings/read/smart-meter-0?from=2024-04-26T00:00:00Z"));
+    }
+
+    @Test
+    public void givenThisNodeIsNotOneOfTheNodesShouldFail() {
+        assertThatThrownBy(() -> new ShardRouter(NODES, URI.create("http://localhost:8083"), 16))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void givenShardingIsDisabledShouldKeepEveryMeterLocal() {
+        assertThat(ShardRouter.disabled().isLocal("smart-meter-0")).isTrue();
+        assertThat(ShardRouter.disabled().peers()).isEmpty();
+    }
+}
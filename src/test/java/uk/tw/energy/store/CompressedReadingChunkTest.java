@@ -0,0 +1,98 @@
+package uk.tw.energy.store;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+public class CompressedReadingChunkTest {
+
+    private final Random random = new Random(42);
+
+    @Test
+    public void givenReadingsAtRegularIntervalsShouldDecodeThemExactly() {
+        RawReadingChunk raw = new RawReadingChunk(MeterReadingSeries.CHUNK_SIZE);
+        for (int i = 0; i < MeterReadingSeries.CHUNK_SIZE; i++) {
+            raw.add(1_714_089_600L + i * 10L, 0, Math.abs(Math.round(random.nextGaussian() * 10_000)) * 100, 4);
+        }
+
+        CompressedReadingChunk compressed = CompressedReadingChunk.of(raw);
+
+        assertDecodesTo(compressed, raw);
+        assertThat(compressed.estimatedBytes()).isLessThan(raw.estimatedBytes() / 8);
+    }
+
+    @Test
+    public void givenSlowlyChangingReadingsShouldTakeATenthOfTheMemory() {
+        RawReadingChunk raw = new RawReadingChunk(MeterReadingSeries.CHUNK_SIZE);
+        long reading = 1_500_000;
+        for (int i = 0; i < MeterReadingSeries.CHUNK_SIZE; i++) {
+            reading = Math.max(0, reading + (random.nextInt(21) - 10) * 100);
+            raw.add(1_714_089_600L + i * 10L + (i % 50 == 0 ? 1 : 0), 0, reading, 4);
+        }
+
+        CompressedReadingChunk compressed = CompressedReadingChunk.of(raw);
+
+        assertDecodesTo(compressed, raw);
+        assertThat(compressed.estimatedBytes()).isLessThan(raw.estimatedBytes() / 10);
+    }
+
+    @Test
+    public void givenIrregularTimesScalesAndExtremeReadingsShouldDecodeThemExactly() {
+        RawReadingChunk raw = new RawReadingChunk(MeterReadingSeries.CHUNK_SIZE);
+        long epochSecond = -1_000_000L;
+        long[] extremes = {Long.MIN_VALUE, Long.MAX_VALUE, 0, -1, 1};
+        for (int i = 0; i < MeterReadingSeries.CHUNK_SIZE; i++) {
+            epochSecond += switch (i % 4) {
+                case 0 -> 0;
+                case 1 -> random.nextInt(100);
+                case 2 -> random.nextInt(1 << 20);
+                default -> (long) random.nextInt(Integer.MAX_VALUE) << 8;};
+            long reading = i % 7 == 0 ? extremes[random.nextInt(extremes.length)] : random.nextLong();
+            raw.add(epochSecond, random.nextInt(1_000_000_000), reading, random.nextInt(FixedPoint.READING_SCALE + 1));
+        }
+
+        assertDecodesTo(CompressedReadingChunk.of(raw), raw);
+    }
+
+    @Test
+    public void givenASingleReadingShouldDecodeIt() {
+        RawReadingChunk raw = new RawReadingChunk(1);
+        raw.add(1_714_089_600L, 5, 1_250_000, 2);
+
+        assertDecodesTo(CompressedReadingChunk.of(raw), raw);
+    }
+
+    @Test
+    public void givenATimeShouldFindTheFirstReadingAtOrAfterIt() {
+        RawReadingChunk raw = new RawReadingChunk(MeterReadingSeries.CHUNK_SIZE);
+        for (int i = 0; i < MeterReadingSeries.CHUNK_SIZE; i++) {
+            raw.add(1_714_089_600L + i * 10L, 500, 1_000_000, 0);
+        }
+        CompressedReadingChunk compressed = CompressedReadingChunk.of(raw);
+
+        assertThat(compressed.firstAtOrAfter(1_714_089_600L, 0, raw.size)).isEqualTo(0);
+        assertThat(compressed.firstAtOrAfter(1_714_089_610L, 500, raw.size)).isEqualTo(1);
+        assertThat(compressed.firstAtOrAfter(1_714_089_610L, 501, raw.size)).isEqualTo(2);
+        assertThat(compressed.firstAtOrAfter(1_714_089_610L, 501, 2)).isEqualTo(2);
+        assertThat(compressed.firstAtOrAfter(Long.MAX_VALUE, 0, raw.size)).isEqualTo(raw.size);
+    }
+
+    private static void assertDecodesTo(CompressedReadingChunk compressed, RawReadingChunk raw) {
+        RawReadingChunk decoded = compressed.columns(null);
+
+        assertThat(decoded.size).isEqualTo(raw.size);
+        for (int i = 0; i < raw.size; i++) {
+            assertThat(decoded.epochSeconds[i]).isEqualTo(raw.epochSeconds[i]);
+            assertThat(decoded.nanos[i]).isEqualTo(raw.nanos[i]);
+            assertThat(decoded.readings[i]).isEqualTo(raw.readings[i]);
+            assertThat(decoded.scales[i]).isEqualTo(raw.scales[i]);
+        }
+        for (int i = 0; i < raw.size; i += 97) {
+            assertThat(compressed.epochSecond(i)).isEqualTo(raw.epochSeconds[i]);
+            assertThat(compressed.nano(i)).isEqualTo(raw.nanos[i]);
+            assertThat(compressed.reading(i)).isEqualTo(raw.readings[i]);
+            assertThat(compressed.scale(i)).isEqualTo(raw.scales[i]);
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package uk.tw.energy.store;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.RandomAccessFile;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class MappedReadingLogTest {
+
+    private static final Duration FSYNC_INTERVAL = Duration.ofMillis(10);
+
+    @TempDir
+    private Path directory;
+
+    @Test
+    public void givenAppendedBatchesShouldReplayThemInOrder() {
+        try (MappedReadingLog log = openLog(1024, FsyncPolicy.ALWAYS, new ArrayList<>())) {
+            log.awaitDurable(log.append("meter-0", batch(0, 3)));
+            log.awaitDurable(log.append("meter-1", batch(100, 2)));
+            log.awaitDurable(log.append("meter-0", batch(200, 1)));
+        }
+
+        List<String> replayed = new ArrayList<>();
+        try (MappedReadingLog ignored = openLog(1024, FsyncPolicy.ALWAYS, replayed)) {
+            assertThat(replayed).containsExactly("meter-0:0,10,20", "meter-1:100,110", "meter-0:200");
+        }
+    }
+
+    @Test
+    public void givenBatchesSpanningSegmentsShouldReplayThemWhole() {
+        int segmentSize = MappedReadingLog.RECORD_SIZE * 4;
+        try (MappedReadingLog log = openLog(segmentSize, FsyncPolicy.NEVER, new ArrayList<>())) {
+            log.append("meter-0", batch(0, 3));
+            log.append("meter-0", batch(100, 3));
+            log.append("meter-1", batch(200, 3));
+        }
+
+        List<String> replayed = new ArrayList<>();
+        try (MappedReadingLog ignored = openLog(segmentSize, FsyncPolicy.NEVER, replayed)) {
+            assertThat(replayed).containsExactly("meter-0:0,10,20", "meter-0:100,110,120", "meter-1:200,210,220");
+        }
+    }
+
+    @Test
+    public void givenATornBatchShouldDropItAndOverwriteItWithNewBatches() throws Exception {
+        try (MappedReadingLog log = openLog(1024, FsyncPolicy.ALWAYS, new ArrayList<>())) {
+            log.append("meter-0", batch(0, 1));
+            log.append("meter-0", batch(100, 3));
+        }
+        try (RandomAccessFile segment = new RandomAccessFile(
+                directory.resolve("readings-0000000000.wal").toFile(), "rw")) {
+            segment.seek(MappedReadingLog.RECORD_SIZE * 3 + 8);
+            segment.writeLong(-1);
+        }
+
+        List<String> replayed = new ArrayList<>();
+        try (MappedReadingLog log = openLog(1024, FsyncPolicy.ALWAYS, replayed)) {
+            assertThat(replayed).containsExactly("meter-0:0");
+            log.append("meter-0", batch(300, 1));
+        }
+
+        replayed.clear();
+        try (MappedReadingLog ignored = openLog(1024, FsyncPolicy.ALWAYS, replayed)) {
+            assertThat(replayed).containsExactly("meter-0:0", "meter-0:300");
+        }
+    }
+
+    @Test
+    public void givenACheckpointShouldReplayFromItAndTruncateTheSegmentsBeforeIt() {
+        long checkpoint;
+        try (MappedReadingLog log = openLog(1024, FsyncPolicy.ALWAYS, new ArrayList<>())) {
+            log.append("meter-0", batch(0, 3));
+            checkpoint = log.checkpoint();
+            log.awaitDurable(log.append("meter-1", batch(100, 2)));
+            log.truncate(checkpoint);
+        }
+
+        assertThat(directory.resolve("readings-0000000000.wal")).doesNotExist();
+        List<String> replayed = new ArrayList<>();
+        try (MappedReadingLog log = openLog(1024, FsyncPolicy.ALWAYS, checkpoint, replayed)) {
+            assertThat(replayed).containsExactly("meter-1:100,110");
+            log.append("meter-0", batch(200, 1));
+        }
+
+        replayed.clear();
+        try (MappedReadingLog ignored = openLog(1024, FsyncPolicy.ALWAYS, checkpoint, replayed)) {
+            assertThat(replayed).containsExactly("meter-1:100,110", "meter-0:200");
+        }
+    }
+
+    @Test
+    public void givenConcurrentWritersShouldMakeEveryBatchDurable() throws Exception {
+        int writers = 8;
+        int batchesPerWriter = 50;
+        ExecutorService executor = Executors.newFixedThreadPool(writers);
+        try (MappedReadingLog log = openLog(MappedReadingLog.RECORD_SIZE * 64, FsyncPolicy.ALWAYS, new ArrayList<>())) {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int writer = 0; writer < writers; writer++) {
+                String smartMeterId = "meter-" + writer;
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < batchesPerWriter; i++) {
+                        log.awaitDurable(log.append(smartMeterId, batch(i, 2)));
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        List<String> replayed = new ArrayList<>();
+        try (MappedReadingLog ignored = openLog(MappedReadingLog.RECORD_SIZE * 64, FsyncPolicy.ALWAYS, replayed)) {
+            assertThat(replayed).hasSize(writers * batchesPerWriter);
+        }
+    }
+
+    private MappedReadingLog openLog(int segmentSize, FsyncPolicy fsyncPolicy, List<String> replayed) {
+        return openLog(segmentSize, fsyncPolicy, 0, replayed);
+    }
+
+    private MappedReadingLog openLog(int segmentSize, FsyncPolicy fsyncPolicy, long from, List<String> replayed) {
+        MappedReadingLog log = new MappedReadingLog(directory, segmentSize, fsyncPolicy, FSYNC_INTERVAL);
+        log.replay(from, (smartMeterId, batch) -> {
+            List<String> epochSeconds = new ArrayList<>();
+            for (int i = 0; i < batch.size(); i++) {
+                epochSeconds.add(String.valueOf(batch.epochSecond(i)));
+            }
+            replayed.add(smartMeterId + ":" + String.join(",", epochSeconds));
+        });
+        return log;
+    }
+
+    private static ReadingBatch batch(long firstEpochSecond, int size) {
+        ReadingBatch batch = new ReadingBatch(size);
+        for (int i = 0; i < size; i++) {
+            batch.add(firstEpochSecond + i * 10L, 0, 1_000_000L, 1);
+        }
+        return batch;
+    }
+}
@@ -0,0 +1,258 @@
+package uk.tw.energy.store;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import uk.tw.energy.domain.ElectricityReading;
+import uk.tw.energy.generator.ElectricityReadingsGenerator;
+
+public class MeterReadingSeriesTest {
+
+    private MeterReadingSeries series;
+
+    @BeforeEach
+    public void setUp() {
+        series = new MeterReadingSeries();
+    }
+
+    @Test
+    public void givenReadingsShouldReturnEqualReadings() {
+        List<ElectricityReading> readings = List.of(
+                new ElectricityReading(Instant.parse("2024-04-26T00:00:10.123456789Z"), new BigDecimal("10")),
+                new ElectricityReading(Instant.parse("2024-04-26T00:00:20Z"), new BigDecimal("0.1")),
+                new ElectricityReading(Instant.parse("2024-04-26T00:00:30Z"), new BigDecimal("0.1234")));
+
+        series.append(readings);
+
+        assertThat(series.asList()).isEqualTo(readings);
+    }
+
+    @Test
+    public void givenReadingsShouldExposeFixedPointColumns() {
+        series.append(List.of(new ElectricityReading(Instant.ofEpochSecond(1714089610L, 5), new BigDecimal("1.25"))));
+
+        assertThat(series.epochSecond(0)).isEqualTo(1714089610L);
+        assertThat(series.nano(0)).isEqualTo(5);
+        assertThat(series.reading(0)).isEqualTo(1_250_000L);
+        assertThat(series.scale(0)).isEqualTo(2);
+    }
+
+    @Test
+    public void givenMoreReadingsThanFitInAChunkShouldKeepThemInOrder() {
+        List<ElectricityReading> readings =
+                new ElectricityReadingsGenerator().generate(MeterReadingSeries.CHUNK_SIZE * 3 + 7);
+
+        series.append(readings.subList(0, 100));
+        series.append(readings.subList(100, readings.size()));
+
+        assertThat(series.size()).isEqualTo(readings.size());
+        assertThat(series.asList()).isEqualTo(readings);
+    }
+
+    @Test
+    public void givenAViewShouldNotSeeReadingsAppendedAfterwards() {
+        series.append(new ElectricityReadingsGenerator().generate(3));
+        List<ElectricityReading> view = series.asList();
+
+        series.append(new ElectricityReadingsGenerator().generate(3));
+
+        assertThat(view).hasSize(3);
+        assertThatThrownBy(() -> view.get(3)).isInstanceOf(IndexOutOfBoundsException.class);
+    }
+
+    @Test
+    public void givenABatchThatFailsHalfwayShouldNotStoreAnyOfIt() {
+        series.append(new ElectricityReadingsGenerator().generate(MeterReadingSeries.CHUNK_SIZE - 2));
+        List<ElectricityReading> invalidBatch = new ArrayList<>(new ElectricityReadingsGenerator().generate(5));
+        invalidBatch.add(new ElectricityReading(Instant.now(), null));
+
+        assertThatThrownBy(() -> series.append(invalidBatch)).isInstanceOf(NullPointerException.class);
+        series.append(new ElectricityReadingsGenerator().generate(3));
+
+        assertThat(series.size()).isEqualTo(MeterReadingSeries.CHUNK_SIZE + 1);
+    }
+
+    @Test
+    public void givenReadingsOutOfOrderShouldStoreThemInTimeOrder() {
+        ElectricityReading first = reading("2024-04-26T00:00:10Z", "1");
+        ElectricityReading second = reading("2024-04-26T00:00:20Z", "2");
+        ElectricityReading third = reading("2024-04-26T00:00:30Z", "3");
+        ElectricityReading fourth = reading("2024-04-26T00:00:40Z", "4");
+
+        series.append(List.of(third, first));
+        series.append(List.of(fourth, second));
+
+        assertThat(series.asList()).containsExactly(first, second, third, fourth);
+        assertThat(series.aggregate().timeElapsed()).isEqualTo(Duration.ofSeconds(30));
+    }
+
+    @Test
+    public void givenReadingsTakenAtTheSameTimeShouldKeepTheFirstStored() {
+        ElectricityReading stored = reading("2024-04-26T00:00:10Z", "1");
+        ElectricityReading later = reading("2024-04-26T00:00:20Z", "2");
+
+        assertThat(series.append(List.of(stored, later, reading("2024-04-26T00:00:20Z", "3"))))
+                .isEqualTo(2);
+        assertThat(series.append(List.of(later, reading("2024-04-26T00:00:10Z", "4"))))
+                .isEqualTo(0);
+
+        assertThat(series.asList()).containsExactly(stored, later);
+        assertThat(series.aggregate().summedReadings()).isEqualTo(new BigDecimal("3"));
+    }
+
+    @Test
+    public void givenLateReadingsShouldMergeThemAcrossChunks() {
+        List<ElectricityReading> readings =
+                new ElectricityReadingsGenerator().generate(MeterReadingSeries.CHUNK_SIZE * 3 + 7);
+        List<ElectricityReading> everyOther = new ArrayList<>();
+        List<ElectricityReading> rest = new ArrayList<>();
+        for (int i = 0; i < readings.size(); i++) {
+            (i % 2 == 0 ? everyOther : rest).add(readings.get(i));
+        }
+        series.append(everyOther);
+        List<ElectricityReading> view = series.asList();
+
+        series.append(rest.subList(0, rest.size() / 2));
+        series.append(rest.subList(rest.size() / 2, rest.size()));
+
+        assertThat(series.asList()).isEqualTo(readings);
+        assertThat(view).isEqualTo(everyOther);
+    }
+
+    @Test
+    public void givenCompressedChunksShouldReturnTheSameReadingsInLessMemory() {
+        MeterReadingSeries compressed = new MeterReadingSeries(true);
+        List<ElectricityReading> readings =
+                new ElectricityReadingsGenerator().generate(MeterReadingSeries.CHUNK_SIZE * 4 + 7);
+        List<ElectricityReading> late = new ArrayList<>();
+        for (int start = 0; start < readings.size(); start += 100) {
+            List<ElectricityReading> batch = readings.subList(start, Math.min(start + 100, readings.size()));
+            if (start / 100 % 5 == 4) {
+                late.addAll(batch);
+            } else {
+                series.append(batch);
+                compressed.append(batch);
+            }
+        }
+        series.append(late);
+        compressed.append(late);
+        Instant from = readings.get(1500).time();
+        Instant to = readings.get(3000).time();
+
+        assertThat(compressed.asList()).isEqualTo(readings);
+        assertThat(compressed.timeIndex().between(from, to)).isEqualTo(readings.subList(1500, 3000));
+        assertThat(compressed.aggregate()).isEqualTo(series.aggregate());
+        assertThat(compressed.estimatedBytes()).isLessThan(series.estimatedBytes() / 4);
+
+        compressed.compact(readings.get(2000).time().getEpochSecond(), Long.MIN_VALUE);
+        series.compact(readings.get(2000).time().getEpochSecond(), Long.MIN_VALUE);
+
+        assertThat(compressed.asList()).isEqualTo(series.asList());
+        assertThat(compressed.snapshot().rollups()).isEqualTo(series.snapshot().rollups());
+    }
+
+    @Test
+    public void givenOldReadingsShouldCompactThemIntoHourlyAndDailyRollups() {
+        Instant start = Instant.parse("2024-04-24T00:00:00Z");
+        List<ElectricityReading> readings = new ArrayList<>();
+        for (int reading = 0; reading < 3 * 24 * 2; reading++) {
+            readings.add(new ElectricityReading(start.plusSeconds(reading * 1800L), BigDecimal.valueOf(reading + 1)));
+        }
+        series.append(readings);
+        ReadingAggregate aggregate = series.aggregate();
+
+        int compacted = series.compact(
+                Instant.parse("2024-04-26T01:59:59Z").getEpochSecond(),
+                Instant.parse("2024-04-25T00:00:00Z").getEpochSecond());
+
+        assertThat(compacted).isEqualTo((2 * 24 + 1) * 2);
+        assertThat(series.asList()).isEqualTo(readings.subList(compacted, readings.size()));
+        assertThat(series.aggregate())
+                .isEqualTo(new ReadingAggregate(
+                        aggregate.count(),
+                        aggregate.sum(),
+                        aggregate.scale(),
+                        aggregate.earliestEpochSecond(),
+                        aggregate.earliestNano(),
+                        aggregate.latestEpochSecond(),
+                        aggregate.latestNano()));
+        List<ReadingRollup> rollups = series.snapshot().rollups();
+        assertThat(rollups).hasSize(1 + 25);
+        assertThat(rollups.get(0))
+                .isEqualTo(new ReadingRollup(
+                        start.getEpochSecond(),
+                        48,
+                        FixedPoint.toFixedPoint(BigDecimal.valueOf(48 * 49 / 2)),
+                        0,
+                        1_000_000,
+                        48_000_000,
+                        start.getEpochSecond(),
+                        0,
+                        1_000_000,
+                        start.getEpochSecond() + 47 * 1800,
+                        0,
+                        48_000_000,
+                        // (r + r + 1) micro-kW over 1800s for each of the 47 intervals, r = 1..47
+                        1800L * 1_000_000 * (47 * 48 + 47)));
+        assertThat(rollups.get(1).startEpochSecond()).isEqualTo(start.getEpochSecond() + 86_400);
+        assertThat(rollups.get(1).count()).isEqualTo(2);
+    }
+
+    @Test
+    public void givenReadingsTakenBeforeTheCompactedPeriodShouldIgnoreThem() {
+        series.append(List.of(reading("2024-04-26T00:00:10Z", "1"), reading("2024-04-26T02:00:00Z", "2")));
+        series.compact(
+                Instant.parse("2024-04-26T01:00:00Z").getEpochSecond(),
+                Instant.parse("2024-04-26T00:00:00Z").getEpochSecond());
+
+        assertThat(series.append(List.of(reading("2024-04-26T00:00:20Z", "3"), reading("2024-04-26T03:00:00Z", "4"))))
+                .isEqualTo(1);
+        assertThat(series.aggregate().count()).isEqualTo(3);
+        assertThat(series.asList())
+                .containsExactly(reading("2024-04-26T02:00:00Z", "2"), reading("2024-04-26T03:00:00Z", "4"));
+    }
+
+    @Test
+    public void givenBatchesOfReadingsShouldKeepRunningAggregate() {
+        series.append(List.of(
+                new ElectricityReading(Instant.parse("2024-04-26T00:00:20Z"), new BigDecimal("1.5")),
+                new ElectricityReading(Instant.parse("2024-04-26T00:00:10.5Z"), new BigDecimal("2"))));
+        series.append(List.of(new ElectricityReading(Instant.parse("2024-04-26T01:00:30Z"), new BigDecimal("0.25"))));
+
+        ReadingAggregate aggregate = series.aggregate();
+
+        assertThat(aggregate.count()).isEqualTo(3);
+        assertThat(aggregate.summedReadings()).isEqualTo(new BigDecimal("3.75"));
+        assertThat(aggregate.timeElapsed()).isEqualTo(Duration.parse("PT1H19.5S"));
+    }
+
+    @Test
+    public void givenACursorShouldWalkEveryReadingVisibleWhenItWasCreated() {
+        List<ElectricityReading> readings =
+                new ElectricityReadingsGenerator().generate(MeterReadingSeries.CHUNK_SIZE + 1);
+        series.append(readings);
+        ReadingCursor cursor = series.cursor();
+        series.append(readings);
+
+        int count = 0;
+        while (cursor.next()) {
+            assertThat(cursor.epochSecond())
+                    .isEqualTo(readings.get(count).time().getEpochSecond());
+            assertThat(cursor.reading())
+                    .isEqualTo(FixedPoint.toFixedPoint(readings.get(count).reading()));
+            count++;
+        }
+        assertThat(count).isEqualTo(readings.size());
+    }
+
+    private static ElectricityReading reading(String time, String reading) {
+        return new ElectricityReading(Instant.parse(time), new BigDecimal(reading));
+    }
+}
@@ -0,0 +1,80 @@
+package uk.tw.energy.store;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import uk.tw.energy.domain.ElectricityReading;
+import uk.tw.energy.generator.ElectricityReadingsGenerator;
+
+public class ReadingTimeIndexTest {
+
+    private MeterReadingSeries series;
+
+    @BeforeEach
+    public void setUp() {
+        series = new MeterReadingSeries();
+    }
+
+    @Test
+    public void givenReadingsInTimeOrderShouldFindRangeByBinarySearch() {
+        List<ElectricityReading> readings = List.of(
+                reading("2024-04-26T00:00:10Z", "1"),
+                reading("2024-04-26T00:00:20Z", "2"),
+                reading("2024-04-26T00:00:30Z", "3"),
+                reading("2024-04-26T00:00:40Z", "4"));
+        series.append(readings);
+
+        ReadingTimeIndex index = series.timeIndex();
+
+        assertThat(index.firstAtOrAfter(Instant.parse("2024-04-26T00:00:15Z"))).isEqualTo(1);
+        assertThat(index.between(Instant.parse("2024-04-26T00:00:20Z"), Instant.parse("2024-04-26T00:00:40Z")))
+                .isEqualTo(readings.subList(1, 3));
+        assertThat(index.between(Instant.parse("2024-04-26T00:00:41Z"), Instant.MAX))
+                .isEmpty();
+    }
+
+    @Test
+    public void givenATimeShouldFindTheFirstReadingTakenAfterIt() {
+        series.append(List.of(
+                reading("2024-04-26T00:00:10Z", "1"),
+                reading("2024-04-26T00:00:20Z", "2"),
+                reading("2024-04-26T00:00:30Z", "3")));
+
+        ReadingTimeIndex index = series.timeIndex();
+
+        assertThat(index.firstAfter(Instant.parse("2024-04-26T00:00:20Z").getEpochSecond(), 0))
+                .isEqualTo(2);
+        assertThat(index.firstAfter(Instant.parse("2024-04-26T00:00:25Z").getEpochSecond(), 0))
+                .isEqualTo(2);
+        assertThat(index.firstAfter(Instant.parse("2024-04-26T00:00:30Z").getEpochSecond(), 0))
+                .isEqualTo(3);
+    }
+
+    @Test
+    public void givenBatchesOutOfOrderShouldIndexReadingsInTimeOrder() {
+        List<ElectricityReading> readings =
+                new ArrayList<>(new ElectricityReadingsGenerator().generate(MeterReadingSeries.CHUNK_SIZE * 2));
+        Random random = new Random(42);
+        for (int batch = 0; batch < 4; batch++) {
+            List<ElectricityReading> shuffled = new ArrayList<>(readings.subList(batch * 512, (batch + 1) * 512));
+            Collections.shuffle(shuffled, random);
+            series.append(shuffled);
+            series.timeIndex();
+        }
+
+        readings.sort(Comparator.comparing(ElectricityReading::time));
+        assertThat(series.timeIndex().between(Instant.MIN, Instant.MAX)).isEqualTo(readings);
+    }
+
+    private static ElectricityReading reading(String time, String reading) {
+        return new ElectricityReading(Instant.parse(time), new BigDecimal(reading));
+    }
+}
@@ -0,0 +1,116 @@
+package uk.tw.energy.store;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.DayOfWeek;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import uk.tw.energy.domain.PricePlan;
+
+public class StoreSnapshotTest {
+
+    private static final Instant TAKEN_AT = Instant.parse("2024-05-01T00:00:00Z");
+    private static final long START = Instant.parse("2024-04-24T00:00:00Z").getEpochSecond();
+
+    @TempDir
+    private Path directory;
+
+    @Test
+    public void givenAWrittenSnapshotShouldRestorePricePlansAccountsAndSeries() {
+        Path file = directory.resolve("store.snapshot");
+        List<PricePlan> pricePlans = List.of(
+                new PricePlan("flat", null, new BigDecimal("0.25"), List.of()),
+                new PricePlan(
+                        "peak",
+                        "Supplier",
+                        new BigDecimal("0.20"),
+                        List.of(new PricePlan.PeakTimeMultiplier(DayOfWeek.MONDAY, new BigDecimal("1.50")))));
+        MeterReadingSeries compacted = series(3 * 24 * 60);
+        compacted.compact(START + 2 * 86_400 + 6 * 3_600, START + 86_400);
+        MeterReadingSeries raw = series(3);
+
+        try (StoreSnapshotWriter writer =
+                new StoreSnapshotWriter(file, TAKEN_AT, pricePlans, Map.of("meter-0", "peak"))) {
+            writer.writeSeries("meter-0", compacted.snapshot());
+            writer.writeSeries("meter-1", raw.snapshot());
+            writer.setLogPosition(3L << 32);
+            writer.commit();
+        }
+        StoreSnapshot snapshot = StoreSnapshot.open(file);
+
+        assertThat(snapshot.takenAt()).contains(TAKEN_AT);
+        assertThat(snapshot.logPosition()).isEqualTo(3L << 32);
+        assertThat(snapshot.pricePlans()).hasSize(2);
+        assertThat(snapshot.pricePlans().get(0).getEnergySupplier()).isNull();
+        assertThat(snapshot.pricePlans().get(1).getPrice(DayOfWeek.MONDAY)).isEqualByComparingTo("0.30");
+        assertThat(snapshot.smartMeterToPricePlanAccounts()).isEqualTo(Map.of("meter-0", "peak"));
+        assertThat(snapshot.smartMeterIds()).containsExactlyInAnyOrder("meter-0", "meter-1");
+        assertThat(snapshot.size("meter-0")).isEqualTo(compacted.size());
+
+        MeterReadingSeries restored = snapshot.read("meter-0", true).orElseThrow();
+        assertThat(restored.asList()).isEqualTo(compacted.asList());
+        assertThat(restored.aggregate()).isEqualTo(compacted.aggregate());
+        assertThat(restored.snapshot().rollups()).isEqualTo(compacted.snapshot().rollups());
+        assertThat(restored.append(batch(START, 1))).isZero();
+        assertThat(restored.append(batch(START + 4 * 86_400, 1))).isEqualTo(1);
+        assertThat(snapshot.read("meter-1", false).orElseThrow().asList()).isEqualTo(raw.asList());
+        assertThat(snapshot.read("meter-2", false)).isEmpty();
+    }
+
+    @Test
+    public void givenAPreviousSnapshotShouldCopyMetersFromItUnread() {
+        Path previousFile = directory.resolve("previous.snapshot");
+        MeterReadingSeries series = series(2_000);
+        try (StoreSnapshotWriter writer = new StoreSnapshotWriter(previousFile, TAKEN_AT, List.of(), Map.of())) {
+            writer.writeSeries("meter-0", series.snapshot());
+            writer.commit();
+        }
+        StoreSnapshot previous = StoreSnapshot.open(previousFile);
+
+        Path file = directory.resolve("store.snapshot");
+        try (StoreSnapshotWriter writer = new StoreSnapshotWriter(file, TAKEN_AT, List.of(), Map.of())) {
+            assertThat(writer.copySeries("meter-0", previous)).isTrue();
+            assertThat(writer.copySeries("meter-1", previous)).isFalse();
+            writer.commit();
+        }
+
+        assertThat(StoreSnapshot.open(file).read("meter-0", false).orElseThrow().asList())
+                .isEqualTo(series.asList());
+    }
+
+    @Test
+    public void givenNoSnapshotShouldOpenEmptyAndRejectOtherFiles() throws Exception {
+        assertThat(StoreSnapshot.open(directory.resolve("missing.snapshot")).isEmpty())
+                .isTrue();
+
+        Path uncommitted = directory.resolve("uncommitted.snapshot");
+        try (StoreSnapshotWriter writer = new StoreSnapshotWriter(uncommitted, TAKEN_AT, List.of(), Map.of())) {
+            writer.writeSeries("meter-0", series(3).snapshot());
+        }
+        assertThat(directory.toFile().list()).isEmpty();
+
+        Path other = Files.write(directory.resolve("other.snapshot"), new byte[StoreSnapshot.HEADER_SIZE]);
+        assertThatThrownBy(() -> StoreSnapshot.open(other)).isInstanceOf(IllegalStateException.class);
+    }
+
+    private static MeterReadingSeries series(int readings) {
+        MeterReadingSeries series = new MeterReadingSeries(true);
+        series.append(batch(START, readings));
+        return series;
+    }
+
+    private static ReadingBatch batch(long startEpochSecond, int readings) {
+        ReadingBatch batch = new ReadingBatch(readings);
+        for (int i = 0; i < readings; i++) {
+            batch.add(startEpochSecond + i * 60L, i % 7, 100_000L + i % 13 * 1_000, 3);
+        }
+        return batch;
+    }
+}